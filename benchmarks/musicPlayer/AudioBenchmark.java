@@ -0,0 +1,105 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the per-note audio path: synthesizing a note, as done by
+ * musicPlayer.StdAudio.note(), and converting it to the 16-bit PCM written to the
+ * line by musicPlayer.StdAudio.play(double[]), with both the double and the
+ * float samples, and playing a note block by block on a session. None opens
+ * the sound card; run with the gc profiler to see the bytes allocated per
+ * operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AudioBenchmark {
+
+    /**
+     * Note length in seconds.
+     */
+    @Param({"0.125", "1.0", "30.0"})
+    public double duration;
+
+    private double[] samples;
+    private float[] floatSamples;
+    private byte[] pcm;
+    private final float[] block = new float[1024];
+    private final ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(StdAudio.SAMPLE_RATE);
+    private AudioSession session;
+    private Note note;
+    private Note rest;
+
+    @Setup
+    public void setUp() {
+        samples = ToneGenerator.sine(440.0, duration, 0.5);
+        floatSamples = ToneGenerator.sineFloat(440.0, duration, 0.5, StdAudio.SAMPLE_RATE);
+        pcm = new byte[2 * samples.length];
+        session = new AudioSession(CaptureSink.discarding());
+        note = Note.of(duration, Pitch.A, 4, Accidental.NATURAL, false);
+        rest = Note.rest(duration, false);
+    }
+
+    @Benchmark
+    public double[] synthesizeNote() {
+        return ToneGenerator.sine(440.0, duration, 0.5);
+    }
+
+    @Benchmark
+    public float[] synthesizeNoteFloat() {
+        return ToneGenerator.sineFloat(440.0, duration, 0.5, StdAudio.SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public float[] synthesizeNoteBlocks() {
+        oscillator.start(440.0, duration, 0.5);
+        while (oscillator.next(block) > 0) {
+            // the block is reused
+        }
+        return block;
+    }
+
+    @Benchmark
+    public void playNote() {
+        session.play(note);
+    }
+
+    @Benchmark
+    public void playRest() {
+        session.play(rest);
+    }
+
+    @Benchmark
+    public double[] synthesizeRest() {
+        return ToneGenerator.sine(0, duration, 0.5);
+    }
+
+    @Benchmark
+    public byte[] convertToPcm() {
+        PcmConverter.toPcm16(samples, 0, samples.length, pcm, 0);
+        return pcm;
+    }
+
+    @Benchmark
+    public byte[] convertFloatToPcm() {
+        PcmConverter.toPcm16(floatSamples, 0, floatSamples.length, pcm, 0);
+        return pcm;
+    }
+}
@@ -0,0 +1,57 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the CPU cost of rendering a song in each musicPlayer.AudioConfig:
+ * synthesis at the sample rate and conversion to PCM of the bit depth and
+ * channel count, written to a sink that throws the bytes away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AudioConfigBenchmark {
+
+    /**
+     * Audio configuration as "rate/bits/channels".
+     */
+    @Param({"22050/16/1", "44100/8/1", "44100/16/1", "48000/16/1", "48000/24/2"})
+    public String config;
+
+    private Song song;
+    private AudioConfig audioConfig;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = BenchmarkSongs.write(100);
+        song = new Song(file.getPath());
+        audioConfig = AudioConfig.parse(config);
+    }
+
+    @Benchmark
+    public long renderSong() {
+        CaptureSink sink = CaptureSink.discarding();
+        AudioSession session = new AudioSession(sink, audioConfig);
+        session.play(song);
+        return sink.getBytesWritten();
+    }
+}
@@ -0,0 +1,34 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks headless with the gc profiler, so both the time and
+ * the bytes allocated per operation are reported.
+ * <p>
+ * Any JMH command line option can be given, for example a benchmark name
+ * pattern or "-p notes=10,1000" to skip the largest songs.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+              .parent(new CommandLineOptions(args))
+              .addProfiler(GCProfiler.class)
+              .jvmArgsAppend("-Djava.awt.headless=true", "-Xmx4g")
+              .build();
+        try {
+            new Runner(options).run();
+        } catch (RunnerException e) {
+            System.err.println("benchmark failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Generates song files of any size for the benchmarks. The notes are random
+ * but the same for the same size, so runs can be compared.
+ */
+final class BenchmarkSongs {
+
+    private static final String[] DURATIONS = {"0.125", "0.25", "0.5", "1.0"};
+
+    /**
+     * Writes a song with the given number of notes to a temporary file.
+     * About one note in ten is a rest and one repeated section is marked
+     * around the middle of the song.
+     *
+     * @param notes number of notes in the song
+     * @return the song file, deleted when the JVM exits
+     */
+    static File write(int notes) throws IOException {
+        File file = File.createTempFile("bench-" + notes + "-", ".txt");
+        file.deleteOnExit();
+        write(file, notes, new Random(notes));
+        return file;
+    }
+
+    /**
+     * Writes a library of different songs of the given number of notes to
+     * a temporary directory, as song0.txt, song1.txt and so on.
+     *
+     * @param songs number of songs
+     * @param notes number of notes in each song
+     * @return the directory, deleted with the songs when the JVM exits
+     */
+    static File writeLibrary(int songs, int notes) throws IOException {
+        File dir = Files.createTempDirectory("bench-library-").toFile();
+        dir.deleteOnExit();
+        for (int i = 0; i < songs; i++) {
+            File file = new File(dir, "song" + i + ".txt");
+            file.deleteOnExit();
+            write(file, notes, new Random(i));
+        }
+        return dir;
+    }
+
+    private static void write(File file, int notes, Random random) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            out.write("Benchmark Song\nBenchmark\n" + notes + "\n");
+            for (int i = 0; i < notes; i++) {
+                boolean repeat = notes > 2 && (i == notes / 4 || i == notes / 2);
+                String duration = DURATIONS[random.nextInt(DURATIONS.length)];
+                if (random.nextInt(10) == 0) {
+                    out.write(duration + " R " + repeat + "\n");
+                } else {
+                    Pitch pitch = Pitch.values()[random.nextInt(7)];
+                    Accidental accidental = Accidental.values()[random.nextInt(3)];
+                    int octave = 3 + random.nextInt(4);
+                    out.write(duration + " " + pitch + " " + octave + " " + accidental + " " + repeat + "\n");
+                }
+            }
+        }
+    }
+
+    private BenchmarkSongs() {
+        // empty
+    }
+}
@@ -0,0 +1,80 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of editing a song in the middle: a musicPlayer.EditableSong against
+ * copying the array of notes as a musicPlayer.Song transform does.
+ * <p>
+ * Every insert is followed by the delete of the same note, so every
+ * invocation works on a song of the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EditableSongBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int notes;
+
+    private EditableSong editable;
+    private Note[] array;
+    private final Note note = Note.of(0.25, Pitch.A, 4, Accidental.NATURAL, false);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File file = BenchmarkSongs.write(notes);
+        Song song = new Song(file.getPath());
+        editable = new EditableSong(song);
+        // one edit for undoRedo() to go back and forth over
+        editable.replace(0, note);
+        array = song.getNotes().clone();
+    }
+
+    @Benchmark
+    public double insertDelete() {
+        int middle = editable.size() / 2;
+        editable.insert(middle, note);
+        editable.delete(middle);
+        return editable.getTotalDuration();
+    }
+
+    @Benchmark
+    public Note[] arrayInsertDelete() {
+        int middle = array.length / 2;
+        Note[] inserted = new Note[array.length + 1];
+        System.arraycopy(array, 0, inserted, 0, middle);
+        inserted[middle] = note;
+        System.arraycopy(array, middle, inserted, middle + 1, array.length - middle);
+        Note[] deleted = new Note[array.length];
+        System.arraycopy(inserted, 0, deleted, 0, middle);
+        System.arraycopy(inserted, middle + 1, deleted, middle, array.length - middle);
+        array = deleted;
+        return array;
+    }
+
+    @Benchmark
+    public boolean undoRedo() {
+        return editable.undo() & editable.redo();
+    }
+}
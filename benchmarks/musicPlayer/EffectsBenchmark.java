@@ -0,0 +1,76 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the effects on one block of musicPlayer.AudioSession, 1024
+ * samples or 23 ms at 44,100 Hz: each effect alone and the whole chain.
+ * The tail variant processes silence after the sound, where the state of
+ * the effects would decay into subnormal floats if they didn't flush it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EffectsBenchmark {
+
+    @Param({"lowPass", "delay", "reverb", "chain"})
+    public String effect;
+
+    @Param({"sound", "tail"})
+    public String input;
+
+    private final float[] block = new float[1024];
+    private float[] source;
+    private AudioEffect processor;
+
+    @Setup
+    public void setUp() {
+        int rate = StdAudio.SAMPLE_RATE;
+        switch (effect) {
+            case "lowPass":
+                processor = BiquadFilter.lowPass(2000.0, rate);
+                break;
+            case "delay":
+                processor = new DelayEffect(0.3, 0.6, 0.5, rate);
+                break;
+            case "reverb":
+                processor = new ReverbEffect(0.8, 0.3, 0.3, rate);
+                break;
+            default:
+                EffectChain chain = new EffectChain();
+                chain.add(BiquadFilter.highPass(80.0, rate));
+                chain.add(new DelayEffect(0.3, 0.6, 0.5, rate));
+                chain.add(new ReverbEffect(0.8, 0.3, 0.3, rate));
+                processor = chain;
+        }
+        source = input.equals("sound")
+              ? ToneGenerator.sineFloat(440.0, block.length / (double) rate, 0.5, rate)
+              : new float[block.length];
+        float[] sound = ToneGenerator.sineFloat(440.0, 1.0, 0.5, rate);
+        processor.process(sound, 0, sound.length);
+    }
+
+    @Benchmark
+    public float[] processBlock() {
+        System.arraycopy(source, 0, block, 0, block.length);
+        processor.process(block, 0, block.length);
+        return block;
+    }
+}
@@ -0,0 +1,259 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What the user feels, end to end: the time from a button of
+ * musicPlayer.MusicPlayer to its effect, measured headless. Each benchmark
+ * sends the command the button sends to the musicPlayer.Transport, with its
+ * states published on the Swing event thread as in the window, and returns
+ * once the effect is observed:
+ * <ul>
+ * <li>Play: the first sample reaches the line;</li>
+ * <li>Pause: the line falls silent, having played what it had buffered;</li>
+ * <li>Stop: the player thread is free to play again;</li>
+ * <li>Change Tempo: the state with the new total duration is delivered.</li>
+ * </ul>
+ * The line is a DeviceSink, which consumes its buffer in real time like the
+ * sound card and timestamps what is written to it. Sample time mode reports
+ * the p50, p99 and max of every command for every song size.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-DmusicPlayer.sink=none"})
+@State(Scope.Benchmark)
+public class LatencyBenchmark {
+
+    /**
+     * Number of notes in the song, about 0.5 s each.
+     */
+    @Param({"10", "100", "1000"})
+    public int notes;
+
+    /*
+     * A line that plays what is written to it in real time out of a buffer
+     * as large as the sound card's, blocking writes while it is full, and
+     * remembers when samples arrived.
+     */
+    static final class DeviceSink implements AudioSink {
+        private final int bufferSize;
+        private final double bytesPerNano;
+        private long written;    // bytes written in all
+        private long markBytes;  // bytes played at markNanos
+        private long markNanos;  // when the device last started playing
+        private long firstWriteNanos;
+        private boolean writing;
+
+        DeviceSink(AudioConfig config) {
+            this.bufferSize = 4096 * config.getSampleRate() / StdAudio.SAMPLE_RATE * config.getFrameSize();
+            this.bytesPerNano = config.getSampleRate() * config.getFrameSize() / 1e9;
+        }
+
+        public synchronized void write(byte[] pcm, int off, int len) {
+            long now = System.nanoTime();
+            if (firstWriteNanos == 0) {
+                firstWriteNanos = now;
+                notifyAll();
+            }
+            writing = true;
+            if (played(now) >= written) {
+                // the device ran dry and starts again with these samples
+                markBytes = written;
+                markNanos = now;
+            }
+            try {
+                long excess;
+                while ((excess = written + len - played(now) - bufferSize) > 0) {
+                    long nanos = (long) (excess / bytesPerNano) + 1;
+                    wait(nanos / 1000000, (int) (nanos % 1000000));
+                    now = System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                written += len;
+                writing = false;
+                notifyAll();
+            }
+        }
+
+        public synchronized int available() {
+            return (int) Math.max(0, bufferSize - (written - played(System.nanoTime())));
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void drain() {
+            LockSupport.parkNanos(Math.max(0, silenceNanos() - System.nanoTime()));
+        }
+
+        public void close() {
+            // nothing to release
+        }
+
+        /*
+         * Forgets the first write, so the next one is timestamped.
+         */
+        synchronized void resetFirstWrite() {
+            firstWriteNanos = 0;
+        }
+
+        /*
+         * Waits for a write after resetFirstWrite() and returns when it came.
+         */
+        synchronized long awaitFirstWrite() throws InterruptedException {
+            while (firstWriteNanos == 0) {
+                wait();
+            }
+            return firstWriteNanos;
+        }
+
+        /*
+         * Waits until the device has played everything written and nothing is
+         * being written. The writer of a paused session is then parked: it
+         * would have written again long before the buffer ran dry.
+         */
+        void awaitSilence() {
+            while (true) {
+                long remaining;
+                synchronized (this) {
+                    remaining = writing ? 100000 : silenceNanos() - System.nanoTime();
+                }
+                if (remaining <= 0) {
+                    return;
+                }
+                LockSupport.parkNanos(Math.min(remaining, 100000));
+            }
+        }
+
+        private synchronized long silenceNanos() {
+            return markNanos + (long) ((written - markBytes) / bytesPerNano);
+        }
+
+        private long played(long now) {
+            return Math.min(written, markBytes + (long) ((now - markNanos) * bytesPerNano));
+        }
+    }
+
+    private DeviceSink sink;
+    private AudioSink previous;
+    private Transport transport;
+    private volatile TransportState state = TransportState.EMPTY;
+    private final Object stateLock = new Object();
+    private long songVersion;
+    private double tempo = 2.0;
+
+    @Setup
+    public void setUp() throws Exception {
+        StdAudio audio = StdAudio.getInstance();
+        sink = new DeviceSink(audio.getConfig());
+        previous = audio.setSink(sink);
+        transport = new Transport(new Playlist());
+        transport.addListener(published -> {
+            synchronized (stateLock) {
+                state = published;
+                stateLock.notifyAll();
+            }
+        });
+        transport.load(BenchmarkSongs.write(notes).getPath());
+        await(s -> s.getSong() != null);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        transport.stop();
+        await(s -> s.getStatus() == TransportState.Status.STOPPED && !s.isPlayerBusy());
+        transport.close();
+        StdAudio.getInstance().setSink(previous);
+    }
+
+    /**
+     * Stops whatever plays and waits until the player thread is free.
+     */
+    @Setup(Level.Invocation)
+    public void stopped() throws InterruptedException {
+        if (state.getStatus() != TransportState.Status.STOPPED || state.isPlayerBusy()) {
+            transport.stop();
+            await(s -> s.getStatus() == TransportState.Status.STOPPED && !s.isPlayerBusy());
+        }
+        sink.awaitSilence();
+        sink.resetFirstWrite();
+        songVersion = state.getSongVersion();
+    }
+
+    @Benchmark
+    public long play() throws InterruptedException {
+        transport.play();
+        return sink.awaitFirstWrite();
+    }
+
+    @Benchmark
+    public TransportState stop(Playing playing) throws InterruptedException {
+        transport.stop();
+        return await(s -> s.getStatus() == TransportState.Status.STOPPED && !s.isPlayerBusy());
+    }
+
+    @Benchmark
+    public void pause(Playing playing) {
+        transport.pause();
+        sink.awaitSilence();
+    }
+
+    @Benchmark
+    public double changeTempo() throws InterruptedException {
+        transport.changeTempo(tempo);
+        // alternate, so the song keeps its size
+        tempo = 1.0 / tempo;
+        long before = songVersion;
+        return await(s -> s.getSongVersion() > before).getSong().getTotalDuration();
+    }
+
+    /**
+     * Makes the song play, after the benchmark stopped it, and waits for
+     * its first samples.
+     */
+    @State(Scope.Thread)
+    public static class Playing {
+        @Setup(Level.Invocation)
+        public void setUp(LatencyBenchmark benchmark) throws InterruptedException {
+            benchmark.transport.play();
+            benchmark.sink.awaitFirstWrite();
+            benchmark.await(s -> s.getStatus() == TransportState.Status.PLAYING);
+        }
+    }
+
+    /*
+     * Waits for a published state matching the predicate, the current one
+     * included.
+     */
+    TransportState await(Predicate<TransportState> predicate) throws InterruptedException {
+        synchronized (stateLock) {
+            while (!predicate.test(state)) {
+                stateLock.wait();
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of searching a library of random songs of 200 notes for a phrase
+ * of eight notes taken from one of them and transposed, with the
+ * musicPlayer.MelodyIndex of the library against loading every song and
+ * comparing the notes. Building the library and its index is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MelodyIndexBenchmark {
+
+    private static final int NOTES = 200;
+    private static final int PHRASE = 8;
+
+    @Param({"1000", "20000"})
+    public int songs;
+
+    private File library;
+    private MelodyIndex index;
+    private List<Note> phrase;
+    private int[] phraseSteps;
+
+    @Setup
+    public void setUp() throws IOException {
+        library = BenchmarkSongs.writeLibrary(songs, NOTES);
+        index = MelodyIndex.open(Files.createTempDirectory("bench-index-").toFile());
+        index.update(library);
+        phrase = new ArrayList<>();
+        for (Note note : new Song(new File(library, "song" + songs / 2 + ".txt").getPath()).getPlayOrder()) {
+            if (!note.isRest() && phrase.size() < PHRASE) {
+                phrase.add(Note.ofMidiKey(note.getDuration(), note.getMidiKey() + 3, false));
+            }
+        }
+        phraseSteps = MelodyIndex.steps(phrase);
+        if (search().isEmpty() || search().get(0).getOccurrences() == 0) {
+            throw new IllegalStateException("the phrase is not found");
+        }
+    }
+
+    @Benchmark
+    public List<MelodyIndex.Match> search() {
+        return index.search(phrase, 10);
+    }
+
+    @Benchmark
+    public int scanSongs() {
+        int found = 0;
+        File[] files = library.listFiles();
+        for (File file : files) {
+            int[] steps = MelodyIndex.steps(new Song(file.getPath()).getPlayOrder());
+            for (int i = 0; i + phraseSteps.length <= steps.length; i++) {
+                int k = 0;
+                while (k < phraseSteps.length && steps[i + k] == phraseSteps[k]) {
+                    k++;
+                }
+                if (k == phraseSteps.length) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
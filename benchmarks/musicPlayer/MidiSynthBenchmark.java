@@ -0,0 +1,90 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.sampled.AudioInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the CPU time per second of audio of the two synthesis
+ * backends: the sine waves of musicPlayer.ToneGenerator and the JDK's software
+ * MIDI synthesizer through musicPlayer.MidiSynthRenderer. Both render on the
+ * calling thread, so the time of an operation is its CPU time.
+ * <p>
+ * A song of 40 quarter-second notes is rendered to PCM and thrown away; the
+ * score is per audio-second. The synthesizer's ring out after the last note
+ * is not read, and opening it is part of every song.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-exports=java.desktop/com.sun.media.sound=ALL-UNNAMED")
+@State(Scope.Benchmark)
+@OperationsPerInvocation(MidiSynthBenchmark.SECONDS)
+public class MidiSynthBenchmark {
+
+    static final int SECONDS = 10;
+    private static final double NOTE_SECONDS = 0.25;
+
+    /**
+     * General MIDI program of the synthesizer.
+     */
+    @Param({"0", "40"})
+    public int program;
+
+    private Song song;
+    private MidiSynthRenderer renderer;
+    private byte[] buffer;
+    private long songBytes;
+
+    @Setup
+    public void setUp() {
+        Note[] notes = new Note[(int) (SECONDS / NOTE_SECONDS)];
+        for (int i = 0; i < notes.length; i++) {
+            notes[i] = Note.ofMidiKey(NOTE_SECONDS, 60 + i % 12, false);
+        }
+        song = new Song("benchmark", "musicPlayer", notes);
+        AudioConfig config = AudioConfig.DEFAULT;
+        renderer = new MidiSynthRenderer(config, program);
+        buffer = new byte[config.getFrameSize() * 4096];
+        songBytes = config.sampleCount(SECONDS) * (long) config.getFrameSize();
+    }
+
+    @Benchmark
+    public long sine() {
+        CaptureSink sink = CaptureSink.discarding();
+        AudioSession session = new AudioSession(sink, AudioConfig.DEFAULT);
+        session.play(song);
+        return sink.getBytesWritten();
+    }
+
+    @Benchmark
+    public long midiSynth() throws IOException, MidiUnavailableException {
+        long read = 0;
+        try (AudioInputStream in = renderer.render(song)) {
+            int n;
+            while (read < songBytes
+                  && (n = in.read(buffer, 0, (int) Math.min(buffer.length, songBytes - read))) > 0) {
+                read += n;
+            }
+        }
+        return read;
+    }
+}
@@ -0,0 +1,46 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of what each musicPlayer.ToneGenerator.Quality saves: synthesizing
+ * one second of a note block by block, as musicPlayer.AudioSession.play(Note)
+ * does, at every quality the musicPlayer.QualityController can step to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QualityBenchmark {
+
+    @Param({"FULL", "TABLE", "HALF_RATE", "QUARTER_RATE"})
+    public ToneGenerator.Quality quality;
+
+    private final float[] block = new float[1024];
+    private final ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(StdAudio.SAMPLE_RATE);
+
+    @Benchmark
+    public float[] synthesizeSecond() {
+        oscillator.start(440.0, 1.0, 0.5);
+        oscillator.setQuality(quality);
+        while (oscillator.next(block) > 0) {
+            // the block is reused
+        }
+        return block;
+    }
+}
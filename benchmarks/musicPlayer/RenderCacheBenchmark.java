@@ -0,0 +1,74 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of playing a whole song to a sink that discards it: synthesized
+ * note by note, and replayed from a musicPlayer.RenderCache, which only
+ * copies the PCM out of the mapped file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderCacheBenchmark {
+
+    /**
+     * Number of notes in the song, about 0.5 s each.
+     */
+    @Param({"100", "1000"})
+    public int notes;
+
+    private Song song;
+    private File directory;
+    private AudioSession synthesizing;
+    private AudioSession cached;
+
+    @Setup
+    public void setUp() throws Exception {
+        song = new Song(BenchmarkSongs.write(notes).getPath());
+        directory = Files.createTempDirectory("renders").toFile();
+        RenderCache cache = new RenderCache(directory, RenderCache.DEFAULT_MAX_BYTES);
+        cache.renderLater(song.getPlayOrder(), AudioConfig.DEFAULT).get();
+        synthesizing = new AudioSession(CaptureSink.discarding());
+        cached = new AudioSession(CaptureSink.discarding());
+        cached.setRenderCache(cache);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void playSynthesized() {
+        synthesizing.play(song);
+    }
+
+    @Benchmark
+    public void playCached() {
+        cached.play(song);
+    }
+}
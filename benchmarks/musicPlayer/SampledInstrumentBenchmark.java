@@ -0,0 +1,85 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of playing a whole song to a sink that discards it: synthesized
+ * as sine waves, and from a musicPlayer.SampleBank of one 2-second recording
+ * per C and F# of every octave, resampled with cubic interpolation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampledInstrumentBenchmark {
+
+    /**
+     * Number of notes in the song, about 0.5 s each.
+     */
+    @Param({"100", "1000"})
+    public int notes;
+
+    private Song song;
+    private File directory;
+    private AudioSession synthesizing;
+    private AudioSession sampled;
+
+    @Setup
+    public void setUp() throws Exception {
+        song = new Song(BenchmarkSongs.write(notes).getPath());
+        directory = Files.createTempDirectory("samples").toFile();
+        for (int octave = Note.OCTAVE_MIN; octave <= 9; octave++) {
+            write(Note.of(2.0, Pitch.C, octave, Accidental.NATURAL, false), "C" + octave);
+            write(Note.of(2.0, Pitch.F, octave, Accidental.SHARP, false), "F#" + octave);
+        }
+        synthesizing = new AudioSession(CaptureSink.discarding());
+        sampled = new AudioSession(CaptureSink.discarding());
+        sampled.setInstrument(new SampledInstrument(SampleBank.open(directory)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void playSynthesized() {
+        synthesizing.play(song);
+    }
+
+    @Benchmark
+    public void playSampled() {
+        sampled.play(song);
+    }
+
+    /*
+     * Records the given note, a sine wave, as the sample of its key.
+     */
+    private void write(Note note, String name) throws Exception {
+        try (WavWriter wav = new WavWriter(new File(directory, name + ".wav"))) {
+            wav.write(note.renderFloat(StdAudio.SAMPLE_RATE));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of parsing a song and of the musicPlayer.Song operations behind the
+ * player's buttons, for songs from 10 to 10 million notes.
+ * <p>
+ * The transforms are applied in pairs that undo each other, so every
+ * invocation works on a song of the same shape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SongBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int notes;
+
+    private String filename;
+    private Song song;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File file = BenchmarkSongs.write(notes);
+        filename = file.getPath();
+        song = new Song(filename);
+        // leave room to move one octave either way
+        if (!song.octaveUp()) {
+            song.octaveDown();
+        }
+    }
+
+    @Benchmark
+    public Song parse() {
+        return new Song(filename);
+    }
+
+    @Benchmark
+    public double totalDuration() {
+        return song.getTotalDuration();
+    }
+
+    @Benchmark
+    public boolean octaveUpDown() {
+        return song.octaveUp() & song.octaveDown();
+    }
+
+    @Benchmark
+    public boolean octaveDownUp() {
+        return song.octaveDown() & song.octaveUp();
+    }
+
+    @Benchmark
+    public Song changeTempo() {
+        song.changeTempo(2.0);
+        song.changeTempo(0.5);
+        return song;
+    }
+
+    @Benchmark
+    public Song reverse() {
+        song.reverse();
+        return song;
+    }
+
+    @Benchmark
+    public String toStringBenchmark() {
+        return song.toString();
+    }
+}
@@ -0,0 +1,88 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of what a repaint of musicPlayer.WaveformPanel costs: reading the
+ * envelope of 1000 pixels from a musicPlayer.WaveformPyramid of a song of the
+ * given length, at full view and zoomed in, against scanning the samples of
+ * the full view. The pyramid reads should not depend on the length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WaveformBenchmark {
+
+    private static final int PIXELS = 1000;
+
+    /**
+     * Length of the song in minutes.
+     */
+    @Param({"1", "10", "60"})
+    public int minutes;
+
+    private WaveformPyramid pyramid;
+    private float[] samples;
+    private final float[] min = new float[PIXELS];
+    private final float[] max = new float[PIXELS];
+
+    @Setup
+    public void setUp() {
+        samples = new float[AudioConfig.DEFAULT.getSampleRate() * 60 * minutes];
+        Random random = new Random(42);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextFloat() - 0.5f;
+        }
+        pyramid = new WaveformPyramid();
+        pyramid.setLength(samples.length);
+        pyramid.write(0, samples, 0, samples.length);
+    }
+
+    @Benchmark
+    public float[] envelopeFullView() {
+        pyramid.envelope(0, samples.length, min, max);
+        return max;
+    }
+
+    @Benchmark
+    public float[] envelopeZoomed() {
+        long middle = samples.length / 2;
+        pyramid.envelope(middle, middle + 10 * PIXELS, min, max);
+        return max;
+    }
+
+    @Benchmark
+    public float[] scanFullView() {
+        double perColumn = (double) samples.length / PIXELS;
+        for (int c = 0; c < PIXELS; c++) {
+            float lo = Float.POSITIVE_INFINITY;
+            float hi = Float.NEGATIVE_INFINITY;
+            int end = (int) ((c + 1) * perColumn);
+            for (int i = (int) (c * perColumn); i < end; i++) {
+                lo = Math.min(lo, samples[i]);
+                hi = Math.max(hi, samples[i]);
+            }
+            min[c] = lo;
+            max[c] = hi;
+        }
+        return max;
+    }
+}
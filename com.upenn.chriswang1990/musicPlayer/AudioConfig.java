@@ -0,0 +1,135 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A musicPlayer.AudioConfig is the format an engine renders in: sample rate, bit
+ * depth (8, 16 or 24) and number of channels. Notes are synthesized at the
+ * sample rate and converted to PCM of the bit depth, the same samples going
+ * to every channel.
+ * <p>
+ * 8-bit PCM is unsigned, 16 and 24-bit PCM are signed and little Endian, as
+ * in .wav files.
+ */
+public final class AudioConfig {
+
+    /**
+     * 44,100 Hz, 16-bit, mono: CD quality, the format of musicPlayer.StdAudio.
+     */
+    public static final AudioConfig DEFAULT = new AudioConfig(StdAudio.SAMPLE_RATE, 16, 1);
+
+    private final int sampleRate;
+    private final int bitDepth;
+    private final int channels;
+
+    /**
+     * Creates a configuration.
+     *
+     * @param sampleRate samples per second and channel
+     * @param bitDepth   8, 16 or 24
+     * @param channels   1 (mono) to 8
+     * @throws IllegalArgumentException if a value is not supported
+     */
+    public AudioConfig(int sampleRate, int bitDepth, int channels) {
+        if (sampleRate < 1000 || sampleRate > 384000) {
+            throw new IllegalArgumentException("Illegal sample rate: " + sampleRate);
+        }
+        if (bitDepth != 8 && bitDepth != 16 && bitDepth != 24) {
+            throw new IllegalArgumentException("Illegal bit depth: " + bitDepth);
+        }
+        if (channels < 1 || channels > 8) {
+            throw new IllegalArgumentException("Illegal channel count: " + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.bitDepth = bitDepth;
+        this.channels = channels;
+    }
+
+    /**
+     * Returns the configuration written as "rate/bits/channels", such as
+     * "48000/24/2". Missing parts keep their default value.
+     *
+     * @throws IllegalArgumentException if the text is not a configuration
+     */
+    public static AudioConfig parse(String text) {
+        String[] parts = text.trim().split("/");
+        if (parts.length > 3) {
+            throw new IllegalArgumentException("Illegal audio configuration: " + text);
+        }
+        return new AudioConfig(Integer.parseInt(parts[0]),
+              parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT.bitDepth,
+              parts.length > 2 ? Integer.parseInt(parts[2]) : DEFAULT.channels);
+    }
+
+    /**
+     * Returns the configuration given by the system property
+     * musicPlayer.audio (for example -DmusicPlayer.audio=22050/16/1), or
+     * DEFAULT if it is not set.
+     */
+    public static AudioConfig fromSystemProperties() {
+        String text = System.getProperty("musicPlayer.audio");
+        return text == null ? DEFAULT : parse(text);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Returns the number of bytes of one sample of one channel.
+     */
+    public int getBytesPerSample() {
+        return bitDepth / 8;
+    }
+
+    /**
+     * Returns the number of bytes of one sample of every channel.
+     */
+    public int getFrameSize() {
+        return channels * bitDepth / 8;
+    }
+
+    /**
+     * Returns the number of samples synthesized for the given duration.
+     */
+    public int sampleCount(double duration) {
+        return (int) (sampleRate * duration) + 1;
+    }
+
+    /**
+     * Returns the javax.sound format of the PCM produced in this configuration.
+     */
+    public AudioFormat toAudioFormat() {
+        return new AudioFormat((float) sampleRate, bitDepth, channels, bitDepth != 8, false);
+    }
+
+    public boolean equals(Object o) {
+        if (o instanceof AudioConfig) {
+            AudioConfig other = (AudioConfig) o;
+            return sampleRate == other.sampleRate && bitDepth == other.bitDepth
+                  && channels == other.channels;
+        }
+        return false;
+    }
+
+    public int hashCode() {
+        return (sampleRate * 31 + bitDepth) * 31 + channels;
+    }
+
+    /**
+     * Returns the configuration as "rate/bits/channels", the form parse() reads.
+     */
+    public String toString() {
+        return sampleRate + "/" + bitDepth + "/" + channels;
+    }
+}
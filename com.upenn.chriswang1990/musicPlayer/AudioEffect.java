@@ -0,0 +1,60 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * One stage of processing between synthesis and the sink, such as a filter,
+ * an echo or a reverb. An effect changes a block of samples in place, so a
+ * musicPlayer.EffectChain passes the same block from stage to stage without
+ * copying it.
+ * <p>
+ * process() is called by the playing thread only and must not allocate:
+ * everything an effect needs, including its delay lines, is allocated when
+ * it is created. Settings may be changed from any thread and take effect
+ * from the next block.
+ * <p>
+ * State that feeds back on itself decays towards zero through the subnormal
+ * floats once the input goes quiet, where arithmetic gets many times slower
+ * on most processors. Effects pass such state through flushDenormal() so it
+ * becomes exactly zero instead.
+ */
+public interface AudioEffect {
+
+    /**
+     * Values smaller than this are flushed to zero: far below the least
+     * significant bit of 24-bit PCM, far above the subnormal range.
+     */
+    double DENORMAL_THRESHOLD = 1e-15;
+
+    /**
+     * Processes samples [from, to) of the block in place.
+     */
+    void process(float[] samples, int from, int to);
+
+    /**
+     * Forgets the samples processed so far, such as the tail of an echo.
+     * Called by the playing thread only.
+     */
+    void reset();
+
+    /**
+     * Returns the name shown for this effect.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Returns the given value, or 0 if it is too small to be heard.
+     */
+    static double flushDenormal(double value) {
+        return value < DENORMAL_THRESHOLD && value > -DENORMAL_THRESHOLD ? 0.0 : value;
+    }
+
+    /**
+     * Returns the given value, or 0 if it is too small to be heard.
+     */
+    static float flushDenormal(float value) {
+        return value < DENORMAL_THRESHOLD && value > -DENORMAL_THRESHOLD ? 0.0f : value;
+    }
+}
@@ -0,0 +1,225 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A musicPlayer.AudioEngine plays songs on many independent musicPlayer.AudioSession
+ * objects at once, sharing one set of threads between all of them.
+ * <p>
+ * Songs are played a few notes at a time: after each slice the session
+ * goes back to the end of the queue, so hundreds of sessions rendering to
+ * memory, files or network streams all make progress on a small fixed
+ * pool. A session paused between notes is put aside until it resumes
+ * instead of holding a thread; one paused in the middle of a note holds
+ * its thread until it resumes or is stopped, as the note can't be set
+ * aside half written. Sessions playing to a sound card block while the card
+ * is full, so many of those are best run on virtual threads.
+ */
+public class AudioEngine implements AutoCloseable {
+
+    private static final int NOTES_PER_SLICE = 8;
+    private static final long PAUSE_POLL_MILLIS = 20;
+
+    private final AudioConfig config;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /*
+     * The progress of one song on one session.
+     */
+    private class Playback implements Runnable {
+        private final AudioSession session;
+        private final List<Note> order;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private int next = 0;
+
+        Playback(AudioSession session, Song song) {
+            this.session = session;
+            this.order = song.getPlayOrder();
+        }
+
+        public void run() {
+            if (done.isDone()) {
+                finish();
+                return;
+            }
+            if (session.isPaused()) {
+                try {
+                    timer.schedule(this::resubmit, PAUSE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    done.cancel(false);
+                    finish();
+                }
+                return;
+            }
+            try {
+                int end = Math.min(order.size(), next + NOTES_PER_SLICE);
+                for (; next < end && !done.isDone() && !session.isPaused(); next++) {
+                    session.play(order.get(next));
+                }
+                if (next >= order.size()) {
+                    session.flush();
+                    done.complete(null);
+                }
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+            if (done.isDone()) {
+                finish();
+            } else {
+                resubmit();
+            }
+        }
+
+        private void resubmit() {
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                done.cancel(false);
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Creates an engine sharing the given number of worker threads.
+     *
+     * @param threads number of worker threads
+     */
+    public AudioEngine(int threads) {
+        this(threads, AudioConfig.DEFAULT);
+    }
+
+    /**
+     * Creates an engine sharing the given number of worker threads whose
+     * sessions render in the given configuration.
+     *
+     * @param threads number of worker threads
+     * @param config  format of the sessions of this engine
+     */
+    public AudioEngine(int threads, AudioConfig config) {
+        this(Executors.newFixedThreadPool(threads, daemonThreads("audio-engine")), config);
+    }
+
+    private AudioEngine(ExecutorService workers, AudioConfig config) {
+        this.config = config;
+        this.workers = workers;
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("audio-engine-timer"));
+    }
+
+    /**
+     * Creates an engine running every slice on a new virtual thread. On a JDK
+     * without virtual threads, a growing pool of platform threads is used.
+     */
+    public static AudioEngine withVirtualThreads() {
+        return withVirtualThreads(AudioConfig.DEFAULT);
+    }
+
+    /**
+     * Creates an engine running every slice on a new virtual thread whose
+     * sessions render in the given configuration.
+     */
+    public static AudioEngine withVirtualThreads(AudioConfig config) {
+        return new AudioEngine(newVirtualThreadExecutor("audio-engine"), config);
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task, or a cached
+     * pool of daemon threads if this JDK has no virtual threads.
+     */
+    static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads(name));
+        }
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task, or a fixed
+     * pool of the given number of daemon threads if this JDK has no virtual
+     * threads, the tasks beyond them waiting for a thread.
+     */
+    static ExecutorService newVirtualThreadExecutor(String name, int maxPlatformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxPlatformThreads, daemonThreads(name));
+        }
+    }
+
+    /**
+     * Returns the configuration the sessions of this engine render in.
+     */
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Creates a new session playing to the given sink in the configuration
+     * of this engine.
+     */
+    public AudioSession openSession(AudioSink sink) {
+        return new AudioSession(sink, config);
+    }
+
+    /**
+     * Starts playing the song on the session. Cancelling the returned
+     * future stops the song after the current note.
+     *
+     * @return a future completed when the whole song has been played
+     */
+    public Future<Void> play(AudioSession session, Song song) {
+        Playback playback = new Playback(session, song);
+        active.incrementAndGet();
+        playback.resubmit();
+        return playback.done;
+    }
+
+    /**
+     * Returns the number of songs currently playing or paused.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Stops the worker threads; songs still playing are cancelled.
+     */
+    public void close() {
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /*
+     * Thread factory for daemon threads with the given name.
+     */
+    static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,127 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AudioEngineTest {
+    private AudioEngine engine;
+    private Song song;
+
+    @Before
+    public void setUp() {
+        engine = new AudioEngine(4);
+        song = new Song("testSong.txt");
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    /**
+     * many sessions played at once each produce the same PCM as one session
+     * played on its own
+     */
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        CaptureSink expected = new CaptureSink();
+        new AudioSession(expected).play(song);
+
+        List<CaptureSink> sinks = new ArrayList<>();
+        List<Future<Void>> playing = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            CaptureSink sink = new CaptureSink();
+            sinks.add(sink);
+            playing.add(engine.play(engine.openSession(sink), song));
+        }
+        for (Future<Void> future : playing) {
+            future.get();
+        }
+        for (CaptureSink sink : sinks) {
+            assertArrayEquals(expected.toByteArray(), sink.toByteArray());
+        }
+        assertEquals(0, engine.getActiveCount());
+    }
+
+    /**
+     * each session has its own listeners and mute state
+     */
+    @Test
+    public void testSessionsAreIndependent() throws Exception {
+        AudioSession muted = engine.openSession(new CaptureSink());
+        AudioSession playing = engine.openSession(new CaptureSink());
+        int[] played = new int[2];
+        muted.addAudioEventListener(event -> played[0]++);
+        playing.addAudioEventListener(event -> played[1]++);
+        muted.setMute(true);
+
+        engine.play(muted, song).get();
+        engine.play(playing, song).get();
+        assertEquals(0, ((CaptureSink) muted.getSink()).getBytesWritten());
+        assertTrue(((CaptureSink) playing.getSink()).getBytesWritten() > 0);
+        assertEquals(1 + song.getPlayOrder().size(), played[0]);
+        assertEquals(song.getPlayOrder().size(), played[1]);
+    }
+
+    /**
+     * a session paused during a slice gives its thread back before its next
+     * note, so the other sessions keep playing, and it finishes once resumed
+     */
+    @Test
+    public void testPauseReleasesThread() throws Exception {
+        try (AudioEngine single = new AudioEngine(1)) {
+            AudioSession paused = single.openSession(new CaptureSink());
+            paused.addAudioEventListener(event -> {
+                if (event.getType() == StdAudio.AudioEvent.Type.PLAY && !paused.isPaused()) {
+                    paused.setPaused(true);
+                }
+            });
+            Future<Void> pausedDone = single.play(paused, song);
+            CaptureSink sink = new CaptureSink();
+            single.play(single.openSession(sink), song).get(10, TimeUnit.SECONDS);
+            assertTrue(sink.getBytesWritten() > 0);
+            assertFalse(pausedDone.isDone());
+
+            paused.clearAudioEventListeners();
+            paused.setPaused(false);
+            pausedDone.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * sessions of an engine render in its configuration: one frame per
+     * sample at its rate, every channel the same
+     */
+    @Test
+    public void testAudioConfig() throws Exception {
+        AudioConfig config = new AudioConfig(22050, 24, 2);
+        try (AudioEngine stereo = new AudioEngine(2, config)) {
+            CaptureSink sink = new CaptureSink();
+            stereo.play(stereo.openSession(sink), song).get();
+            long frames = 0;
+            for (Note note : song.getPlayOrder()) {
+                frames += config.sampleCount(note.getDuration());
+            }
+            byte[] pcm = sink.toByteArray();
+            assertEquals(frames * 6, pcm.length);
+            for (int i = 0; i < pcm.length; i += 6) {
+                assertEquals(pcm[i], pcm[i + 3]);
+                assertEquals(pcm[i + 1], pcm[i + 4]);
+                assertEquals(pcm[i + 2], pcm[i + 5]);
+            }
+        }
+    }
+}
@@ -0,0 +1,593 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import musicPlayer.StdAudio.AudioEvent;
+import musicPlayer.StdAudio.AudioEventListener;
+
+/**
+ * A musicPlayer.AudioSession is one independent player: it owns its sink, its
+ * internal buffer, its mute and pause state and its listeners, so any number
+ * of sessions can play at the same time in one JVM.
+ * <p>
+ * A session renders in one musicPlayer.AudioConfig, the same for its whole life.
+ * Its musicPlayer.QualityController lowers the quality of the notes it
+ * synthesizes when the machine can't keep up, and raises it again after.
+ * Samples pass through the session's musicPlayer.EffectChain, empty at
+ * first, before they are converted to PCM; PCM played as it is bypasses it.
+ * With a musicPlayer.RenderCache, songs rendered before are played from
+ * disk without synthesizing them again, unless effects are on. With a
+ * musicPlayer.SampledInstrument, notes are played from its recordings
+ * instead of synthesized as sine waves.
+ * A session is played by one thread at a time; mute, pause and the
+ * listeners may be changed from any thread.
+ */
+public class AudioSession implements AutoCloseable {
+
+    private static final int SAMPLE_BUFFER_SIZE = 4096;
+    private static final int BLOCK_SIZE = 1024; // samples synthesized at a time
+
+    private volatile AudioSink sink;
+    private final AudioConfig config;
+    private final int frameSize;
+    // the internal buffer is a fraction of the line's buffer size, this
+    // choice is arbitrary
+    // it gets divided because we can't expect the buffered data to line
+    // up exactly with when
+    // the sound card decides to push out its samples.
+    private final byte[] buffer;
+    private int bufferSize = 0; // number of bytes currently in internal buffer
+    private final ToneGenerator.Oscillator oscillator;
+    private final float[] block = new float[BLOCK_SIZE];
+    private final EffectChain effects = new EffectChain();
+    private final float[] wet = new float[BLOCK_SIZE]; // the samples the effects change
+    private long effectNanos = 0; // time spent in the effects by the playing thread
+    private volatile RenderCache renderCache;
+    private volatile SampledInstrument instrument;
+    private SampledInstrument.Voice voice; // of the instrument, used by the playing thread
+    private volatile boolean muted = false;
+    private volatile boolean paused = false;
+    private final Object pauseLock = new Object(); // a paused player waits on it
+    private final Set<AudioEventListener> listeners = new CopyOnWriteArraySet<>();
+    private final PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+    private final QualityController quality;
+
+    /**
+     * Creates a session playing 44,100 Hz 16-bit mono to the given sink.
+     */
+    public AudioSession(AudioSink sink) {
+        this(sink, AudioConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a session playing to the given sink in the given configuration.
+     */
+    public AudioSession(AudioSink sink, AudioConfig config) {
+        if (sink == null || config == null) {
+            throw new NullPointerException();
+        }
+        this.sink = sink;
+        this.config = config;
+        this.frameSize = config.getFrameSize();
+        // whole frames only, so a write never splits a sample
+        this.buffer = new byte[SAMPLE_BUFFER_SIZE / 3 * frameSize];
+        this.oscillator = new ToneGenerator.Oscillator(config.getSampleRate());
+        this.quality = new QualityController(config.getSampleRate());
+    }
+
+    /**
+     * Returns the configuration this session renders in.
+     */
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the sink this session plays to.
+     */
+    public AudioSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Sends what is left in the internal buffer to the current sink, then
+     * plays to the given sink from now on. Must not be called while the
+     * session is playing.
+     *
+     * @return the previous sink, which is not closed
+     */
+    public AudioSink setSink(AudioSink sink) {
+        if (sink == null) {
+            throw new NullPointerException();
+        }
+        flush();
+        AudioSink previous = this.sink;
+        this.sink = sink;
+        return previous;
+    }
+
+    /**
+     * Returns the controller of the quality notes are synthesized at.
+     */
+    public QualityController getQualityController() {
+        return quality;
+    }
+
+    /**
+     * Returns the cache of the songs this session renders, or null.
+     */
+    public RenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    /**
+     * Sets the cache songs are played from once they have been rendered,
+     * null for none.
+     */
+    public void setRenderCache(RenderCache renderCache) {
+        this.renderCache = renderCache;
+    }
+
+    /**
+     * Returns the instrument notes are played with, or null for sine waves.
+     */
+    public SampledInstrument getInstrument() {
+        return instrument;
+    }
+
+    /**
+     * Sets the instrument the following notes are played with, null for
+     * sine waves.
+     */
+    public void setInstrument(SampledInstrument instrument) {
+        this.instrument = instrument;
+    }
+
+    /**
+     * Returns the samples of the given note at the sample rate of this
+     * session, from its instrument or synthesized.
+     */
+    public float[] render(Note note) {
+        SampledInstrument current = instrument;
+        int sampleRate = config.getSampleRate();
+        return current == null ? note.renderFloat(sampleRate) : current.render(note, sampleRate);
+    }
+
+    /**
+     * Returns the cached render of the given notes in the configuration of
+     * this session, or null if there is no cache, the effects are on, an
+     * instrument plays the notes, or they were not rendered yet; then they
+     * are rendered in the background for the next time.
+     */
+    public RenderCache.Render findRender(List<Note> order) {
+        RenderCache cache = renderCache;
+        if (cache == null || !effects.isEmpty() || instrument != null) {
+            return null;
+        }
+        return cache.find(order, config);
+    }
+
+    /**
+     * Returns the effects the samples of this session pass through.
+     */
+    public EffectChain getEffects() {
+        return effects;
+    }
+
+    public void addAudioEventListener(AudioEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes the given audio event listener from being notified of future
+     * audio events, if it was present.  If not present, has no effect.
+     */
+    public void removeAudioEventListener(AudioEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Removes all audio event listeners from being notified of future
+     * audio events, if any were present.  If none were present, has no effect.
+     */
+    public void clearAudioEventListeners() {
+        listeners.clear();
+    }
+
+    /**
+     * Returns whether this session is currently muted.
+     */
+    public boolean isMuted() {
+        return muted;
+    }
+
+    /**
+     * Returns whether this session is currently paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Sets whether this session is muted.
+     * If audio is muted, notes do not play and playing methods return immediately.
+     */
+    public void setMute(boolean mute) {
+        muted = mute;
+        notifyListeners(new AudioEvent(mute ? AudioEvent.Type.MUTE : AudioEvent.Type.UNMUTE));
+    }
+
+    /**
+     * Sets whether this session is paused.
+     * If audio is paused, playing methods block until it is resumed.
+     */
+    public void setPaused(boolean pause) {
+        paused = pause;
+        if (!pause) {
+            synchronized (pauseLock) {
+                pauseLock.notifyAll();
+            }
+        }
+        notifyListeners(new AudioEvent(pause ? AudioEvent.Type.PAUSE : AudioEvent.Type.UNPAUSE));
+    }
+
+    /**
+     * Write one sample (between -1.0 and +1.0) to the sink. If the sample
+     * is outside the range, it will be clipped.
+     */
+    public void play(double in) {
+        if (muted) {
+            return;
+        }
+        if (!effects.isEmpty()) {
+            wet[0] = (float) in;
+            playWet(1);
+            return;
+        }
+
+        // convert to bytes, clipped to [-1, +1]
+        bufferSize += PcmConverter.toFrame(in, buffer, bufferSize, config);
+
+        // send to the sink if buffer is full
+        if (bufferSize >= buffer.length) {
+            writeFull();
+        }
+    }
+
+    /**
+     * Write an array of samples (between -1.0 and +1.0) to the sink. If a
+     * sample is outside the range, it will be clipped.
+     */
+    public void play(double[] input) {
+        prePlay();
+        if (!effects.isEmpty() && !muted) {
+            for (int from = 0; from < input.length; from += wet.length) {
+                int n = Math.min(input.length - from, wet.length);
+                for (int i = 0; i < n; i++) {
+                    wet[i] = (float) input[from + i];
+                }
+                playWet(n);
+            }
+            return;
+        }
+        for (double i : input) {
+            play(i);
+        }
+    }
+
+    /**
+     * Write an array of samples (between -1.0 and +1.0) to the sink. If a
+     * sample is outside the range, it will be clipped.
+     */
+    public void play(float[] input) {
+        play(input, 0, input.length);
+    }
+
+    /**
+     * Write samples [from, to) of the array to the sink, converted a buffer
+     * at a time. If a sample is outside [-1.0, +1.0], it will be clipped.
+     */
+    public void play(float[] input, int from, int to) {
+        prePlay();
+        if (muted) {
+            return;
+        }
+        if (!effects.isEmpty()) {
+            // the input is the caller's, the effects change a copy
+            while (from < to && !muted) {
+                int n = Math.min(to - from, wet.length);
+                System.arraycopy(input, from, wet, 0, n);
+                playWet(n);
+                from += n;
+            }
+            return;
+        }
+        writeSamples(input, from, to);
+    }
+
+    /**
+     * Write PCM already in the configuration of this session to the sink,
+     * whole frames only.
+     */
+    public void playPcm(byte[] pcm, int off, int len) {
+        prePlay();
+        if (muted) {
+            return;
+        }
+        while (len > 0 && !muted) {
+            int n = Math.min(len, buffer.length - bufferSize);
+            System.arraycopy(pcm, off, buffer, bufferSize, n);
+            bufferSize += n;
+            off += n;
+            len -= n;
+            if (bufferSize >= buffer.length) {
+                writeFull();
+            }
+        }
+    }
+
+    /**
+     * Write PCM already in the configuration of this session from the
+     * position of the given buffer to its limit, whole frames only.
+     */
+    public void playPcm(ByteBuffer pcm) {
+        prePlay();
+        if (muted) {
+            return;
+        }
+        while (pcm.hasRemaining() && !muted) {
+            int n = Math.min(pcm.remaining(), buffer.length - bufferSize);
+            pcm.get(buffer, bufferSize, n);
+            bufferSize += n;
+            if (bufferSize >= buffer.length) {
+                writeFull();
+            }
+        }
+    }
+
+    /**
+     * Plays the given note of a cached render, which must be in the
+     * configuration of this session, and tells the listeners it was played.
+     */
+    public void play(RenderCache.Render render, int index) {
+        playPcm(render.getPcm(index));
+        Note note = render.getNote(index);
+        notePlayed(note, note.getDuration());
+    }
+
+    /**
+     * Write the samples of the given note to the sink and tell the listeners
+     * the note was played for the given duration. The samples must be at the
+     * sample rate of this session.
+     */
+    public void play(Note note, double[] input, double duration) {
+        play(input);
+        notePlayed(note, duration);
+    }
+
+    /**
+     * Write the samples of the given note to the sink and tell the listeners
+     * the note was played for the given duration. The samples must be at the
+     * sample rate of this session.
+     */
+    public void play(Note note, float[] input, double duration) {
+        play(input);
+        notePlayed(note, duration);
+    }
+
+    /**
+     * Synthesizes and plays the given note a block at a time, reusing the
+     * same block for every note so playing allocates nothing. The quality
+     * controller is told how long each block took to synthesize and pass
+     * through the effects, and may change the quality of the next.
+     */
+    public void play(Note note) {
+        prePlay();
+        SampledInstrument current = instrument;
+        if (current != null && !muted) {
+            playSampled(current, note);
+        } else if (!muted) {
+            FlightEvents.NoteSynthesized event = new FlightEvents.NoteSynthesized();
+            event.begin();
+            long synthesis = 0;
+            int samples = 0;
+            oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+            oscillator.setQuality(quality.getQuality());
+            while (oscillator.remaining() > 0 && !muted) {
+                long start = System.nanoTime();
+                int n = oscillator.next(block);
+                long elapsed = System.nanoTime() - start;
+                synthesis += elapsed;
+                samples += n;
+                long effectsBefore = effectNanos;
+                play(block, 0, n);
+                // the effects share the deadline of the block
+                oscillator.setQuality(quality.rendered(elapsed + effectNanos - effectsBefore, n));
+            }
+            metrics.synthesized(synthesis);
+            event.end(note, samples);
+        }
+        notePlayed(note, note.getDuration());
+    }
+
+    /**
+     * Plays every note of the given song, with the repeatable section, then
+     * sends what is left in the internal buffer to the sink. A song in the
+     * render cache is played from it.
+     */
+    public void play(Song song) {
+        List<Note> order = song.getPlayOrder();
+        RenderCache.Render render = findRender(order);
+        if (render != null) {
+            for (int i = 0; i < render.getNoteCount(); i++) {
+                play(render, i);
+            }
+        } else {
+            for (Note note : order) {
+                play(note);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Sends the samples waiting in the internal buffer to the sink.
+     */
+    public void flush() {
+        if (bufferSize > 0) {
+            writeSink(bufferSize);
+            bufferSize = 0;
+        }
+    }
+
+    /**
+     * Flushes the internal buffer and closes the sink.
+     */
+    public void close() {
+        flush();
+        sink.close();
+    }
+
+    /**
+     * Counts the note and tells the listeners it was played for the given
+     * seconds. Playing notes does so itself; a caller writing the PCM of
+     * its notes with playPcm() calls it after each of them.
+     */
+    public void notePlayed(Note note, double duration) {
+        metrics.notePlayed();
+        if (!listeners.isEmpty()) {
+            notifyListeners(new AudioEvent(AudioEvent.Type.PLAY, note, duration));
+        }
+    }
+
+    /*
+     * Informs all added audio event listeners of the given event.
+     */
+    void notifyListeners(AudioEvent event) {
+        long start = System.nanoTime();
+        for (AudioEventListener listener : listeners) {
+            listener.onAudioEvent(event);
+        }
+        metrics.dispatched(System.nanoTime() - start);
+    }
+
+    /*
+     * Plays the given note from the recordings of the instrument a block at
+     * a time, with the voice of the instrument.
+     */
+    private void playSampled(SampledInstrument current, Note note) {
+        if (voice == null || voice.getInstrument() != current) {
+            voice = current.newVoice(config.getSampleRate());
+        }
+        FlightEvents.NoteSynthesized event = new FlightEvents.NoteSynthesized();
+        event.begin();
+        long synthesis = 0;
+        int samples = 0;
+        voice.start(note);
+        while (voice.remaining() > 0 && !muted) {
+            long start = System.nanoTime();
+            int n = voice.next(block, 0, block.length);
+            synthesis += System.nanoTime() - start;
+            samples += n;
+            play(block, 0, n);
+        }
+        metrics.synthesized(synthesis);
+        event.end(note, samples);
+    }
+
+    /*
+     * Passes the first n samples of the wet block through the effects, then
+     * converts them.
+     */
+    private void playWet(int n) {
+        long start = System.nanoTime();
+        effects.process(wet, 0, n);
+        long elapsed = System.nanoTime() - start;
+        effectNanos += elapsed;
+        metrics.effectsProcessed(elapsed);
+        writeSamples(wet, 0, n);
+    }
+
+    /*
+     * Converts samples [from, to) to PCM in the internal buffer, sending it
+     * to the sink whenever it is full.
+     */
+    private void writeSamples(float[] input, int from, int to) {
+        while (from < to && !muted) {
+            int n = Math.min(to - from, (buffer.length - bufferSize) / frameSize);
+            bufferSize += PcmConverter.toPcm(input, from, from + n, buffer, bufferSize, config);
+            from += n;
+            if (bufferSize >= buffer.length) {
+                writeFull();
+            }
+        }
+    }
+
+    /*
+     * Sends the full internal buffer to the sink. A long note is checked
+     * again before every buffer: the session waits here while it is paused,
+     * and drops the buffer if it was muted meanwhile, so pausing or stopping
+     * takes effect within a buffer, not at the end of the note.
+     */
+    private void writeFull() {
+        prePlay();
+        if (!muted) {
+            writeSink(buffer.length);
+        }
+        bufferSize = 0;
+    }
+
+    /*
+     * Sends the first len bytes of the internal buffer to the sink,
+     * recording how full the sink was and how long the write blocked in the
+     * metrics and the flight recorder.
+     */
+    private void writeSink(int len) {
+        AudioSink sink = this.sink;
+        FlightEvents.BufferWritten event = new FlightEvents.BufferWritten();
+        int available = sink.available();
+        int sinkBufferSize = sink.getBufferSize();
+        quality.sinkFill(available, sinkBufferSize);
+        if (metrics.beforeWrite(available, sinkBufferSize)) {
+            FlightEvents.Underrun underrun = new FlightEvents.Underrun();
+            underrun.bufferSize = sinkBufferSize;
+            underrun.commit();
+        }
+        event.begin();
+        long start = System.nanoTime();
+        sink.write(buffer, 0, len);
+        metrics.written(len / frameSize, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = len;
+            event.available = available;
+            event.bufferSize = sinkBufferSize;
+            event.commit();
+        }
+    }
+
+    /*
+     * Maintenance to be done before playing; pause/mute management. An
+     * interrupted thread stops waiting, its interrupt status kept.
+     */
+    private void prePlay() {
+        if (muted || !paused) {
+            return;
+        }
+        synchronized (pauseLock) {
+            while (paused) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
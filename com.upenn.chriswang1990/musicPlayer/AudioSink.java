@@ -0,0 +1,37 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * Destination of the PCM produced by a musicPlayer.AudioSession, in the session's
+ * musicPlayer.AudioConfig: the sound card, a .wav file, memory, a network stream...
+ */
+public interface AudioSink extends AutoCloseable {
+
+    /**
+     * Writes len bytes of PCM starting at off. Sinks backed by a device
+     * block until the device has room for them.
+     */
+    void write(byte[] pcm, int off, int len);
+
+    /**
+     * Returns the number of bytes that can be written without blocking.
+     */
+    int available();
+
+    /**
+     * Returns the size in bytes of the device buffer behind this sink, or 0
+     * if the sink is not a device that can run out of samples.
+     */
+    int getBufferSize();
+
+    /**
+     * Blocks until everything written has been consumed.
+     */
+    void drain();
+
+    /**
+     * Drains the sink and releases what it holds.
+     */
+    void close();
+}
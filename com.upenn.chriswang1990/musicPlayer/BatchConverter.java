@@ -0,0 +1,227 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Command line tool that renders every song file of a directory to a .wav
+ * file, without a window or a sound card.
+ * <p>
+ * Usage: java musicPlayer.BatchConverter songDir outputDir
+ * [--octave N] [--tempo RATIO] [--reverse] [--threads N] [--format RATE/BITS/CHANNELS]
+ * [--midi-program N]
+ * <p>
+ * The transforms work like the buttons of the player: --octave moves every
+ * note N octaves up (or down if N is negative) as long as the song allows it,
+ * --tempo multiplies every note duration by RATIO, above 0 and at most 16,
+ * and --reverse plays the song backwards. --format picks the
+ * musicPlayer.AudioConfig of the files, such as 22050/16/1 (44100/16/1 by
+ * default). --midi-program renders with
+ * General MIDI instrument N of the JDK's synthesizer through
+ * musicPlayer.MidiSynthRenderer instead of sine waves; the JVM then needs
+ * --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED. Songs are
+ * rendered on all cores; at most two songs per thread are waiting at any
+ * time, so memory does not grow with the number of files.
+ */
+public class BatchConverter {
+
+    /**
+     * Largest tempo ratio a conversion may ask for.
+     */
+    public static final double MAX_TEMPO = 16.0;
+
+    private static final int BLOCK_SIZE = 4096; // samples synthesized at a time
+
+    private int octaves = 0;
+    private double tempo = 1.0;
+    private boolean reverse = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private AudioConfig config = AudioConfig.DEFAULT;
+    private int program = -1; // sine waves unless a MIDI program is given
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final DoubleAdder audioSeconds = new DoubleAdder();
+
+    /**
+     * Runs the converter.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: java musicPlayer.BatchConverter songDir outputDir"
+                  + " [--octave N] [--tempo RATIO] [--reverse] [--threads N]"
+                  + " [--format RATE/BITS/CHANNELS] [--midi-program N]");
+            System.exit(2);
+        }
+        BatchConverter converter = new BatchConverter();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--octave":
+                        converter.octaves = Integer.parseInt(args[++i]);
+                        break;
+                    case "--tempo":
+                        converter.tempo = checkTempo(Double.parseDouble(args[++i]));
+                        break;
+                    case "--reverse":
+                        converter.reverse = true;
+                        break;
+                    case "--threads":
+                        converter.threads = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--format":
+                        converter.config = AudioConfig.parse(args[++i]);
+                        break;
+                    case "--midi-program":
+                        converter.program = Integer.parseInt(args[++i]);
+                        if (converter.program < 0 || converter.program > 127) {
+                            throw new IllegalArgumentException("MIDI program out of range: " + args[i]);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("bad arguments: " + e.getMessage());
+            System.exit(2);
+        }
+        File outputDir = new File(args[1]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("not able to create " + outputDir);
+            System.exit(1);
+        }
+        boolean ok = converter.convertAll(new File(args[0]), outputDir);
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Creates a thread pool of the given size whose work queue holds at most
+     * two tasks per thread. When the queue is full the submitting thread runs
+     * the task itself, which keeps it from reading further ahead.
+     *
+     * @param threads number of worker threads
+     * @return the bounded pool
+     */
+    static ThreadPoolExecutor newBoundedPool(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(2 * threads), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /*
+     * Converts every .txt song of the input directory and prints the totals.
+     * Returns false if any song failed.
+     */
+    private boolean convertAll(File songDir, File outputDir) throws InterruptedException {
+        File[] files = songDir.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null) {
+            System.err.println("not a directory: " + songDir);
+            return false;
+        }
+        Arrays.sort(files);
+
+        long start = System.nanoTime();
+        ExecutorService pool = newBoundedPool(threads);
+        for (File file : files) {
+            pool.execute(() -> convert(file, outputDir));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double wall = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%d songs (%d failed) in %.3f s on %d threads at %s:"
+                    + " %.2f songs/s, %.1f audio-sec/s",
+              converted.get(), failed.get(), wall, threads, config,
+              converted.get() / wall, audioSeconds.sum() / wall));
+        return failed.get() == 0;
+    }
+
+    /*
+     * Renders one song with the transforms applied to a .wav file of the
+     * same name in the output directory.
+     */
+    private void convert(File file, File outputDir) {
+        String name = file.getName().substring(0, file.getName().length() - ".txt".length());
+        File wav = new File(outputDir, name + ".wav");
+        long start = System.nanoTime();
+        try {
+            Song song = new Song(file.getPath());
+            applyTransforms(song, octaves, tempo, reverse);
+            long samples = program < 0 ? renderSine(song, wav)
+                  : new MidiSynthRenderer(config, program).renderToWav(song, wav);
+            double seconds = (double) samples / config.getSampleRate();
+            double wall = (System.nanoTime() - start) / 1e9;
+            audioSeconds.add(seconds);
+            converted.incrementAndGet();
+            System.out.println(String.format("%s: %.2f audio-sec in %.3f s (%.1fx realtime)",
+                  file.getName(), seconds, wall, seconds / wall));
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println(file.getName() + ": FAILED " + e);
+        }
+    }
+
+    /*
+     * Synthesizes the song with sine waves, a block at a time, and returns
+     * the number of samples written.
+     */
+    private long renderSine(Song song, File wav) throws IOException {
+        try (WavWriter writer = new WavWriter(wav, config)) {
+            ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(config.getSampleRate());
+            float[] block = new float[BLOCK_SIZE];
+            for (Note note : song.getPlayOrder()) {
+                FlightEvents.NoteSynthesized event = new FlightEvents.NoteSynthesized();
+                event.begin();
+                oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+                int samples = oscillator.remaining();
+                int n;
+                while ((n = oscillator.next(block)) > 0) {
+                    writer.write(block, 0, n);
+                }
+                event.end(note, samples);
+            }
+            return writer.getSampleCount();
+        }
+    }
+
+    /**
+     * Returns the given tempo ratio if it is in (0, MAX_TEMPO].
+     *
+     * @throws IllegalArgumentException if it is not, or not a number
+     */
+    static double checkTempo(double tempo) {
+        if (!(tempo > 0.0 && tempo <= MAX_TEMPO)) {
+            throw new IllegalArgumentException("Illegal tempo: " + tempo);
+        }
+        return tempo;
+    }
+
+    /**
+     * Applies transforms the same way the player's buttons do: the song is
+     * moved the given number of octaves up (down if negative) as far as it
+     * allows, its tempo multiplied by the ratio and it is reversed if asked.
+     */
+    static void applyTransforms(Song song, int octaves, double tempo, boolean reverse) {
+        for (int i = 0; i < Math.abs(octaves); i++) {
+            boolean moved = octaves > 0 ? song.octaveUp() : song.octaveDown();
+            if (!moved) {
+                break;
+            }
+        }
+        if (tempo != 1.0) {
+            song.changeTempo(tempo);
+        }
+        if (reverse) {
+            song.reverse();
+        }
+    }
+}
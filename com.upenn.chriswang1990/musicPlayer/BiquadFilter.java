@@ -0,0 +1,140 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * A second order low-pass or high-pass filter, with the coefficients of
+ * Robert Bristow-Johnson's Audio EQ Cookbook, run in transposed direct form
+ * II in double precision.
+ * <p>
+ * The cutoff and the resonance can be changed while playing; the new
+ * coefficients are computed by the thread changing them and picked up at
+ * the start of the next block.
+ */
+public class BiquadFilter implements AudioEffect {
+
+    /**
+     * Which frequencies the filter lets through.
+     */
+    public enum Type {LOW_PASS, HIGH_PASS}
+
+    /**
+     * The resonance of a Butterworth filter, flat up to the cutoff.
+     */
+    public static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+    private final Type type;
+    private final int sampleRate;
+    private volatile double cutoff;
+    private volatile double q;
+    // b0, b1, b2, a1, a2, divided by a0; replaced whole, never changed
+    private volatile double[] coefficients;
+    private double z1;
+    private double z2;
+
+    /**
+     * Creates a filter of the given type.
+     *
+     * @param cutoff     the cutoff frequency in Hz, below half the sample rate
+     * @param q          the resonance, BUTTERWORTH_Q for none
+     * @param sampleRate the sample rate of the samples processed
+     * @throws IllegalArgumentException if the cutoff or the resonance is out
+     *                                  of range
+     */
+    public BiquadFilter(Type type, double cutoff, double q, int sampleRate) {
+        if (type == null) {
+            throw new NullPointerException();
+        }
+        this.type = type;
+        this.sampleRate = sampleRate;
+        setResponse(cutoff, q);
+    }
+
+    /**
+     * Creates a Butterworth low-pass filter.
+     */
+    public static BiquadFilter lowPass(double cutoff, int sampleRate) {
+        return new BiquadFilter(Type.LOW_PASS, cutoff, BUTTERWORTH_Q, sampleRate);
+    }
+
+    /**
+     * Creates a Butterworth high-pass filter.
+     */
+    public static BiquadFilter highPass(double cutoff, int sampleRate) {
+        return new BiquadFilter(Type.HIGH_PASS, cutoff, BUTTERWORTH_Q, sampleRate);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getCutoff() {
+        return cutoff;
+    }
+
+    public double getQ() {
+        return q;
+    }
+
+    public void setCutoff(double cutoff) {
+        setResponse(cutoff, q);
+    }
+
+    public void setQ(double q) {
+        setResponse(cutoff, q);
+    }
+
+    /**
+     * Sets the cutoff and the resonance together.
+     *
+     * @throws IllegalArgumentException if either is out of range
+     */
+    public synchronized void setResponse(double cutoff, double q) {
+        if (!(cutoff > 0.0 && cutoff < sampleRate / 2.0)) {
+            throw new IllegalArgumentException("Illegal cutoff: " + cutoff);
+        }
+        if (!(q > 0.0)) {
+            throw new IllegalArgumentException("Illegal resonance: " + q);
+        }
+        double w0 = 2 * Math.PI * cutoff / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        double a0 = 1 + alpha;
+        double b1 = type == Type.LOW_PASS ? 1 - cos : -(1 + cos);
+        double b0 = Math.abs(b1) / 2;
+        this.cutoff = cutoff;
+        this.q = q;
+        this.coefficients = new double[]{b0 / a0, b1 / a0, b0 / a0, -2 * cos / a0, (1 - alpha) / a0};
+    }
+
+    public void process(float[] samples, int from, int to) {
+        double[] c = coefficients;
+        double b0 = c[0];
+        double b1 = c[1];
+        double b2 = c[2];
+        double a1 = c[3];
+        double a2 = c[4];
+        double s1 = z1;
+        double s2 = z2;
+        for (int i = from; i < to; i++) {
+            double x = samples[i];
+            double y = b0 * x + s1;
+            s1 = b1 * x - a1 * y + s2;
+            s2 = b2 * x - a2 * y;
+            samples[i] = (float) y;
+        }
+        // a block is far too short for the state to decay from the
+        // threshold into the subnormals, so flushing once per block is enough
+        z1 = AudioEffect.flushDenormal(s1);
+        z2 = AudioEffect.flushDenormal(s2);
+    }
+
+    public void reset() {
+        z1 = 0.0;
+        z2 = 0.0;
+    }
+
+    public String getName() {
+        return (type == Type.LOW_PASS ? "Low-pass " : "High-pass ") + Math.round(cutoff) + " Hz";
+    }
+}
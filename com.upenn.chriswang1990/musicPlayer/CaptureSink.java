@@ -0,0 +1,76 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+
+/**
+ * A musicPlayer.CaptureSink keeps the PCM written to it in memory instead of playing
+ * it, or only counts it. It never blocks, so sessions rendering to it run
+ * as fast as they can synthesize.
+ */
+public class CaptureSink implements AudioSink {
+
+    private final boolean keep;
+    private byte[] data;
+    private long size = 0;
+
+    /**
+     * Creates a sink that keeps every byte written.
+     */
+    public CaptureSink() {
+        this(true);
+    }
+
+    private CaptureSink(boolean keep) {
+        this.keep = keep;
+        this.data = new byte[keep ? 8192 : 0];
+    }
+
+    /**
+     * Creates a sink that only counts the bytes written.
+     */
+    public static CaptureSink discarding() {
+        return new CaptureSink(false);
+    }
+
+    public synchronized void write(byte[] pcm, int off, int len) {
+        if (keep) {
+            if (size + len > data.length) {
+                data = Arrays.copyOf(data, (int) Math.max(size + len, 2L * data.length));
+            }
+            System.arraycopy(pcm, off, data, (int) size, len);
+        }
+        size += len;
+    }
+
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    public int getBufferSize() {
+        return 0;
+    }
+
+    public void drain() {
+        // nothing is pending
+    }
+
+    public void close() {
+        // nothing to release
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public synchronized long getBytesWritten() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the bytes written so far, empty if the sink discards.
+     */
+    public synchronized byte[] toByteArray() {
+        return Arrays.copyOf(data, keep ? (int) size : 0);
+    }
+}
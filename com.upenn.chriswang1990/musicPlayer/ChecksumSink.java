@@ -0,0 +1,143 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A musicPlayer.ChecksumSink keeps a CRC-32 of every block of PCM written to it
+ * instead of the PCM itself, so hours of audio can be compared with a
+ * recording of them in a few kilobytes, and a difference found to the block
+ * it starts in. Blocks are whole frames, however the writes split them.
+ */
+public class ChecksumSink implements AudioSink {
+
+    /**
+     * Frames per block when none is given: about 0.19 s at 44,100 Hz.
+     */
+    public static final int DEFAULT_BLOCK_FRAMES = 8192;
+
+    private final AudioConfig config;
+    private final int blockBytes;
+    private final CRC32 crc = new CRC32();
+    private long[] checksums = new long[64];
+    private int blocks = 0;
+    private int pending = 0; // bytes of the current block already in the crc
+    private long size = 0;
+
+    /**
+     * Creates a sink of the given configuration with blocks of 8192 frames.
+     */
+    public ChecksumSink(AudioConfig config) {
+        this(config, DEFAULT_BLOCK_FRAMES);
+    }
+
+    /**
+     * Creates a sink of the given configuration with blocks of the given
+     * number of frames.
+     */
+    public ChecksumSink(AudioConfig config, int blockFrames) {
+        if (blockFrames <= 0) {
+            throw new IllegalArgumentException("Illegal block size: " + blockFrames);
+        }
+        this.config = config;
+        this.blockBytes = blockFrames * config.getFrameSize();
+    }
+
+    public synchronized void write(byte[] pcm, int off, int len) {
+        size += len;
+        while (len > 0) {
+            int n = Math.min(len, blockBytes - pending);
+            crc.update(pcm, off, n);
+            pending += n;
+            off += n;
+            len -= n;
+            if (pending == blockBytes) {
+                endBlock();
+            }
+        }
+    }
+
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    public int getBufferSize() {
+        return 0;
+    }
+
+    public void drain() {
+        // nothing is pending
+    }
+
+    public void close() {
+        // nothing to release
+    }
+
+    /**
+     * Returns the configuration of the PCM.
+     */
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the number of frames per block.
+     */
+    public int getBlockFrames() {
+        return blockBytes / config.getFrameSize();
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public synchronized long getBytesWritten() {
+        return size;
+    }
+
+    /**
+     * Returns the checksums of the blocks written so far, the last one of
+     * the bytes after the last full block if there are any.
+     */
+    public synchronized long[] getChecksums() {
+        long[] result = Arrays.copyOf(checksums, blocks + (pending > 0 ? 1 : 0));
+        if (pending > 0) {
+            result[blocks] = crc.getValue();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first block whose checksum is not the given one, or -1 if
+     * there is none and there are as many blocks as given.
+     */
+    public int firstDifference(long[] expected) {
+        long[] actual = getChecksums();
+        for (int i = 0; i < Math.min(actual.length, expected.length); i++) {
+            if (actual[i] != expected[i]) {
+                return i;
+            }
+        }
+        return actual.length == expected.length ? -1 : Math.min(actual.length, expected.length);
+    }
+
+    /**
+     * Returns the time in seconds at which the given block starts.
+     */
+    public double blockTime(int block) {
+        return (double) block * getBlockFrames() / config.getSampleRate();
+    }
+
+    /*
+     * Records the checksum of the block just completed and starts the next.
+     */
+    private void endBlock() {
+        if (blocks == checksums.length) {
+            checksums = Arrays.copyOf(checksums, 2 * blocks);
+        }
+        checksums[blocks++] = crc.getValue();
+        crc.reset();
+        pending = 0;
+    }
+}
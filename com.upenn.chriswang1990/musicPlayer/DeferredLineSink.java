@@ -0,0 +1,100 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A musicPlayer.DeferredLineSink is a musicPlayer.LineSink opened only when it is
+ * needed. Opening a line takes from tens to hundreds of milliseconds and
+ * loads most of javax.sound, so creating the sink costs nothing and the
+ * line is opened on a background thread when open() is called, or at the
+ * latest by the first write, which then waits for it.
+ */
+public class DeferredLineSink implements AudioSink {
+
+    private final AudioConfig config;
+    private CompletableFuture<LineSink> line; // null until opening starts
+
+    /**
+     * Creates a sink that will open a line for PCM of the given
+     * configuration.
+     */
+    public DeferredLineSink(AudioConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Starts opening the line on a background thread if it is not opening
+     * or open already, and returns at once.
+     */
+    public synchronized void open() {
+        if (line == null) {
+            line = CompletableFuture.supplyAsync(this::openLine,
+                  runnable -> AudioEngine.daemonThreads("line-opener").newThread(runnable).start());
+        }
+    }
+
+    /**
+     * Returns whether the line has been opened.
+     */
+    public synchronized boolean isOpen() {
+        return line != null && line.isDone() && !line.isCompletedExceptionally();
+    }
+
+    public void write(byte[] pcm, int off, int len) {
+        line().write(pcm, off, len);
+    }
+
+    public int available() {
+        return line().available();
+    }
+
+    public int getBufferSize() {
+        return line().getBufferSize();
+    }
+
+    public void drain() {
+        line().drain();
+    }
+
+    /**
+     * Closes the line if it was opened, waiting for it to open if it is
+     * opening.
+     */
+    public void close() {
+        CompletableFuture<LineSink> opening;
+        synchronized (this) {
+            opening = line;
+        }
+        if (opening != null) {
+            line().close();
+        }
+    }
+
+    /*
+     * Returns the line, opening it or waiting for it to open first.
+     *
+     * @throws IllegalStateException if the line can't be opened
+     */
+    private LineSink line() {
+        open();
+        try {
+            return line.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("not able to open an audio line for " + config, e.getCause());
+        }
+    }
+
+    private LineSink openLine() {
+        long start = System.nanoTime();
+        try {
+            LineSink sink = new LineSink(config);
+            PlaybackMetrics.getInstance().lineOpened(System.nanoTime() - start);
+            return sink;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
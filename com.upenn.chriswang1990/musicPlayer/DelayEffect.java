@@ -0,0 +1,128 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+
+/**
+ * An echo: each sample is heard again after the delay, quieter every time
+ * by the feedback. The delay line is allocated once for the longest delay,
+ * so the delay can be shortened or lengthened up to it while playing.
+ */
+public class DelayEffect implements AudioEffect {
+
+    private final int sampleRate;
+    private final float[] line;
+    private int position = 0;
+    private volatile int delaySamples;
+    private volatile double feedback;
+    private volatile double mix;
+
+    /**
+     * Creates an echo that can be up to maxSeconds long.
+     *
+     * @param seconds  the time until the first echo
+     * @param feedback how loud each echo is compared to the previous one,
+     *                 in [0, 1)
+     * @param mix      how loud the echoes are compared to the sound, in [0, 1]
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public DelayEffect(double seconds, double maxSeconds, double feedback, double mix, int sampleRate) {
+        if (!(maxSeconds > 0.0)) {
+            throw new IllegalArgumentException("Illegal maximum delay: " + maxSeconds);
+        }
+        this.sampleRate = sampleRate;
+        this.line = new float[(int) Math.ceil(maxSeconds * sampleRate)];
+        setDelay(seconds);
+        setFeedback(feedback);
+        setMix(mix);
+    }
+
+    /**
+     * Creates an echo that can't be made longer than it is.
+     */
+    public DelayEffect(double seconds, double feedback, double mix, int sampleRate) {
+        this(seconds, seconds, feedback, mix, sampleRate);
+    }
+
+    public double getDelay() {
+        return (double) delaySamples / sampleRate;
+    }
+
+    public double getFeedback() {
+        return feedback;
+    }
+
+    public double getMix() {
+        return mix;
+    }
+
+    /**
+     * Sets the time until the first echo, rounded to a whole sample.
+     *
+     * @throws IllegalArgumentException if it is not positive or longer than
+     *                                  the maximum
+     */
+    public void setDelay(double seconds) {
+        int samples = (int) Math.round(seconds * sampleRate);
+        if (samples < 1 || samples > line.length) {
+            throw new IllegalArgumentException("Illegal delay: " + seconds);
+        }
+        delaySamples = samples;
+    }
+
+    /**
+     * @throws IllegalArgumentException if it is not in [0, 1)
+     */
+    public void setFeedback(double feedback) {
+        if (!(feedback >= 0.0 && feedback < 1.0)) {
+            throw new IllegalArgumentException("Illegal feedback: " + feedback);
+        }
+        this.feedback = feedback;
+    }
+
+    /**
+     * @throws IllegalArgumentException if it is not in [0, 1]
+     */
+    public void setMix(double mix) {
+        if (!(mix >= 0.0 && mix <= 1.0)) {
+            throw new IllegalArgumentException("Illegal mix: " + mix);
+        }
+        this.mix = mix;
+    }
+
+    public void process(float[] samples, int from, int to) {
+        float[] line = this.line;
+        int length = line.length;
+        int delay = delaySamples;
+        float gain = (float) feedback;
+        float wet = (float) mix;
+        int write = position;
+        int read = write - delay;
+        if (read < 0) {
+            read += length;
+        }
+        for (int i = from; i < to; i++) {
+            float x = samples[i];
+            float delayed = line[read];
+            line[write] = AudioEffect.flushDenormal(x + gain * delayed);
+            samples[i] = x + wet * delayed;
+            if (++write == length) {
+                write = 0;
+            }
+            if (++read == length) {
+                read = 0;
+            }
+        }
+        position = write;
+    }
+
+    public void reset() {
+        Arrays.fill(line, 0.0f);
+        position = 0;
+    }
+
+    public String getName() {
+        return "Delay " + Math.round(getDelay() * 1000) + " ms";
+    }
+}
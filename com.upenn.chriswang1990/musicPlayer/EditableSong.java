@@ -0,0 +1,718 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A musicPlayer.EditableSong is a song whose notes can be inserted, deleted and
+ * replaced one at a time, then saved back to a song file.
+ * <p>
+ * The notes are kept in a rope: a balanced tree (a treap) whose nodes hold
+ * chunks of 32 to 64 notes. An edit cuts chunks at its ends, then joins the
+ * pieces with their neighbours, so only a song of less than 32 notes has a
+ * smaller chunk however it is edited. Nodes are never changed, an edit copies the
+ * O(log n) nodes on its path, so every version of the song is a single root
+ * and undo/redo just keep the old roots. Every node also sums up its
+ * subtree - the number of notes, of repeat marks, and the duration whether
+ * it starts inside or outside the repeated section - so the total duration
+ * and the repeat marks are known without looking at the notes.
+ * <p>
+ * The song can be edited while play() is running on another thread: every
+ * note is looked up in the latest version, and edits before the playhead
+ * move it so that the note playing stays the same. Undo and redo leave the
+ * playhead where it is.
+ */
+public class EditableSong {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int MIN_CHUNK_SIZE = CHUNK_SIZE / 2;
+    private static final int UNDO_LIMIT = 1000;
+
+    private final String title;
+    private final String artist;
+    private final Random priorities = new Random();
+    private volatile Node root;
+    // older and undone versions; an empty song is a null root
+    private final Deque<Node> undo = new LinkedList<>();
+    private final Deque<Node> redo = new LinkedList<>();
+
+    // the playhead, while play() runs: the index of the next note, the
+    // opening repeat mark of the current section and, during the second
+    // time through a section, its closing repeat mark
+    private int playhead = -1;
+    private int sectionStart = -1;
+    private int replayEnd = -1;
+
+    /*
+     * A node of the rope: its notes, its children and the summary of its
+     * subtree.
+     */
+    private static final class Node {
+        private final Note[] chunk;
+        private final int chunkRepeats;
+        private final double chunkOutside;
+        private final double chunkInside;
+        private final Node left;
+        private final Node right;
+        private final int priority;
+        private final int size;        // notes in the subtree
+        private final int repeats;     // repeat marks in the subtree
+        private final double outside;  // duration if the subtree starts outside a repeated section
+        private final double inside;   // duration if it starts inside one
+
+        /*
+         * Creates a node without children, summing up its notes.
+         */
+        Node(Note[] chunk, int priority) {
+            int count = 0;
+            double[] duration = new double[2];
+            for (int start = 0; start < 2; start++) {
+                boolean section = start == 1;
+                for (Note note : chunk) {
+                    if (note.isRepeat()) {
+                        section = !section;
+                        duration[start] += 2 * note.getDuration();
+                    } else {
+                        duration[start] += section ? 2 * note.getDuration() : note.getDuration();
+                    }
+                }
+            }
+            for (Note note : chunk) {
+                if (note.isRepeat()) {
+                    count++;
+                }
+            }
+            this.chunk = chunk;
+            this.chunkRepeats = count;
+            this.chunkOutside = duration[0];
+            this.chunkInside = duration[1];
+            this.left = null;
+            this.right = null;
+            this.priority = priority;
+            this.size = chunk.length;
+            this.repeats = count;
+            this.outside = duration[0];
+            this.inside = duration[1];
+        }
+
+        /*
+         * Creates a copy of a node with other children.
+         */
+        private Node(Node node, Node left, Node right) {
+            this.chunk = node.chunk;
+            this.chunkRepeats = node.chunkRepeats;
+            this.chunkOutside = node.chunkOutside;
+            this.chunkInside = node.chunkInside;
+            this.left = left;
+            this.right = right;
+            this.priority = node.priority;
+            this.size = size(left) + chunk.length + size(right);
+            this.repeats = repeats(left) + chunkRepeats + repeats(right);
+            this.outside = duration(0);
+            this.inside = duration(1);
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(this, left, right);
+        }
+
+        /*
+         * The duration of the left subtree, the chunk, then the right
+         * subtree, starting outside (0) or inside (1) a repeated section.
+         */
+        private double duration(int state) {
+            double d = 0.0;
+            if (left != null) {
+                d += state == 0 ? left.outside : left.inside;
+                state ^= left.repeats & 1;
+            }
+            d += state == 0 ? chunkOutside : chunkInside;
+            state ^= chunkRepeats & 1;
+            if (right != null) {
+                d += state == 0 ? right.outside : right.inside;
+            }
+            return d;
+        }
+    }
+
+    /**
+     * Opens the given song file for editing.
+     *
+     * @param filename file name in directory
+     */
+    public EditableSong(String filename) {
+        this(new Song(filename));
+    }
+
+    /**
+     * Starts editing a copy of the given song; the song itself is not changed.
+     *
+     * @param song the song to edit
+     */
+    public EditableSong(Song song) {
+        this.title = song.getTitle();
+        this.artist = song.getArtist();
+        Note[] notes = song.getNotes();
+        this.root = build(notes == null ? new Note[0] : notes);
+    }
+
+    /**
+     * get the title of the song
+     *
+     * @return title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * get the artist name
+     *
+     * @return artist
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * get the number of notes, counting the repeated section once
+     *
+     * @return number of notes
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * get the note at the given index
+     *
+     * @param index index of the note, counting the repeated section once
+     * @return the note
+     * @throws IndexOutOfBoundsException if there is no such note
+     */
+    public Note get(int index) {
+        return get(root, index);
+    }
+
+    /**
+     * get the total duration of the song with the repeated section, which is
+     * kept up to date by every edit
+     *
+     * @return double totalDuration
+     */
+    public double getTotalDuration() {
+        Node root = this.root;
+        return root == null ? 0.0 : root.outside;
+    }
+
+    /**
+     * get the number of notes marked as the start or the end of a repeated
+     * section
+     *
+     * @return number of repeat marks
+     */
+    public int getRepeatCount() {
+        return repeats(root);
+    }
+
+    /**
+     * get the index of a repeat mark; marks 0 and 1 open and close the first
+     * repeated section, 2 and 3 the second one...
+     *
+     * @param n which repeat mark, from 0
+     * @return the index of the note
+     * @throws IndexOutOfBoundsException if there are not that many marks
+     */
+    public int indexOfRepeat(int n) {
+        Node node = root;
+        if (n < 0 || n >= repeats(node)) {
+            throw new IndexOutOfBoundsException("Repeat mark: " + n);
+        }
+        int offset = 0;
+        while (true) {
+            int leftRepeats = repeats(node.left);
+            if (n < leftRepeats) {
+                node = node.left;
+                continue;
+            }
+            n -= leftRepeats;
+            offset += size(node.left);
+            for (int i = 0; i < node.chunk.length; i++) {
+                if (node.chunk[i].isRepeat() && n-- == 0) {
+                    return offset + i;
+                }
+            }
+            offset += node.chunk.length;
+            node = node.right;
+        }
+    }
+
+    /**
+     * insert a note before the given index
+     *
+     * @param index where to insert, size() to append
+     * @param note  the note to insert
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public void insert(int index, Note note) {
+        insert(index, Collections.singletonList(note));
+    }
+
+    /**
+     * insert notes before the given index
+     *
+     * @param index where to insert, size() to append
+     * @param notes the notes to insert
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public synchronized void insert(int index, List<Note> notes) {
+        checkPosition(index, size(root));
+        Note[] inserted = notes.toArray(new Note[0]);
+        for (Note note : inserted) {
+            if (note == null) {
+                throw new NullPointerException();
+            }
+        }
+        Node[] parts = split(root, index);
+        commit(join(join(parts[0], build(inserted)), parts[1]));
+        moveMarks(index, inserted.length);
+    }
+
+    /**
+     * delete the note at the given index
+     *
+     * @param index index of the note
+     * @throws IndexOutOfBoundsException if there is no such note
+     */
+    public void delete(int index) {
+        delete(index, index + 1);
+    }
+
+    /**
+     * delete the notes from index from (included) to index to (excluded)
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public synchronized void delete(int from, int to) {
+        checkPosition(to, size(root));
+        checkPosition(from, to);
+        Node[] parts = split(root, to);
+        Node[] head = split(parts[0], from);
+        commit(join(head[0], parts[1]));
+        moveMarks(from, from - to);
+    }
+
+    /**
+     * replace the note at the given index
+     *
+     * @param index index of the note
+     * @param note  the new note
+     * @throws IndexOutOfBoundsException if there is no such note
+     */
+    public synchronized void replace(int index, Note note) {
+        if (note == null) {
+            throw new NullPointerException();
+        }
+        checkPosition(index, size(root) - 1);
+        Node[] parts = split(root, index + 1);
+        Node[] head = split(parts[0], index);
+        commit(join(join(head[0], leaf(new Note[]{note})), parts[1]));
+    }
+
+    /**
+     * return whether there is an edit to undo
+     *
+     * @return boolean
+     */
+    public synchronized boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    /**
+     * return whether there is an undone edit to redo
+     *
+     * @return boolean
+     */
+    public synchronized boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * go back to the song as it was before the last edit
+     * return false if there is nothing to undo
+     *
+     * @return boolean
+     */
+    public synchronized boolean undo() {
+        if (undo.isEmpty()) {
+            return false;
+        }
+        redo.push(root);
+        restore(undo.pop());
+        return true;
+    }
+
+    /**
+     * apply again the last undone edit
+     * return false if there is nothing to redo
+     *
+     * @return boolean
+     */
+    public synchronized boolean redo() {
+        if (redo.isEmpty()) {
+            return false;
+        }
+        undo.push(root);
+        restore(redo.pop());
+        return true;
+    }
+
+    /**
+     * make a musicPlayer.Song of the notes as they are now, which later edits do
+     * not change
+     *
+     * @return the song
+     */
+    public Song toSong() {
+        return new Song(title, artist, toArray(root));
+    }
+
+    /**
+     * play the song with the repeatable section on the given session, taking
+     * the edits made while it is playing into account
+     *
+     * @param session the session to play on
+     */
+    public void play(AudioSession session) {
+        synchronized (this) {
+            playhead = 0;
+            sectionStart = -1;
+            replayEnd = -1;
+        }
+        try {
+            Note note;
+            while ((note = nextNote()) != null) {
+                session.play(note);
+            }
+            session.flush();
+        } finally {
+            synchronized (this) {
+                playhead = -1;
+            }
+        }
+    }
+
+    /**
+     * get the index of the next note play() will play, or -1 if the song is
+     * not playing
+     *
+     * @return the playhead
+     */
+    public synchronized int getPlayhead() {
+        return playhead;
+    }
+
+    /**
+     * write the song in the format of song files
+     *
+     * @param filename file name in directory
+     * @throws IOException if the file can't be written
+     */
+    public void save(String filename) throws IOException {
+        Note[] notes = toArray(root);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+            out.write(title + "\n" + artist + "\n" + notes.length + "\n");
+            for (Note note : notes) {
+                out.write(note.toString());
+                out.write('\n');
+            }
+        }
+    }
+
+    /*
+     * Returns the note at the playhead and moves the playhead past it, going
+     * back once to the start of each repeated section; null at the end.
+     */
+    private synchronized Note nextNote() {
+        if (playhead >= size(root)) {
+            return null;
+        }
+        int index = playhead;
+        Note note = get(root, index);
+        if (replayEnd >= 0) {
+            if (index >= replayEnd) {
+                replayEnd = -1;
+            }
+            playhead++;
+        } else if (note.isRepeat() && sectionStart < 0) {
+            sectionStart = index;
+            playhead++;
+        } else if (note.isRepeat()) {
+            replayEnd = index;
+            playhead = sectionStart;
+            sectionStart = -1;
+        } else {
+            playhead++;
+        }
+        return note;
+    }
+
+    /*
+     * Moves the playhead marks after delta notes were inserted at index
+     * (delta > 0) or -delta notes deleted from index. Notes inserted right
+     * at the playhead are played next.
+     */
+    private void moveMarks(int index, int delta) {
+        if (playhead < 0) {
+            return;
+        }
+        if (delta < 0 || playhead != index) {
+            playhead = moveMark(playhead, index, delta);
+        }
+        sectionStart = sectionStart < 0 ? -1 : moveMark(sectionStart, index, delta);
+        replayEnd = replayEnd < 0 ? -1 : moveMark(replayEnd, index, delta);
+    }
+
+    private static int moveMark(int mark, int index, int delta) {
+        if (mark < index) {
+            return mark;
+        }
+        // a mark inside a deleted range goes to where the range was
+        return Math.max(index, mark + delta);
+    }
+
+    /*
+     * Makes the given root the current version, keeping the previous one
+     * for undo.
+     */
+    private void commit(Node newRoot) {
+        undo.push(root);
+        if (undo.size() > UNDO_LIMIT) {
+            undo.removeLast();
+        }
+        redo.clear();
+        root = newRoot;
+    }
+
+    /*
+     * Switches to an older or newer version; a playhead past the end of it
+     * stops the song.
+     */
+    private void restore(Node version) {
+        root = version;
+        if (playhead > size(version)) {
+            playhead = size(version);
+        }
+        if (sectionStart >= size(version)) {
+            sectionStart = -1;
+        }
+        if (replayEnd >= size(version)) {
+            replayEnd = -1;
+        }
+    }
+
+    private Node leaf(Note[] chunk) {
+        return new Node(chunk, priorities.nextInt());
+    }
+
+    /*
+     * Builds a balanced rope of chunks as full as can be in linear time, all
+     * of the same size give or take a note: the nodes are added left to
+     * right, each taking as left child the nodes of lower priority on the
+     * right edge of the tree so far.
+     */
+    private Node build(Note[] notes) {
+        List<Node> rightEdge = new ArrayList<>();
+        int chunks = (notes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        for (int i = 0; i < chunks; i++) {
+            int from = (int) ((long) notes.length * i / chunks);
+            int to = (int) ((long) notes.length * (i + 1) / chunks);
+            Node node = leaf(Arrays.copyOfRange(notes, from, to));
+            Node left = null;
+            while (!rightEdge.isEmpty() && rightEdge.get(rightEdge.size() - 1).priority < node.priority) {
+                Node popped = rightEdge.remove(rightEdge.size() - 1);
+                left = popped.with(popped.left, left);
+            }
+            rightEdge.add(node.with(left, null));
+        }
+        Node tree = null;
+        for (int i = rightEdge.size() - 1; i >= 0; i--) {
+            Node node = rightEdge.get(i);
+            tree = node.with(node.left, tree);
+        }
+        return tree;
+    }
+
+    /*
+     * Splits a rope into the first index notes and the rest, cutting a chunk
+     * in two if needed.
+     */
+    private static Node[] split(Node node, int index) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int leftSize = size(node.left);
+        int chunkEnd = leftSize + node.chunk.length;
+        if (index <= leftSize) {
+            Node[] parts = split(node.left, index);
+            parts[1] = node.with(parts[1], node.right);
+            return parts;
+        } else if (index >= chunkEnd) {
+            Node[] parts = split(node.right, index - chunkEnd);
+            parts[0] = node.with(node.left, parts[0]);
+            return parts;
+        } else {
+            int cut = index - leftSize;
+            Node before = new Node(Arrays.copyOfRange(node.chunk, 0, cut), node.priority);
+            Node after = new Node(Arrays.copyOfRange(node.chunk, cut, node.chunk.length), node.priority);
+            return new Node[]{before.with(node.left, null), after.with(null, node.right)};
+        }
+    }
+
+    /*
+     * Joins two ropes like merge(), first coalescing the chunks on either
+     * side of the seam if one of them is less than half full: into one
+     * chunk if they fit, else into two halves. A chunk still less than half
+     * full is joined with the chunk on its other side.
+     */
+    private Node join(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        Note[] last = lastChunk(a);
+        Note[] first = firstChunk(b);
+        if (last.length >= MIN_CHUNK_SIZE && first.length >= MIN_CHUNK_SIZE) {
+            return merge(a, b);
+        }
+        Node[] head = split(a, size(a) - last.length);
+        Node[] tail = split(b, first.length);
+        Note[] notes = Arrays.copyOf(last, last.length + first.length);
+        System.arraycopy(first, 0, notes, last.length, first.length);
+        if (notes.length > CHUNK_SIZE) {
+            int half = notes.length / 2;
+            Node left = leaf(Arrays.copyOfRange(notes, 0, half));
+            Node right = leaf(Arrays.copyOfRange(notes, half, notes.length));
+            return merge(merge(head[0], left), merge(right, tail[1]));
+        }
+        Node joined = leaf(notes);
+        if (notes.length >= MIN_CHUNK_SIZE) {
+            return merge(merge(head[0], joined), tail[1]);
+        }
+        return tail[1] != null ? merge(head[0], join(joined, tail[1])) : join(head[0], joined);
+    }
+
+    /*
+     * Joins two ropes, all notes of a before all notes of b.
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority >= b.priority) {
+            return a.with(a.left, merge(a.right, b));
+        } else {
+            return b.with(merge(a, b.left), b.right);
+        }
+    }
+
+    private static Note[] lastChunk(Node node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.chunk;
+    }
+
+    private static Note[] firstChunk(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.chunk;
+    }
+
+    /*
+     * Returns the sizes of the chunks in order, for the tests.
+     */
+    int[] chunkSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            sizes.add(node.chunk.length);
+            node = node.right;
+        }
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    private static Note get(Node node, int index) {
+        checkPosition(index, size(node) - 1);
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.chunk.length) {
+                return node.chunk[index - leftSize];
+            } else {
+                index -= leftSize + node.chunk.length;
+                node = node.right;
+            }
+        }
+    }
+
+    private static Note[] toArray(Node root) {
+        Note[] notes = new Note[size(root)];
+        Deque<Node> stack = new ArrayDeque<>();
+        int i = 0;
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            System.arraycopy(node.chunk, 0, notes, i, node.chunk.length);
+            i += node.chunk.length;
+            node = node.right;
+        }
+        return notes;
+    }
+
+    private static void checkPosition(int index, int max) {
+        if (index < 0 || index > max) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int repeats(Node node) {
+        return node == null ? 0 : node.repeats;
+    }
+}
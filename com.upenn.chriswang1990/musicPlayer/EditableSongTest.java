@@ -0,0 +1,196 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EditableSongTest {
+    private Song song;
+    private EditableSong editable;
+
+    @Before
+    public void setUp() {
+        song = new Song("GameOfThronesTheme.txt");
+        editable = new EditableSong(song);
+    }
+
+    /**
+     * random edits give the same notes, duration and playing order as a
+     * musicPlayer.Song of the same notes
+     */
+    @Test
+    public void testRandomEdits() {
+        List<Note> expected = new ArrayList<>(Arrays.asList(song.getNotes()));
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int op = random.nextInt(3);
+            if (op == 0 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                List<Note> notes = new ArrayList<>();
+                for (int j = random.nextInt(100); j >= 0; j--) {
+                    notes.add(randomNote(random));
+                }
+                editable.insert(index, notes);
+                expected.addAll(index, notes);
+            } else if (op == 1) {
+                int from = random.nextInt(expected.size());
+                int to = Math.min(expected.size(), from + random.nextInt(80));
+                editable.delete(from, to);
+                expected.subList(from, to).clear();
+            } else {
+                int index = random.nextInt(expected.size());
+                Note note = randomNote(random);
+                editable.replace(index, note);
+                expected.set(index, note);
+            }
+        }
+        assertEquals(expected.size(), editable.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), editable.get(i));
+        }
+        Song same = new Song("", "", expected.toArray(new Note[0]));
+        assertEquals(same.getTotalDuration(), editable.getTotalDuration(), 1e-6);
+        assertEquals(same.getPlayOrder(), editable.toSong().getPlayOrder());
+        int marks = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).isRepeat()) {
+                assertEquals(i, editable.indexOfRepeat(marks++));
+            }
+        }
+        assertEquals(marks, editable.getRepeatCount());
+    }
+
+    /**
+     * one note inserted, deleted or replaced at a time, then whole ranges
+     * deleted down to a few notes, never leave chunks less than half full
+     * behind
+     */
+    @Test
+    public void testChunkSizes() {
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            int op = random.nextInt(3);
+            if (op == 0) {
+                editable.insert(random.nextInt(editable.size() + 1), randomNote(random));
+            } else if (op == 1) {
+                editable.delete(random.nextInt(editable.size()));
+            } else {
+                editable.replace(random.nextInt(editable.size()), randomNote(random));
+            }
+            assertChunkSizes(editable);
+        }
+        while (editable.size() > 3) {
+            int from = random.nextInt(editable.size());
+            editable.delete(from, Math.min(editable.size(), from + 1 + random.nextInt(40)));
+            assertChunkSizes(editable);
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.EditableSong#undo()} and
+     * {@link musicPlayer.EditableSong#redo()}
+     */
+    @Test
+    public void testUndoRedo() {
+        // the first notes of the test song are before its repeated section
+        Song test = new Song("testSong.txt");
+        EditableSong edited = new EditableSong(test);
+        double duration = edited.getTotalDuration();
+        int size = edited.size();
+        Note note = Note.of(2.0, Pitch.A, 4, Accidental.NATURAL, false);
+        edited.insert(2, note);
+        edited.delete(0);
+        assertEquals(size, edited.size());
+        assertEquals(duration + 2.0 - test.getNotes()[0].getDuration(), edited.getTotalDuration(), 1e-9);
+
+        assertTrue(edited.undo());
+        assertTrue(edited.undo());
+        assertFalse(edited.undo());
+        assertEquals(duration, edited.getTotalDuration(), 1e-9);
+        assertEquals(test.getPlayOrder(), edited.toSong().getPlayOrder());
+
+        assertTrue(edited.redo());
+        assertEquals(note, edited.get(2));
+        edited.replace(0, note);
+        assertFalse(edited.canRedo());
+    }
+
+    /**
+     * edits made while playing: a note inserted before the playhead is not
+     * played, one inserted at the playhead is played next, a deleted note
+     * ahead is not played
+     */
+    @Test
+    public void testEditWhilePlaying() {
+        Note[] notes = new Note[10];
+        for (int i = 0; i < notes.length; i++) {
+            notes[i] = Note.of(0.01, Pitch.C, 1 + i % 10, Accidental.NATURAL, false);
+        }
+        EditableSong live = new EditableSong(new Song("live", "test", notes));
+        Note before = Note.of(0.01, Pitch.A, 5, Accidental.FLAT, false);
+        Note next = Note.of(0.01, Pitch.B, 5, Accidental.FLAT, false);
+        AudioSession session = new AudioSession(CaptureSink.discarding());
+        List<Note> played = new ArrayList<>();
+        session.addAudioEventListener(event -> {
+            played.add(event.getNote());
+            if (played.size() == 1) {
+                live.insert(0, before);
+                live.insert(live.getPlayhead(), next);
+                live.delete(live.size() - 1);
+            }
+        });
+        live.play(session);
+
+        List<Note> expected = new ArrayList<>();
+        expected.add(notes[0]);
+        expected.add(next);
+        expected.addAll(Arrays.asList(notes).subList(1, 9));
+        assertEquals(expected, played);
+        assertEquals(-1, live.getPlayhead());
+    }
+
+    /**
+     * test method for {@link musicPlayer.EditableSong#save(String)}
+     */
+    @Test
+    public void testSave() throws Exception {
+        editable.insert(editable.size(), Note.rest(0.25, false));
+        File file = File.createTempFile("edited", ".txt");
+        file.deleteOnExit();
+        editable.save(file.getPath());
+        Song saved = new Song(file.getPath());
+        assertEquals(song.getTitle(), saved.getTitle());
+        assertEquals(editable.toSong().getPlayOrder(), saved.getPlayOrder());
+    }
+
+    private static void assertChunkSizes(EditableSong editable) {
+        int[] sizes = editable.chunkSizes();
+        int total = 0;
+        for (int size : sizes) {
+            assertTrue(size <= 64 && (size >= 32 || sizes.length == 1));
+            total += size;
+        }
+        assertEquals(editable.size(), total);
+    }
+
+    private static Note randomNote(Random random) {
+        boolean repeat = random.nextInt(20) == 0;
+        double duration = 0.125 * (1 + random.nextInt(8));
+        if (random.nextInt(8) == 0) {
+            return Note.rest(duration, repeat);
+        }
+        return Note.of(duration, Pitch.values()[random.nextInt(7)], 1 + random.nextInt(10),
+              Accidental.values()[random.nextInt(3)], repeat);
+    }
+}
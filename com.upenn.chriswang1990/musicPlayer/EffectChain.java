@@ -0,0 +1,188 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The effects a musicPlayer.AudioSession passes its samples through before
+ * they are converted to PCM, in order, each changing the same block in
+ * place. An empty chain costs nothing.
+ * <p>
+ * The chain times every effect on every block, so each musicPlayer.EffectChain.Stage
+ * reports what its effect costs. Effects may be added and removed from any
+ * thread while the chain plays: the stages are replaced as a whole and the
+ * playing thread picks up the new ones at its next block.
+ */
+public class EffectChain implements AudioEffect {
+
+    /**
+     * An effect in the chain and what it cost so far. Only the playing
+     * thread records; the costs can be read from any thread.
+     */
+    public static final class Stage {
+        private final AudioEffect effect;
+        private volatile boolean bypassed = false;
+        private volatile long blocks;
+        private volatile long totalNanos;
+        private volatile long lastNanos;
+        private volatile long maxNanos;
+
+        private Stage(AudioEffect effect) {
+            this.effect = effect;
+        }
+
+        public AudioEffect getEffect() {
+            return effect;
+        }
+
+        /**
+         * Returns whether the effect is skipped, keeping its place.
+         */
+        public boolean isBypassed() {
+            return bypassed;
+        }
+
+        public void setBypassed(boolean bypassed) {
+            this.bypassed = bypassed;
+        }
+
+        /**
+         * Returns the number of blocks processed.
+         */
+        public long getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * Returns the time the last block took, in nanoseconds.
+         */
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        /**
+         * Returns the average time a block took, in nanoseconds.
+         */
+        public long getAverageNanos() {
+            long n = blocks;
+            return n == 0 ? 0 : totalNanos / n;
+        }
+
+        /**
+         * Returns the longest time a block took, in nanoseconds.
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /*
+         * Records one block; called by the playing thread only.
+         */
+        private void record(long nanos) {
+            blocks++;
+            totalNanos += nanos;
+            lastNanos = nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        public String toString() {
+            return effect.getName() + (bypassed ? " (bypassed)" : "") + ": " + getAverageNanos() + " ns/block";
+        }
+    }
+
+    private static final Stage[] NONE = new Stage[0];
+
+    private volatile Stage[] stages = NONE;
+
+    /**
+     * Adds the given effect after the others.
+     *
+     * @return its stage, to read its cost or bypass it
+     */
+    public synchronized Stage add(AudioEffect effect) {
+        if (effect == null) {
+            throw new NullPointerException();
+        }
+        if (effect == this) {
+            throw new IllegalArgumentException("A chain can't contain itself");
+        }
+        Stage stage = new Stage(effect);
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = stage;
+        stages = next;
+        return stage;
+    }
+
+    /**
+     * Removes the given effect, if it is in the chain.
+     *
+     * @return whether it was
+     */
+    public synchronized boolean remove(AudioEffect effect) {
+        Stage[] current = stages;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].effect == effect) {
+                Stage[] next = new Stage[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                stages = next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every effect.
+     */
+    public synchronized void clear() {
+        stages = NONE;
+    }
+
+    /**
+     * Returns whether the chain has no effect, bypassed or not.
+     */
+    public boolean isEmpty() {
+        return stages.length == 0;
+    }
+
+    /**
+     * Returns the stages, in the order they process.
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(stages)));
+    }
+
+    /**
+     * Passes samples [from, to) through every effect that is not bypassed,
+     * in order, timing each.
+     */
+    public void process(float[] samples, int from, int to) {
+        for (Stage stage : stages) {
+            if (!stage.bypassed) {
+                long start = System.nanoTime();
+                stage.effect.process(samples, from, to);
+                stage.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Resets every effect.
+     */
+    public void reset() {
+        for (Stage stage : stages) {
+            stage.effect.reset();
+        }
+    }
+
+    public String getName() {
+        return "Effects " + getStages();
+    }
+}
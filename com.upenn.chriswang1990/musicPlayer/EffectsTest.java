@@ -0,0 +1,176 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EffectsTest {
+
+    private static final int RATE = 44100;
+
+    /**
+     * test method for {@link musicPlayer.BiquadFilter#process}: a low-pass
+     * keeps the frequencies below its cutoff and removes those far above,
+     * a high-pass the opposite
+     */
+    @Test
+    public void testBiquad() {
+        assertEquals(1.0, gain(BiquadFilter.lowPass(1000.0, RATE), 100.0), 0.01);
+        assertTrue(gain(BiquadFilter.lowPass(1000.0, RATE), 10000.0) < 0.02);
+        assertEquals(Math.sqrt(0.5), gain(BiquadFilter.lowPass(1000.0, RATE), 1000.0), 0.01);
+        assertEquals(1.0, gain(BiquadFilter.highPass(1000.0, RATE), 10000.0), 0.01);
+        assertTrue(gain(BiquadFilter.highPass(1000.0, RATE), 100.0) < 0.02);
+    }
+
+    /**
+     * test method for {@link musicPlayer.DelayEffect#process}: an impulse
+     * comes back after the delay, quieter by the feedback each time, however
+     * the samples are split into blocks
+     */
+    @Test
+    public void testDelay() {
+        float[] whole = impulse(1000);
+        new DelayEffect(0.005, 0.5, 0.8, RATE).process(whole, 0, whole.length);
+        int delay = (int) Math.round(0.005 * RATE);
+        assertEquals(1.0f, whole[0], 0.0f);
+        assertEquals(0.8f, whole[delay], 1e-6f);
+        assertEquals(0.4f, whole[2 * delay], 1e-6f);
+        assertEquals(0.2f, whole[3 * delay], 1e-6f);
+        assertEquals(0.0f, whole[delay + 1], 0.0f);
+
+        float[] blocks = impulse(1000);
+        DelayEffect effect = new DelayEffect(0.005, 0.5, 0.8, RATE);
+        for (int from = 0; from < blocks.length; from += 77) {
+            effect.process(blocks, from, Math.min(blocks.length, from + 77));
+        }
+        assertArrayEquals(whole, blocks, 0.0f);
+    }
+
+    /**
+     * test method for {@link musicPlayer.ReverbEffect#process}: the tail of
+     * an impulse is heard, then dies away to exact zeros instead of
+     * subnormal floats
+     */
+    @Test
+    public void testReverbTail() {
+        ReverbEffect reverb = new ReverbEffect(0.5, 0.5, 0.5, RATE);
+        float[] block = impulse(1024);
+        reverb.process(block, 0, block.length);
+        assertEquals(0.5f, block[0], 1e-6f);
+        double tail = 0.0;
+        for (int i = 0; i < 40; i++) {
+            Arrays.fill(block, 0.0f);
+            reverb.process(block, 0, block.length);
+            for (float sample : block) {
+                tail += Math.abs(sample);
+            }
+        }
+        assertTrue(tail > 0.1);
+
+        boolean silent = false;
+        for (int i = 0; i < 10 * RATE / block.length; i++) {
+            Arrays.fill(block, 0.0f);
+            reverb.process(block, 0, block.length);
+            silent = true;
+            for (float sample : block) {
+                assertFalse(sample != 0.0f && Math.abs(sample) < Float.MIN_NORMAL);
+                silent &= sample == 0.0f;
+            }
+        }
+        assertTrue(silent);
+    }
+
+    /**
+     * test method for {@link musicPlayer.EffectChain#process}: the stages
+     * run in order and report their cost, bypassed ones are skipped, and
+     * processing allocates nothing
+     */
+    @Test
+    public void testChain() {
+        EffectChain chain = new EffectChain();
+        assertTrue(chain.isEmpty());
+        EffectChain.Stage filter = chain.add(BiquadFilter.lowPass(2000.0, RATE));
+        EffectChain.Stage delay = chain.add(new DelayEffect(0.25, 0.5, 0.5, RATE));
+        EffectChain.Stage reverb = chain.add(new ReverbEffect(0.8, 0.2, 0.3, RATE));
+        reverb.setBypassed(true);
+
+        float[] block = ToneGenerator.sineFloat(440.0, 1024.0 / RATE, 0.5, RATE);
+        com.sun.management.ThreadMXBean threads =
+              (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 2000; i++) {
+            chain.process(block, 0, block.length);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            chain.process(block, 0, block.length);
+        }
+        assertTrue(threads.getThreadAllocatedBytes(thread) - before < 1024);
+
+        assertEquals(3000, filter.getBlocks());
+        assertEquals(3000, delay.getBlocks());
+        assertEquals(0, reverb.getBlocks());
+        assertTrue(filter.getAverageNanos() > 0);
+        assertTrue(delay.getMaxNanos() >= delay.getAverageNanos());
+        assertTrue(chain.remove(delay.getEffect()));
+        assertEquals(Arrays.asList(filter, reverb), chain.getStages());
+    }
+
+    /**
+     * test method for {@link musicPlayer.AudioSession#getEffects()}: an empty
+     * chain leaves the PCM as it was, effects change it without changing
+     * the caller's samples
+     */
+    @Test
+    public void testSession() {
+        Song song = new Song("testSong.txt");
+        CaptureSink plain = new CaptureSink();
+        new AudioSession(plain).play(song);
+        CaptureSink empty = new CaptureSink();
+        AudioSession session = new AudioSession(empty);
+        session.getEffects().add(BiquadFilter.highPass(100.0, RATE));
+        session.getEffects().clear();
+        session.play(song);
+        assertArrayEquals(plain.toByteArray(), empty.toByteArray());
+
+        CaptureSink filtered = new CaptureSink();
+        session = new AudioSession(filtered);
+        EffectChain.Stage stage = session.getEffects().add(new ReverbEffect(0.5, 0.5, 0.5, RATE));
+        float[] samples = ToneGenerator.sineFloat(440.0, 0.5, 0.5, RATE);
+        float[] copy = samples.clone();
+        session.play(samples);
+        session.flush();
+        assertArrayEquals(copy, samples, 0.0f);
+        assertEquals(samples.length * 2, filtered.getBytesWritten());
+        assertTrue(stage.getBlocks() > 0);
+        assertTrue(PlaybackMetrics.getInstance().getEffectNanos().getCount() > 0);
+    }
+
+    /*
+     * Returns the amplitude of a sine wave through the given filter, once
+     * it has settled, compared to the sine wave.
+     */
+    private static double gain(AudioEffect filter, double hz) {
+        float[] samples = ToneGenerator.sineFloat(hz, 0.5, 0.5, RATE);
+        filter.process(samples, 0, samples.length);
+        double max = 0.0;
+        for (int i = samples.length / 2; i < samples.length; i++) {
+            max = Math.max(max, Math.abs(samples[i]));
+        }
+        return max / 0.5;
+    }
+
+    private static float[] impulse(int length) {
+        float[] samples = new float[length];
+        samples[0] = 1.0f;
+        return samples;
+    }
+}
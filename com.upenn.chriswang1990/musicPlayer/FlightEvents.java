@@ -0,0 +1,127 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the music player. They cost next to nothing
+ * unless a recording is running, so they stay on in production; start one
+ * with -XX:StartFlightRecording and open the file in JDK Mission Control.
+ */
+public final class FlightEvents {
+
+    @Name("musicPlayer.NoteSynthesized")
+    @Label("Note Synthesized")
+    @Description("Samples of one note computed")
+    @Category({"Music Player", "Audio"})
+    @StackTrace(false)
+    public static class NoteSynthesized extends Event {
+        @Label("Note")
+        public String note;
+
+        @Label("Frequency (Hz)")
+        public double frequency;
+
+        @Label("Note Duration (s)")
+        public double noteDuration;
+
+        @Label("Samples")
+        public int samples;
+
+        /**
+         * Ends the event and commits it, if it is recorded, for the given
+         * note of which the given number of samples were computed.
+         */
+        public void end(Note note, int samples) {
+            end();
+            if (shouldCommit()) {
+                this.note = note.toString();
+                this.frequency = note.getFrequency();
+                this.noteDuration = note.getDuration();
+                this.samples = samples;
+                commit();
+            }
+        }
+    }
+
+    @Name("musicPlayer.BufferWritten")
+    @Label("Buffer Written")
+    @Description("Samples handed to the sound card; the event lasts as long as the write blocked")
+    @Category({"Music Player", "Audio"})
+    @StackTrace(false)
+    public static class BufferWritten extends Event {
+        @Label("Size")
+        @DataAmount
+        public int bytes;
+
+        @Label("Available Before Write")
+        @DataAmount
+        public int available;
+
+        @Label("Line Buffer Size")
+        @DataAmount
+        public int bufferSize;
+    }
+
+    @Name("musicPlayer.Underrun")
+    @Label("Underrun")
+    @Description("The sound card ran out of samples in the middle of playback")
+    @Category({"Music Player", "Audio"})
+    @StackTrace(false)
+    public static class Underrun extends Event {
+        @Label("Line Buffer Size")
+        @DataAmount
+        public int bufferSize;
+    }
+
+    @Name("musicPlayer.SongLoaded")
+    @Label("Song Loaded")
+    @Description("A song file was parsed")
+    @Category({"Music Player", "Song"})
+    public static class SongLoaded extends Event {
+        @Label("File")
+        public String file;
+
+        @Label("Title")
+        public String title;
+
+        @Label("Notes")
+        public int notes;
+
+        @Label("Song Duration (s)")
+        public double songDuration;
+    }
+
+    @Name("musicPlayer.TransformApplied")
+    @Label("Transform Applied")
+    @Description("A song was transposed, sped up or slowed down, or reversed")
+    @Category({"Music Player", "Song"})
+    public static class TransformApplied extends Event {
+        @Label("Transform")
+        public String transform;
+
+        @Label("Argument")
+        public double argument;
+
+        @Label("Notes")
+        public int notes;
+
+        @Label("Applied")
+        @Description("False if the song was already at the octave limit")
+        public boolean applied;
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.FlightEvents is non-instantiable.
+     */
+    private FlightEvents() {
+        // empty
+    }
+}
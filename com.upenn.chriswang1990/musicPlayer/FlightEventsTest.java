@@ -0,0 +1,60 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlightEventsTest {
+
+    /**
+     * test method for {@link musicPlayer.AudioSession#play(Song)}: every
+     * note streamed to the sink is recorded as one NoteSynthesized event
+     * with its frequency and number of samples
+     */
+    @Test
+    public void testNoteSynthesized() throws Exception {
+        Song song = new Song("birthday.txt");
+        AudioSession session = new AudioSession(CaptureSink.discarding());
+        File file = File.createTempFile("notes", ".jfr");
+        file.deleteOnExit();
+        try (Recording recording = new Recording()) {
+            recording.enable(FlightEvents.NoteSynthesized.class).withoutThreshold();
+            recording.start();
+            session.play(song);
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+
+        // only the notes of this thread, not of songs other tests left playing
+        long thread = Thread.currentThread().getId();
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getEventType().getName().equals("musicPlayer.NoteSynthesized")
+                  && event.getThread().getJavaThreadId() == thread) {
+                events.add(event);
+            }
+        }
+        // the file keeps the events of each thread buffer together
+        events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+        List<Note> order = song.getPlayOrder();
+        assertEquals(order.size(), events.size());
+        for (int i = 0; i < order.size(); i++) {
+            Note note = order.get(i);
+            RecordedEvent event = events.get(i);
+            assertEquals(note.toString(), event.getString("note"));
+            assertEquals(note.getFrequency(), event.getDouble("frequency"), 0.0);
+            assertEquals(AudioConfig.DEFAULT.sampleCount(note.getDuration()), event.getInt("samples"));
+        }
+    }
+}
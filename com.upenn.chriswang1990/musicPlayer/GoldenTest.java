@@ -0,0 +1,176 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Plays songs and notes the way the player does, to a musicPlayer.ChecksumSink
+ * behind a musicPlayer.VirtualClockSink, and compares the checksums of the PCM
+ * with the ones recorded in golden/ at the project root. The songs play far
+ * faster than real time and need no audio device.
+ * <p>
+ * A change meant to leave the sound as it is must pass unchanged. A change
+ * of the sound on purpose rewrites the files with -Dgolden.update=true, and
+ * commits them with the change.
+ */
+public class GoldenTest {
+
+    private static final String[] SONGS = {"CastleInTheSky.txt", "GameOfThronesTheme.txt",
+          "HeIsAPirate1.txt", "PopGoesTheWeasel.txt", "birthday.txt", "testSong.txt"};
+    private static final File GOLDEN = new File("golden");
+    private static final int DEVICE_BUFFER = 32768; // bytes, like a line of about 0.37 s
+
+    /**
+     * standard audio must not open the sound card, set before it is loaded, nor
+     * change its quality
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        System.setProperty("musicPlayer.sink", "none");
+        StdAudio.getInstance().getSession().getQualityController().setAdaptive(false);
+    }
+
+    /**
+     * test method for {@link musicPlayer.Song#play()}: every song of the project
+     */
+    @Test
+    public void testSongs() throws IOException {
+        StdAudio audio = StdAudio.getInstance();
+        for (String name : SONGS) {
+            Song song = new Song(name);
+            ChecksumSink checksums = new ChecksumSink(audio.getConfig());
+            VirtualClockSink clock = new VirtualClockSink(checksums, audio.getConfig(), DEVICE_BUFFER);
+            AudioSink previous = audio.setSink(clock);
+            try {
+                song.play();
+                clock.drain();
+            } finally {
+                audio.setSink(previous);
+            }
+            assertPlayed(song.getPlayOrder(), clock, checksums);
+            assertGolden(name.replace(".txt", ""), checksums);
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.Note#play()}: a C major scale, with a
+     * rest and accidentals, played a note at a time
+     */
+    @Test
+    public void testNotes() throws IOException {
+        List<Note> scale = new ArrayList<>();
+        for (int key = 60; key <= 72; key++) {
+            scale.add(Note.ofMidiKey(0.125, key, false));
+        }
+        scale.add(Note.rest(0.25, false));
+        scale.add(Note.of(0.5, Pitch.C, 4, Accidental.NATURAL, false));
+
+        StdAudio audio = StdAudio.getInstance();
+        ChecksumSink checksums = new ChecksumSink(audio.getConfig());
+        VirtualClockSink clock = new VirtualClockSink(checksums, audio.getConfig(), DEVICE_BUFFER);
+        AudioSink previous = audio.setSink(clock);
+        try {
+            for (Note note : scale) {
+                note.play();
+            }
+            audio.flush();
+            clock.drain();
+        } finally {
+            audio.setSink(previous);
+        }
+        assertPlayed(scale, clock, checksums);
+        assertGolden("scale", checksums);
+    }
+
+    /**
+     * test method for {@link musicPlayer.AudioSession#play(Song)}: a transformed
+     * song in other configurations than standard audio's
+     */
+    @Test
+    public void testSessions() throws IOException {
+        for (String text : new String[]{"22050/8/1", "48000/24/2"}) {
+            AudioConfig config = AudioConfig.parse(text);
+            Song song = new Song("GameOfThronesTheme.txt");
+            song.octaveUp();
+            song.changeTempo(0.75);
+            song.reverse();
+            ChecksumSink checksums = new ChecksumSink(config);
+            VirtualClockSink clock = new VirtualClockSink(checksums, config, DEVICE_BUFFER);
+            try (AudioSession session = new AudioSession(clock, config)) {
+                session.getQualityController().setAdaptive(false);
+                song.play(session);
+            }
+            assertPlayed(song.getPlayOrder(), clock, checksums);
+            assertGolden("GameOfThronesTheme-" + text.replace('/', '-'), checksums);
+        }
+    }
+
+    /*
+     * Checks every sample of the notes reached the sink, and the virtual
+     * clock ran for as long as they play.
+     */
+    private static void assertPlayed(List<Note> notes, VirtualClockSink clock, ChecksumSink checksums) {
+        AudioConfig config = checksums.getConfig();
+        long frames = 0;
+        for (Note note : notes) {
+            frames += config.sampleCount(note.getDuration());
+        }
+        assertEquals(frames * config.getFrameSize(), checksums.getBytesWritten());
+        assertEquals(checksums.getBytesWritten(), clock.getBytesWritten());
+        assertEquals(frames * 1e9 / config.getSampleRate(), clock.getNanos(), 1e3);
+    }
+
+    /*
+     * Compares the checksums with the golden file of the given name, or
+     * writes the file when golden.update is set.
+     */
+    private static void assertGolden(String name, ChecksumSink checksums) throws IOException {
+        File file = new File(GOLDEN, name + ".crc");
+        if (Boolean.getBoolean("golden.update")) {
+            write(file, checksums);
+            return;
+        }
+        if (!file.exists()) {
+            fail("no golden checksums " + file + ", run once with -Dgolden.update=true to record them");
+        }
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(name + ": configuration", lines.get(1), "config " + checksums.getConfig());
+        assertEquals(name + ": block size", lines.get(2), "block " + checksums.getBlockFrames());
+        assertEquals(name + ": bytes", lines.get(3), "bytes " + checksums.getBytesWritten());
+        long[] expected = new long[lines.size() - 4];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = Long.parseLong(lines.get(i + 4).split(" ")[1], 16);
+        }
+        int block = checksums.firstDifference(expected);
+        assertTrue(String.format("%s: the PCM differs from block %d on, at %.3f s", name, block,
+              checksums.blockTime(block)), block < 0);
+    }
+
+    private static void write(File file, ChecksumSink checksums) throws IOException {
+        file.getParentFile().mkdirs();
+        long[] values = checksums.getChecksums();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            out.print("# CRC-32 of the PCM per block, rewritten with -Dgolden.update=true\n");
+            out.print("config " + checksums.getConfig() + "\n");
+            out.print("block " + checksums.getBlockFrames() + "\n");
+            out.print("bytes " + checksums.getBytesWritten() + "\n");
+            for (int i = 0; i < values.length; i++) {
+                out.printf("%d %08x\n", i, values[i]);
+            }
+        }
+    }
+}
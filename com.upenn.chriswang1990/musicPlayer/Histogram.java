@@ -0,0 +1,169 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A musicPlayer.Histogram counts non-negative values, such as times in nanoseconds,
+ * in buckets. Recording only increments striped counters, so many threads
+ * can record at once without contending and without allocating.
+ * <p>
+ * Exponential histograms have one bucket per power of two, linear ones have
+ * buckets of equal width; values past the last bucket land in the last one.
+ */
+public class Histogram {
+
+    private final LongAdder[] buckets;
+    private final int width;     // 0 for power of two buckets
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * A point in time view of a histogram.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        @ConstructorProperties({"count", "mean", "p50", "p99", "max"})
+        public Snapshot(long count, double mean, long p50, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the median.
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the 99th percentile.
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public String toString() {
+            return "count=" + count + ", mean=" + String.format("%.1f", mean)
+                  + ", p50=" + p50 + ", p99=" + p99 + ", max=" + max;
+        }
+    }
+
+    /**
+     * Creates a histogram with one bucket per power of two up to 2^62.
+     */
+    public static Histogram exponential() {
+        return new Histogram(63, 0);
+    }
+
+    /**
+     * Creates a histogram of the given number of buckets, each covering
+     * width consecutive values starting at 0.
+     */
+    public static Histogram linear(int width, int buckets) {
+        if (width < 1 || buckets < 1) {
+            throw new IllegalArgumentException();
+        }
+        return new Histogram(buckets, width);
+    }
+
+    private Histogram(int bucketCount, int width) {
+        this.width = width;
+        this.buckets = new LongAdder[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one value; negative values count as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0L, value);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns the current count, mean, percentiles and maximum.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        long maxValue = max.get();
+        double mean = total == 0 ? 0.0 : (double) sum.sum() / total;
+        return new Snapshot(total, mean, percentile(counts, total, 0.50, maxValue),
+              percentile(counts, total, 0.99, maxValue), maxValue);
+    }
+
+    private int bucketOf(long value) {
+        if (width == 0) {
+            return 63 - Long.numberOfLeadingZeros(value | 1L);
+        }
+        return (int) Math.min(buckets.length - 1, value / width);
+    }
+
+    private long upperBound(int bucket) {
+        if (width == 0) {
+            return bucket >= 62 ? Long.MAX_VALUE : (2L << bucket) - 1;
+        }
+        return (long) (bucket + 1) * width - 1;
+    }
+
+    private long percentile(long[] counts, long total, double fraction, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
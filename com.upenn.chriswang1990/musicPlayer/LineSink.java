@@ -0,0 +1,70 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * A musicPlayer.LineSink plays PCM through a line of the sound card, 44,100 Hz,
+ * 16-bit, monaural unless another musicPlayer.AudioConfig is given.
+ */
+public class LineSink implements AudioSink {
+
+    private static final int SAMPLE_BUFFER_SIZE = 4096;
+
+    private final SourceDataLine line; // to play the sound
+
+    /**
+     * Opens and starts a line of the default mixer.
+     *
+     * @throws LineUnavailableException if no line supports the format
+     */
+    public LineSink() throws LineUnavailableException {
+        this(AudioConfig.DEFAULT);
+    }
+
+    /**
+     * Opens and starts a line of the default mixer for PCM of the given
+     * configuration.
+     *
+     * @throws LineUnavailableException if no line supports the format
+     */
+    public LineSink(AudioConfig config) throws LineUnavailableException {
+        AudioFormat format = config.toAudioFormat();
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+
+        line = (SourceDataLine) AudioSystem.getLine(info);
+        // the same buffer duration whatever the format
+        int frames = SAMPLE_BUFFER_SIZE * config.getSampleRate() / StdAudio.SAMPLE_RATE;
+        line.open(format, frames * config.getFrameSize());
+
+        // no sound gets made before this call
+        line.start();
+    }
+
+    public void write(byte[] pcm, int off, int len) {
+        line.write(pcm, off, len);
+    }
+
+    public int available() {
+        return line.available();
+    }
+
+    public int getBufferSize() {
+        return line.getBufferSize();
+    }
+
+    public void drain() {
+        line.drain();
+    }
+
+    public void close() {
+        line.drain();
+        line.stop();
+        line.close();
+    }
+}
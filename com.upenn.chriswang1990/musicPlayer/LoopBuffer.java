@@ -0,0 +1,241 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The passage of a song between two times A and B, synthesized once and
+ * played over and over without synthesizing it again.
+ * <p>
+ * A and B are turned into samples the way the notes are laid out when the
+ * song plays, so the loop cuts the notes where the song would be at those
+ * times, to the sample. The last few milliseconds of the loop are
+ * crossfaded with what leads up to A, so the seam from B back to A is as
+ * smooth as the song itself. The samples are converted to PCM once as well;
+ * a musicPlayer.AudioSession without effects only copies it to its sink.
+ * <p>
+ * The notes the loop cuts through are kept, so every iteration tells the
+ * listeners which notes played, followed by a LOOP event as it goes back
+ * to A.
+ */
+public final class LoopBuffer {
+
+    /**
+     * How long the end of the loop is crossfaded with what comes before A.
+     */
+    public static final double CROSSFADE_SECONDS = 0.01;
+
+    private final List<Note> order;
+    private final double start;
+    private final double end;
+    private final AudioConfig config;
+    private final SampledInstrument instrument; // null for sine waves
+    private final float[] samples;  // one iteration, the seam crossfaded
+    private final byte[] pcm;       // the same, in the configuration
+    private final Note[] notes;     // the notes the loop cuts through
+    private final int[] noteEnds;   // where each of them ends in the loop
+
+    private LoopBuffer(List<Note> order, double start, double end, AudioConfig config,
+                       SampledInstrument instrument, float[] samples, Note[] notes, int[] noteEnds) {
+        this.order = order;
+        this.start = start;
+        this.end = end;
+        this.config = config;
+        this.instrument = instrument;
+        this.samples = samples;
+        this.notes = notes;
+        this.noteEnds = noteEnds;
+        this.pcm = new byte[samples.length * config.getFrameSize()];
+        PcmConverter.toPcm(samples, 0, samples.length, pcm, 0, config);
+    }
+
+    /**
+     * Synthesizes the passage of the song from start to end, in seconds,
+     * in the given configuration.
+     *
+     * @throws IllegalArgumentException if the passage is empty or not in the song
+     */
+    public static LoopBuffer render(Song song, double start, double end, AudioConfig config) {
+        return render(song, start, end, config, null);
+    }
+
+    /**
+     * Renders the passage of the song from start to end, in seconds, in
+     * the given configuration, with the given instrument, null for sine
+     * waves.
+     *
+     * @throws IllegalArgumentException if the passage is empty or not in the song
+     */
+    public static LoopBuffer render(Song song, double start, double end, AudioConfig config,
+                                    SampledInstrument instrument) {
+        if (!(start >= 0.0) || !(end > start) || end > song.getTotalDuration()) {
+            throw new IllegalArgumentException("Illegal loop: " + start + " - " + end);
+        }
+        List<Note> order = Arrays.asList(song.getPlayOrder().toArray(new Note[0]));
+        int rate = config.getSampleRate();
+        long[] offsets = offsets(order, config);
+        long a = sampleAt(order, offsets, start, rate);
+        long b = sampleAt(order, offsets, end, rate);
+        if (b - a > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal loop: " + start + " - " + end);
+        }
+        int length = (int) (b - a);
+        if (length == 0) {
+            throw new IllegalArgumentException("Illegal loop: " + start + " - " + end);
+        }
+        int fade = (int) Math.min(Math.round(CROSSFADE_SECONDS * rate), length / 2);
+
+        // the samples from A - fade to B, silence before the song starts
+        float[] region = new float[fade + length];
+        long from = a - fade;
+        List<Note> cut = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        for (int i = 0; i < order.size() && offsets[i] < b; i++) {
+            if (offsets[i + 1] <= from) {
+                continue;
+            }
+            float[] note = instrument == null ? order.get(i).renderFloat(rate) : instrument.render(order.get(i), rate);
+            long first = Math.max(offsets[i], from);
+            long last = Math.min(Math.min(offsets[i + 1], b), offsets[i] + note.length);
+            if (last > first) {
+                System.arraycopy(note, (int) (first - offsets[i]), region, (int) (first - from), (int) (last - first));
+            }
+            if (offsets[i + 1] > a) {
+                cut.add(order.get(i));
+                ends.add((int) (Math.min(offsets[i + 1], b) - a));
+            }
+        }
+
+        float[] loop = Arrays.copyOfRange(region, fade, region.length);
+        for (int j = 0; j < fade; j++) {
+            double gain = (double) (j + 1) / (fade + 1);
+            int k = length - fade + j;
+            loop[k] = PcmConverter.toFloat(loop[k] * (1.0 - gain) + region[j] * gain);
+        }
+        int[] noteEnds = new int[ends.size()];
+        for (int i = 0; i < noteEnds.length; i++) {
+            noteEnds[i] = ends.get(i);
+        }
+        return new LoopBuffer(order, start, end, config, instrument, loop, cut.toArray(new Note[0]), noteEnds);
+    }
+
+    /**
+     * Returns whether this is the passage from start to end of the given
+     * notes in the given configuration with the given instrument, so it
+     * can be played again.
+     */
+    public boolean matches(List<Note> order, double start, double end, AudioConfig config,
+                           SampledInstrument instrument) {
+        return this.start == start && this.end == end && this.config.equals(config)
+              && this.instrument == instrument && this.order.equals(order);
+    }
+
+    /**
+     * Returns where the loop starts in the song, in seconds.
+     */
+    public double getStart() {
+        return start;
+    }
+
+    /**
+     * Returns where the loop ends in the song, in seconds.
+     */
+    public double getEnd() {
+        return end;
+    }
+
+    public AudioConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the number of samples of one iteration.
+     */
+    public int getLength() {
+        return samples.length;
+    }
+
+    /**
+     * Returns the seconds one iteration lasts.
+     */
+    public double getDuration() {
+        return (double) samples.length / config.getSampleRate();
+    }
+
+    /**
+     * Returns the sample of the loop playing at the given time of the song,
+     * 0 if the time is not in the loop.
+     */
+    public int sampleAt(double time) {
+        if (time < start || time >= end) {
+            return 0;
+        }
+        int rate = config.getSampleRate();
+        long[] offsets = offsets(order, config);
+        long sample = sampleAt(order, offsets, time, rate) - sampleAt(order, offsets, start, rate);
+        return (int) Math.max(0, Math.min(samples.length - 1, sample));
+    }
+
+    /**
+     * Plays the loop from the given sample to its end in the given session,
+     * telling its listeners about the notes played, and about going back
+     * to A unless the session was muted meanwhile.
+     */
+    public void play(AudioSession session, int from) {
+        if (!config.equals(session.getConfig())) {
+            throw new IllegalArgumentException("Illegal session configuration: " + session.getConfig());
+        }
+        int rate = config.getSampleRate();
+        boolean direct = session.getEffects().isEmpty();
+        int frameSize = config.getFrameSize();
+        int noteStart = 0;
+        for (int i = 0; i < notes.length && !session.isMuted(); i++) {
+            int noteEnd = noteEnds[i];
+            if (noteEnd > from) {
+                int first = Math.max(from, noteStart);
+                if (direct) {
+                    session.playPcm(pcm, first * frameSize, (noteEnd - first) * frameSize);
+                } else {
+                    session.play(samples, first, noteEnd);
+                }
+                session.notePlayed(notes[i], (double) (noteEnd - first) / rate);
+            }
+            noteStart = noteEnd;
+        }
+        if (!session.isMuted()) {
+            session.notifyListeners(new StdAudio.AudioEvent(StdAudio.AudioEvent.Type.LOOP, getDuration()));
+        }
+    }
+
+    /*
+     * Returns the sample at which the given time falls when the notes are
+     * played one after the other, each cut where its duration ends.
+     */
+    private static long sampleAt(List<Note> order, long[] offsets, double time, int rate) {
+        double noteStart = 0.0;
+        for (int i = 0; i < order.size(); i++) {
+            double duration = order.get(i).getDuration();
+            if (noteStart + duration > time) {
+                long into = Math.round((time - noteStart) * rate);
+                return offsets[i] + Math.min(into, offsets[i + 1] - offsets[i]);
+            }
+            noteStart += duration;
+        }
+        return offsets[order.size()];
+    }
+
+    /*
+     * Returns where each note starts in the samples of the song, and where
+     * the last one ends.
+     */
+    private static long[] offsets(List<Note> order, AudioConfig config) {
+        long[] offsets = new long[order.size() + 1];
+        for (int i = 0; i < order.size(); i++) {
+            offsets[i + 1] = offsets[i] + config.sampleCount(order.get(i).getDuration());
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,139 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoopTest {
+
+    private final AudioConfig config = AudioConfig.DEFAULT;
+
+    /**
+     * test method for {@link musicPlayer.LoopBuffer#render}: the loop is the
+     * song cut at A and B to the sample, but for its last samples, which
+     * fade into what comes before A
+     */
+    @Test
+    public void testSeam() {
+        Song song = new Song("birthday.txt");
+        float[] whole = renderWhole(song);
+        double start = 1.3;
+        double end = 4.05;
+        int a = sampleAt(song, start);
+        int b = sampleAt(song, end);
+        LoopBuffer loop = LoopBuffer.render(song, start, end, config);
+        assertEquals(b - a, loop.getLength());
+
+        float[] samples = play(loop);
+        int fade = (int) Math.round(LoopBuffer.CROSSFADE_SECONDS * config.getSampleRate());
+        assertArrayEquals(Arrays.copyOfRange(whole, a, b - fade), Arrays.copyOf(samples, b - a - fade),
+              1.0f / Short.MAX_VALUE);
+        // the last sample is almost the one before A, so the seam is smooth
+        assertEquals(whole[a - 1], samples[b - a - 1], 0.1f);
+        assertEquals(loop.sampleAt(2.0), sampleAt(song, 2.0) - a);
+    }
+
+    /**
+     * test method for {@link musicPlayer.LoopBuffer#play}: every iteration
+     * plays the same samples and ends with a LOOP event, without
+     * synthesizing anything again
+     */
+    @Test
+    public void testIterations() {
+        Song song = new Song("birthday.txt");
+        LoopBuffer loop = LoopBuffer.render(song, 0.0, 2.0, config);
+        PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+        long synthesized = metrics.getSynthesisNanos().getCount();
+
+        CaptureSink sink = new CaptureSink();
+        AudioSession session = new AudioSession(sink, config);
+        List<StdAudio.AudioEvent> events = new ArrayList<>();
+        session.addAudioEventListener(events::add);
+        for (int i = 0; i < 3; i++) {
+            loop.play(session, 0);
+        }
+        session.flush();
+        assertEquals(synthesized, metrics.getSynthesisNanos().getCount());
+        assertEquals(3L * loop.getLength() * config.getFrameSize(), sink.getBytesWritten());
+
+        int loops = 0;
+        double played = 0.0;
+        for (StdAudio.AudioEvent event : events) {
+            if (event.getType() == StdAudio.AudioEvent.Type.LOOP) {
+                assertEquals(loop.getDuration(), played, 1e-9);
+                loops++;
+                played = 0.0;
+            } else {
+                assertEquals(StdAudio.AudioEvent.Type.PLAY, event.getType());
+                played += event.getDuration();
+            }
+        }
+        assertEquals(3, loops);
+
+        byte[] pcm = sink.toByteArray();
+        int bytes = loop.getLength() * config.getFrameSize();
+        for (int i = 0; i < bytes; i++) {
+            assertTrue(pcm[i] == pcm[bytes + i] && pcm[i] == pcm[2 * bytes + i]);
+        }
+    }
+
+    /*
+     * Plays the loop once into a capture, and returns the samples.
+     */
+    private float[] play(LoopBuffer loop) {
+        CaptureSink sink = new CaptureSink();
+        AudioSession session = new AudioSession(sink, config);
+        loop.play(session, 0);
+        session.flush();
+        byte[] pcm = sink.toByteArray();
+        float[] samples = new float[pcm.length / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) ((short) ((pcm[2 * i + 1] << 8) | (pcm[2 * i] & 0xFF))) / Short.MAX_VALUE;
+        }
+        return samples;
+    }
+
+    /*
+     * Synthesizes every note of the song, one after the other.
+     */
+    private float[] renderWhole(Song song) {
+        List<float[]> notes = new ArrayList<>();
+        int length = 0;
+        for (Note note : song.getPlayOrder()) {
+            float[] samples = note.renderFloat(config.getSampleRate());
+            notes.add(samples);
+            length += samples.length;
+        }
+        float[] whole = new float[length];
+        int pos = 0;
+        for (float[] samples : notes) {
+            System.arraycopy(samples, 0, whole, pos, samples.length);
+            pos += samples.length;
+        }
+        return whole;
+    }
+
+    /*
+     * Returns the sample at which the song is at the given time.
+     */
+    private int sampleAt(Song song, double time) {
+        int sample = 0;
+        double noteStart = 0.0;
+        for (Note note : song.getPlayOrder()) {
+            if (noteStart + note.getDuration() > time) {
+                return sample + (int) Math.round((time - noteStart) * config.getSampleRate());
+            }
+            noteStart += note.getDuration();
+            sample += config.sampleCount(note.getDuration());
+        }
+        return sample;
+    }
+}
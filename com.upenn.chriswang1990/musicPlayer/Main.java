@@ -4,9 +4,16 @@ package musicPlayer;
 
 public class Main {
     /*
-     * Runs the program.
+     * Runs the program. The sound card opens in the background while the
+     * window is built; songs played before come from the render cache.
+     * With -DmusicPlayer.samples=directory, notes are played from the
+     * recordings of that sample bank.
      */
     public static void main(String[] args) {
+        PlaybackMetrics.getInstance().launched();
+        StdAudio.getInstance().open();
+        StdAudio.getInstance().getSession().setRenderCache(RenderCache.openDefault());
+        StdAudio.getInstance().getSession().setInstrument(SampledInstrument.fromSystemProperties());
         new MusicPlayer();
     }
 }
@@ -0,0 +1,641 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * An inverted index of the melodies of a library of song files, to find the
+ * songs that contain a phrase in any key and at any tempo without loading
+ * them.
+ * <p>
+ * A melody is the notes of a song in playing order without the rests. Each
+ * step from one note to the next is the interval in semitones, from the
+ * pitch, octave and accidental of the notes, and the ratio of their
+ * durations rounded to a half power of two. The index maps every n-gram of
+ * GRAM steps (a phrase of four notes) to the songs it occurs in and where.
+ * <p>
+ * The index is a directory of immutable musicPlayer.MelodySegment files and a
+ * manifest listing them with their deleted songs. An update only indexes
+ * the new and changed files of the library into a new segment, and marks
+ * the old copies of changed and removed files deleted; once there are more
+ * than MAX_SEGMENTS segments they are merged into one. The manifest is
+ * replaced atomically, so an update that fails leaves the last index.
+ * <p>
+ * Usage: java musicPlayer.MelodyIndex indexDir songDir, to update the index
+ * of the song files of a directory, or java musicPlayer.MelodyIndex indexDir
+ * --search phraseFile [--limit N] to list the songs containing the notes of
+ * a song file.
+ */
+public class MelodyIndex {
+
+    /**
+     * Number of steps in an n-gram; a phrase needs one note more.
+     */
+    public static final int GRAM = 3;
+
+    private static final int SEGMENT_SONGS = 10000;
+    private static final int MAX_SEGMENTS = 8;
+    private static final String MANIFEST = "segments";
+    private static final int STEP_BITS = 13; // 8 bits of interval, 5 of duration ratio
+
+    /**
+     * A song found by a search.
+     */
+    public static class Match {
+        private final String path;
+        private final String title;
+        private final String artist;
+        private final int occurrences;
+        private final double score;
+
+        Match(String path, String title, String artist, int occurrences, double score) {
+            this.path = path;
+            this.title = title;
+            this.artist = artist;
+            this.occurrences = occurrences;
+            this.score = score;
+        }
+
+        /**
+         * Returns the path of the song file.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getArtist() {
+            return artist;
+        }
+
+        /**
+         * Returns the number of times the whole phrase occurs in the song,
+         * 0 if it only shares some n-grams with it.
+         */
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * Returns the share of the n-grams of the phrase found in the song,
+         * weighted by how rare they are in the library, from 0 to 1.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        public String toString() {
+            return String.format("%s - [%s] %s: %d occurrences, score %.3f", artist, title, path, occurrences, score);
+        }
+    }
+
+    /*
+     * The postings of one n-gram while a segment is built: songs are added
+     * in increasing order, and the positions of each song in increasing
+     * order.
+     */
+    private static final class PostingsBuilder {
+        private int[] docs = new int[1];
+        private int[] starts = new int[1];
+        private int[] positions = new int[1];
+        private int docCount = 0;
+        private int size = 0;
+
+        void add(int doc, int position) {
+            if (docCount == 0 || docs[docCount - 1] != doc) {
+                if (docCount == docs.length) {
+                    docs = Arrays.copyOf(docs, 2 * docCount);
+                    starts = Arrays.copyOf(starts, 2 * docCount);
+                }
+                docs[docCount] = doc;
+                starts[docCount++] = size;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * size);
+            }
+            positions[size++] = position;
+        }
+
+        void addAll(int doc, int[] docPositions) {
+            for (int position : docPositions) {
+                add(doc, position);
+            }
+        }
+
+        MelodySegment.Postings build() {
+            int[][] perDoc = new int[docCount][];
+            for (int i = 0; i < docCount; i++) {
+                perDoc[i] = Arrays.copyOfRange(positions, starts[i], i + 1 < docCount ? starts[i + 1] : size);
+            }
+            return new MelodySegment.Postings(Arrays.copyOf(docs, docCount), perDoc);
+        }
+    }
+
+    /*
+     * A song read from the library, with the steps of its melody.
+     */
+    private static final class Analyzed {
+        final MelodySegment.Doc doc;
+        final int[] steps;
+
+        Analyzed(MelodySegment.Doc doc, int[] steps) {
+            this.doc = doc;
+            this.steps = steps;
+        }
+    }
+
+    private final File dir;
+    private final List<MelodySegment> segments = new ArrayList<>();
+    private final List<BitSet> deleted = new ArrayList<>();
+    private int nextSegment = 0;
+
+    private MelodyIndex(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the index in the given directory, or creates an empty one.
+     *
+     * @throws IOException if the index can't be read
+     */
+    public static MelodyIndex open(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("not able to create " + dir);
+        }
+        MelodyIndex index = new MelodyIndex(dir);
+        File manifest = new File(dir, MANIFEST);
+        if (manifest.exists()) {
+            try (BufferedReader in = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+                index.nextSegment = Integer.parseInt(in.readLine().substring("next ".length()));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.trim().split(" ");
+                    MelodySegment segment = MelodySegment.open(new File(dir, fields[0]));
+                    BitSet gone = new BitSet(segment.getDocs().length);
+                    for (int i = 1; i < fields.length; i++) {
+                        gone.set(Integer.parseInt(fields[i]));
+                    }
+                    index.segments.add(segment);
+                    index.deleted.add(gone);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("bad manifest " + manifest, e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of songs in the index.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            size += segments.get(s).getDocs().length - deleted.get(s).cardinality();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of segment files of the index.
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Brings the index up to date with the .txt song files of the directory:
+     * new and changed files are indexed, on all cores, and files no longer
+     * there are removed. Files that are not songs are left out.
+     *
+     * @return the number of songs indexed
+     * @throws IOException if the index can't be written
+     */
+    public synchronized int update(File songDir) throws IOException {
+        File[] files = songDir.listFiles((d, name) -> name.endsWith(".txt"));
+        if (files == null) {
+            throw new IOException("not a directory: " + songDir);
+        }
+        Map<String, File> library = new HashMap<>();
+        for (File file : files) {
+            library.put(file.getAbsolutePath(), file);
+        }
+
+        // songs indexed from a file that is gone or has changed since
+        Set<String> current = new HashSet<>();
+        for (int s = 0; s < segments.size(); s++) {
+            MelodySegment.Doc[] docs = segments.get(s).getDocs();
+            for (int d = 0; d < docs.length; d++) {
+                if (deleted.get(s).get(d)) {
+                    continue;
+                }
+                File file = library.get(docs[d].path);
+                if (file != null && file.length() == docs[d].size && file.lastModified() == docs[d].lastModified) {
+                    current.add(docs[d].path);
+                } else {
+                    deleted.get(s).set(d);
+                }
+            }
+        }
+
+        List<File> changed = library.values().stream()
+              .filter(file -> !current.contains(file.getAbsolutePath()))
+              .sorted()
+              .collect(Collectors.toList());
+        List<Analyzed> analyzed = changed.parallelStream()
+              .map(MelodyIndex::analyze)
+              .filter(Objects::nonNull)
+              .collect(Collectors.toList());
+        for (int from = 0; from < analyzed.size(); from += SEGMENT_SONGS) {
+            addSegment(analyzed.subList(from, Math.min(analyzed.size(), from + SEGMENT_SONGS)));
+        }
+        if (segments.size() > MAX_SEGMENTS) {
+            merge();
+        } else {
+            writeManifest();
+        }
+        return analyzed.size();
+    }
+
+    /**
+     * Merges every segment into one without the deleted songs.
+     *
+     * @throws IOException if the index can't be written
+     */
+    public synchronized void merge() throws IOException {
+        List<MelodySegment.Doc> docs = new ArrayList<>();
+        List<int[]> newNumbers = new ArrayList<>();
+        for (int s = 0; s < segments.size(); s++) {
+            MelodySegment.Doc[] segmentDocs = segments.get(s).getDocs();
+            int[] numbers = new int[segmentDocs.length];
+            for (int d = 0; d < segmentDocs.length; d++) {
+                if (deleted.get(s).get(d)) {
+                    numbers[d] = -1;
+                } else {
+                    numbers[d] = docs.size();
+                    docs.add(segmentDocs[d]);
+                }
+            }
+            newNumbers.add(numbers);
+        }
+        File file = new File(dir, "seg_" + nextSegment++);
+        MelodySegment.write(file, docs, new MergedPostings(newNumbers));
+        replaceSegments(MelodySegment.open(file));
+    }
+
+    /**
+     * Returns the songs that contain the phrase, in any key and at any tempo,
+     * best first: the songs with the whole phrase, then the songs sharing the
+     * most of its rare n-grams.
+     *
+     * @param phrase the notes to look for; rests are skipped
+     * @param limit  the number of songs to return at most
+     * @throws IllegalArgumentException if the phrase has less than GRAM + 1 notes
+     */
+    public synchronized List<Match> search(List<Note> phrase, int limit) {
+        int[] steps = steps(phrase);
+        if (steps.length < GRAM) {
+            throw new IllegalArgumentException("a phrase needs at least " + (GRAM + 1) + " notes");
+        }
+        long[] query = new long[steps.length - GRAM + 1];
+        for (int i = 0; i < query.length; i++) {
+            query[i] = gram(steps, i);
+        }
+        long[] terms = Arrays.stream(query).distinct().toArray();
+        int songs = size();
+
+        // the positions of every n-gram of the phrase in each song sharing one
+        Map<Long, Map<Long, int[]>> found = new HashMap<>();
+        Map<Long, Double> weights = new HashMap<>();
+        double total = 0.0;
+        for (long term : terms) {
+            List<MelodySegment.Postings> postings = new ArrayList<>();
+            int frequency = 0;
+            for (int s = 0; s < segments.size(); s++) {
+                MelodySegment.Postings p = segments.get(s).postings(term);
+                postings.add(p);
+                for (int i = 0; p != null && i < p.docs.length; i++) {
+                    frequency += deleted.get(s).get(p.docs[i]) ? 0 : 1;
+                }
+            }
+            double weight = Math.log(1.0 + (double) songs / (1 + frequency));
+            total += weight;
+            for (int s = 0; s < segments.size(); s++) {
+                MelodySegment.Postings p = postings.get(s);
+                for (int i = 0; p != null && i < p.docs.length; i++) {
+                    if (!deleted.get(s).get(p.docs[i])) {
+                        long song = (long) s << 32 | p.docs[i];
+                        found.computeIfAbsent(song, k -> new HashMap<>()).put(term, p.positions[i]);
+                        weights.merge(song, weight, Double::sum);
+                    }
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, int[]>> entry : found.entrySet()) {
+            long song = entry.getKey();
+            MelodySegment.Doc doc = segments.get((int) (song >>> 32)).getDocs()[(int) song];
+            int occurrences = entry.getValue().size() < terms.length ? 0 : occurrences(query, entry.getValue());
+            matches.add(new Match(doc.path, doc.title, doc.artist, occurrences, weights.get(song) / total));
+        }
+        matches.sort(Comparator.comparing((Match m) -> m.occurrences == 0)
+              .thenComparing(Comparator.comparingDouble(Match::getScore).reversed())
+              .thenComparing(Comparator.comparingInt(Match::getOccurrences).reversed())
+              .thenComparing(Match::getPath));
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    /**
+     * Updates an index or searches it.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args[1].equals("--search") && args.length < 3) {
+            System.err.println("usage: java musicPlayer.MelodyIndex indexDir songDir");
+            System.err.println("       java musicPlayer.MelodyIndex indexDir --search phraseFile [--limit N]");
+            System.exit(2);
+        }
+        MelodyIndex index = open(new File(args[0]));
+        long start = System.nanoTime();
+        if (!args[1].equals("--search")) {
+            int indexed = index.update(new File(args[1]));
+            System.out.println(String.format("%d songs indexed, %d in %d segments, in %.3f s",
+                  indexed, index.size(), index.getSegmentCount(), (System.nanoTime() - start) / 1e9));
+            return;
+        }
+        int limit = 10;
+        if (args.length > 4 && args[3].equals("--limit")) {
+            limit = Integer.parseInt(args[4]);
+        }
+        List<Note> phrase = new Song(args[2]).getPlayOrder();
+        start = System.nanoTime();
+        List<Match> matches = index.search(phrase, limit);
+        double millis = (System.nanoTime() - start) / 1e6;
+        for (Match match : matches) {
+            System.out.println(match);
+        }
+        System.out.println(String.format("%d songs in %.2f ms", matches.size(), millis));
+    }
+
+    /**
+     * Returns the steps of the melody of the notes: one per pair of notes
+     * following each other once the rests are left out.
+     */
+    static int[] steps(List<Note> notes) {
+        int[] steps = new int[Math.max(0, notes.size() - 1)];
+        int count = 0;
+        Note previous = null;
+        for (Note note : notes) {
+            if (note.isRest()) {
+                continue;
+            }
+            if (previous != null) {
+                steps[count++] = step(previous, note);
+            }
+            previous = note;
+        }
+        return Arrays.copyOf(steps, count);
+    }
+
+    /*
+     * Packs the interval in semitones (8 bits) and the duration ratio in
+     * half powers of two (5 bits) from one note to the next.
+     */
+    private static int step(Note from, Note to) {
+        int interval = Math.max(-127, Math.min(127, to.getMidiKey() - from.getMidiKey())) + 128;
+        int ratio = 0;
+        if (from.getDuration() > 0.0 && to.getDuration() > 0.0) {
+            double halves = 2 * Math.log(to.getDuration() / from.getDuration()) / Math.log(2);
+            ratio = (int) Math.max(-15, Math.min(15, Math.round(halves)));
+        }
+        return interval << 5 | ratio + 16;
+    }
+
+    /*
+     * Packs GRAM steps starting at the given one into a term.
+     */
+    private static long gram(int[] steps, int from) {
+        long term = 0;
+        for (int i = from; i < from + GRAM; i++) {
+            term = term << STEP_BITS | steps[i];
+        }
+        return term;
+    }
+
+    /*
+     * Counts the positions at which every n-gram of the query follows the
+     * first, given the positions of each in the song.
+     */
+    private static int occurrences(long[] query, Map<Long, int[]> positions) {
+        int count = 0;
+        for (int position : positions.get(query[0])) {
+            boolean all = true;
+            for (int k = 1; k < query.length && all; k++) {
+                all = Arrays.binarySearch(positions.get(query[k]), position + k) >= 0;
+            }
+            count += all ? 1 : 0;
+        }
+        return count;
+    }
+
+    /*
+     * Reads a song file and the steps of its melody, or returns null if it
+     * is not a song.
+     */
+    private static Analyzed analyze(File file) {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        try {
+            Song song = new Song(file.getPath());
+            int[] steps = steps(song.getPlayOrder());
+            return new Analyzed(new MelodySegment.Doc(file.getAbsolutePath(), size, lastModified,
+                  song.getTitle(), song.getArtist()), steps);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Writes the songs into a new segment.
+     */
+    private void addSegment(List<Analyzed> songs) throws IOException {
+        TreeMap<Long, PostingsBuilder> builders = new TreeMap<>();
+        List<MelodySegment.Doc> docs = new ArrayList<>(songs.size());
+        for (Analyzed song : songs) {
+            int doc = docs.size();
+            docs.add(song.doc);
+            for (int i = 0; i + GRAM <= song.steps.length; i++) {
+                builders.computeIfAbsent(gram(song.steps, i), k -> new PostingsBuilder()).add(doc, i);
+            }
+        }
+        Iterator<Map.Entry<Long, PostingsBuilder>> terms = builders.entrySet().iterator();
+        File file = new File(dir, "seg_" + nextSegment++);
+        MelodySegment.write(file, docs, new Iterator<Map.Entry<Long, MelodySegment.Postings>>() {
+            public boolean hasNext() {
+                return terms.hasNext();
+            }
+
+            public Map.Entry<Long, MelodySegment.Postings> next() {
+                Map.Entry<Long, PostingsBuilder> entry = terms.next();
+                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().build());
+            }
+        });
+        segments.add(MelodySegment.open(file));
+        deleted.add(new BitSet());
+    }
+
+    /*
+     * Makes the segment the only one.
+     */
+    private void replaceSegments(MelodySegment merged) throws IOException {
+        segments.clear();
+        deleted.clear();
+        segments.add(merged);
+        deleted.add(new BitSet());
+        writeManifest();
+    }
+
+    /*
+     * Replaces the manifest with the current segments and deleted songs,
+     * and deletes the files of segments no longer listed.
+     */
+    private void writeManifest() throws IOException {
+        File temp = new File(dir, MANIFEST + ".tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8))) {
+            out.println("next " + nextSegment);
+            for (int s = 0; s < segments.size(); s++) {
+                StringBuilder line = new StringBuilder(segments.get(s).getFile().getName());
+                BitSet gone = deleted.get(s);
+                for (int d = gone.nextSetBit(0); d >= 0; d = gone.nextSetBit(d + 1)) {
+                    line.append(' ').append(d);
+                }
+                out.println(line);
+            }
+        }
+        Files.move(temp.toPath(), new File(dir, MANIFEST).toPath(),
+              StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        Set<String> listed = new HashSet<>();
+        for (MelodySegment segment : segments) {
+            listed.add(segment.getFile().getName());
+        }
+        File[] files = dir.listFiles((d, name) -> name.startsWith("seg_") && !listed.contains(name));
+        for (File file : files == null ? new File[0] : files) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                // still mapped on some systems: the next update tries again
+            }
+        }
+    }
+
+    /*
+     * The n-grams of every segment in increasing order, with the postings of
+     * the songs not deleted renumbered into one segment.
+     */
+    private final class MergedPostings implements Iterator<Map.Entry<Long, MelodySegment.Postings>> {
+        private final List<int[]> newNumbers;
+        private final PriorityQueue<Cursor> queue = new PriorityQueue<>(
+              Comparator.comparingLong((Cursor c) -> c.term).thenComparingInt(c -> c.segment));
+        private Map.Entry<Long, MelodySegment.Postings> next;
+
+        private final class Cursor {
+            final int segment;
+            final Iterator<Map.Entry<Long, MelodySegment.Postings>> terms;
+            long term;
+            MelodySegment.Postings postings;
+
+            Cursor(int segment) {
+                this.segment = segment;
+                this.terms = segments.get(segment).iterator();
+            }
+
+            boolean advance() {
+                if (!terms.hasNext()) {
+                    return false;
+                }
+                Map.Entry<Long, MelodySegment.Postings> entry = terms.next();
+                term = entry.getKey();
+                postings = entry.getValue();
+                return true;
+            }
+        }
+
+        MergedPostings(List<int[]> newNumbers) {
+            this.newNumbers = newNumbers;
+            for (int s = 0; s < segments.size(); s++) {
+                Cursor cursor = new Cursor(s);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            next = find();
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<Long, MelodySegment.Postings> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Long, MelodySegment.Postings> entry = next;
+            next = find();
+            return entry;
+        }
+
+        /*
+         * Merges the postings of the next n-gram any song not deleted has.
+         */
+        private Map.Entry<Long, MelodySegment.Postings> find() {
+            while (!queue.isEmpty()) {
+                long term = queue.peek().term;
+                PostingsBuilder builder = new PostingsBuilder();
+                while (!queue.isEmpty() && queue.peek().term == term) {
+                    Cursor cursor = queue.poll();
+                    int[] numbers = newNumbers.get(cursor.segment);
+                    for (int i = 0; i < cursor.postings.docs.length; i++) {
+                        int doc = numbers[cursor.postings.docs[i]];
+                        if (doc >= 0) {
+                            builder.addAll(doc, cursor.postings.positions[i]);
+                        }
+                    }
+                    if (cursor.advance()) {
+                        queue.add(cursor);
+                    }
+                }
+                if (builder.docCount > 0) {
+                    return new AbstractMap.SimpleImmutableEntry<>(term, builder.build());
+                }
+            }
+            return null;
+        }
+    }
+}
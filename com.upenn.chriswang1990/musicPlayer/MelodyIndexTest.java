@@ -0,0 +1,141 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MelodyIndexTest {
+
+    private static final String[] SONGS = {"CastleInTheSky.txt", "GameOfThronesTheme.txt",
+          "HeIsAPirate1.txt", "PopGoesTheWeasel.txt", "birthday.txt", "testSong.txt"};
+
+    private File library;
+    private File indexDir;
+
+    @Before
+    public void setUp() throws IOException {
+        library = Files.createTempDirectory("library").toFile();
+        indexDir = Files.createTempDirectory("index").toFile();
+        for (String name : SONGS) {
+            Files.copy(new File(name).toPath(), new File(library, name).toPath());
+        }
+        // the theme an octave up at half the speed
+        Song song = new Song("GameOfThronesTheme.txt");
+        song.octaveUp();
+        song.changeTempo(2.0);
+        new EditableSong(song).save(new File(library, "Slow.txt").getPath());
+    }
+
+    @After
+    public void tearDown() {
+        delete(library);
+        delete(indexDir);
+    }
+
+    /**
+     * test method for {@link musicPlayer.MelodyIndex#search(List, int)}: a phrase
+     * in another key and tempo finds the song in both versions
+     */
+    @Test
+    public void testSearch() throws IOException {
+        MelodyIndex index = MelodyIndex.open(indexDir);
+        assertEquals(SONGS.length + 1, index.update(library));
+        assertEquals(SONGS.length + 1, index.size());
+
+        List<MelodyIndex.Match> matches = index.search(phrase(), 10);
+        assertTrue(matches.size() >= 2);
+        assertTrue(matches.get(0).getOccurrences() > 0);
+        assertTrue(matches.get(1).getOccurrences() > 0);
+        assertEquals(matches.get(0).getScore(), 1.0, 1e-9);
+        assertEquals(setOf("GameOfThronesTheme.txt", "Slow.txt"),
+              setOf(name(matches.get(0)), name(matches.get(1))));
+        for (MelodyIndex.Match match : matches.subList(2, matches.size())) {
+            assertEquals(0, match.getOccurrences());
+            assertTrue(match.getScore() < 1.0);
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.MelodyIndex#update(File)} and
+     * {@link musicPlayer.MelodyIndex#merge()}: only changed files are indexed,
+     * removed ones disappear, and the index reads back from disk
+     */
+    @Test
+    public void testIncrementalUpdate() throws IOException {
+        MelodyIndex index = MelodyIndex.open(indexDir);
+        index.update(library);
+        assertEquals(0, index.update(library));
+        assertEquals(1, index.getSegmentCount());
+
+        assertTrue(new File(library, "Slow.txt").delete());
+        Files.copy(new File("testSong.txt").toPath(), new File(library, "birthday.txt").toPath(),
+              StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(new File(library, "birthday.txt").setLastModified(System.currentTimeMillis() + 2000));
+        assertEquals(1, index.update(library));
+        assertEquals(SONGS.length, index.size());
+        assertEquals(2, index.getSegmentCount());
+
+        List<MelodyIndex.Match> matches = MelodyIndex.open(indexDir).search(phrase(), 10);
+        assertEquals("GameOfThronesTheme.txt", name(matches.get(0)));
+        for (MelodyIndex.Match match : matches.subList(1, matches.size())) {
+            assertEquals(0, match.getOccurrences());
+        }
+
+        index.merge();
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(SONGS.length, index.size());
+        MelodyIndex reopened = MelodyIndex.open(indexDir);
+        assertEquals(SONGS.length, reopened.size());
+        List<MelodyIndex.Match> merged = reopened.search(phrase(), 10);
+        assertEquals(matches.size(), merged.size());
+        for (int i = 0; i < matches.size(); i++) {
+            assertEquals(matches.get(i).getPath(), merged.get(i).getPath());
+            assertEquals(matches.get(i).getScore(), merged.get(i).getScore(), 1e-9);
+        }
+        assertEquals(2, indexDir.listFiles().length);
+    }
+
+    /*
+     * The first eight notes of the theme, two semitones up and faster.
+     */
+    private static List<Note> phrase() {
+        List<Note> phrase = new ArrayList<>();
+        for (Note note : new Song("GameOfThronesTheme.txt").getPlayOrder()) {
+            if (!note.isRest()) {
+                phrase.add(Note.ofMidiKey(note.getDuration() * 0.75, note.getMidiKey() + 2, false));
+            }
+        }
+        return phrase.subList(0, 8);
+    }
+
+    private static String name(MelodyIndex.Match match) {
+        return new File(match.getPath()).getName();
+    }
+
+    private static Set<String> setOf(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            file.delete();
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,335 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * One immutable file of a musicPlayer.MelodyIndex: the songs indexed together and
+ * the postings of their n-grams.
+ * <p>
+ * The file holds, in order: the magic number and version; the songs (path,
+ * size and modification time of the file, title, artist); the dictionary,
+ * every n-gram in increasing order with the offset of its postings, both as
+ * varint deltas restarted every 64 terms; the postings, for every n-gram the
+ * number of songs then for each song the delta of its number, the number of
+ * occurrences and the delta of each position; and a sparse index of every
+ * 64th term, whose offset is the last long of the file.
+ * <p>
+ * The file is mapped into memory, and stays mapped until the segment is
+ * collected. Only the songs and the sparse index are read when it is
+ * opened; a lookup binary searches the sparse index, then scans at most 64
+ * dictionary entries and decodes one postings list.
+ */
+final class MelodySegment {
+
+    private static final int MAGIC = 0x4D494458; // "MIDX"
+    private static final int VERSION = 1;
+    private static final int BLOCK = 64;         // terms per sparse index entry
+
+    /**
+     * A song of a segment, as it was when it was indexed.
+     */
+    static final class Doc {
+        final String path;
+        final long size;
+        final long lastModified;
+        final String title;
+        final String artist;
+
+        Doc(String path, long size, long lastModified, String title, String artist) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.title = title;
+            this.artist = artist;
+        }
+    }
+
+    /**
+     * The postings of one n-gram: songs in increasing order, and for each
+     * the positions of the n-gram in increasing order.
+     */
+    static final class Postings {
+        final int[] docs;
+        final int[][] positions;
+
+        Postings(int[] docs, int[][] positions) {
+            this.docs = docs;
+            this.positions = positions;
+        }
+    }
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final Doc[] docs;
+    private final int terms;
+    private final long[] indexTerms;   // every BLOCK-th term
+    private final int[] indexOffsets;  // where its dictionary entry starts
+    private final int[] indexPostings; // and its postings
+
+    private MelodySegment(File file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("not a melody index segment: " + file);
+        }
+        docs = new Doc[in.getInt()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = new Doc(readString(in), in.getLong(), in.getLong(), readString(in), readString(in));
+        }
+        terms = in.getInt();
+
+        in.position(in.limit() - Long.BYTES);
+        in.position((int) in.getLong());
+        int blocks = in.getInt();
+        indexTerms = new long[blocks];
+        indexOffsets = new int[blocks];
+        indexPostings = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            indexTerms[i] = in.getLong();
+            indexOffsets[i] = in.getInt();
+            indexPostings[i] = in.getInt();
+        }
+    }
+
+    /**
+     * Maps a segment file into memory.
+     *
+     * @throws IOException if the file can't be read or is not a segment
+     */
+    static MelodySegment open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return new MelodySegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a segment of the given songs and the postings of their n-grams,
+     * in increasing order, to a temporary file moved into place once it is
+     * complete.
+     */
+    static void write(File file, List<Doc> docs, Iterator<Map.Entry<Long, Postings>> postings)
+          throws IOException {
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        ByteArrayOutputStream lists = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        long previousTerm = 0;
+        int previousOffset = 0;
+        int count = 0;
+        while (postings.hasNext()) {
+            Map.Entry<Long, Postings> entry = postings.next();
+            long term = entry.getKey();
+            if (count % BLOCK == 0) {
+                indexOut.writeLong(term);
+                indexOut.writeInt(dictionary.size());
+                indexOut.writeInt(lists.size());
+                previousTerm = term;
+                previousOffset = lists.size();
+            } else {
+                writeVarLong(dictionary, term - previousTerm);
+                writeVarLong(dictionary, lists.size() - previousOffset);
+                previousTerm = term;
+                previousOffset = lists.size();
+            }
+            Postings p = entry.getValue();
+            writeVarLong(lists, p.docs.length);
+            int previousDoc = 0;
+            for (int i = 0; i < p.docs.length; i++) {
+                writeVarLong(lists, p.docs[i] - previousDoc);
+                previousDoc = p.docs[i];
+                writeVarLong(lists, p.positions[i].length);
+                int previousPosition = 0;
+                for (int position : p.positions[i]) {
+                    writeVarLong(lists, position - previousPosition);
+                    previousPosition = position;
+                }
+            }
+            count++;
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(docs.size());
+        for (Doc doc : docs) {
+            writeString(out, doc.path);
+            out.writeLong(doc.size);
+            out.writeLong(doc.lastModified);
+            writeString(out, doc.title);
+            writeString(out, doc.artist);
+        }
+        out.writeInt(count);
+        int dictionaryStart = header.size() + Integer.BYTES;
+        int postingsStart = dictionaryStart + dictionary.size();
+        out.writeInt(postingsStart);
+
+        // the sparse index holds offsets from the start of its region
+        ByteBuffer fixed = ByteBuffer.wrap(index.toByteArray());
+        for (int i = 0; i < fixed.limit(); i += Long.BYTES + 2 * Integer.BYTES) {
+            fixed.putInt(i + Long.BYTES, fixed.getInt(i + Long.BYTES) + dictionaryStart);
+            fixed.putInt(i + Long.BYTES + Integer.BYTES, fixed.getInt(i + Long.BYTES + Integer.BYTES) + postingsStart);
+        }
+        long indexStart = (long) postingsStart + lists.size();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream segment = new DataOutputStream(Files.newOutputStream(temp.toPath()))) {
+            header.writeTo(segment);
+            dictionary.writeTo(segment);
+            lists.writeTo(segment);
+            segment.writeInt((count + BLOCK - 1) / BLOCK);
+            segment.write(fixed.array());
+            segment.writeLong(indexStart);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the file of this segment.
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the songs of this segment, by number.
+     */
+    Doc[] getDocs() {
+        return docs;
+    }
+
+    /**
+     * Returns the number of n-grams.
+     */
+    int getTermCount() {
+        return terms;
+    }
+
+    /**
+     * Returns the postings of the n-gram, or null if no song has it.
+     */
+    Postings postings(long term) {
+        int block = Arrays.binarySearch(indexTerms, term);
+        if (block < 0) {
+            block = -block - 2;
+            if (block < 0) {
+                return null;
+            }
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(indexOffsets[block]);
+        long current = indexTerms[block];
+        int offset = indexPostings[block];
+        int end = Math.min(terms, (block + 1) * BLOCK);
+        for (int i = block * BLOCK + 1; current < term && i < end; i++) {
+            current += readVarLong(in);
+            offset += (int) readVarLong(in);
+        }
+        return current == term ? readPostings(offset) : null;
+    }
+
+    /**
+     * Returns the n-grams in increasing order with their postings, decoded
+     * one at a time.
+     */
+    Iterator<Map.Entry<Long, Postings>> iterator() {
+        return new Iterator<Map.Entry<Long, Postings>>() {
+            private final ByteBuffer in = buffer.duplicate();
+            private int next = 0;
+            private long term;
+            private int offset;
+
+            public boolean hasNext() {
+                return next < terms;
+            }
+
+            public Map.Entry<Long, Postings> next() {
+                if (next >= terms) {
+                    throw new NoSuchElementException();
+                }
+                if (next % BLOCK == 0) {
+                    in.position(indexOffsets[next / BLOCK]);
+                    term = indexTerms[next / BLOCK];
+                    offset = indexPostings[next / BLOCK];
+                } else {
+                    term += readVarLong(in);
+                    offset += (int) readVarLong(in);
+                }
+                next++;
+                return new AbstractMap.SimpleImmutableEntry<>(term, readPostings(offset));
+            }
+        };
+    }
+
+    private Postings readPostings(int offset) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        int count = (int) readVarLong(in);
+        int[] docNumbers = new int[count];
+        int[][] positions = new int[count][];
+        int doc = 0;
+        for (int i = 0; i < count; i++) {
+            doc += (int) readVarLong(in);
+            docNumbers[i] = doc;
+            positions[i] = new int[(int) readVarLong(in)];
+            int position = 0;
+            for (int j = 0; j < positions[i].length; j++) {
+                position += (int) readVarLong(in);
+                positions[i][j] = position;
+            }
+        }
+        return new Postings(docNumbers, positions);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
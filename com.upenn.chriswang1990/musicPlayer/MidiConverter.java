@@ -0,0 +1,118 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line tool that converts every MIDI file of a directory to a song
+ * file and every song file to a MIDI file, on all cores.
+ * <p>
+ * Usage: java musicPlayer.MidiConverter inputDir outputDir [--track N] [--threads N]
+ * <p>
+ * .mid and .midi files are imported with musicPlayer.MidiImporter, taking the
+ * notes of track N (1 by default, use 0 for type 0 files); .txt songs are
+ * exported with musicPlayer.MidiExporter. Like musicPlayer.BatchConverter, at most
+ * two files per thread are waiting at any time.
+ */
+public class MidiConverter {
+
+    private int track = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Runs the converter.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: java musicPlayer.MidiConverter inputDir outputDir"
+                  + " [--track N] [--threads N]");
+            System.exit(2);
+        }
+        MidiConverter converter = new MidiConverter();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--track":
+                        converter.track = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        converter.threads = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("bad arguments: " + e.getMessage());
+            System.exit(2);
+        }
+        File outputDir = new File(args[1]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("not able to create " + outputDir);
+            System.exit(1);
+        }
+        boolean ok = converter.convertAll(new File(args[0]), outputDir);
+        System.exit(ok ? 0 : 1);
+    }
+
+    /*
+     * Converts every MIDI and song file of the input directory and prints
+     * the totals. Returns false if any file failed.
+     */
+    private boolean convertAll(File inputDir, File outputDir) throws InterruptedException {
+        File[] files = inputDir.listFiles((dir, name) -> isMidi(name) || name.endsWith(".txt"));
+        if (files == null) {
+            System.err.println("not a directory: " + inputDir);
+            return false;
+        }
+        Arrays.sort(files);
+
+        long start = System.nanoTime();
+        ExecutorService pool = BatchConverter.newBoundedPool(threads);
+        for (File file : files) {
+            pool.execute(() -> convert(file, outputDir));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double wall = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%d files (%d failed) in %.3f s on %d threads: %.2f files/s",
+              converted.get(), failed.get(), wall, threads, converted.get() / wall));
+        return failed.get() == 0;
+    }
+
+    /*
+     * Converts one file to the output directory, under the same name with
+     * the other extension.
+     */
+    private void convert(File file, File outputDir) {
+        String name = file.getName().replaceFirst("\\.[^.]*$", "");
+        long start = System.nanoTime();
+        try {
+            int notes;
+            if (isMidi(file.getName())) {
+                notes = MidiImporter.importFile(file, new File(outputDir, name + ".txt"), track);
+            } else {
+                notes = MidiExporter.export(new Song(file.getPath()), new File(outputDir, name + ".mid"));
+            }
+            converted.incrementAndGet();
+            System.out.println(String.format("%s: %d notes in %.3f s",
+                  file.getName(), notes, (System.nanoTime() - start) / 1e9));
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println(file.getName() + ": FAILED " + e);
+        }
+    }
+
+    private static boolean isMidi(String name) {
+        return name.endsWith(".mid") || name.endsWith(".midi");
+    }
+}
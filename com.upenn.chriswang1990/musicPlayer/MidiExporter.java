@@ -0,0 +1,142 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * Writes a musicPlayer.Song as a type 0 Standard MIDI File: one track, 120 beats
+ * per minute, every note on channel 1 at velocity 100, the repeated section
+ * written out twice.
+ * <p>
+ * Events are written one at a time as the notes are read, and the length of
+ * the track is filled in at the end, so nothing but the song is held in
+ * memory. javax.sound.midi.MidiSystem would build the whole sequence first.
+ */
+public final class MidiExporter {
+
+    private static final int TICKS_PER_QUARTER = 480;
+    private static final int TEMPO = 500000; // microseconds per quarter note, 120 bpm
+    private static final double TICKS_PER_SECOND = TICKS_PER_QUARTER * 1e6 / TEMPO;
+    private static final int VELOCITY = 100;
+    private static final int TRACK_LENGTH_OFFSET = 18; // after "MThd", 6 header bytes and "MTrk"
+
+    /*
+     * The track being written and the tick of its last event.
+     */
+    private static class TrackWriter {
+        private final OutputStream out;
+        private long length = 0;
+        private long lastTick = 0;
+
+        TrackWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void shortMessage(long tick, int command, int data1, int data2) throws IOException {
+            delta(tick);
+            write(command);
+            write(data1);
+            write(data2);
+        }
+
+        void meta(long tick, int type, byte[] data) throws IOException {
+            delta(tick);
+            write(MetaMessage.META);
+            write(type);
+            varInt(data.length);
+            for (byte b : data) {
+                write(b & 0xFF);
+            }
+        }
+
+        private void delta(long tick) throws IOException {
+            varInt(tick - lastTick);
+            lastTick = tick;
+        }
+
+        private void varInt(long value) throws IOException {
+            int shift = 21;
+            while (shift > 0 && (value >> shift) == 0) {
+                shift -= 7;
+            }
+            for (; shift > 0; shift -= 7) {
+                write((int) ((value >> shift) & 0x7F) | 0x80);
+            }
+            write((int) (value & 0x7F));
+        }
+
+        private void write(int b) throws IOException {
+            out.write(b);
+            length++;
+        }
+    }
+
+    /**
+     * Writes the song to a MIDI file.
+     *
+     * @param song the song to write
+     * @param midi the file to create
+     * @return the number of notes written, rests excluded
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if a note is above the highest MIDI
+     *                                  key, G 10
+     */
+    public static int export(Song song, File midi) throws IOException {
+        int notes = 0;
+        long trackLength;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(midi), 1 << 16)) {
+            out.write(new byte[]{'M', 'T', 'h', 'd', 0, 0, 0, 6,
+                  0, 0,                                   // format 0
+                  0, 1,                                   // one track
+                  (byte) (TICKS_PER_QUARTER >> 8), (byte) TICKS_PER_QUARTER,
+                  'M', 'T', 'r', 'k', 0, 0, 0, 0});       // length filled in below
+            TrackWriter track = new TrackWriter(out);
+            if (song.getTitle() != null) {
+                track.meta(0, 0x03, song.getTitle().getBytes(StandardCharsets.ISO_8859_1));
+            }
+            track.meta(0, 0x51, new byte[]{(byte) (TEMPO >> 16), (byte) (TEMPO >> 8), (byte) TEMPO});
+
+            // ticks come from the running time, so rounding does not add up
+            double seconds = 0.0;
+            for (Note note : song.getPlayOrder()) {
+                long start = Math.round(seconds * TICKS_PER_SECOND);
+                seconds += note.getDuration();
+                long end = Math.round(seconds * TICKS_PER_SECOND);
+                if (note.isRest() || end == start) {
+                    continue;
+                }
+                int key = note.getMidiKey();
+                if (key > 127) {
+                    throw new IllegalArgumentException("Note above the MIDI range: " + note);
+                }
+                track.shortMessage(start, ShortMessage.NOTE_ON, key, VELOCITY);
+                track.shortMessage(end, ShortMessage.NOTE_OFF, key, 0);
+                notes++;
+            }
+            track.meta(Math.round(seconds * TICKS_PER_SECOND), 0x2F, new byte[0]);
+            trackLength = track.length;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(midi, "rw")) {
+            raf.seek(TRACK_LENGTH_OFFSET);
+            raf.writeInt((int) trackLength);
+        }
+        return notes;
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.MidiExporter is non-instantiable.
+     */
+    private MidiExporter() {
+        // empty
+    }
+}
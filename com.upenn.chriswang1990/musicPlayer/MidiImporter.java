@@ -0,0 +1,430 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+
+/**
+ * Converts one track of a Standard MIDI File into a song file.
+ * <p>
+ * The file is read event by event and the notes are written as soon as
+ * they end, so memory does not grow with the size of the file; only the
+ * tempo changes of the first track are kept. javax.sound.midi.MidiSystem
+ * would load the whole sequence instead.
+ * <p>
+ * Songs play one note at a time, so when notes overlap the highest one is
+ * kept, and the time when no note sounds becomes rests. Keys below C 1 are
+ * moved up by octaves. The number of notes is written as a padded
+ * placeholder and filled in at the end.
+ */
+public final class MidiImporter {
+
+    private static final int COUNT_WIDTH = 10; // digits of the note count
+    private static final int META = MetaMessage.META;
+    private static final int SYSEX = SysexMessage.SYSTEM_EXCLUSIVE;
+    private static final int SYSEX_CONTINUED = SysexMessage.SPECIAL_SYSTEM_EXCLUSIVE;
+    private static final int TEMPO = 0x51;
+    private static final int TRACK_NAME = 0x03;
+    private static final int END_OF_TRACK = 0x2F;
+    private static final int DEFAULT_TEMPO = 500000; // microseconds per quarter note, 120 bpm
+
+    /*
+     * Converts ticks to seconds following the tempo changes, for ticks that
+     * never go back.
+     */
+    private static class Clock {
+        private final int division;
+        private final List<long[]> changes; // {tick, microseconds per quarter note}
+        private int next = 0;
+        private long lastTick = 0;
+        private double lastSeconds = 0.0;
+        private int tempo = DEFAULT_TEMPO;
+
+        Clock(int division, List<long[]> changes) {
+            this.division = division;
+            this.changes = changes;
+        }
+
+        void setTempo(long tick, int microseconds) {
+            seconds(tick);
+            tempo = microseconds;
+        }
+
+        double seconds(long tick) {
+            while (next < changes.size() && changes.get(next)[0] <= tick) {
+                long[] change = changes.get(next++);
+                advance(change[0]);
+                tempo = (int) change[1];
+            }
+            advance(tick);
+            return lastSeconds;
+        }
+
+        private void advance(long tick) {
+            if (division < 0) {
+                // SMPTE: frames per second times ticks per frame
+                int ticksPerSecond = -(division >> 8) * (division & 0xFF);
+                lastSeconds += (double) (tick - lastTick) / ticksPerSecond;
+            } else {
+                lastSeconds += (tick - lastTick) * (tempo / 1e6) / division;
+            }
+            lastTick = tick;
+        }
+    }
+
+    /*
+     * Writes the highest sounding key, a note or rest each time it changes,
+     * after the header of the song file.
+     */
+    private static class Melody {
+        private final Writer out;
+        private String title;
+        private boolean named;                   // title taken from a track name
+        private int headerLength = -1;           // bytes before the count, once written
+        private final int[] held = new int[128]; // note-ons not yet ended, per key
+        private int top = -1;                    // key sounding, -1 for none
+        private double start = 0.0;              // when it started
+        private int notes = 0;
+
+        Melody(Writer out, String title, boolean named) {
+            this.out = out;
+            this.title = title;
+            this.named = named;
+        }
+
+        /*
+         * Takes the name of the track as title if no note was written yet
+         * and the tempo track had no name.
+         */
+        void name(String name) {
+            if (headerLength < 0 && !named && !name.trim().isEmpty()) {
+                title = name.replaceAll("[\\r\\n]+", " ").trim();
+                named = true;
+            }
+        }
+
+        void noteOn(int key, double seconds) throws IOException {
+            held[key]++;
+            if (key >= top) {
+                // a higher key, or the same key struck again
+                change(key, seconds);
+            }
+        }
+
+        void noteOff(int key, double seconds) throws IOException {
+            if (held[key] == 0) {
+                return;
+            }
+            held[key]--;
+            if (key == top && held[key] == 0) {
+                int below = key - 1;
+                while (below >= 0 && held[below] == 0) {
+                    below--;
+                }
+                change(below, seconds);
+            }
+        }
+
+        void end(double seconds) throws IOException {
+            change(-1, seconds);
+            writeHeader();
+        }
+
+        private void writeHeader() throws IOException {
+            if (headerLength < 0) {
+                String header = title + "\nMIDI import\n";
+                headerLength = header.getBytes(StandardCharsets.UTF_8).length;
+                out.write(header);
+                out.write(String.format("%0" + COUNT_WIDTH + "d\n", 0));
+            }
+        }
+
+        private void change(int key, double seconds) throws IOException {
+            // round to microseconds so durations print short
+            double duration = Math.round((seconds - start) * 1e6) / 1e6;
+            if (duration > 0.0) {
+                if (top >= 0 || notes > 0) {
+                    // no rest before the first note
+                    Note note = top < 0 ? Note.rest(duration, false) : Note.ofMidiKey(duration, inRange(top), false);
+                    writeHeader();
+                    out.write(note.toString());
+                    out.write('\n');
+                    notes++;
+                }
+                start = seconds;
+            } else if (top < 0 && notes == 0) {
+                start = seconds;
+            }
+            top = key;
+        }
+
+        private static int inRange(int key) {
+            while (key < 24) {
+                key += 12;
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Converts the given track of a MIDI file into a song file. In a type 1
+     * file track 0 only holds the tempo, so the first track with notes is
+     * usually 1; a type 0 file has only track 0.
+     *
+     * @param midi  the Standard MIDI File to read
+     * @param song  the song file to write
+     * @param track index of the track to convert
+     * @return the number of notes written
+     * @throws InvalidMidiDataException if the file is not a MIDI file or has
+     *                                  no such track
+     * @throws IOException              if a file can't be read or written
+     */
+    public static int importFile(File midi, File song, int track)
+          throws IOException, InvalidMidiDataException {
+        int notes;
+        int headerLength;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(midi), 1 << 16))) {
+            int chunkLength;
+            if (readChunkType(in) != 0x4D546864 || (chunkLength = in.readInt()) < 6) { // "MThd"
+                throw new InvalidMidiDataException("not a Standard MIDI File: " + midi);
+            }
+            int format = in.readUnsignedShort();
+            int tracks = in.readUnsignedShort();
+            int division = in.readShort();
+            skip(in, chunkLength - 6);
+            if (track < 0 || track >= tracks) {
+                throw new InvalidMidiDataException("no track " + track + " in " + midi);
+            }
+
+            String title = midi.getName().replaceFirst("\\.[^.]*$", "");
+            boolean named = false;
+            List<long[]> tempos = new ArrayList<>();
+            for (int i = 0; i < track; i++) {
+                long length = readTrackLength(in);
+                if (i == 0 && format == 1) {
+                    String name = readTempoTrack(in, length, tempos);
+                    if (name != null && !name.trim().isEmpty()) {
+                        title = name.replaceAll("[\\r\\n]+", " ").trim();
+                        named = true;
+                    }
+                } else {
+                    skip(in, length);
+                }
+            }
+
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(song),
+                  StandardCharsets.UTF_8), 1 << 16)) {
+                Melody melody = new Melody(out, title, named);
+                readNotes(in, readTrackLength(in), new Clock(division, tempos), melody);
+                notes = melody.notes;
+                headerLength = melody.headerLength;
+            }
+            patchCount(song, headerLength, notes);
+        }
+        return notes;
+    }
+
+    /*
+     * Reads the tempo changes and the name of a tempo track.
+     */
+    private static String readTempoTrack(DataInputStream in, long length, List<long[]> tempos)
+          throws IOException, InvalidMidiDataException {
+        String name = null;
+        TrackReader reader = new TrackReader(in, length);
+        while (reader.next()) {
+            if (reader.meta == TEMPO && reader.data.length == 3) {
+                tempos.add(new long[]{reader.tick, tempo(reader.data)});
+            } else if (reader.meta == TRACK_NAME && name == null) {
+                name = new String(reader.data, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return name;
+    }
+
+    /*
+     * Feeds the note events of a track to the melody.
+     */
+    private static void readNotes(DataInputStream in, long length, Clock clock, Melody melody)
+          throws IOException, InvalidMidiDataException {
+        TrackReader reader = new TrackReader(in, length);
+        while (reader.next()) {
+            if (reader.meta == TEMPO && reader.data.length == 3) {
+                clock.setTempo(reader.tick, tempo(reader.data));
+            } else if (reader.meta == TRACK_NAME) {
+                melody.name(new String(reader.data, StandardCharsets.ISO_8859_1));
+            } else if (reader.command == ShortMessage.NOTE_ON && reader.data2 > 0) {
+                melody.noteOn(reader.data1, clock.seconds(reader.tick));
+            } else if (reader.command == ShortMessage.NOTE_OFF || reader.command == ShortMessage.NOTE_ON) {
+                melody.noteOff(reader.data1, clock.seconds(reader.tick));
+            }
+        }
+        melody.end(clock.seconds(reader.tick));
+    }
+
+    /*
+     * Reads the events of one track chunk one at a time.
+     */
+    private static class TrackReader {
+        private final DataInputStream in;
+        private long remaining;
+        private int status = 0;
+        long tick = 0;
+        int command;          // channel message command, or -1
+        int data1;
+        int data2;
+        int meta;             // meta event type, or -1
+        byte[] data;          // meta event data
+
+        TrackReader(DataInputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        /*
+         * Reads the next event; false at the end of the track.
+         */
+        boolean next() throws IOException, InvalidMidiDataException {
+            while (remaining > 0) {
+                tick += readVarInt();
+                command = -1;
+                meta = -1;
+                int b = readByte();
+                if (b == META) {
+                    int type = readByte();
+                    data = readBytes((int) readVarInt());
+                    if (type == END_OF_TRACK) {
+                        skip(in, remaining);
+                        remaining = 0;
+                        return false;
+                    }
+                    meta = type;
+                    return true;
+                } else if (b == SYSEX || b == SYSEX_CONTINUED) {
+                    readBytes((int) readVarInt());
+                    continue;
+                } else if (b > SYSEX) {
+                    // system common and real-time messages have no place in a file
+                    throw new InvalidMidiDataException("system message 0x" + Integer.toHexString(b) + " in a track");
+                }
+                if (b >= 0x80) {
+                    status = b;
+                    b = readByte();
+                } else if (status == 0) {
+                    throw new InvalidMidiDataException("data byte without status");
+                }
+                // b is the first data byte; running status reuses the last status
+                command = status & 0xF0;
+                data1 = b;
+                data2 = command == ShortMessage.PROGRAM_CHANGE || command == ShortMessage.CHANNEL_PRESSURE
+                      ? 0 : readByte();
+                return true;
+            }
+            return false;
+        }
+
+        private int readByte() throws IOException, InvalidMidiDataException {
+            if (remaining-- <= 0) {
+                throw new InvalidMidiDataException("event past the end of the track");
+            }
+            return in.readUnsignedByte();
+        }
+
+        private byte[] readBytes(int length) throws IOException, InvalidMidiDataException {
+            if (length > remaining) {
+                throw new InvalidMidiDataException("event past the end of the track");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            remaining -= length;
+            return bytes;
+        }
+
+        private long readVarInt() throws IOException, InvalidMidiDataException {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = readByte();
+                value = (value << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new InvalidMidiDataException("variable length number too long");
+        }
+    }
+
+    /*
+     * Reads the header of the next track chunk, skipping unknown chunks, and
+     * returns its length.
+     */
+    private static long readTrackLength(DataInputStream in) throws IOException, InvalidMidiDataException {
+        try {
+            while (true) {
+                int type = readChunkType(in);
+                long length = in.readInt() & 0xFFFFFFFFL;
+                if (type == 0x4D54726B) { // "MTrk"
+                    return length;
+                }
+                skip(in, length);
+            }
+        } catch (EOFException e) {
+            throw new InvalidMidiDataException("missing track");
+        }
+    }
+
+    private static int readChunkType(DataInputStream in) throws IOException {
+        return in.readInt();
+    }
+
+    private static int tempo(byte[] data) {
+        return ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+    }
+
+    private static void skip(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    /*
+     * Writes the note count over the placeholder at the given offset.
+     */
+    private static void patchCount(File song, long offset, int notes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(song, "rw")) {
+            raf.seek(offset);
+            raf.write(String.format("%0" + COUNT_WIDTH + "d", notes).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.MidiImporter is non-instantiable.
+     */
+    private MidiImporter() {
+        // empty
+    }
+}
@@ -0,0 +1,265 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+
+/**
+ * Renders songs with the software MIDI synthesizer of the JDK instead of
+ * musicPlayer.ToneGenerator: any of the 128 General MIDI instruments, and the
+ * synthesis runs in the JDK's optimized mixer.
+ * <p>
+ * The synthesizer renders into an AudioInputStream through
+ * com.sun.media.sound.AudioSynthesizer.openStream(), which is not exported
+ * from java.desktop since JDK 9, so the JVM must be started with
+ * --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED.
+ * <p>
+ * Notes are sent to the synthesizer as timestamped events a little ahead
+ * of the samples being read, so a song of any length is rendered in
+ * constant memory. The stream ends one second after the last note, to let
+ * the instrument ring out.
+ */
+public class MidiSynthRenderer {
+
+    /**
+     * Program number of the default instrument, Acoustic Grand Piano.
+     */
+    public static final int DEFAULT_PROGRAM = 0;
+
+    private static final double RELEASE_SECONDS = 1.0;
+    private static final long LOOKAHEAD_MICROS = 500000;
+    private static final int VELOCITY = 100;
+    private static final int CHANNEL = 0;
+
+    private final AudioConfig config;
+    private final int program;
+
+    /*
+     * The PCM of the synthesizer, sending the note events just ahead of
+     * what is read.
+     */
+    private class ScheduledStream extends InputStream {
+        private final Synthesizer synth;
+        private final AudioInputStream pcm;
+        private final Receiver receiver;
+        private final List<Note> order;
+        private final int frameSize;
+        private final int lookahead; // bytes of PCM the events are sent ahead
+        private long remaining; // bytes left in the song
+        private long read = 0;  // bytes read so far
+        private int next = 0;   // next note to send
+        private double time = 0.0;
+
+        ScheduledStream(Synthesizer synth, AudioInputStream pcm, List<Note> order, long frames)
+              throws MidiUnavailableException {
+            this.synth = synth;
+            this.pcm = pcm;
+            this.receiver = synth.getReceiver();
+            this.order = order;
+            this.frameSize = config.getFrameSize();
+            this.lookahead = (int) Math.max(1, LOOKAHEAD_MICROS * config.getSampleRate() / 1000000) * frameSize;
+            this.remaining = frames * frameSize;
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            schedule((long) ((double) read / frameSize * 1e6 / config.getSampleRate()) + LOOKAHEAD_MICROS);
+            // no further than the events sent, however much is asked for
+            int n = pcm.read(b, off, (int) Math.min(Math.min(len, remaining), lookahead));
+            if (n > 0) {
+                read += n;
+                remaining -= n;
+            }
+            return n;
+        }
+
+        public void close() throws IOException {
+            pcm.close();
+            synth.close();
+        }
+
+        /*
+         * Sends the events of the notes starting before the given time, in
+         * microseconds from the start of the song.
+         */
+        private void schedule(long until) throws IOException {
+            try {
+                while (next < order.size() && time * 1e6 < until) {
+                    Note note = order.get(next++);
+                    long start = Math.round(time * 1e6);
+                    time += note.getDuration();
+                    int key = note.getMidiKey();
+                    if (key >= 0 && key <= 127 && note.getDuration() > 0.0) {
+                        receiver.send(new ShortMessage(ShortMessage.NOTE_ON, CHANNEL, key, VELOCITY), start);
+                        receiver.send(new ShortMessage(ShortMessage.NOTE_OFF, CHANNEL, key, 0),
+                              Math.round(time * 1e6));
+                    }
+                }
+            } catch (InvalidMidiDataException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Creates a renderer of the given format playing the given instrument.
+     *
+     * @param config  format of the PCM rendered
+     * @param program General MIDI program number, 0 to 127
+     * @throws IllegalArgumentException if program is out of range
+     */
+    public MidiSynthRenderer(AudioConfig config, int program) {
+        if (program < 0 || program > 127) {
+            throw new IllegalArgumentException("Illegal program: " + program);
+        }
+        this.config = config;
+        this.program = program;
+    }
+
+    /**
+     * Returns the General MIDI program number of the instrument.
+     */
+    public int getProgram() {
+        return program;
+    }
+
+    /**
+     * Starts rendering the song, with the repeated section. The stream must
+     * be closed to release the synthesizer.
+     *
+     * @return the PCM of the song in the configuration of this renderer
+     * @throws MidiUnavailableException      if there is no software synthesizer
+     * @throws UnsupportedOperationException if com.sun.media.sound is not
+     *                                       exported to this class
+     */
+    public AudioInputStream render(Song song) throws MidiUnavailableException {
+        Synthesizer synth = MidiSystem.getSynthesizer();
+        AudioInputStream pcm = openStream(synth, config.toAudioFormat());
+        List<Note> order = song.getPlayOrder();
+        double seconds = 0.0;
+        for (Note note : order) {
+            seconds += note.getDuration();
+        }
+        long frames = Math.round((seconds + RELEASE_SECONDS) * config.getSampleRate());
+        try {
+            synth.getReceiver().send(new ShortMessage(ShortMessage.PROGRAM_CHANGE, CHANNEL, program, 0), -1);
+            return new AudioInputStream(new ScheduledStream(synth, pcm, order, frames), pcm.getFormat(), frames);
+        } catch (InvalidMidiDataException e) {
+            synth.close();
+            throw new IllegalArgumentException(e);
+        } catch (MidiUnavailableException e) {
+            synth.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renders the song to a .wav file.
+     *
+     * @return the number of samples (frames) written
+     * @throws IOException if the file can't be written
+     */
+    public long renderToWav(Song song, File wav) throws IOException, MidiUnavailableException {
+        try (AudioInputStream in = render(song); WavWriter writer = new WavWriter(wav, config)) {
+            byte[] buffer = new byte[config.getFrameSize() * 4096];
+            int n;
+            while ((n = in.read(buffer, 0, buffer.length)) > 0) {
+                writer.writePcm(buffer, 0, n);
+            }
+            return writer.getSampleCount();
+        }
+    }
+
+    /**
+     * Plays the song on the session, which must have the configuration of
+     * this renderer. The listeners of the session hear of each note as it
+     * is written.
+     *
+     * @throws IllegalArgumentException if the session renders in another
+     *                                  configuration
+     */
+    public void play(Song song, AudioSession session) throws IOException, MidiUnavailableException {
+        if (!session.getConfig().equals(config)) {
+            throw new IllegalArgumentException("session plays " + session.getConfig() + ", not " + config);
+        }
+        int frameSize = config.getFrameSize();
+        byte[] buffer = new byte[frameSize * 4096];
+        try (AudioInputStream in = render(song)) {
+            long written = 0;
+            double end = 0.0;
+            for (Note note : song.getPlayOrder()) {
+                end += note.getDuration();
+                long until = Math.round(end * config.getSampleRate()) * frameSize;
+                written = copy(in, session, buffer, until - written) + written;
+                session.notePlayed(note, note.getDuration());
+            }
+            copy(in, session, buffer, Long.MAX_VALUE);
+            session.flush();
+        }
+    }
+
+    /*
+     * Copies up to count bytes of the stream to the session.
+     */
+    private static long copy(AudioInputStream in, AudioSession session, byte[] buffer, long count)
+          throws IOException {
+        long copied = 0;
+        while (copied < count) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, count - copied));
+            if (n <= 0) {
+                break;
+            }
+            session.playPcm(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
+    }
+
+    /*
+     * Opens the synthesizer rendering into a stream instead of a line.
+     */
+    private static AudioInputStream openStream(Synthesizer synth, AudioFormat format)
+          throws MidiUnavailableException {
+        try {
+            Class<?> type = Class.forName("com.sun.media.sound.AudioSynthesizer");
+            if (!type.isInstance(synth)) {
+                throw new MidiUnavailableException("not a software synthesizer: " + synth.getDeviceInfo());
+            }
+            Method openStream = type.getMethod("openStream", AudioFormat.class, Map.class);
+            return (AudioInputStream) openStream.invoke(synth, format, null);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new MidiUnavailableException("no software synthesizer in this JDK");
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException(
+                  "run with --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED", e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof MidiUnavailableException) {
+                throw (MidiUnavailableException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
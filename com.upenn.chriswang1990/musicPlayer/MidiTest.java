@@ -0,0 +1,175 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNoException;
+
+public class MidiTest {
+
+    /**
+     * test method for {@link musicPlayer.Note#getMidiKey()} and
+     * {@link musicPlayer.Note#ofMidiKey(double, int, boolean)}
+     */
+    @Test
+    public void testMidiKey() {
+        assertEquals(60, Note.of(1.0, Pitch.C, 4, Accidental.NATURAL, false).getMidiKey());
+        assertEquals(69, Note.of(1.0, Pitch.A, 4, Accidental.NATURAL, false).getMidiKey());
+        assertEquals(70, Note.of(1.0, Pitch.B, 4, Accidental.FLAT, false).getMidiKey());
+        assertEquals(-1, Note.rest(1.0, false).getMidiKey());
+        for (int key = 24; key <= 131; key++) {
+            assertEquals(key, Note.ofMidiKey(1.0, key, false).getMidiKey());
+        }
+    }
+
+    /**
+     * a song exported to MIDI and imported again has the same notes, with
+     * the repeated section written out
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        Song song = new Song("GameOfThronesTheme.txt");
+        File midi = File.createTempFile("song", ".mid");
+        File txt = File.createTempFile("song", ".txt");
+        midi.deleteOnExit();
+        txt.deleteOnExit();
+
+        MidiExporter.export(song, midi);
+        Sequence sequence = MidiSystem.getSequence(midi);
+        assertEquals(song.getTotalDuration(), sequence.getMicrosecondLength() / 1e6, 1e-3);
+
+        MidiImporter.importFile(midi, txt, 0);
+        Song imported = new Song(txt.getPath());
+        assertEquals(song.getTitle(), imported.getTitle());
+        assertEquals(song.getTotalDuration(), imported.getTotalDuration(), 1e-3);
+        List<Note> expected = new ArrayList<>();
+        for (Note note : song.getPlayOrder()) {
+            if (!note.isRest()) {
+                expected.add(Note.ofMidiKey(note.getDuration(), note.getMidiKey(), false));
+            }
+        }
+        List<Note> notes = new ArrayList<>();
+        for (Note note : imported.getPlayOrder()) {
+            if (!note.isRest()) {
+                notes.add(note);
+            }
+        }
+        assertEquals(expected.size(), notes.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getMidiKey(), notes.get(i).getMidiKey());
+            assertEquals(expected.get(i).getDuration(), notes.get(i).getDuration(), 1e-3);
+        }
+    }
+
+    /**
+     * a type 1 file: the tempo of track 0 applies, overlapping notes keep the
+     * highest one and gaps become rests
+     */
+    @Test
+    public void testImportTrack() throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, 100);
+        Track tempo = sequence.createTrack();
+        // 60 bpm: a quarter note is 1 second
+        tempo.add(new MidiEvent(new MetaMessage(0x51, new byte[]{0x0F, 0x42, 0x40}, 3), 0));
+        Track notes = sequence.createTrack();
+        addNote(notes, 60, 0, 200);   // C 4 for 2 s
+        addNote(notes, 64, 100, 150); // E 4 on top from 1 s to 1.5 s
+        addNote(notes, 67, 300, 400); // G 4 after a 1 s rest
+        File midi = File.createTempFile("track", ".mid");
+        File txt = File.createTempFile("track", ".txt");
+        midi.deleteOnExit();
+        txt.deleteOnExit();
+        MidiSystem.write(sequence, 1, midi);
+
+        assertEquals(5, MidiImporter.importFile(midi, txt, 1));
+        List<Note> order = new Song(txt.getPath()).getPlayOrder();
+        assertEquals("1.0 C 4 NATURAL false", order.get(0).toString());
+        assertEquals("0.5 E 4 NATURAL false", order.get(1).toString());
+        assertEquals("0.5 C 4 NATURAL false", order.get(2).toString());
+        assertEquals("1.0 R false", order.get(3).toString());
+        assertEquals("1.0 G 4 NATURAL false", order.get(4).toString());
+    }
+
+    /**
+     * test method for {@link musicPlayer.MidiSynthRenderer#play(Song, AudioSession)}:
+     * the song rings out one second after its last note and the listeners hear
+     * of every note; a read never goes further than the notes sent half a
+     * second ahead. Skipped unless com.sun.media.sound is exported.
+     */
+    @Test
+    public void testSynthRenderer() throws Exception {
+        Song song = new Song("testSong.txt");
+        CaptureSink sink = CaptureSink.discarding();
+        AudioSession session = new AudioSession(sink, AudioConfig.DEFAULT);
+        List<Note> heard = new ArrayList<>();
+        session.addAudioEventListener(event -> heard.add(event.getNote()));
+        MidiSynthRenderer renderer = new MidiSynthRenderer(AudioConfig.DEFAULT, 40);
+        try {
+            renderer.play(song, session);
+        } catch (UnsupportedOperationException e) {
+            assumeNoException(e);
+        }
+        long frames = AudioConfig.DEFAULT.sampleCount(song.getTotalDuration() + 1.0);
+        int frameSize = AudioConfig.DEFAULT.getFrameSize();
+        assertEquals(frames * frameSize, sink.getBytesWritten(), frameSize);
+        assertEquals(song.getPlayOrder(), heard);
+
+        try (AudioInputStream in = renderer.render(song)) {
+            byte[] all = new byte[(int) frames * frameSize];
+            int n = in.read(all, 0, all.length);
+            assertTrue(n > 0 && n <= AudioConfig.DEFAULT.getSampleRate() / 2 * frameSize);
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.MidiImporter#importFile}: a system
+     * common or real-time status byte in a track is rejected instead of
+     * becoming the running status of the notes after it
+     */
+    @Test
+    public void testSystemMessageInTrack() throws Exception {
+        File midi = File.createTempFile("system", ".mid");
+        File txt = File.createTempFile("system", ".txt");
+        midi.deleteOnExit();
+        txt.deleteOnExit();
+        byte[] events = {
+              0, (byte) 0x90, 60, 100,   // C 4 on
+              96, (byte) 0xF8,           // timing clock
+              0, 60, 0,                  // C 4 off, running status
+              0, (byte) 0xFF, 0x2F, 0};  // end of track
+        ByteBuffer file = ByteBuffer.allocate(14 + 8 + events.length);
+        file.putInt(0x4D546864).putInt(6).putShort((short) 0).putShort((short) 1).putShort((short) 96);
+        file.putInt(0x4D54726B).putInt(events.length).put(events);
+        Files.write(midi.toPath(), file.array());
+        try {
+            MidiImporter.importFile(midi, txt, 0);
+            fail("imported a track with a timing clock");
+        } catch (InvalidMidiDataException e) {
+            assertTrue(e.getMessage().contains("0xf8"));
+        }
+    }
+
+    private static void addNote(Track track, int key, long on, long off) throws Exception {
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, key, 90), on));
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, key, 0), off));
+    }
+}
@@ -10,8 +10,14 @@ import java.awt.GridLayout;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -21,18 +27,21 @@ import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.JTextField;
 
-public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener {
+public class MusicPlayer implements ActionListener, Transport.Listener {
 
     // instance variables
-    private Song song;
-    private boolean playing; // whether a song is currently playing
+    private TransportState state = TransportState.EMPTY; // drawn last
     private JFrame frame;
     private JFileChooser fileChooser;
     private JTextField tempoText;
     private JSlider currentTimeSlider;
-    private JPanel time, timeLabels, buttons, tempo;
-    private JButton load, play, pause, stop, up, down, reverse, changeTempo;
+    private WaveformPanel waveform;
+    private JPanel time, timeLabels, buttons, tempo, loop;
+    private JButton load, queue, play, pause, stop, up, down, reverse, changeTempo, setA, setB, clearLoop;
     private StdAudio stdAudio = StdAudio.getInstance();
+    private Transport transport = new Transport(new Playlist());
+    private SessionStore sessions = new SessionStore();
+    private PlaybackMetrics metrics = PlaybackMetrics.getInstance();
 
     //these are the two labels that indicate time
     // to the right of the slider
@@ -43,7 +52,6 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
 
     //a label that shows the current status of the player
     private JLabel statusLabel;
-    private JLabel blank = new JLabel("");
 
     Color green = new Color(102, 204, 10);
     Color blue = new Color(10, 102, 204);
@@ -53,11 +61,22 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
      * Creates the music player GUI window and graphical components.
      */
     public MusicPlayer() {
-        song = null;
         createComponents();
         doLayout();
-        stdAudio.addAudioEventListener(this);
+        transport.addListener(this);
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                saveSession();
+            }
+        });
         frame.setVisible(true);
+        metrics.windowShown();
+
+        // parsed and synthesized on the transport thread, not here
+        SessionStore.Session last = sessions.load();
+        if (last != null) {
+            transport.restore(last);
+        }
     }
 
     /*
@@ -68,20 +87,16 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         String cmd = event.getActionCommand();
         switch (cmd) {
             case "Play":
-                playSong();
+                transport.play();
                 break;
             case "Pause":
-                stdAudio.setPaused(!stdAudio.isPaused());
-                pause.setText("Resume");
+                transport.pause();
                 break;
             case "Resume":
-                stdAudio.setPaused(!stdAudio.isPaused());
-                pause.setText("Pause");
+                transport.resume();
                 break;
             case "Stop":
-                stdAudio.setMute(true);
-                stdAudio.setPaused(false);
-                playing = false;
+                transport.stop();
                 break;
             case "Load":
                 try {
@@ -90,59 +105,64 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
                     System.out.println("not able to load from the file");
                 }
                 break;
+            case "Queue":
+                queueFiles();
+                break;
             case "Reverse":
-                song.reverse();
-                statusLabel.setText("  Reverse");
-                statusLabel.setForeground(pink);
+                transport.reverse();
                 break;
             case "Octave Up":
-                if (song.octaveUp()) {
-                    System.out.println("Octave up successfully!");
-                    statusLabel.setText("  Octave up");
-                    statusLabel.setForeground(green);
-                } else {
-                    System.out.println("Can't octave up this song anymore!");
-                    statusLabel.setText("Reach upper limit");
-                    statusLabel.setForeground(Color.red);
-                }
+                transport.octaveUp();
                 break;
             case "Octave Down":
-                if (song.octaveDown()) {
-                    System.out.println("Octave down successfully!");
-                    statusLabel.setText("  Octave down");
-                    statusLabel.setForeground(green);
-                } else {
-                    System.out.println("Can't octave down this song anymore!");
-                    statusLabel.setText("Reach lower limit");
-                    statusLabel.setForeground(Color.red);
-                }
+                transport.octaveDown();
+                break;
+            case "Set A":
+                // the time the slider shows, where it was dropped or the song plays
+                transport.setLoopStart(state.getPosition());
+                break;
+            case "Set B":
+                transport.setLoopEnd(state.getPosition());
+                break;
+            case "Clear Loop":
+                transport.clearLoop();
                 break;
             case "Change Tempo":
                 String input = tempoText.getText();
-                System.out.println(input);
                 try {
-                    double tempo = Double.parseDouble(input);
-                    song.changeTempo(tempo);
-                    updateTotalTime();
-                    statusLabel.setText("Tempo changed");
-                    statusLabel.setForeground(blue);
+                    transport.changeTempo(Double.parseDouble(input));
                 } catch (NumberFormatException nfe) {
                     System.out.println("please input a number tempo ratio");
+                } catch (IllegalArgumentException iae) {
+                    System.out.println("please input a positive tempo ratio");
                 }
                 break;
         }
     }
 
     /*
-     * Called when audio events occur in the musicPlayer.StdAudio library. We use this to
-     * set the displayed current time in the slider.
+     * Called on the event thread with the latest state of the transport:
+     * shows the song if it changed, the current time, the status of the
+     * last change and which buttons can be used.
      */
-    public void onAudioEvent(StdAudio.AudioEvent event) {
-        // update current time
-        if (event.getType() == StdAudio.AudioEvent.Type.PLAY
-              || event.getType() == StdAudio.AudioEvent.Type.STOP) {
-            setCurrentTime(getCurrentTime() + event.getDuration());
+    public void onStateChanged(TransportState newState) {
+        TransportState old = state;
+        state = newState;
+        if (newState.getSong() != old.getSong()) {
+            showSong(newState.getSong());
+        } else if (newState.getSongVersion() != old.getSongVersion()) {
+            waveform.setSong(newState.getSong());
+            updateTotalTime();
+        }
+        if (newState.getChanges() != old.getChanges()) {
+            showChange(newState);
         }
+        pause.setText(newState.getStatus() == TransportState.Status.PAUSED ? "Resume" : "Pause");
+        if (newState.getSong() != null) {
+            setCurrentTime(newState.getPosition());
+        }
+        tempoText.setEditable(newState.canTransform());
+        doEnabling();
     }
 
     /*
@@ -165,8 +185,11 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         currentTimeLabel.setFont(compFont);
         totalTimeLabel.setFont(compFont);
         currentTimeSlider = new JSlider();
+        waveform = new WaveformPanel(stdAudio.getConfig().getSampleRate());
+        waveform.setForeground(blue);
 
         load = new JButton("Load");
+        queue = new JButton("Queue");
         play = new JButton("Play");
         pause = new JButton("Pause");
         stop = new JButton("Stop");
@@ -174,6 +197,7 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         down = new JButton("Octave Down");
         reverse = new JButton("Reverse");
         load.setFont(compFont);
+        queue.setFont(compFont);
         play.setFont(compFont);
         pause.setFont(compFont);
         stop.setFont(compFont);
@@ -190,6 +214,13 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         tempoText.setFont(compFont2);
         changeTempo = new JButton("Change Tempo");
         changeTempo.setFont(compFont2);
+        loop = new JPanel();
+        setA = new JButton("Set A");
+        setB = new JButton("Set B");
+        clearLoop = new JButton("Clear Loop");
+        setA.setFont(compFont2);
+        setB.setFont(compFont2);
+        clearLoop.setFont(compFont2);
 
         doEnabling();
     }
@@ -202,7 +233,7 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
      * song is already playing, etc.
      */
     private void doEnabling() {
-        if (song == null) {
+        if (state.getSong() == null) {
             play.setEnabled(false);
             pause.setEnabled(false);
             stop.setEnabled(false);
@@ -210,6 +241,9 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
             down.setEnabled(false);
             reverse.setEnabled(false);
             changeTempo.setEnabled(false);
+            setA.setEnabled(false);
+            setB.setEnabled(false);
+            clearLoop.setEnabled(false);
         } else {
             play.setEnabled(true);
             pause.setEnabled(false);
@@ -218,7 +252,10 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
             down.setEnabled(true);
             reverse.setEnabled(true);
             changeTempo.setEnabled(true);
-            if (playing) {
+            setA.setEnabled(true);
+            setB.setEnabled(true);
+            clearLoop.setEnabled(state.getLoopStart() >= 0 || state.getLoopEnd() >= 0);
+            if (state.getStatus() != TransportState.Status.STOPPED) {
                 play.setEnabled(false);
                 pause.setEnabled(true);
                 stop.setEnabled(true);
@@ -235,8 +272,9 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
      * Also make the window a certain size and put it in the center of the screen.
      */
     private void doLayout() {
-        frame.setLayout(new GridLayout(4, 1));
+        frame.setLayout(new GridLayout(5, 1));
         frame.add(titleLabel);
+        frame.add(waveform);
 
         timeLabels.setLayout(new GridLayout(2, 1));
         timeLabels.add(currentTimeLabel);
@@ -248,8 +286,9 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         time.add(timeLabels);
         frame.add(time);
 
-        buttons.setLayout(new GridLayout(1, 7));
+        buttons.setLayout(new GridLayout(1, 8));
         buttons.add(load);
+        buttons.add(queue);
         buttons.add(play);
         buttons.add(pause);
         buttons.add(stop);
@@ -260,12 +299,17 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
 
         tempo.setLayout(new GridLayout(0, 4));
         tempo.add(statusLabel);
-        tempo.add(blank);
+        loop.setLayout(new GridLayout(1, 3));
+        loop.add(setA);
+        loop.add(setB);
+        loop.add(clearLoop);
+        tempo.add(loop);
         tempo.add(tempoText);
         tempo.add(changeTempo);
         frame.add(tempo);
 
         load.addActionListener(this);
+        queue.addActionListener(this);
         play.addActionListener(this);
         pause.addActionListener(this);
         stop.addActionListener(this);
@@ -273,8 +317,18 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         down.addActionListener(this);
         reverse.addActionListener(this);
         changeTempo.addActionListener(this);
+        setA.addActionListener(this);
+        setB.addActionListener(this);
+        clearLoop.addActionListener(this);
+        currentTimeSlider.addMouseListener(new MouseAdapter() {
+            public void mouseReleased(MouseEvent e) {
+                if (state.getSong() != null) {
+                    transport.seek(state.getSong().getTotalDuration() * currentTimeSlider.getValue() / 100);
+                }
+            }
+        });
 
-        frame.setMinimumSize(new Dimension(850, 250));
+        frame.setMinimumSize(new Dimension(850, 310));
         titleLabel.setHorizontalAlignment(JLabel.CENTER);
 
         //center the frame on the screen
@@ -282,23 +336,10 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         frame.setLocation(dim.width / 2 - frame.getSize().width / 2, dim.height / 2 - frame.getSize().height / 2);
     }
 
-    /*
-     * Returns the estimated current time within the overall song, in seconds.
-     */
-    private double getCurrentTime() {
-        String timeStr = currentTimeLabel.getText();
-        timeStr = timeStr.replace(" /", "");
-        try {
-            return Double.parseDouble(timeStr);
-        } catch (NumberFormatException nfe) {
-            return 0.0;
-        }
-    }
-
     /*
      * Pops up a file-choosing window for the user to select a song file to be
-     * loaded. If the user chooses a file, a musicPlayer.Song object is created and used
-     * to represent that song.
+     * loaded. If the user chooses a file, the transport loads it and the song is
+     * shown with the next state.
      */
     private void loadFile() throws IOException {
         fileChooser = new JFileChooser();
@@ -309,51 +350,116 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
         if (selected == null) {
             return;
         }
-        statusLabel.setText("  Loading complete");
-        statusLabel.setForeground(green);
-        String filename = selected.getAbsolutePath();
-        System.out.println("Loading song from " + selected.getName() + " ...");
-        song = new musicPlayer.Song(filename);
+        transport.load(selected.getAbsolutePath());
+    }
+
+    /*
+     * Pops up a file-choosing window for the user to select song files to be
+     * played after the current song, in the order they were chosen.
+     */
+    private void queueFiles() {
+        fileChooser = new JFileChooser();
+        fileChooser.setMultiSelectionEnabled(true);
+        if (fileChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<String> filenames = new ArrayList<>();
+        for (File selected : fileChooser.getSelectedFiles()) {
+            filenames.add(selected.getAbsolutePath());
+        }
+        transport.queue(filenames);
+    }
+
+    /*
+     * Shows the given song as the current song, with its title and total
+     * duration. Called when a song is loaded or restored and when the
+     * playlist moves on to the next song.
+     */
+    private void showSong(Song song) {
         frame.setTitle(song.getArtist() + " - [" + song.getTitle() + "]");
         titleLabel.setText(song.getArtist() + " - [" + song.getTitle() + "]");
-
         tempoText.setText("1.0");
-        setCurrentTime(0.0);
-        tempoText.setEditable(!playing);
-
+        waveform.setSong(song);
         updateTotalTime();
-        System.out.println("Loading complete.");
-        System.out.println("musicPlayer.Song: " + song);
-        doEnabling();
     }
 
     /*
-     * Initiates the playing of the current song in a separate thread (so
-     * that it does not lock up the GUI).
-     * You do not need to change this method.
-     * It will not compile until you make your musicPlayer.Song class.
+     * Tells the user about the last change of the transport in the status
+     * label.
      */
-    private void playSong() {
-        if (song != null) {
-            setCurrentTime(0.0);
-            Thread playThread = new Thread(new Runnable() {
-                public void run() {
-                    stdAudio.setMute(false);
-                    playing = true;
-                    doEnabling();
-                    String title = song.getTitle();
-                    String artist = song.getArtist();
-                    double duration = song.getTotalDuration();
-
-                    System.out.println("Playing \"" + title + "\", by "
-                          + artist + " (" + duration + " sec)");
-                    song.play();
-                    System.out.println("Playing complete.");
-                    playing = false;
-                    doEnabling();
+    private void showChange(TransportState newState) {
+        switch (newState.getChange()) {
+            case LOADED:
+                statusLabel.setText("  Loading complete");
+                statusLabel.setForeground(green);
+                break;
+            case RESTORED:
+                statusLabel.setText("  Last session restored");
+                statusLabel.setForeground(green);
+                break;
+            case QUEUED:
+                statusLabel.setText("  Queued " + newState.getQueued() + " songs");
+                statusLabel.setForeground(blue);
+                break;
+            case REVERSED:
+                statusLabel.setText("  Reverse");
+                statusLabel.setForeground(pink);
+                break;
+            case OCTAVE_UP:
+                statusLabel.setText("  Octave up");
+                statusLabel.setForeground(green);
+                break;
+            case OCTAVE_DOWN:
+                statusLabel.setText("  Octave down");
+                statusLabel.setForeground(green);
+                break;
+            case UPPER_LIMIT:
+                statusLabel.setText("Reach upper limit");
+                statusLabel.setForeground(Color.red);
+                break;
+            case LOWER_LIMIT:
+                statusLabel.setText("Reach lower limit");
+                statusLabel.setForeground(Color.red);
+                break;
+            case TEMPO:
+                statusLabel.setText("Tempo changed");
+                statusLabel.setForeground(blue);
+                break;
+            case LOOP:
+                if (newState.hasLoop()) {
+                    statusLabel.setText(String.format("  Loop %.2f - %.2f sec",
+                          newState.getLoopStart(), newState.getLoopEnd()));
+                } else if (newState.getLoopStart() >= 0) {
+                    statusLabel.setText(String.format("  Loop from %.2f sec", newState.getLoopStart()));
+                } else {
+                    statusLabel.setText(String.format("  Loop to %.2f sec", newState.getLoopEnd()));
                 }
-            });
-            playThread.start();
+                statusLabel.setForeground(blue);
+                break;
+            case LOOP_CLEARED:
+                statusLabel.setText("  Loop cleared");
+                statusLabel.setForeground(blue);
+                break;
+            default:
+                // a song of the playlist shows in the title
+                break;
+        }
+    }
+
+    /*
+     * Saves the current song, its transforms and the current time, for the
+     * next start. Songs not read from a file are not saved.
+     */
+    private void saveSession() {
+        Song song = state.getSong();
+        if (song == null || song.getFileName() == null) {
+            return;
+        }
+        try {
+            sessions.save(new SessionStore.Session(new File(song.getFileName()).getAbsolutePath(),
+                  state.getTempo(), state.getOctaves(), state.isReversed(), state.getPosition()));
+        } catch (IOException e) {
+            System.out.println("not able to save the session: " + e.getMessage());
         }
     }
 
@@ -362,17 +468,18 @@ public class MusicPlayer implements ActionListener, StdAudio.AudioEventListener
      * seconds. Bounded to the song's total duration as reported by the song.
      */
     private void setCurrentTime(double time) {
-        double total = song.getTotalDuration();
+        double total = state.getSong().getTotalDuration();
         time = Math.max(0, Math.min(total, time));
         currentTimeLabel.setText(String.format("%08.2f /", time));
         currentTimeSlider.setValue((int) (100 * time / total));
+        waveform.setPlayhead(time);
     }
 
     /*
      * Updates the total time label on the screen to the current total duration.
      */
     private void updateTotalTime() {
-        double duration = song.getTotalDuration();
+        double duration = state.getSong().getTotalDuration();
         totalTimeLabel.setText(String.format("%08.2f sec", duration));
 
     }
@@ -8,6 +8,10 @@ package musicPlayer;/*
  * an accidental (sharp, flat, or natural), and a flag of whether it is the
  * start/end of a repeated section or not.
  * A song can be thought of as a list or array of musicPlayer.Note objects.
+ * <p>
+ * Notes are immutable, so one musicPlayer.Note can be shared by any number of songs
+ * and threads. The of() and rest() factories return pooled instances, so
+ * equal notes are represented by the same object.
  */
 
 public class Note {
@@ -22,18 +26,22 @@ public class Note {
     public static final int OCTAVE_MAX = 10;
 
     /*
-     * Whether this class should print messages to the console for debugging.
+     * Volume notes are synthesized at.
      */
-    public static boolean DEBUG = true;
+    static final double AMPLITUDE = 0.5;
 
-    // fields
-    private double duration;         // note's duration in seconds
-    private Pitch pitch;             // note's pitch from A-G or R for rest
-    private int octave;              // note's octave from 1-10
-    private Accidental accidental;   // note's accidental: sharp, flat, natural
-    private boolean repeat;          // true if this note starts/ends a repeated section
+    // pitch and sharp of each MIDI key from C
+    private static final Pitch[] MIDI_PITCHES = {Pitch.C, Pitch.C, Pitch.D, Pitch.D, Pitch.E, Pitch.F,
+          Pitch.F, Pitch.G, Pitch.G, Pitch.A, Pitch.A, Pitch.B};
+    private static final boolean[] MIDI_SHARP = {false, true, false, true, false, false,
+          true, false, true, false, true, false};
 
-    private StdAudio stdAudio = StdAudio.getInstance();
+    // fields
+    private final double duration;         // note's duration in seconds
+    private final Pitch pitch;             // note's pitch from A-G or R for rest
+    private final int octave;              // note's octave from 1-10
+    private final Accidental accidental;   // note's accidental: sharp, flat, natural
+    private final boolean repeat;          // true if this note starts/ends a repeated section
 
     /**
      * Constructs a musicPlayer.Note with the given information.
@@ -48,11 +56,26 @@ public class Note {
      *                                  between OCTAVE_MIN and OCTAVE_MAX inclusive.
      */
     public Note(double duration, Pitch pitch, int octave, Accidental accidental, boolean repeat) {
-        setPitch(pitch);
-        setAccidental(accidental);
-        setDuration(duration);
-        setOctave(octave);
+        if (pitch == null || accidental == null) {
+            throw new NullPointerException();
+        }
+        if (duration < 0.0) {
+            throw new IllegalArgumentException();
+        }
+        if (octave < OCTAVE_MIN || octave > OCTAVE_MAX) {
+            throw new IllegalArgumentException("Illegal octave value: " + octave);
+        }
+        this.pitch = pitch;
+        this.duration = duration + 0.0; // no negative zero
         this.repeat = repeat;
+        if (pitch == Pitch.R) {
+            // octave and accidental are meaningless for a rest
+            this.octave = OCTAVE_MIN + 1;
+            this.accidental = Accidental.NATURAL;
+        } else {
+            this.octave = octave;
+            this.accidental = accidental;
+        }
     }
 
     /**
@@ -67,6 +90,29 @@ public class Note {
         this(duration, Pitch.R, OCTAVE_MIN + 1, Accidental.NATURAL, repeat);
     }
 
+    /**
+     * Returns the pooled musicPlayer.Note with the given information, creating it if
+     * no equal note is in use.
+     *
+     * @throws NullPointerException     if pitch or accidental is null.
+     * @throws IllegalArgumentException if duration is negative or octave is not
+     *                                  between OCTAVE_MIN and OCTAVE_MAX inclusive.
+     * @see #Note(double, Pitch, int, Accidental, boolean)
+     */
+    public static Note of(double duration, Pitch pitch, int octave, Accidental accidental, boolean repeat) {
+        return NotePool.intern(new Note(duration, pitch, octave, accidental, repeat));
+    }
+
+    /**
+     * Returns the pooled rest of the given duration.
+     *
+     * @throws IllegalArgumentException if duration is negative.
+     * @see #Note(double, boolean)
+     */
+    public static Note rest(double duration, boolean repeat) {
+        return NotePool.intern(new Note(duration, repeat));
+    }
+
     /**
      * Returns true if o refers to a musicPlayer.Note object with the same state
      * as this musicPlayer.Note object; otherwise false.
@@ -93,6 +139,17 @@ public class Note {
         }
     }
 
+    /**
+     * Returns a hash code consistent with equals.
+     */
+    public int hashCode() {
+        int hash = Double.hashCode(duration) * 31 + (repeat ? 1 : 0);
+        if (pitch != Pitch.R) {
+            hash = ((hash * 31 + pitch.hashCode()) * 31 + octave) * 31 + accidental.hashCode();
+        }
+        return hash;
+    }
+
     /**
      * Returns this musicPlayer.Note's accidental value of SHARP, FLAT, or NATURAL.
      * The accidental value is meaningless for a rest; this method will
@@ -141,126 +198,152 @@ public class Note {
     }
 
     /**
-     * Plays this note through the underlying audio system.
-     * Also prints a message to the system console for debugging.
-     * If the audio system is muted or paused, the note may not play.
+     * Returns the frequency of this musicPlayer.Note in Hz, or 0.0 if it is a rest.
      */
-    public void play() {
-        if (DEBUG) {
-            System.out.println("  - playing " + duration + " " + pitch
-                  + (pitch == Pitch.R ? "" : (" " + octave + " " + accidental)));
-        }
+    public double getFrequency() {
         if (pitch == Pitch.R) {
-            // play no sound (but do delay) if the note is a rest
-            // musicPlayer.StdAudio.play(musicPlayer.StdAudio.note(0, duration, 0.5), duration);
-            stdAudio.play(this, stdAudio.note(0, duration, 0.5), duration);
-        } else {
-            char note = pitch.toString().charAt(0);
-            int steps = (note - 'A') * 2;
-
-            // adjust for sharps/flats
-            if (note == 'C' || note == 'D' || note == 'E') {
-                steps -= 1;
-            } else if (note == 'F' || note == 'G') {
-                steps -= 2;
-            }
+            return 0.0;
+        }
+        return 440.0 * Math.pow(2, semitonesFromA4() / 12.0);
+    }
 
-            // adjust pitch for proper octave
-            if (octave > 4 || (octave == 4 && note <= 'B')) {
-                steps += (octave - 4) * 12;
-            } else {
-                steps -= (4 - octave) * 12;
-            }
+    /**
+     * Returns the MIDI key number of this musicPlayer.Note (60 for C 4 NATURAL,
+     * 69 for A 4 NATURAL), or -1 if it is a rest. Notes of octave 10 above
+     * G are past the highest MIDI key, 127.
+     */
+    public int getMidiKey() {
+        return pitch == Pitch.R ? -1 : 69 + semitonesFromA4();
+    }
 
-            // octave start at C so A and B are an octave lower
-            if (note != 'A' && note != 'B') {
-                steps -= 12;
-            }
+    /**
+     * Returns the pooled musicPlayer.Note of the given MIDI key number, spelled with
+     * sharps: key 61 is C 4 SHARP.
+     *
+     * @throws IllegalArgumentException if duration is negative or the key is
+     *                                  not between 24 (C 1) and 131 (B 10).
+     */
+    public static Note ofMidiKey(double duration, int key, boolean repeat) {
+        if (key < 24 || key > 131) {
+            throw new IllegalArgumentException("Illegal MIDI key: " + key);
+        }
+        Pitch pitch = MIDI_PITCHES[key % 12];
+        Accidental accidental = MIDI_SHARP[key % 12] ? Accidental.SHARP : Accidental.NATURAL;
+        return of(duration, pitch, key / 12 - 1, accidental, repeat);
+    }
 
-            // adjust for sharps and flats
-            if (accidental.equals(Accidental.SHARP)) {
-                steps += 1;
-            } else if (accidental.equals(Accidental.FLAT)) {
-                steps -= 1;
-            }
+    /*
+     * Returns how many semitones this note is above A 4 (negative if below).
+     */
+    private int semitonesFromA4() {
+        char note = pitch.toString().charAt(0);
+        int steps = (note - 'A') * 2;
 
-            // play the note!
-            double hz = 440.0 * Math.pow(2, steps / 12.0);
-            stdAudio.play(this, stdAudio.note(hz, duration, 0.5), duration);
+        // adjust for sharps/flats
+        if (note == 'C' || note == 'D' || note == 'E') {
+            steps -= 1;
+        } else if (note == 'F' || note == 'G') {
+            steps -= 2;
         }
+
+        // adjust pitch for proper octave
+        if (octave > 4 || (octave == 4 && note <= 'B')) {
+            steps += (octave - 4) * 12;
+        } else {
+            steps -= (4 - octave) * 12;
+        }
+
+        // octave start at C so A and B are an octave lower
+        if (note != 'A' && note != 'B') {
+            steps -= 12;
+        }
+
+        // adjust for sharps and flats
+        if (accidental.equals(Accidental.SHARP)) {
+            steps += 1;
+        } else if (accidental.equals(Accidental.FLAT)) {
+            steps -= 1;
+        }
+
+        return steps;
     }
 
     /**
-     * Sets this musicPlayer.Note's accidental value to be the given value: SHARP, FLAT, or NATURAL.
-     * The accidental value is meaningless for a rest, but the musicPlayer.Note object still
-     * maintains an accidental value internally (initially musicPlayer.Accidental.NATURAL)
-     * which is ignored.
+     * Plays this note through the underlying audio system, recorded as a
+     * musicPlayer.NoteSynthesized flight recorder event.
+     * If the audio system is muted or paused, the note may not play.
+     */
+    public void play() {
+        // a rest plays no sound (but does delay) since its frequency is 0
+        StdAudio.getInstance().play(this);
+    }
+
+    /**
+     * Plays this note on the given session.
+     */
+    public void play(AudioSession session) {
+        session.play(this);
+    }
+
+    /**
+     * Synthesizes the samples of this note without playing them, at the
+     * sample rate of standard audio.
      *
-     * @param accidental musicPlayer.Note's accidental from musicPlayer.Accidental.SHARP, FLAT, or NATURAL.
-     * @throws NullPointerException if the accidental is null.
+     * @return the samples of this note, between -1.0 and +1.0
      */
-    public void setAccidental(Accidental accidental) {
-        if (accidental == null) {
-            throw new NullPointerException();
-        }
-        if (pitch != Pitch.R) {
-            this.accidental = accidental;
-        }
+    public double[] render() {
+        return render(StdAudio.getInstance().getConfig().getSampleRate());
     }
 
     /**
-     * Sets this musicPlayer.Note's duration in seconds to be the given value.
+     * Synthesizes the samples of this note at the given sample rate without
+     * playing them.
      *
-     * @param duration musicPlayer.Note's duration in seconds.
-     * @throws IllegalArgumentException if duration is negative.
+     * @param sampleRate samples per second
+     * @return the samples of this note, between -1.0 and +1.0
      */
-    public void setDuration(double duration) {
-        if (duration < 0.0) {
-            throw new IllegalArgumentException();
-        }
-        this.duration = duration;
+    public double[] render(int sampleRate) {
+        return PcmConverter.toDoubles(renderFloat(sampleRate));
     }
 
     /**
-     * Sets this musicPlayer.Note's octave to be the given value.
-     * The octave value is meaningless for a rest, but the musicPlayer.Note object still
-     * maintains an octave value internally (initially OCTAVE_MIN + 1)
-     * which is ignored.
+     * Synthesizes the samples of this note at the given sample rate as
+     * floats, half the size of render(), with the same 16-bit PCM.
      *
-     * @param octave musicPlayer.Note's octave from OCTAVE_MIN through OCTAVE_MAX inclusive.
-     * @throws IllegalArgumentException if octave is not between OCTAVE_MIN
-     *                                  and OCTAVE_MAX inclusive.
+     * @param sampleRate samples per second
+     * @return the samples of this note, between -1.0 and +1.0
      */
-    public void setOctave(int octave) {
-        if (octave < OCTAVE_MIN || octave > OCTAVE_MAX) {
-            throw new IllegalArgumentException("Illegal octave value: " + octave);
-        }
-        if (pitch != Pitch.R) {
-            this.octave = octave;
-        }
+    public float[] renderFloat(int sampleRate) {
+        FlightEvents.NoteSynthesized event = new FlightEvents.NoteSynthesized();
+        event.begin();
+        long start = System.nanoTime();
+        float[] samples = ToneGenerator.sineFloat(getFrequency(), duration, AMPLITUDE, sampleRate);
+        PlaybackMetrics.getInstance().synthesized(System.nanoTime() - start);
+        event.end(this, samples.length);
+        return samples;
     }
 
     /**
-     * Sets this musicPlayer.Note's pitch to be the given value.
+     * Returns the pooled musicPlayer.Note equal to this one except for its duration.
      *
-     * @param pitch musicPlayer.Note's pitch from musicPlayer.Pitch.A through musicPlayer.Pitch.G, or musicPlayer.Pitch.R for a rest.
-     * @throws NullPointerException if pitch is null.
+     * @param duration musicPlayer.Note's duration in seconds.
+     * @throws IllegalArgumentException if duration is negative.
      */
-    public void setPitch(Pitch pitch) {
-        if (pitch == null) {
-            throw new NullPointerException();
-        }
-        this.pitch = pitch;
+    public Note withDuration(double duration) {
+        return of(duration, pitch, octave, accidental, repeat);
     }
 
     /**
-     * Sets this musicPlayer.Note's repeat flag to be the given value.
+     * Returns the pooled musicPlayer.Note equal to this one except for its octave.
+     * The octave value is meaningless for a rest, so a rest is returned
+     * unchanged apart from being pooled.
      *
-     * @param repeat true to indicate that this note is the start/end of a
-     *               repeated section, or false if not.
+     * @param octave musicPlayer.Note's octave from OCTAVE_MIN through OCTAVE_MAX inclusive.
+     * @throws IllegalArgumentException if octave is not between OCTAVE_MIN
+     *                                  and OCTAVE_MAX inclusive.
      */
-    public void setRepeat(boolean repeat) {
-        this.repeat = repeat;
+    public Note withOctave(int octave) {
+        return of(duration, pitch, octave, accidental, repeat);
     }
 
     /**
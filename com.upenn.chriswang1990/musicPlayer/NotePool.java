@@ -0,0 +1,78 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizing pool of musicPlayer.Note objects: equal notes are looked up to the
+ * same instance, so a song only holds as many note objects as it has
+ * distinct notes, however long it is. Notes no song uses any more are
+ * dropped from the pool by the garbage collector.
+ */
+final class NotePool {
+
+    /*
+     * The pool entry for a note; it remembers its key so the entry can be
+     * removed once the note is collected.
+     */
+    private static class Entry extends WeakReference<Note> {
+        private final Note key;
+
+        Entry(Note note, Note key, ReferenceQueue<Note> queue) {
+            super(note, queue);
+            this.key = key;
+        }
+    }
+
+    private static final ConcurrentHashMap<Note, Entry> pool = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Note> collected = new ReferenceQueue<>();
+
+    /**
+     * Returns the pooled note equal to the given note, adding the given note
+     * to the pool if there is none.
+     */
+    static Note intern(Note note) {
+        expunge();
+        while (true) {
+            Entry entry = pool.get(note);
+            if (entry != null) {
+                Note pooled = entry.get();
+                if (pooled != null) {
+                    return pooled;
+                }
+                pool.remove(entry.key, entry);
+            }
+            // the key is a private copy, so only the entry keeps the note alive
+            Note key = new Note(note.getDuration(), note.getPitch(), note.getOctave(),
+                  note.getAccidental(), note.isRepeat());
+            if (pool.putIfAbsent(key, new Entry(note, key, collected)) == null) {
+                return note;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct notes currently pooled.
+     */
+    static int size() {
+        expunge();
+        return pool.size();
+    }
+
+    /*
+     * Removes the entries of notes that have been garbage collected.
+     */
+    private static void expunge() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            pool.remove(entry.key, entry);
+        }
+    }
+
+    private NotePool() {
+        // empty
+    }
+}
@@ -0,0 +1,155 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NoteTest {
+
+    /**
+     * test method for {@link musicPlayer.Note#of(double, Pitch, int, Accidental, boolean)}
+     */
+    @Test
+    public void testOfIsPooled() {
+        Note a = Note.of(0.5, Pitch.C, 4, Accidental.SHARP, false);
+        Note b = Note.of(0.5, Pitch.C, 4, Accidental.SHARP, false);
+        Note c = new Note(0.5, Pitch.C, 4, Accidental.SHARP, false);
+        assertSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(a, c);
+        assertEquals(a.hashCode(), c.hashCode());
+        assertNotSame(a, Note.of(0.5, Pitch.C, 4, Accidental.FLAT, false));
+    }
+
+    /**
+     * test method for {@link musicPlayer.Note#rest(double, boolean)}
+     */
+    @Test
+    public void testRest() {
+        Note rest = Note.rest(0.25, true);
+        assertSame(rest, Note.rest(0.25, true));
+        assertSame(rest, Note.of(0.25, Pitch.R, 7, Accidental.SHARP, true));
+        assertEquals(Accidental.NATURAL, rest.getAccidental());
+        assertEquals(Note.OCTAVE_MIN + 1, rest.getOctave());
+        assertSame(rest, rest.withOctave(5));
+    }
+
+    /**
+     * test method for {@link musicPlayer.Note#withOctave(int)} and {@link musicPlayer.Note#withDuration(double)}
+     */
+    @Test
+    public void testWith() {
+        Note note = Note.of(1.0, Pitch.G, 4, Accidental.NATURAL, false);
+        assertEquals("1.0 G 5 NATURAL false", note.withOctave(5).toString());
+        assertEquals("2.0 G 4 NATURAL false", note.withDuration(2.0).toString());
+        assertEquals("1.0 G 4 NATURAL false", note.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithOctaveOutOfRange() {
+        Note.of(1.0, Pitch.G, 10, Accidental.NATURAL, false).withOctave(11);
+    }
+
+    /**
+     * transforming one song must not change another song loaded from the
+     * same file, although both share the same pooled notes
+     */
+    @Test
+    public void testSongsShareNotes() {
+        Song first = new Song("GameOfThronesTheme.txt");
+        Song second = new Song("GameOfThronesTheme.txt");
+        assertSame(first.getPlayOrder().get(0), second.getPlayOrder().get(0));
+
+        String before = second.toString();
+        first.octaveUp();
+        first.changeTempo(2);
+        first.reverse();
+        assertEquals(before, second.toString());
+
+        List<Note> order = second.getPlayOrder();
+        IdentityHashMap<Note, Boolean> distinct = new IdentityHashMap<>();
+        for (Note note : order) {
+            distinct.put(note, true);
+        }
+        assertTrue(distinct.size() < order.size() / 2);
+    }
+
+    /**
+     * test method for {@link musicPlayer.ToneGenerator.Oscillator}: rendering
+     * in blocks of any size gives the samples of the whole note
+     */
+    @Test
+    public void testOscillatorBlocks() {
+        float[] whole = ToneGenerator.sineFloat(261.6, 0.3, 0.5, StdAudio.SAMPLE_RATE);
+        ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(StdAudio.SAMPLE_RATE);
+        for (int size : new int[]{1, 7, 1000, 100000}) {
+            oscillator.start(261.6, 0.3, 0.5);
+            float[] block = new float[size];
+            float[] joined = new float[whole.length];
+            int pos = 0;
+            int n;
+            while ((n = oscillator.next(block)) > 0) {
+                System.arraycopy(block, 0, joined, pos, n);
+                pos += n;
+            }
+            assertEquals(whole.length, pos);
+            assertArrayEquals(whole, joined, 0.0f);
+        }
+        oscillator.start(0, 0.3, 0.5);
+        assertEquals(whole.length, oscillator.remaining());
+    }
+
+    /**
+     * test method for {@link musicPlayer.Note#renderFloat(int)}: the float
+     * samples give the same 16-bit PCM as samples computed in double
+     */
+    @Test
+    public void testRenderFloatIsBitExact() {
+        for (Pitch pitch : Pitch.values()) {
+            for (int octave = 1; octave <= 7; octave++) {
+                Note note = Note.of(0.25, pitch, octave, Accidental.SHARP, false);
+                double hz = note.getFrequency();
+                int n = (int) (StdAudio.SAMPLE_RATE * 0.25) + 1;
+                double[] expected = new double[n];
+                for (int i = 0; i < n; i++) {
+                    expected[i] = 0.5 * Math.sin(2 * Math.PI * i * hz / StdAudio.SAMPLE_RATE);
+                }
+                byte[] want = new byte[2 * n];
+                byte[] got = new byte[2 * n];
+                PcmConverter.toPcm16(expected, 0, n, want, 0);
+                PcmConverter.toPcm16(note.renderFloat(StdAudio.SAMPLE_RATE), 0, n, got, 0);
+                assertArrayEquals(note.toString(), want, got);
+            }
+        }
+        // samples just around every step of the 16-bit scale
+        for (int k = -32767; k <= 32767; k++) {
+            double step = k / 32767.0;
+            for (double in : new double[]{Math.nextDown(step), step, Math.nextUp(step)}) {
+                assertEquals(PcmConverter.toShort(in), PcmConverter.toShort(PcmConverter.toFloat(in)));
+            }
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.Note#render()} and
+     * {@link musicPlayer.StdAudio#note}: both synthesize at the sample rate
+     * standard audio plays in, whatever musicPlayer.audio sets it to
+     */
+    @Test
+    public void testRenderAtSessionRate() {
+        StdAudio stdAudio = StdAudio.getInstance();
+        int rate = stdAudio.getConfig().getSampleRate();
+        Note a4 = Note.of(0.5, Pitch.A, 4, Accidental.NATURAL, false);
+        assertArrayEquals(a4.render(rate), a4.render(), 0.0);
+        assertArrayEquals(ToneGenerator.sine(440.0, 0.5, 0.5, rate), stdAudio.note(440.0, 0.5, 0.5), 0.0);
+    }
+}
@@ -0,0 +1,201 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * Converts samples between -1.0 and +1.0 into PCM, by default 16-bit signed
+ * little Endian, the format written to the sound card and to .wav files.
+ * Other bit depths and channel counts follow a musicPlayer.AudioConfig.
+ */
+public final class PcmConverter {
+
+    private static final double MAX_8_BIT = Byte.MAX_VALUE; // 127
+    private static final double MAX_16_BIT = Short.MAX_VALUE; // 32,767
+    private static final double MAX_24_BIT = 8388607;
+
+    /**
+     * Converts one sample to a 16-bit value. If the sample is outside
+     * [-1.0, +1.0], it will be clipped.
+     */
+    public static short toShort(double in) {
+        // clip if outside [-1, +1]
+        if (in < -1.0) {
+            in = -1.0;
+        }
+        if (in > +1.0) {
+            in = +1.0;
+        }
+        return (short) (MAX_16_BIT * in);
+    }
+
+    /**
+     * Narrows a sample to a float that converts to the same 16-bit value.
+     * The nearest float may fall on the other side of a step of the 16-bit
+     * scale; it is then moved one ulp back towards the sample.
+     */
+    public static float toFloat(double in) {
+        float f = (float) in;
+        if (toShort(f) != toShort(in)) {
+            f = in > f ? Math.nextUp(f) : Math.nextDown(f);
+        }
+        return f;
+    }
+
+    /**
+     * Returns the samples narrowed with toFloat().
+     */
+    public static float[] toFloats(double[] input) {
+        float[] out = new float[input.length];
+        for (int i = 0; i < input.length; i++) {
+            out[i] = toFloat(input[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the samples widened to doubles.
+     */
+    public static double[] toDoubles(float[] input) {
+        double[] out = new double[input.length];
+        for (int i = 0; i < input.length; i++) {
+            out[i] = input[i];
+        }
+        return out;
+    }
+
+    /**
+     * Converts samples [from, to) of the input into little Endian bytes.
+     *
+     * @param input  samples between -1.0 and +1.0
+     * @param from   index of the first sample to convert
+     * @param to     index after the last sample to convert
+     * @param out    destination, needs room for 2 bytes per sample
+     * @param offset index in out of the first byte written
+     * @return the number of bytes written
+     */
+    public static int toPcm16(double[] input, int from, int to, byte[] out, int offset) {
+        int pos = offset;
+        for (int i = from; i < to; i++) {
+            short s = toShort(input[i]);
+            out[pos++] = (byte) s;
+            out[pos++] = (byte) (s >> 8); // little Endian
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Converts samples [from, to) of the input into little Endian bytes.
+     *
+     * @param input  samples between -1.0 and +1.0
+     * @param from   index of the first sample to convert
+     * @param to     index after the last sample to convert
+     * @param out    destination, needs room for 2 bytes per sample
+     * @param offset index in out of the first byte written
+     * @return the number of bytes written
+     */
+    public static int toPcm16(float[] input, int from, int to, byte[] out, int offset) {
+        int pos = offset;
+        for (int i = from; i < to; i++) {
+            short s = toShort(input[i]);
+            out[pos++] = (byte) s;
+            out[pos++] = (byte) (s >> 8); // little Endian
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Converts samples [from, to) of the input into PCM of the given
+     * configuration, each sample repeated on every channel.
+     *
+     * @param input  samples between -1.0 and +1.0
+     * @param from   index of the first sample to convert
+     * @param to     index after the last sample to convert
+     * @param out    destination, needs room for one frame per sample
+     * @param offset index in out of the first byte written
+     * @param config bit depth and channel count of the PCM
+     * @return the number of bytes written
+     */
+    public static int toPcm(float[] input, int from, int to, byte[] out, int offset, AudioConfig config) {
+        if (config.getBitDepth() == 16 && config.getChannels() == 1) {
+            return toPcm16(input, from, to, out, offset);
+        }
+        int pos = offset;
+        for (int i = from; i < to; i++) {
+            pos += toFrame(input[i], out, pos, config);
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Converts samples [from, to) of the input into PCM of the given
+     * configuration, each sample repeated on every channel.
+     *
+     * @param input  samples between -1.0 and +1.0
+     * @param from   index of the first sample to convert
+     * @param to     index after the last sample to convert
+     * @param out    destination, needs room for one frame per sample
+     * @param offset index in out of the first byte written
+     * @param config bit depth and channel count of the PCM
+     * @return the number of bytes written
+     */
+    public static int toPcm(double[] input, int from, int to, byte[] out, int offset, AudioConfig config) {
+        if (config.getBitDepth() == 16 && config.getChannels() == 1) {
+            return toPcm16(input, from, to, out, offset);
+        }
+        int pos = offset;
+        for (int i = from; i < to; i++) {
+            pos += toFrame(input[i], out, pos, config);
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Converts one sample into one frame of PCM of the given configuration.
+     * If the sample is outside [-1.0, +1.0], it will be clipped.
+     *
+     * @return the number of bytes written, the frame size
+     */
+    public static int toFrame(double in, byte[] out, int offset, AudioConfig config) {
+        if (in < -1.0) {
+            in = -1.0;
+        }
+        if (in > +1.0) {
+            in = +1.0;
+        }
+        int pos = offset;
+        switch (config.getBitDepth()) {
+            case 8: {
+                byte b = (byte) ((int) (MAX_8_BIT * in) + 128); // unsigned
+                for (int c = 0; c < config.getChannels(); c++) {
+                    out[pos++] = b;
+                }
+                break;
+            }
+            case 16: {
+                short s = (short) (MAX_16_BIT * in);
+                for (int c = 0; c < config.getChannels(); c++) {
+                    out[pos++] = (byte) s;
+                    out[pos++] = (byte) (s >> 8); // little Endian
+                }
+                break;
+            }
+            default: {
+                int v = (int) (MAX_24_BIT * in);
+                for (int c = 0; c < config.getChannels(); c++) {
+                    out[pos++] = (byte) v;
+                    out[pos++] = (byte) (v >> 8);
+                    out[pos++] = (byte) (v >> 16); // little Endian
+                }
+                break;
+            }
+        }
+        return pos - offset;
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.PcmConverter is non-instantiable.
+     */
+    private PcmConverter() {
+        // empty
+    }
+}
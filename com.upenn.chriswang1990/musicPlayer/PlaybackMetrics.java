@@ -0,0 +1,318 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms of the audio path, so stutters can be explained
+ * from a JMX console: how many notes and samples were played, how long the
+ * writes to the line blocked, how long notes took to synthesize, how full
+ * the line buffer was, how long the effects and the listeners took and how
+ * long transport commands waited to take effect.
+ * <p>
+ * It also keeps the times of the start of the player, once: from launch to
+ * the window, from the first Play to the first sound, and how long the
+ * line took to open.
+ * <p>
+ * And the synthesis quality the sessions chose, with how often they had to
+ * lower it under load and could raise it again, and how many songs were
+ * played from the render cache.
+ * <p>
+ * Recording only adds to striped counters and can be turned off entirely,
+ * which keeps its cost on the audio thread negligible.
+ */
+public final class PlaybackMetrics implements PlaybackMetricsMXBean {
+
+    /**
+     * The name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "musicPlayer:type=PlaybackMetrics";
+
+    /*
+     * An empty line counts as an underrun only if the previous write is more
+     * recent than this, otherwise playback simply started again after a break.
+     */
+    private static final long UNDERRUN_WINDOW_NANOS = 1000000000L;
+
+    private static final PlaybackMetrics instance = new PlaybackMetrics();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("not able to register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    private volatile boolean enabled = true;
+    private final LongAdder notesPlayed = new LongAdder();
+    private final LongAdder samplesWritten = new LongAdder();
+    private final LongAdder underruns = new LongAdder();
+    private final Histogram lineWriteNanos = Histogram.exponential();
+    private final Histogram synthesisNanos = Histogram.exponential();
+    private final Histogram bufferFillPercent = Histogram.linear(5, 21);
+    private final Histogram listenerDispatchNanos = Histogram.exponential();
+    private final Histogram commandLatencyNanos = Histogram.exponential();
+    private final Histogram effectNanos = Histogram.exponential();
+    private volatile long lastWriteNanos;
+    private volatile long launchNanos;
+    private volatile long timeToWindowNanos;
+    private volatile long firstPlayNanos;
+    private volatile long timeToFirstSoundNanos;
+    private volatile long lineOpenNanos;
+    private final LongAdder qualityDowngrades = new LongAdder();
+    private final LongAdder qualityUpgrades = new LongAdder();
+    private final LongAdder renderCacheHits = new LongAdder();
+    private final LongAdder renderCacheMisses = new LongAdder();
+    private volatile ToneGenerator.Quality quality = ToneGenerator.Quality.FULL;
+
+    public static PlaybackMetrics getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records that a note was played.
+     */
+    public void notePlayed() {
+        if (enabled) {
+            notesPlayed.increment();
+        }
+    }
+
+    /**
+     * Records the time taken to synthesize one note.
+     */
+    public void synthesized(long nanos) {
+        if (enabled) {
+            synthesisNanos.record(nanos);
+        }
+    }
+
+    /**
+     * Records the time taken by the effects of a session on one block.
+     */
+    public void effectsProcessed(long nanos) {
+        if (enabled) {
+            effectNanos.record(nanos);
+        }
+    }
+
+    /**
+     * Records that a song was played from the render cache.
+     */
+    public void renderCacheHit() {
+        if (enabled) {
+            renderCacheHits.increment();
+        }
+    }
+
+    /**
+     * Records that a song had to be synthesized, not being in the render
+     * cache yet.
+     */
+    public void renderCacheMiss() {
+        if (enabled) {
+            renderCacheMisses.increment();
+        }
+    }
+
+    /**
+     * Records the state of the line just before a write: the bytes it can
+     * take without blocking out of its total buffer size. An empty buffer
+     * in the middle of playback is counted as an underrun.
+     *
+     * @return true if this write follows an underrun
+     */
+    public boolean beforeWrite(int available, int bufferSize) {
+        if (!enabled || bufferSize <= 0) {
+            return false;
+        }
+        bufferFillPercent.record(100L * (bufferSize - available) / bufferSize);
+        if (available >= bufferSize && System.nanoTime() - lastWriteNanos < UNDERRUN_WINDOW_NANOS) {
+            underruns.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a finished write of the given number of samples to the line
+     * and how long it blocked.
+     */
+    public void written(int samples, long nanos) {
+        if (enabled) {
+            samplesWritten.add(samples);
+            lineWriteNanos.record(nanos);
+            lastWriteNanos = System.nanoTime();
+            if (timeToFirstSoundNanos == 0 && firstPlayNanos != 0) {
+                timeToFirstSoundNanos = lastWriteNanos - firstPlayNanos;
+            }
+        }
+    }
+
+    /**
+     * Records the time from a transport command being sent to it taking
+     * effect.
+     */
+    public void commandApplied(long nanos) {
+        if (enabled) {
+            commandLatencyNanos.record(nanos);
+        }
+    }
+
+    /**
+     * Records that a session changed its synthesis quality.
+     */
+    public void qualityChanged(ToneGenerator.Quality from, ToneGenerator.Quality to) {
+        quality = to;
+        if (enabled) {
+            (to.compareTo(from) > 0 ? qualityDowngrades : qualityUpgrades).increment();
+        }
+    }
+
+    /**
+     * Records that the player was launched, the start of time-to-window.
+     */
+    public void launched() {
+        launchNanos = System.nanoTime();
+    }
+
+    /**
+     * Records that the window of the player is shown, the first time only.
+     */
+    public void windowShown() {
+        if (launchNanos != 0 && timeToWindowNanos == 0) {
+            timeToWindowNanos = System.nanoTime() - launchNanos;
+        }
+    }
+
+    /**
+     * Records that the user asked to play, the first time only: the next
+     * write to the line ends time-to-first-sound.
+     */
+    public void playRequested() {
+        if (firstPlayNanos == 0) {
+            firstPlayNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records how long opening the line took.
+     */
+    public void lineOpened(long nanos) {
+        lineOpenNanos = nanos;
+    }
+
+    /**
+     * Records the time taken to inform every audio event listener of one event.
+     */
+    public void dispatched(long nanos) {
+        if (enabled) {
+            listenerDispatchNanos.record(nanos);
+        }
+    }
+
+    public long getNotesPlayed() {
+        return notesPlayed.sum();
+    }
+
+    public long getSamplesWritten() {
+        return samplesWritten.sum();
+    }
+
+    public long getUnderruns() {
+        return underruns.sum();
+    }
+
+    public Histogram.Snapshot getLineWriteNanos() {
+        return lineWriteNanos.snapshot();
+    }
+
+    public Histogram.Snapshot getSynthesisNanos() {
+        return synthesisNanos.snapshot();
+    }
+
+    public Histogram.Snapshot getBufferFillPercent() {
+        return bufferFillPercent.snapshot();
+    }
+
+    public Histogram.Snapshot getListenerDispatchNanos() {
+        return listenerDispatchNanos.snapshot();
+    }
+
+    public Histogram.Snapshot getEffectNanos() {
+        return effectNanos.snapshot();
+    }
+
+    public long getTimeToWindowNanos() {
+        return timeToWindowNanos;
+    }
+
+    public long getTimeToFirstSoundNanos() {
+        return timeToFirstSoundNanos;
+    }
+
+    public long getLineOpenNanos() {
+        return lineOpenNanos;
+    }
+
+    public Histogram.Snapshot getCommandLatencyNanos() {
+        return commandLatencyNanos.snapshot();
+    }
+
+    public String getQuality() {
+        return quality.name();
+    }
+
+    public long getQualityDowngrades() {
+        return qualityDowngrades.sum();
+    }
+
+    public long getQualityUpgrades() {
+        return qualityUpgrades.sum();
+    }
+
+    public long getRenderCacheHits() {
+        return renderCacheHits.sum();
+    }
+
+    public long getRenderCacheMisses() {
+        return renderCacheMisses.sum();
+    }
+
+    public void reset() {
+        notesPlayed.reset();
+        samplesWritten.reset();
+        underruns.reset();
+        lineWriteNanos.reset();
+        synthesisNanos.reset();
+        effectNanos.reset();
+        bufferFillPercent.reset();
+        listenerDispatchNanos.reset();
+        commandLatencyNanos.reset();
+        qualityDowngrades.reset();
+        qualityUpgrades.reset();
+        renderCacheHits.reset();
+        renderCacheMisses.reset();
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.PlaybackMetrics is a singleton.
+     */
+    private PlaybackMetrics() {
+        // empty
+    }
+}
@@ -0,0 +1,85 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * Management interface of musicPlayer.PlaybackMetrics, published over JMX as
+ * "musicPlayer:type=PlaybackMetrics". Times are in nanoseconds.
+ */
+public interface PlaybackMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getNotesPlayed();
+
+    long getSamplesWritten();
+
+    long getUnderruns();
+
+    Histogram.Snapshot getLineWriteNanos();
+
+    Histogram.Snapshot getSynthesisNanos();
+
+    /**
+     * Returns how full the line buffer was, in percent, before each write.
+     */
+    Histogram.Snapshot getBufferFillPercent();
+
+    Histogram.Snapshot getListenerDispatchNanos();
+
+    /**
+     * Returns the time the effects of a session took on each block.
+     */
+    Histogram.Snapshot getEffectNanos();
+
+    /**
+     * Returns the time from a musicPlayer.Transport command being sent to it
+     * taking effect.
+     */
+    Histogram.Snapshot getCommandLatencyNanos();
+
+    /**
+     * Returns the synthesis quality a session changed to last, FULL if none
+     * had to change it.
+     */
+    String getQuality();
+
+    long getQualityDowngrades();
+
+    long getQualityUpgrades();
+
+    /**
+     * Returns how many songs were played from the render cache.
+     */
+    long getRenderCacheHits();
+
+    /**
+     * Returns how many songs were synthesized because they were not in the
+     * render cache.
+     */
+    long getRenderCacheMisses();
+
+    /**
+     * Returns the time from launch to the window being shown, 0 if the
+     * player was not launched by musicPlayer.Main.
+     */
+    long getTimeToWindowNanos();
+
+    /**
+     * Returns the time from the first Play to the first samples written to
+     * the line, 0 before that.
+     */
+    long getTimeToFirstSoundNanos();
+
+    /**
+     * Returns how long opening the line took, 0 if it was not opened.
+     */
+    long getLineOpenNanos();
+
+    /**
+     * Clears every counter and histogram; the startup times are kept.
+     */
+    void reset();
+}
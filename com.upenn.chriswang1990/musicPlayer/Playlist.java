@@ -0,0 +1,91 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * A musicPlayer.Playlist is a queue of song files waiting to be played after the
+ * current song. It is safe to add songs from the GUI while the player thread
+ * is taking them off the queue.
+ */
+public class Playlist {
+
+    private final LinkedBlockingDeque<String> queue = new LinkedBlockingDeque<>();
+
+    /**
+     * add a song file to the end of the queue
+     *
+     * @param filename file name of the song
+     */
+    public void add(String filename) {
+        if (filename == null) {
+            throw new NullPointerException();
+        }
+        queue.addLast(filename);
+    }
+
+    /**
+     * remove all the songs from the queue
+     */
+    public void clear() {
+        queue.clear();
+    }
+
+    /**
+     * check whether there is no song waiting
+     *
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * take the next song file off the queue
+     *
+     * @return file name of the next song, or null if the queue is empty
+     */
+    public String next() {
+        return queue.pollFirst();
+    }
+
+    /**
+     * look at the next song file without taking it off the queue
+     *
+     * @return file name of the next song, or null if the queue is empty
+     */
+    public String peek() {
+        return queue.peekFirst();
+    }
+
+    /**
+     * take the first occurrence of a song file off the queue
+     *
+     * @param filename file name of the song
+     * @return true if the song was waiting
+     */
+    public boolean remove(String filename) {
+        return queue.removeFirstOccurrence(filename);
+    }
+
+    /**
+     * get the number of songs waiting
+     *
+     * @return size of the queue
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * get the song files waiting, in playing order
+     *
+     * @return copy of the queue
+     */
+    public List<String> getSongs() {
+        return new ArrayList<>(queue);
+    }
+}
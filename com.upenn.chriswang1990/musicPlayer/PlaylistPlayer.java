@@ -0,0 +1,446 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays a song followed by every song waiting in a musicPlayer.Playlist without
+ * any silence between them.
+ * <p>
+ * While a song is playing, the next song of the playlist is parsed and its
+ * first seconds are synthesized on a background thread, so the transition
+ * does not wait for the file to be read; a song queued while the playlist
+ * was empty is prepared as soon as the next note starts. The song stays in
+ * the playlist until it starts playing, so stopping before leaves the
+ * playlist as it was. A song in the render cache of the session is
+ * streamed from it instead, with nothing to synthesize. Optionally the end
+ * of a song can be crossfaded into the start of the next one.
+ * <p>
+ * A passage of a song can also be looped: it is synthesized once into a
+ * musicPlayer.LoopBuffer and played again and again from there, the same
+ * buffer reused as long as the song and the passage stay the same.
+ */
+public class PlaylistPlayer {
+
+    /**
+     * Listener notified on the playing thread whenever a new song starts.
+     */
+    public interface SongChangeListener {
+        void onSongChanged(Song song);
+    }
+
+    private static final double DEFAULT_PRELOAD_SECONDS = 5.0;
+
+    private final Playlist playlist;
+    private final ExecutorService preloader;
+    private final StdAudio stdAudio = StdAudio.getInstance();
+    private SongChangeListener listener;
+    private Future<PreparedSong> warm; // prepared by prepare(), taken by play()
+    private Song warmSong;
+    private volatile double crossfadeSeconds = 0.0;
+    private volatile double preloadSeconds = DEFAULT_PRELOAD_SECONDS;
+    private volatile boolean stopped;
+    private LoopBuffer loop; // the last loop played, by the playing thread only
+    // the preparation of the song after the current one, by the playing
+    // thread only, and the first song of the playlist when it was started
+    private Future<PreparedSong> next;
+    private String nextHead;
+
+    /*
+     * A parsed song with its playing order from the note it starts at and
+     * its first notes already synthesized, or its cached render.
+     */
+    private static class PreparedSong {
+        private final Song song;
+        private final String filename; // in the playlist, or null for the first song
+        private final double from;
+        private final List<Note> order;
+        private final int first; // index of the first note played in the whole song
+        private final RenderCache.Render render;
+        private final float[][] head;
+        private final long totalSamples;
+
+        private PreparedSong(Song song, String filename, double from, double preloadSeconds,
+                             AudioSession session) {
+            AudioConfig config = session.getConfig();
+            this.song = song;
+            this.filename = filename;
+            this.from = from;
+            List<Note> all = song.getPlayOrder();
+            this.first = firstNote(all, from);
+            this.order = all.subList(first, all.size());
+            this.render = session.findRender(all);
+            long total = 0;
+            int headNotes = 0;
+            double headDuration = 0.0;
+            for (Note note : order) {
+                total += config.sampleCount(note.getDuration());
+                if (render == null && headDuration < preloadSeconds) {
+                    headDuration += note.getDuration();
+                    headNotes++;
+                }
+            }
+            this.totalSamples = total;
+            this.head = new float[headNotes][];
+            for (int i = 0; i < headNotes; i++) {
+                head[i] = session.render(order.get(i));
+            }
+        }
+    }
+
+    /**
+     * Creates a player that takes its songs from the given playlist.
+     *
+     * @param playlist the songs to play after the current song
+     */
+    public PlaylistPlayer(Playlist playlist) {
+        this.playlist = playlist;
+        this.preloader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "playlist-preloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the crossfade length in seconds, 0.0 for plain gapless playback.
+     */
+    public double getCrossfade() {
+        return crossfadeSeconds;
+    }
+
+    /**
+     * Sets how many seconds the end of a song overlaps the start of the next.
+     *
+     * @param seconds crossfade length, or 0.0 for plain gapless playback
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public void setCrossfade(double seconds) {
+        if (seconds < 0.0) {
+            throw new IllegalArgumentException("Illegal crossfade: " + seconds);
+        }
+        crossfadeSeconds = seconds;
+    }
+
+    /**
+     * Sets how many seconds of the next song are synthesized ahead of time.
+     *
+     * @param seconds length of audio to pre-render
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public void setPreload(double seconds) {
+        if (seconds < 0.0) {
+            throw new IllegalArgumentException("Illegal preload: " + seconds);
+        }
+        preloadSeconds = seconds;
+    }
+
+    /**
+     * Sets the listener told about each new song, replacing any previous one.
+     */
+    public void setSongChangeListener(SongChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Synthesizes the start of the given song from the given time on a
+     * background thread, so a later play(song, from) of the same song,
+     * unchanged, starts without waiting for it. Replaces what an earlier
+     * call prepared.
+     */
+    public synchronized void prepare(Song song, double from) {
+        double preload = preloadSeconds;
+        AudioSession session = stdAudio.getSession();
+        warm = preloader.submit(() -> new PreparedSong(song, null, from, preload, session));
+        warmSong = song;
+    }
+
+    /**
+     * Returns the time at which the note playing at the given time of the
+     * song starts, which is where play(song, time) starts playing.
+     */
+    public static double startOfNote(Song song, double time) {
+        List<Note> order = song.getPlayOrder();
+        double start = 0.0;
+        for (int i = 0, first = firstNote(order, time); i < first; i++) {
+            start += order.get(i).getDuration();
+        }
+        return start;
+    }
+
+    /**
+     * Plays the given song, then every song of the playlist until it is
+     * empty or stop() is called. Blocks until playing is finished.
+     *
+     * @param first the song to play first
+     */
+    public void play(Song first) {
+        play(first, 0.0);
+    }
+
+    /**
+     * Plays the given song from the start of the note playing at the given
+     * time, then every song of the playlist until it is empty or stop() is
+     * called. Blocks until playing is finished.
+     *
+     * @param first the song to play first
+     * @param from  seconds into the first song
+     */
+    public void play(Song first, double from) {
+        stopped = false;
+        PreparedSong current = takePrepared(first, from);
+        if (current == null) {
+            current = new PreparedSong(first, null, from, preloadSeconds, stdAudio.getSession());
+        }
+        float[] carry = null;
+        while (current != null && !stopped) {
+            prepareNextLater();
+            if (listener != null) {
+                listener.onSongChanged(current.song);
+            }
+            carry = playPrepared(current, carry);
+            current = await(nextSong());
+            if (current == null && !stopped) {
+                // a song may have been queued during the last note
+                current = prepareNext();
+            }
+            current = claim(current);
+        }
+        if (carry != null && !stopped) {
+            fadeOut(carry, 0);
+        }
+    }
+
+    /**
+     * Plays the passage of the given song from start to end, in seconds,
+     * over and over until stop() is called, beginning at the given time if
+     * it is in the passage, else at its start. Blocks until playing is
+     * finished; the playlist waits.
+     *
+     * @throws IllegalArgumentException if the passage is empty or not in the song
+     */
+    public void playLoop(Song song, double start, double end, double from) {
+        stopped = false;
+        AudioSession session = stdAudio.getSession();
+        LoopBuffer current = loop;
+        SampledInstrument instrument = session.getInstrument();
+        if (current == null
+              || !current.matches(song.getPlayOrder(), start, end, session.getConfig(), instrument)) {
+            current = LoopBuffer.render(song, start, end, session.getConfig(), instrument);
+            loop = current;
+        }
+        if (listener != null) {
+            listener.onSongChanged(song);
+        }
+        int sample = current.sampleAt(from);
+        while (!stopped && !session.isMuted()) {
+            current.play(session, sample);
+            sample = 0;
+        }
+    }
+
+    /**
+     * Stops playing after the current note; queued songs stay in the playlist.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /*
+     * Plays one prepared song, mixing the held back end of the previous song
+     * into its start. Returns the end of this song if it should be mixed
+     * into the next one, or null.
+     */
+    private float[] playPrepared(PreparedSong prepared, float[] carry) {
+        int sampleRate = stdAudio.getConfig().getSampleRate();
+        long fade = Math.min((long) (crossfadeSeconds * sampleRate), prepared.totalSamples / 2);
+        long holdStart = prepared.totalSamples - fade;
+        float[] tail = null;
+        boolean tailChecked = false;
+        long pos = 0;
+        List<Note> order = prepared.order;
+        for (int i = 0; i < order.size() && !stopped; i++) {
+            Note note = order.get(i);
+            nextSong();
+            if (i >= prepared.head.length) {
+                long length = stdAudio.getConfig().sampleCount(note.getDuration());
+                boolean mixed = (carry != null && pos < carry.length) || (fade > 0 && pos + length > holdStart);
+                if (!mixed) {
+                    // nothing to crossfade: stream the note without an array
+                    AudioSession session = stdAudio.getSession();
+                    if (prepared.render != null && session.getEffects().isEmpty()) {
+                        session.play(prepared.render, prepared.first + i);
+                    } else {
+                        stdAudio.play(note);
+                    }
+                    pos += length;
+                    continue;
+                }
+            }
+            float[] samples = i < prepared.head.length ? prepared.head[i] : stdAudio.getSession().render(note);
+            int n = samples.length;
+            if (carry != null && pos < carry.length) {
+                mixIn(samples, carry, pos);
+            }
+            int keep = n;
+            if (fade > 0 && pos + n > holdStart) {
+                if (!tailChecked) {
+                    tailChecked = true;
+                    if (await(nextSong()) != null) {
+                        tail = new float[(int) fade];
+                    }
+                }
+                if (tail != null) {
+                    keep = (int) Math.max(0, holdStart - pos);
+                    System.arraycopy(samples, keep, tail, (int) (pos + keep - holdStart), n - keep);
+                }
+            }
+            if (keep == n) {
+                stdAudio.play(note, samples, note.getDuration());
+            } else {
+                stdAudio.play(note, Arrays.copyOf(samples, keep), (double) keep / sampleRate);
+            }
+            pos += n;
+        }
+        if (carry != null && pos < carry.length && !stopped) {
+            // the previous song faded out for longer than this song lasted
+            fadeOut(carry, (int) pos);
+        }
+        return tail;
+    }
+
+    /*
+     * Starts preparing the song after the current one on the background
+     * thread.
+     */
+    private void prepareNextLater() {
+        nextHead = playlist.peek();
+        next = preloader.submit(this::prepareNext);
+    }
+
+    /*
+     * Returns the preparation of the song after the current one, starting
+     * it again if the playlist changed since it found nothing to prepare,
+     * so a song queued during playback is ready when the current one ends.
+     */
+    private Future<PreparedSong> nextSong() {
+        if (next.isDone() && !Objects.equals(nextHead, playlist.peek()) && await(next) == null) {
+            prepareNextLater();
+        }
+        return next;
+    }
+
+    /*
+     * Parses the next song of the playlist and synthesizes its start,
+     * leaving it in the playlist and dropping files that do not exist.
+     * Returns null if the playlist is empty.
+     */
+    private PreparedSong prepareNext() {
+        String filename;
+        while ((filename = playlist.peek()) != null) {
+            if (new File(filename).isFile()) {
+                return new PreparedSong(new Song(filename), filename, 0.0, preloadSeconds, stdAudio.getSession());
+            }
+            System.out.println("Skipping missing song " + filename);
+            playlist.remove(filename);
+        }
+        return null;
+    }
+
+    /*
+     * Takes a prepared song off the playlist as it is about to play.
+     * Returns null if playing was stopped, leaving it in the playlist; a
+     * song removed from the playlist meanwhile is not played, the song now
+     * first is prepared instead.
+     */
+    private PreparedSong claim(PreparedSong prepared) {
+        while (prepared != null && !stopped) {
+            if (playlist.remove(prepared.filename)) {
+                return prepared;
+            }
+            prepared = prepareNext();
+        }
+        return null;
+    }
+
+    /*
+     * Returns what prepare() synthesized if it is the given song from the
+     * given time and the song has not been changed since, or null.
+     */
+    private PreparedSong takePrepared(Song song, double from) {
+        Future<PreparedSong> future;
+        synchronized (this) {
+            future = warmSong == song ? warm : null;
+            warm = null;
+            warmSong = null;
+        }
+        PreparedSong prepared = future == null ? null : await(future);
+        if (prepared == null || prepared.from != from) {
+            return null;
+        }
+        List<Note> order = song.getPlayOrder();
+        // the song may have been transformed since
+        return prepared.order.equals(order.subList(firstNote(order, from), order.size())) ? prepared : null;
+    }
+
+    /*
+     * Returns the index of the note playing at the given time, or the
+     * number of notes if the time is past the end.
+     */
+    private static int firstNote(List<Note> order, double time) {
+        double end = 0.0;
+        for (int i = 0; i < order.size(); i++) {
+            end += order.get(i).getDuration();
+            if (end > time) {
+                return i;
+            }
+        }
+        return order.size();
+    }
+
+    /*
+     * Plays the remaining samples of a held back song end, fading them out.
+     */
+    private void fadeOut(float[] carry, int from) {
+        float[] rest = new float[carry.length - from];
+        for (int j = 0; j < rest.length; j++) {
+            rest[j] = PcmConverter.toFloat(carry[from + j] * (1.0 - (double) (from + j) / carry.length));
+        }
+        stdAudio.play(rest);
+    }
+
+    /*
+     * Crossfades the held back end of the previous song into the given
+     * samples, which start at position pos of the new song.
+     */
+    private static void mixIn(float[] samples, float[] carry, long pos) {
+        int len = (int) Math.min(samples.length, carry.length - pos);
+        for (int j = 0; j < len; j++) {
+            double gain = (double) (pos + j) / carry.length;
+            samples[j] = PcmConverter.toFloat(samples[j] * gain + carry[(int) pos + j] * (1.0 - gain));
+        }
+    }
+
+    /*
+     * Waits for a background preparation, returning null if it failed.
+     */
+    private static PreparedSong await(Future<PreparedSong> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.out.println("not able to prepare the next song: " + e.getCause());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlaylistPlayerTest {
+
+    private final StdAudio stdAudio = StdAudio.getInstance();
+    private AudioSink previous;
+
+    /*
+     * Captures what standard audio plays, a little slower than it can.
+     */
+    private static class SlowSink extends CaptureSink {
+        public void write(byte[] pcm, int off, int len) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(pcm, off, len);
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        System.setProperty("musicPlayer.sink", "none");
+    }
+
+    @Before
+    public void setUp() {
+        previous = stdAudio.setSink(new SlowSink());
+    }
+
+    @After
+    public void tearDown() {
+        stdAudio.setMute(false);
+        stdAudio.setSink(previous);
+    }
+
+    /**
+     * test method for {@link musicPlayer.PlaylistPlayer#stop()}: stopping
+     * during a song leaves the songs queued after it in the playlist, even
+     * the one prepared already; played to the end, the playlist is emptied
+     */
+    @Test
+    public void testStopKeepsQueue() throws InterruptedException {
+        Playlist playlist = new Playlist();
+        List<String> queued = Arrays.asList("birthday.txt", "testSong.txt");
+        for (String filename : queued) {
+            playlist.add(filename);
+        }
+        PlaylistPlayer player = new PlaylistPlayer(playlist);
+        CaptureSink sink = (CaptureSink) stdAudio.getSession().getSink();
+        Thread playing = new Thread(() -> player.play(new Song("GameOfThronesTheme.txt")));
+        playing.start();
+        // two seconds in, long after the next song was prepared
+        while (sink.getBytesWritten() < 2L * stdAudio.getConfig().sampleCount(1.0) * 2) {
+            Thread.sleep(10);
+        }
+        player.stop();
+        stdAudio.setMute(true);
+        playing.join(10000);
+        assertEquals(queued, playlist.getSongs());
+
+        stdAudio.setMute(false);
+        stdAudio.setSink(CaptureSink.discarding());
+        player.play(new Song("birthday.txt"));
+        assertTrue(playlist.isEmpty());
+    }
+
+    /**
+     * test method for {@link musicPlayer.PlaylistPlayer#play(Song)}: a song
+     * queued while the playlist is empty is parsed on the background thread
+     * before the current song ends, not by the playing thread between songs
+     */
+    @Test
+    public void testQueueDuringPlayback() throws Exception {
+        Playlist playlist = new Playlist();
+        PlaylistPlayer player = new PlaylistPlayer(playlist);
+        Song first = new Song("GameOfThronesTheme.txt");
+        player.setSongChangeListener(song -> {
+            if (song != first) {
+                player.stop();
+            }
+        });
+        CaptureSink sink = (CaptureSink) stdAudio.getSession().getSink();
+        File file = File.createTempFile("queue", ".jfr");
+        file.deleteOnExit();
+        try (Recording recording = new Recording()) {
+            recording.enable(FlightEvents.SongLoaded.class).withoutThreshold();
+            recording.start();
+            Thread playing = new Thread(() -> player.play(first));
+            playing.start();
+            while (sink.getBytesWritten() < stdAudio.getConfig().sampleCount(1.0) * 2) {
+                Thread.sleep(10);
+            }
+            playlist.add("birthday.txt");
+            playing.join(60000);
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+        assertTrue(playlist.isEmpty());
+
+        List<String> threads = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getEventType().getName().equals("musicPlayer.SongLoaded")
+                  && "birthday.txt".equals(event.getString("file"))) {
+                threads.add(event.getThread().getJavaName());
+            }
+        }
+        assertEquals(Collections.singletonList("playlist-preloader"), threads);
+    }
+}
@@ -0,0 +1,200 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the musicPlayer.ToneGenerator.Quality a musicPlayer.AudioSession
+ * synthesizes at, so that a busy machine plays slightly less pure sine waves
+ * instead of dropping out.
+ * <p>
+ * After every block the session reports how long it took to synthesize and
+ * how full the sink's buffer was. Synthesis time is compared with the time
+ * the block lasts: the load, smoothed over a few blocks. The quality steps
+ * down when the load passes HIGH_LOAD or the buffer runs low while playing,
+ * at most once per COOLDOWN_SECONDS of audio so each step can take effect,
+ * and steps back up after HEADROOM_SECONDS of audio with a low load and a
+ * well filled buffer. A session playing to a sink without a device buffer
+ * renders with no deadline, and keeps its quality.
+ * <p>
+ * Methods may be called from any thread; the reports come from the playing
+ * thread only.
+ */
+public class QualityController {
+
+    /**
+     * Load above which synthesis is too close to its deadline.
+     */
+    public static final double HIGH_LOAD = 0.5;
+
+    /**
+     * Load below which there is room for a better quality.
+     */
+    public static final double LOW_LOAD = 0.1;
+
+    /**
+     * Buffer fill below which the sink is about to run out.
+     */
+    public static final double LOW_FILL = 0.25;
+
+    /**
+     * Seconds of audio after a step before the next step down.
+     */
+    public static final double COOLDOWN_SECONDS = 0.25;
+
+    /**
+     * Seconds of audio with room to spare before a step up.
+     */
+    public static final double HEADROOM_SECONDS = 2.0;
+
+    private static final double SMOOTHING = 0.25; // weight of the newest block in the load
+    // a buffer that was not filled for this long was idle, not starved
+    private static final long IDLE_NANOS = 1000000000L;
+
+    private final int sampleRate;
+    private final PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+    private volatile boolean adaptive = true;
+    private volatile ToneGenerator.Quality quality = ToneGenerator.Quality.FULL;
+    private final AtomicLong downgrades = new AtomicLong();
+    private final AtomicLong upgrades = new AtomicLong();
+
+    // state of the playing thread
+    private double load = 0.0;
+    private double fill = 1.0;
+    private boolean realtime = false; // the sink has a device buffer
+    private boolean primed = false;  // the buffer has been full since playback started
+    private long lastFillNanos = 0;
+    private double sinceStep = COOLDOWN_SECONDS;
+    private double headroom = 0.0;
+
+    /**
+     * Creates a controller for synthesis at the given sample rate, at FULL
+     * quality.
+     */
+    public QualityController(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Returns the quality to synthesize at.
+     */
+    public ToneGenerator.Quality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Returns whether the quality follows the load; if not, it stays where
+     * it is.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Sets whether the quality follows the load. Turning it off keeps the
+     * current quality.
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Sets the quality, which adaptation then changes from.
+     */
+    public void setQuality(ToneGenerator.Quality quality) {
+        if (quality == null) {
+            throw new NullPointerException();
+        }
+        this.quality = quality;
+    }
+
+    /**
+     * Returns how many times the quality stepped down.
+     */
+    public long getDowngrades() {
+        return downgrades.get();
+    }
+
+    /**
+     * Returns how many times the quality stepped up.
+     */
+    public long getUpgrades() {
+        return upgrades.get();
+    }
+
+    /**
+     * Returns the smoothed load: synthesis time over block duration.
+     */
+    public synchronized double getLoad() {
+        return load;
+    }
+
+    /**
+     * Reports how full the sink was before a write: the bytes it could take
+     * out of its buffer size, 0 for sinks that are not devices.
+     */
+    public synchronized void sinkFill(int available, int bufferSize) {
+        realtime = bufferSize > 0;
+        if (!realtime) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastFillNanos > IDLE_NANOS) {
+            // playback (re)starts with an empty buffer: not a sign of load
+            primed = false;
+        }
+        lastFillNanos = now;
+        fill = 1.0 - (double) available / bufferSize;
+        if (fill >= 0.5) {
+            primed = true;
+        }
+    }
+
+    /**
+     * Reports that a block of the given number of samples took the given
+     * time to synthesize, and returns the quality of the next block.
+     */
+    public synchronized ToneGenerator.Quality rendered(long nanos, int samples) {
+        if (samples <= 0) {
+            return quality;
+        }
+        double seconds = (double) samples / sampleRate;
+        load += SMOOTHING * (nanos / (seconds * 1e9) - load);
+        sinceStep += seconds;
+        if (!adaptive || !realtime) {
+            return quality;
+        }
+        boolean starving = primed && fill < LOW_FILL;
+        if ((load > HIGH_LOAD || starving) && sinceStep >= COOLDOWN_SECONDS) {
+            step(quality.lower());
+        } else if (load < LOW_LOAD && !starving) {
+            headroom += seconds;
+            if (headroom >= HEADROOM_SECONDS) {
+                step(quality.higher());
+            }
+        } else {
+            headroom = 0.0;
+        }
+        return quality;
+    }
+
+    /*
+     * Moves to the given quality, counting the step.
+     */
+    private void step(ToneGenerator.Quality to) {
+        ToneGenerator.Quality from = quality;
+        sinceStep = 0.0;
+        headroom = 0.0;
+        if (to == from) {
+            return;
+        }
+        quality = to;
+        if (to.compareTo(from) > 0) {
+            downgrades.incrementAndGet();
+        } else {
+            upgrades.incrementAndGet();
+        }
+        metrics.qualityChanged(from, to);
+    }
+}
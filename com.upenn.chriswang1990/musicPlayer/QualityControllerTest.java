@@ -0,0 +1,102 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QualityControllerTest {
+
+    private static final int RATE = 44100;
+    private static final int BLOCK = 1024;
+    private static final long DEADLINE = 1000000000L * BLOCK / RATE; // nanoseconds a block lasts
+
+    /**
+     * test method for {@link musicPlayer.QualityController#rendered(long, int)}:
+     * slow blocks step the quality down one level per cooldown, fast ones
+     * step it back up after the headroom time, and only when playing to a
+     * device
+     */
+    @Test
+    public void testLoad() {
+        QualityController controller = new QualityController(RATE);
+        assertEquals(ToneGenerator.Quality.FULL, controller.rendered(DEADLINE, BLOCK));
+        controller.sinkFill(0, 1000);
+        assertEquals(ToneGenerator.Quality.FULL, controller.rendered(DEADLINE / 20, BLOCK));
+
+        int blocks = 0;
+        while (controller.getQuality() != ToneGenerator.Quality.QUARTER_RATE) {
+            controller.rendered(DEADLINE, BLOCK);
+            blocks++;
+        }
+        assertEquals(3, controller.getDowngrades());
+        // three steps, each after a cooldown
+        assertTrue(blocks * (double) BLOCK / RATE >= 2 * QualityController.COOLDOWN_SECONDS);
+        assertEquals(ToneGenerator.Quality.QUARTER_RATE, controller.rendered(2 * DEADLINE, BLOCK));
+        assertEquals(3, controller.getDowngrades());
+
+        int fast = 0;
+        while (controller.getQuality() != ToneGenerator.Quality.FULL) {
+            controller.rendered(0, BLOCK);
+            fast++;
+        }
+        assertEquals(3, controller.getUpgrades());
+        assertTrue(fast * (double) BLOCK / RATE >= 3 * QualityController.HEADROOM_SECONDS);
+    }
+
+    /**
+     * test method for {@link musicPlayer.QualityController#sinkFill(int, int)}:
+     * an empty buffer at the start is not starving, one that empties while
+     * playing is; fixed quality never changes
+     */
+    @Test
+    public void testFill() {
+        QualityController controller = new QualityController(RATE);
+        controller.sinkFill(1000, 1000);
+        assertEquals(ToneGenerator.Quality.FULL, controller.rendered(0, BLOCK));
+        controller.sinkFill(0, 1000);
+        assertEquals(ToneGenerator.Quality.FULL, controller.rendered(0, BLOCK));
+        controller.sinkFill(900, 1000);
+        assertEquals(ToneGenerator.Quality.TABLE, controller.rendered(0, BLOCK));
+        assertEquals(1, controller.getDowngrades());
+
+        controller.setAdaptive(false);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ToneGenerator.Quality.TABLE, controller.rendered(DEADLINE, BLOCK));
+        }
+        assertEquals(1, controller.getDowngrades());
+        assertEquals(0, controller.getUpgrades());
+    }
+
+    /**
+     * test method for {@link musicPlayer.ToneGenerator.Oscillator#setQuality}:
+     * the cheaper qualities stay close to the sine wave, whatever the blocks
+     */
+    @Test
+    public void testOscillatorQuality() {
+        float[] exact = ToneGenerator.sineFloat(440.0, 1.0, 0.5, RATE);
+        ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(RATE);
+        double[] tolerance = {0.0, 1e-6, 2e-3, 8e-3};
+        for (ToneGenerator.Quality quality : ToneGenerator.Quality.values()) {
+            float[] whole = render(oscillator, quality, exact.length);
+            float[] blocks = render(oscillator, quality, 333);
+            assertArrayEquals(quality.name(), whole, blocks, 0.0f);
+            for (int i = 0; i < exact.length; i++) {
+                assertEquals(quality.name(), exact[i], whole[i], tolerance[quality.ordinal()]);
+            }
+        }
+    }
+
+    private static float[] render(ToneGenerator.Oscillator oscillator, ToneGenerator.Quality quality, int block) {
+        oscillator.start(440.0, 1.0, 0.5);
+        oscillator.setQuality(quality);
+        float[] samples = new float[oscillator.remaining()];
+        for (int from = 0; from < samples.length; from += block) {
+            oscillator.next(samples, from, Math.min(samples.length, from + block));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,364 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Songs already synthesized, kept on disk as PCM so that playing them again
+ * only copies bytes from a memory mapped file to the sink.
+ * <p>
+ * A render is found by the SHA-256 of what synthesis depends on: the
+ * frequency and duration of every note in playing order and the
+ * musicPlayer.AudioConfig. Octave, tempo and reverse transforms are part of
+ * the key through the notes they produce, so a song transformed back to
+ * where it was finds its first render again.
+ * <p>
+ * A song that is not cached yet is rendered on a background thread, at full
+ * quality, while it plays the usual way. Each render is written to a
+ * temporary file and moved into place once complete, so a crash leaves at
+ * most a temporary file, deleted the next time the cache is opened; the
+ * header records the length of the PCM, so a damaged file is never played.
+ * <p>
+ * The cache holds at most maxBytes. The modification time of a render is
+ * bumped each time it is played, and the renders played least recently are
+ * deleted when a new one does not fit.
+ */
+public class RenderCache {
+
+    /**
+     * The size of the default cache, unless musicPlayer.cacheMB says otherwise.
+     */
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4D50434D; // "MPCM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    private static final String SUFFIX = ".pcm";
+    private static final int BLOCK_SIZE = 4096; // samples synthesized at a time
+
+    /**
+     * A cached song, mapped into memory, with where each of its notes starts.
+     */
+    public static final class Render {
+        private final ByteBuffer pcm;
+        private final List<Note> order;
+        private final long[] offsets; // offsets[i] is where note i starts, offsets[order.size()] the end
+
+        private Render(ByteBuffer pcm, List<Note> order, long[] offsets) {
+            this.pcm = pcm;
+            this.order = order;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Returns the number of notes of the song, in playing order.
+         */
+        public int getNoteCount() {
+            return order.size();
+        }
+
+        /**
+         * Returns the given note of the song, in playing order.
+         */
+        public Note getNote(int index) {
+            return order.get(index);
+        }
+
+        /**
+         * Returns the PCM of the given note, a view of the mapped file.
+         */
+        public ByteBuffer getPcm(int index) {
+            ByteBuffer slice = pcm.duplicate();
+            slice.limit((int) offsets[index + 1]).position((int) offsets[index]);
+            return slice;
+        }
+
+        /**
+         * Returns the PCM of the whole song.
+         */
+        public ByteBuffer getPcm() {
+            return pcm.duplicate();
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "render-cache");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final ConcurrentMap<String, Future<?>> pending = new ConcurrentHashMap<>();
+    private final PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+
+    /**
+     * Creates a cache in the given directory, created if needed, holding at
+     * most maxBytes. Renders left half written by a crash are deleted.
+     *
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public RenderCache(File directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Illegal cache size: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        directory.mkdirs();
+        File[] temps = directory.listFiles((dir, name) -> name.endsWith(".tmp"));
+        if (temps != null) {
+            for (File temp : temps) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates the cache in the directory named by musicPlayer.cache, or
+     * ~/.musicPlayer/cache, of musicPlayer.cacheMB megabytes, or
+     * DEFAULT_MAX_BYTES.
+     *
+     * @return the cache, or null if musicPlayer.cacheMB is 0
+     */
+    public static RenderCache openDefault() {
+        File directory = new File(System.getProperty("musicPlayer.cache",
+              System.getProperty("user.home") + File.separator + ".musicPlayer" + File.separator + "cache"));
+        String megabytes = System.getProperty("musicPlayer.cacheMB");
+        long maxBytes = megabytes == null ? DEFAULT_MAX_BYTES : Long.parseLong(megabytes) << 20;
+        return maxBytes == 0 ? null : new RenderCache(directory, maxBytes);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the bytes the renders take on disk.
+     */
+    public long getSize() {
+        long size = 0;
+        for (File file : renders()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the key of the given notes rendered in the given
+     * configuration: the SHA-256 of what their samples depend on, in hex.
+     */
+    public static String key(List<Note> order, AudioConfig config) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer fields = ByteBuffer.allocate(2 * Long.BYTES);
+        digest.update(("musicPlayer render " + VERSION + " " + config + " " + Note.AMPLITUDE)
+              .getBytes(StandardCharsets.UTF_8));
+        for (Note note : order) {
+            fields.clear();
+            fields.putLong(Double.doubleToLongBits(note.getFrequency()));
+            fields.putLong(Double.doubleToLongBits(note.getDuration()));
+            digest.update(fields.array());
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Returns the render of the given notes in the given configuration, or
+     * null if there is none yet, in which case it is rendered in the
+     * background for the next time.
+     */
+    public Render find(List<Note> order, AudioConfig config) {
+        Render render = lookup(order, config);
+        if (render != null) {
+            metrics.renderCacheHit();
+        } else {
+            metrics.renderCacheMiss();
+            renderLater(order, config);
+        }
+        return render;
+    }
+
+    /**
+     * Returns the render of the given notes in the given configuration, or
+     * null if there is none.
+     */
+    public Render lookup(List<Note> order, AudioConfig config) {
+        String key = key(order, config);
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        long[] offsets = offsets(order, config);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long length = offsets[offsets.length - 1];
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (channel.size() != HEADER_BYTES + length || header.getInt() != MAGIC || header.getInt() != VERSION
+                  || header.getInt() != config.getSampleRate() || header.getInt() != config.getFrameSize()
+                  || header.getLong() != length) {
+                System.out.println("deleting the damaged render " + file);
+                file.delete();
+                return null;
+            }
+            Render render = new Render(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, length),
+                  order, offsets);
+            file.setLastModified(System.currentTimeMillis());
+            return render;
+        } catch (IOException e) {
+            System.out.println("not able to read the render " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Renders the given notes in the given configuration into the cache on
+     * the background thread, unless they are cached or being rendered.
+     *
+     * @return completes once the render is in the cache, or was not needed
+     */
+    public Future<?> renderLater(List<Note> order, AudioConfig config) {
+        String key = key(order, config);
+        if (new File(directory, key + SUFFIX).isFile()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Note> notes = Arrays.asList(order.toArray(new Note[0]));
+        CompletableFuture<Void> rendered = new CompletableFuture<>();
+        Future<?> previous = pending.putIfAbsent(key, rendered);
+        if (previous != null) {
+            return previous;
+        }
+        renderer.execute(() -> {
+            try {
+                render(key, notes, config);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("not able to cache a render: " + e);
+            } finally {
+                pending.remove(key);
+                rendered.complete(null);
+            }
+        });
+        return rendered;
+    }
+
+    /*
+     * Synthesizes the notes into a temporary file with sine waves at full
+     * quality, a block at a time like musicPlayer.BatchConverter, so the
+     * render is not counted as played in the metrics. The file is forced to
+     * the disk before it is moved into place, so a crash never leaves a
+     * render whose header promises PCM that is not there.
+     */
+    private void render(String key, List<Note> order, AudioConfig config) throws IOException {
+        long[] offsets = offsets(order, config);
+        long length = offsets[offsets.length - 1];
+        if (HEADER_BYTES + length > maxBytes || length > Integer.MAX_VALUE) {
+            return;
+        }
+        File file = new File(directory, key + SUFFIX);
+        File temp = new File(directory, key + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(config.getSampleRate()).putInt(config.getFrameSize())
+                  .putLong(length).flip();
+            writeFully(channel, header);
+            ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(config.getSampleRate());
+            float[] block = new float[BLOCK_SIZE];
+            byte[] pcm = new byte[BLOCK_SIZE * config.getFrameSize()];
+            ByteBuffer out = ByteBuffer.wrap(pcm);
+            for (Note note : order) {
+                FlightEvents.NoteSynthesized event = new FlightEvents.NoteSynthesized();
+                event.begin();
+                oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+                int samples = oscillator.remaining();
+                int n;
+                while ((n = oscillator.next(block)) > 0) {
+                    out.clear().limit(PcmConverter.toPcm(block, 0, n, pcm, 0, config));
+                    writeFully(channel, out);
+                }
+                event.end(note, samples);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        evict(HEADER_BYTES + length);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /*
+     * Deletes the renders played least recently until the given number of
+     * bytes fits.
+     */
+    private synchronized void evict(long needed) {
+        File[] files = renders();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long size = needed;
+        for (File file : files) {
+            size += file.length();
+        }
+        for (int i = 0; i < files.length && size > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File[] renders() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        return files == null ? new File[0] : files;
+    }
+
+    /*
+     * Returns where each note starts in the PCM of the song, and where it
+     * ends.
+     */
+    private static long[] offsets(List<Note> order, AudioConfig config) {
+        long[] offsets = new long[order.size() + 1];
+        for (int i = 0; i < order.size(); i++) {
+            offsets[i + 1] = offsets[i] + (long) config.sampleCount(order.get(i).getDuration()) * config.getFrameSize();
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,141 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RenderCacheTest {
+
+    private File dir;
+    private RenderCache cache;
+    private final AudioConfig config = AudioConfig.DEFAULT;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("renders").toFile();
+        cache = new RenderCache(dir, 100L << 20);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * test method for {@link musicPlayer.AudioSession#play(Song)} with a
+     * render cache: the second play streams the same PCM from the cache,
+     * with the same note events, rendering it is not counted as playing,
+     * and a song transformed back to where it was finds its render again
+     */
+    @Test
+    public void testReplay() throws Exception {
+        Song song = new Song("birthday.txt");
+        PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+        long hits = metrics.getRenderCacheHits();
+        long played = metrics.getNotesPlayed();
+
+        CaptureSink synthesized = new CaptureSink();
+        AudioSession session = new AudioSession(synthesized, config);
+        session.setRenderCache(cache);
+        session.play(song);
+        cache.renderLater(song.getPlayOrder(), config).get();
+        assertEquals(hits, metrics.getRenderCacheHits());
+        // the background render is not counted as played
+        assertEquals(played + song.getPlayOrder().size(), metrics.getNotesPlayed());
+
+        CaptureSink replayed = new CaptureSink();
+        session = new AudioSession(replayed, config);
+        session.setRenderCache(cache);
+        AtomicInteger notes = new AtomicInteger();
+        session.addAudioEventListener(event -> notes.incrementAndGet());
+        session.play(song);
+        assertEquals(hits + 1, metrics.getRenderCacheHits());
+        assertArrayEquals(synthesized.toByteArray(), replayed.toByteArray());
+        assertEquals(song.getPlayOrder().size(), notes.get());
+
+        assertTrue(song.octaveUp());
+        assertNull(cache.lookup(song.getPlayOrder(), config));
+        assertTrue(song.octaveDown());
+        assertNotNull(cache.lookup(song.getPlayOrder(), config));
+        assertNull(cache.lookup(song.getPlayOrder(), new AudioConfig(48000, 16, 1)));
+
+        session.getEffects().add(BiquadFilter.lowPass(1000.0, config.getSampleRate()));
+        assertNull(session.findRender(song.getPlayOrder()));
+    }
+
+    /**
+     * test method for {@link musicPlayer.RenderCache#renderLater}: the cache
+     * never grows past its size, deleting the renders played least recently
+     */
+    @Test
+    public void testEviction() throws Exception {
+        List<Note> first = new Song("birthday.txt").getPlayOrder();
+        long renderBytes = render(first).length();
+        cache = new RenderCache(dir, renderBytes * 5 / 2);
+        Song second = new Song("birthday.txt");
+        second.octaveUp();
+        Song third = new Song("birthday.txt");
+        third.octaveDown();
+
+        File secondFile = render(second.getPlayOrder());
+        render(first).setLastModified(System.currentTimeMillis() - 60000);
+        secondFile.setLastModified(System.currentTimeMillis() - 120000);
+        // played again, so the first is now the most recent
+        assertNotNull(cache.lookup(first, config));
+        render(third.getPlayOrder());
+
+        assertFalse(secondFile.exists());
+        assertNotNull(cache.lookup(first, config));
+        assertNotNull(cache.lookup(third.getPlayOrder(), config));
+        assertTrue(cache.getSize() <= cache.getMaxBytes());
+    }
+
+    /**
+     * test method for {@link musicPlayer.RenderCache#lookup}: a render left
+     * half written by a crash is deleted when the cache opens, and a damaged
+     * render is never played
+     */
+    @Test
+    public void testDamagedRenders() throws Exception {
+        List<Note> order = new Song("birthday.txt").getPlayOrder();
+        File file = render(order);
+        File temp = new File(dir, RenderCache.key(order, config) + ".tmp");
+        Files.write(temp.toPath(), new byte[100]);
+        cache = new RenderCache(dir, 100L << 20);
+        assertFalse(temp.exists());
+        assertNotNull(cache.lookup(order, config));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        assertNull(cache.lookup(order, config));
+        assertFalse(file.exists());
+    }
+
+    /*
+     * Renders the notes into the cache, and returns the file.
+     */
+    private File render(List<Note> order) throws Exception {
+        cache.renderLater(order, config).get();
+        return new File(dir, RenderCache.key(order, config) + ".pcm");
+    }
+}
@@ -0,0 +1,130 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+
+/**
+ * A Schroeder reverb, with the damped combs of Jezar's Freeverb: four
+ * feedback comb filters in parallel give the dense tail of a room, two
+ * allpass filters in series smear its echoes together. The lengths of the
+ * filters are mutually prime at 44,100 Hz and scaled to the sample rate.
+ * <p>
+ * The room size sets how long the tail lasts, the damping how much quicker
+ * its high frequencies die away, and the mix how loud it is compared to
+ * the sound.
+ */
+public class ReverbEffect implements AudioEffect {
+
+    private static final int[] COMB_TUNING = {1116, 1188, 1277, 1356};
+    private static final int[] ALLPASS_TUNING = {556, 441};
+    private static final float ALLPASS_FEEDBACK = 0.5f;
+    private static final float INPUT_GAIN = 0.015f;
+    private static final float WET_SCALE = 3.0f;
+
+    private final float[][] combs = new float[COMB_TUNING.length][];
+    private final int[] combPositions = new int[COMB_TUNING.length];
+    private final float[] combStores = new float[COMB_TUNING.length]; // the damping low-pass of each comb
+    private final float[][] allpasses = new float[ALLPASS_TUNING.length][];
+    private final int[] allpassPositions = new int[ALLPASS_TUNING.length];
+    private volatile double roomSize;
+    private volatile double damping;
+    private volatile double mix;
+
+    /**
+     * Creates a reverb; every setting is in [0, 1].
+     *
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public ReverbEffect(double roomSize, double damping, double mix, int sampleRate) {
+        for (int i = 0; i < combs.length; i++) {
+            combs[i] = new float[scale(COMB_TUNING[i], sampleRate)];
+        }
+        for (int i = 0; i < allpasses.length; i++) {
+            allpasses[i] = new float[scale(ALLPASS_TUNING[i], sampleRate)];
+        }
+        setRoomSize(roomSize);
+        setDamping(damping);
+        setMix(mix);
+    }
+
+    public double getRoomSize() {
+        return roomSize;
+    }
+
+    public double getDamping() {
+        return damping;
+    }
+
+    public double getMix() {
+        return mix;
+    }
+
+    public void setRoomSize(double roomSize) {
+        this.roomSize = checkRange("room size", roomSize);
+    }
+
+    public void setDamping(double damping) {
+        this.damping = checkRange("damping", damping);
+    }
+
+    public void setMix(double mix) {
+        this.mix = checkRange("mix", mix);
+    }
+
+    public void process(float[] samples, int from, int to) {
+        float feedback = (float) (0.7 + 0.28 * roomSize);
+        float damp = (float) (0.4 * damping);
+        float wetGain = (float) mix * WET_SCALE;
+        float dryGain = 1.0f - (float) mix;
+        for (int i = from; i < to; i++) {
+            float x = samples[i];
+            float input = x * INPUT_GAIN;
+            float wet = 0.0f;
+            for (int c = 0; c < combs.length; c++) {
+                float[] comb = combs[c];
+                int p = combPositions[c];
+                float out = comb[p];
+                float store = AudioEffect.flushDenormal(out * (1.0f - damp) + combStores[c] * damp);
+                combStores[c] = store;
+                comb[p] = AudioEffect.flushDenormal(input + store * feedback);
+                combPositions[c] = p + 1 == comb.length ? 0 : p + 1;
+                wet += out;
+            }
+            for (int a = 0; a < allpasses.length; a++) {
+                float[] allpass = allpasses[a];
+                int p = allpassPositions[a];
+                float buffered = allpass[p];
+                allpass[p] = AudioEffect.flushDenormal(wet + buffered * ALLPASS_FEEDBACK);
+                allpassPositions[a] = p + 1 == allpass.length ? 0 : p + 1;
+                wet = buffered - wet;
+            }
+            samples[i] = x * dryGain + wet * wetGain;
+        }
+    }
+
+    public void reset() {
+        for (float[] comb : combs) {
+            Arrays.fill(comb, 0.0f);
+        }
+        for (float[] allpass : allpasses) {
+            Arrays.fill(allpass, 0.0f);
+        }
+        Arrays.fill(combStores, 0.0f);
+    }
+
+    public String getName() {
+        return "Reverb " + Math.round(roomSize * 100) + "%";
+    }
+
+    private static int scale(int samples, int sampleRate) {
+        return Math.max(1, (int) Math.round(samples * (double) sampleRate / 44100));
+    }
+
+    private static double checkRange(String name, double value) {
+        if (!(value >= 0.0 && value <= 1.0)) {
+            throw new IllegalArgumentException("Illegal " + name + ": " + value);
+        }
+        return value;
+    }
+}
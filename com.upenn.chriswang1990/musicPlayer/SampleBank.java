@@ -0,0 +1,364 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A directory of recorded notes in .wav files, the sound of a
+ * musicPlayer.SampledInstrument.
+ * <p>
+ * Each file is named after the note it plays, the way songs spell notes
+ * ("C_4_SHARP.wav"), in short ("C#4.wav", "Db4.wav") or as a MIDI key
+ * ("61.wav"); a file named otherwise is used if its smpl chunk gives its
+ * MIDI unity note. The first loop of the smpl chunk, if any, is where a note
+ * held longer than the recording is sustained.
+ * <p>
+ * The files are memory mapped, not read: the samples stay in the page cache
+ * and are decoded as they are played, so a bank costs no heap however large
+ * it is. Banks are shared: open() returns the same bank for the same
+ * directory to every song and instrument using it.
+ * <p>
+ * PCM of 8, 16, 24 or 32 bits is supported, and 32-bit float; the channels
+ * of a stereo file are mixed down.
+ */
+public final class SampleBank {
+
+    private static final int RIFF = 0x46464952; // "RIFF", little endian
+    private static final int WAVE = 0x45564157; // "WAVE"
+    private static final int FMT = 0x20746D66;  // "fmt "
+    private static final int DATA = 0x61746164; // "data"
+    private static final int SMPL = 0x6C706D73; // "smpl"
+    private static final int PCM_FORMAT = 1;
+    private static final int FLOAT_FORMAT = 3;
+    private static final int EXTENSIBLE_FORMAT = 0xFFFE;
+
+    private static final Pattern SONG_NAME = Pattern.compile("([A-G])[ _](\\d+)[ _](SHARP|FLAT|NATURAL)");
+    private static final Pattern SHORT_NAME = Pattern.compile("([A-G])([#sb]?)(\\d+)");
+    private static final Pattern KEY_NAME = Pattern.compile("\\d+");
+
+    private static final ConcurrentMap<File, SampleBank> BANKS = new ConcurrentHashMap<>();
+
+    /**
+     * A recorded note, mapped from its file.
+     */
+    public static final class Sample {
+        private final String name;
+        private final int key;
+        private final int sampleRate;
+        private final int frames;
+        private final int loopStart;
+        private final int loopEnd;
+        private final ByteBuffer data;
+        private final int channels;
+        private final int bytesPerSample;
+        private final boolean floating;
+
+        private Sample(String name, int key, int sampleRate, int channels, int bitDepth, boolean floating,
+                       ByteBuffer data, int loopStart, int loopEnd) {
+            this.name = name;
+            this.key = key;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.bytesPerSample = bitDepth / 8;
+            this.floating = floating;
+            this.data = data;
+            this.frames = data.capacity() / (channels * bytesPerSample);
+            this.loopStart = loopStart;
+            this.loopEnd = loopEnd;
+        }
+
+        /**
+         * Returns the name of the file.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the MIDI key the sample plays.
+         */
+        public int getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the frequency of the key the sample plays, in Hz.
+         */
+        public double getFrequency() {
+            return 440.0 * Math.pow(2, (key - 69) / 12.0);
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        /**
+         * Returns the number of samples, one per frame.
+         */
+        public int getLength() {
+            return frames;
+        }
+
+        /**
+         * Returns whether the sample has a loop to sustain long notes.
+         */
+        public boolean hasLoop() {
+            return loopEnd > loopStart;
+        }
+
+        /**
+         * Returns the first sample of the loop, or -1 if there is none.
+         */
+        public int getLoopStart() {
+            return hasLoop() ? loopStart : -1;
+        }
+
+        /**
+         * Returns the sample after the loop, or -1 if there is none.
+         */
+        public int getLoopEnd() {
+            return hasLoop() ? loopEnd : -1;
+        }
+
+        /**
+         * Returns the given sample, between -1.0 and +1.0, the channels mixed.
+         */
+        public float get(int frame) {
+            int offset = frame * channels * bytesPerSample;
+            if (channels == 1) {
+                return decode(offset);
+            }
+            float sum = 0.0f;
+            for (int c = 0; c < channels; c++) {
+                sum += decode(offset + c * bytesPerSample);
+            }
+            return sum / channels;
+        }
+
+        /*
+         * Decodes one sample of one channel at the given byte offset.
+         */
+        private float decode(int offset) {
+            switch (bytesPerSample) {
+                case 1:
+                    // 8-bit PCM is unsigned
+                    return ((data.get(offset) & 0xFF) - 128) / 128.0f;
+                case 2:
+                    return data.getShort(offset) / 32768.0f;
+                case 3:
+                    int value = (data.get(offset) & 0xFF) | (data.get(offset + 1) & 0xFF) << 8
+                          | data.get(offset + 2) << 16;
+                    return value / 8388608.0f;
+                default:
+                    return floating ? data.getFloat(offset) : data.getInt(offset) / 2147483648.0f;
+            }
+        }
+
+        public String toString() {
+            return name + " (key " + key + (hasLoop() ? ", loop " + loopStart + "-" + loopEnd : "") + ")";
+        }
+    }
+
+    private final File directory;
+    private final TreeMap<Integer, Sample> samples = new TreeMap<>();
+
+    /**
+     * Maps every .wav file of the given directory that names its note.
+     * Files that can't be read are skipped, with a message.
+     *
+     * @throws IllegalArgumentException if the directory has no such file
+     */
+    public SampleBank(File directory) {
+        this.directory = directory;
+        File[] files = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".wav"));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    Sample sample = map(file);
+                    if (sample == null) {
+                        System.out.println("no note in the name of the sample " + file);
+                    } else {
+                        samples.put(sample.key, sample);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("not able to read the sample " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Illegal sample bank: " + directory);
+        }
+    }
+
+    /**
+     * Returns the bank of the given directory, mapping it the first time.
+     *
+     * @throws IllegalArgumentException if the directory has no sample
+     */
+    public static SampleBank open(File directory) {
+        File key = directory.getAbsoluteFile();
+        try {
+            key = directory.getCanonicalFile();
+        } catch (IOException e) {
+            // the absolute path will do
+        }
+        return BANKS.computeIfAbsent(key, SampleBank::new);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the samples, from the lowest key to the highest.
+     */
+    public List<Sample> getSamples() {
+        return Collections.unmodifiableList(new ArrayList<>(samples.values()));
+    }
+
+    /**
+     * Returns the sample closest to the given MIDI key, the lower one of
+     * two as close.
+     */
+    public Sample nearest(int key) {
+        Map.Entry<Integer, Sample> below = samples.floorEntry(key);
+        Map.Entry<Integer, Sample> above = samples.ceilingEntry(key);
+        if (below == null) {
+            return above.getValue();
+        }
+        if (above == null || key - below.getKey() <= above.getKey() - key) {
+            return below.getValue();
+        }
+        return above.getValue();
+    }
+
+    /**
+     * Returns the MIDI key a sample file is named after, or -1.
+     */
+    public static int keyOf(String filename) {
+        String name = filename.replaceFirst("(?i)\\.wav$", "");
+        Matcher matcher = SONG_NAME.matcher(name);
+        if (matcher.matches()) {
+            return key(matcher.group(1), Integer.parseInt(matcher.group(2)),
+                  Accidental.getValueOf(matcher.group(3)));
+        }
+        matcher = SHORT_NAME.matcher(name);
+        if (matcher.matches()) {
+            String sign = matcher.group(2);
+            Accidental accidental = sign.isEmpty() ? Accidental.NATURAL
+                  : sign.equals("b") ? Accidental.FLAT : Accidental.SHARP;
+            return key(matcher.group(1), Integer.parseInt(matcher.group(3)), accidental);
+        }
+        if (KEY_NAME.matcher(name).matches() && name.length() <= 3) {
+            int key = Integer.parseInt(name);
+            return key <= 127 ? key : -1;
+        }
+        return -1;
+    }
+
+    public String toString() {
+        return "SampleBank{" + directory + ", " + samples.values() + "}";
+    }
+
+    /*
+     * Returns the MIDI key of the given spelled note, or -1 if it is not a
+     * note of the player.
+     */
+    private static int key(String pitch, int octave, Accidental accidental) {
+        if (octave < Note.OCTAVE_MIN || octave > Note.OCTAVE_MAX) {
+            return -1;
+        }
+        return Note.of(0.0, Pitch.getValueOf(pitch), octave, accidental, false).getMidiKey();
+    }
+
+    /*
+     * Maps a .wav file and finds its format, samples and loop. Returns null
+     * if it names no note.
+     */
+    private static Sample map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer wav = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                  .order(ByteOrder.LITTLE_ENDIAN);
+            if (wav.limit() < 12 || wav.getInt(0) != RIFF || wav.getInt(8) != WAVE) {
+                throw new IOException("not a .wav file");
+            }
+            int format = -1;
+            int channels = 0;
+            int sampleRate = 0;
+            int bitDepth = 0;
+            ByteBuffer data = null;
+            int unityNote = -1;
+            int loopStart = -1;
+            int loopEnd = -1;
+            int pos = 12;
+            while (pos + 8 <= wav.limit()) {
+                int id = wav.getInt(pos);
+                int size = wav.getInt(pos + 4);
+                int body = pos + 8;
+                if (size < 0 || body + size > wav.limit()) {
+                    // a truncated last chunk keeps what is there
+                    size = wav.limit() - body;
+                }
+                if (id == FMT && size >= 16) {
+                    format = wav.getShort(body) & 0xFFFF;
+                    channels = wav.getShort(body + 2);
+                    sampleRate = wav.getInt(body + 4);
+                    bitDepth = wav.getShort(body + 14);
+                    if (format == EXTENSIBLE_FORMAT && size >= 26) {
+                        format = wav.getShort(body + 24) & 0xFFFF;
+                    }
+                } else if (id == DATA) {
+                    ByteBuffer slice = wav.duplicate();
+                    slice.position(body).limit(body + size);
+                    data = slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+                } else if (id == SMPL && size >= 36) {
+                    unityNote = wav.getInt(body + 12);
+                    if (wav.getInt(body + 28) > 0 && size >= 60) {
+                        // the first loop; its end is the last sample played
+                        loopStart = wav.getInt(body + 36 + 8);
+                        loopEnd = wav.getInt(body + 36 + 12) + 1;
+                    }
+                }
+                pos = body + size + (size & 1);
+            }
+            if (data == null || channels <= 0 || sampleRate <= 0) {
+                throw new IOException("no fmt or data chunk");
+            }
+            boolean floating = format == FLOAT_FORMAT;
+            if (!(format == PCM_FORMAT && bitDepth >= 8 && bitDepth <= 32 && bitDepth % 8 == 0)
+                  && !(floating && bitDepth == 32)) {
+                throw new IOException("unsupported format " + format + ", " + bitDepth + " bits");
+            }
+            int key = keyOf(file.getName());
+            if (key < 0) {
+                key = unityNote >= 0 && unityNote <= 127 ? unityNote : -1;
+            }
+            if (key < 0) {
+                return null;
+            }
+            int frames = data.capacity() / (channels * bitDepth / 8);
+            if (loopStart < 0 || loopEnd > frames || loopEnd <= loopStart) {
+                loopStart = -1;
+                loopEnd = -1;
+            }
+            return new Sample(file.getName(), key, sampleRate, channels, bitDepth, floating, data, loopStart,
+                  loopEnd);
+        }
+    }
+}
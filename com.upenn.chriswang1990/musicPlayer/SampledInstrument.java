@@ -0,0 +1,211 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+
+/**
+ * Plays notes from recordings instead of sine waves: each note is the
+ * sample of a musicPlayer.SampleBank closest to it, resampled to its
+ * frequency and to the sample rate of the session with 4-point cubic
+ * interpolation, which keeps transposed samples free of the buzz of linear
+ * interpolation.
+ * <p>
+ * A note lasts exactly as long as a synthesized one, so it lines up with
+ * the rest of the player. A note longer than its sample holds in the loop
+ * of the sample if it has one, and is silent after the recording ends if
+ * not. The last milliseconds of every note fade out, so cutting it never
+ * clicks.
+ * <p>
+ * An instrument holds nothing but its bank and gain; the samples are read
+ * from the mapped files as they are played, so any number of instruments
+ * and songs can share a bank.
+ */
+public final class SampledInstrument {
+
+    /**
+     * How long the end of every note fades out, in seconds.
+     */
+    public static final double RELEASE_SECONDS = 0.005;
+
+    private final SampleBank bank;
+    private final double gain;
+
+    /**
+     * Renders one note after another from the samples of the instrument
+     * into blocks supplied by the caller, like a
+     * musicPlayer.ToneGenerator.Oscillator. A voice is used by one thread.
+     */
+    public final class Voice {
+        private final int sampleRate;
+        private SampleBank.Sample sample; // null for a rest
+        private double step;              // samples of the recording per sample played
+        private double position;          // in the recording
+        private int index;
+        private int length;
+        private int release;
+
+        private Voice(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        /**
+         * Returns the instrument the voice plays.
+         */
+        public SampledInstrument getInstrument() {
+            return SampledInstrument.this;
+        }
+
+        /**
+         * Starts the given note, dropping what is left of the previous one.
+         */
+        public void start(Note note) {
+            start(note.isRest() ? -1 : note.getMidiKey(), note.getFrequency(), note.getDuration());
+        }
+
+        /**
+         * Starts the sample of the given MIDI key at the given frequency
+         * (Hz) for the given duration (seconds); a frequency of 0 is a rest.
+         */
+        public void start(int key, double hz, double duration) {
+            this.sample = hz == 0.0 ? null : bank.nearest(key);
+            this.index = 0;
+            this.position = 0.0;
+            this.length = (int) (sampleRate * duration) + 1;
+            this.release = Math.min(length, (int) Math.round(RELEASE_SECONDS * sampleRate));
+            if (sample != null) {
+                step = hz / sample.getFrequency() * sample.getSampleRate() / sampleRate;
+            }
+        }
+
+        /**
+         * Returns the number of samples of the note not rendered yet.
+         */
+        public int remaining() {
+            return length - index;
+        }
+
+        /**
+         * Renders the next samples of the note into [from, to) of the block.
+         *
+         * @return the number of samples written, 0 once the note is over
+         */
+        public int next(float[] block, int from, int to) {
+            int n = Math.min(to - from, length - index);
+            SampleBank.Sample s = sample;
+            for (int j = 0; j < n; j++) {
+                float value = 0.0f;
+                if (s != null && position < s.getLength()) {
+                    int i = (int) position;
+                    double t = position - i;
+                    double y = hermite(at(s, i - 1), at(s, i), at(s, i + 1), at(s, i + 2), t) * gain;
+                    int left = length - index - j;
+                    if (left <= release) {
+                        y *= (double) left / (release + 1);
+                    }
+                    value = PcmConverter.toFloat(y);
+                    position += step;
+                    if (s.hasLoop() && position >= s.getLoopEnd()) {
+                        int loop = s.getLoopEnd() - s.getLoopStart();
+                        position -= loop * Math.floor((position - s.getLoopStart()) / loop);
+                    }
+                }
+                block[from + j] = value;
+            }
+            index += n;
+            return n;
+        }
+    }
+
+    /**
+     * Creates an instrument playing the samples of the given bank as they
+     * were recorded.
+     */
+    public SampledInstrument(SampleBank bank) {
+        this(bank, 1.0);
+    }
+
+    /**
+     * Creates an instrument playing the samples of the given bank, scaled
+     * by the given gain.
+     *
+     * @throws IllegalArgumentException if the gain is negative
+     */
+    public SampledInstrument(SampleBank bank, double gain) {
+        if (bank == null) {
+            throw new NullPointerException();
+        }
+        if (!(gain >= 0.0)) {
+            throw new IllegalArgumentException("Illegal gain: " + gain);
+        }
+        this.bank = bank;
+        this.gain = gain;
+    }
+
+    /**
+     * Creates the instrument of the bank in the directory named by
+     * musicPlayer.samples.
+     *
+     * @return the instrument, or null if musicPlayer.samples is not set
+     * @throws IllegalArgumentException if the directory has no sample
+     */
+    public static SampledInstrument fromSystemProperties() {
+        String directory = System.getProperty("musicPlayer.samples");
+        return directory == null ? null : new SampledInstrument(SampleBank.open(new File(directory)));
+    }
+
+    public SampleBank getBank() {
+        return bank;
+    }
+
+    public double getGain() {
+        return gain;
+    }
+
+    /**
+     * Returns a voice rendering at the given sample rate, with no note.
+     */
+    public Voice newVoice(int sampleRate) {
+        return new Voice(sampleRate);
+    }
+
+    /**
+     * Renders the samples of the given note at the given sample rate, as
+     * many as Note.renderFloat() synthesizes.
+     */
+    public float[] render(Note note, int sampleRate) {
+        long start = System.nanoTime();
+        Voice voice = new Voice(sampleRate);
+        voice.start(note);
+        float[] samples = new float[voice.remaining()];
+        voice.next(samples, 0, samples.length);
+        PlaybackMetrics.getInstance().synthesized(System.nanoTime() - start);
+        return samples;
+    }
+
+    public String toString() {
+        return "SampledInstrument{" + bank.getDirectory() + ", gain=" + gain + "}";
+    }
+
+    /*
+     * Returns the given sample of the recording, following the loop past its
+     * end, and silence outside the recording.
+     */
+    private static float at(SampleBank.Sample sample, int i) {
+        if (sample.hasLoop() && i >= sample.getLoopEnd()) {
+            i -= sample.getLoopEnd() - sample.getLoopStart();
+        }
+        return i < 0 || i >= sample.getLength() ? 0.0f : sample.get(i);
+    }
+
+    /*
+     * Returns the Catmull-Rom spline through y1 and y2 at t in [0, 1), shaped
+     * by their neighbours y0 and y3.
+     */
+    private static double hermite(double y0, double y1, double y2, double y3, double t) {
+        double c1 = 0.5 * (y2 - y0);
+        double c2 = y0 - 2.5 * y1 + 2.0 * y2 - 0.5 * y3;
+        double c3 = 0.5 * (y3 - y0) + 1.5 * (y1 - y2);
+        return ((c3 * t + c2) * t + c1) * t + y1;
+    }
+}
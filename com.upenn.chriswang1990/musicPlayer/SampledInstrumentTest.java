@@ -0,0 +1,220 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SampledInstrumentTest {
+
+    private static final int RATE = 44100;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("samples").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * test method for {@link musicPlayer.SampleBank#open(File)}: the files
+     * are mapped to the notes they are named after, or to the unity note of
+     * their smpl chunk, other files are skipped, and the bank of a directory
+     * is opened once
+     */
+    @Test
+    public void testBank() throws IOException {
+        writeSine("A_4_NATURAL.wav", 440.0, 0.1, RATE, -1, -1, -1);
+        writeSine("C5.wav", 523.25, 0.1, RATE, -1, -1, -1);
+        writeSine("Db3.wav", 138.59, 0.1, RATE, -1, -1, -1);
+        writeSine("48.wav", 130.81, 0.1, RATE, -1, -1, -1);
+        writeSine("piano.wav", 46.25, 0.1, RATE, 30, 100, 1099);
+        writeSine("unnamed.wav", 440.0, 0.1, RATE, -1, -1, -1);
+        Files.write(new File(dir, "broken.wav").toPath(), new byte[10]);
+
+        SampleBank bank = SampleBank.open(dir);
+        assertSame(bank, SampleBank.open(new File(dir, ".")));
+        List<Integer> keys = new ArrayList<>();
+        for (SampleBank.Sample sample : bank.getSamples()) {
+            keys.add(sample.getKey());
+        }
+        assertEquals(Arrays.asList(30, 48, 49, 69, 72), keys);
+        assertEquals(69, bank.nearest(70).getKey());
+        assertEquals(72, bank.nearest(71).getKey());
+        assertEquals(30, bank.nearest(0).getKey());
+        assertEquals(72, bank.nearest(131).getKey());
+
+        SampleBank.Sample piano = bank.nearest(30);
+        assertEquals(100, piano.getLoopStart());
+        assertEquals(1100, piano.getLoopEnd());
+        assertEquals(RATE / 10 + 1, piano.getLength());
+        assertEquals(-1, bank.nearest(69).getLoopStart());
+        assertEquals(61, SampleBank.keyOf("C#4.wav"));
+        assertEquals(61, SampleBank.keyOf("C 4 SHARP.wav"));
+        assertEquals(-1, SampleBank.keyOf("H4.wav"));
+    }
+
+    /**
+     * test method for {@link musicPlayer.SampledInstrument#render}: a note is
+     * its nearest sample resampled to its pitch and to the sample rate
+     * played, lasting as long as a synthesized note
+     */
+    @Test
+    public void testResampling() throws IOException {
+        writeSine("A4.wav", 440.0, 1.0, 22050, -1, -1, -1);
+        SampledInstrument instrument = new SampledInstrument(SampleBank.open(dir));
+
+        Note a4 = Note.of(0.5, Pitch.A, 4, Accidental.NATURAL, false);
+        float[] samples = instrument.render(a4, RATE);
+        assertEquals(a4.renderFloat(RATE).length, samples.length);
+        assertEquals(440.0, frequency(samples, RATE), 2.0);
+        assertEquals(0.5, peak(samples), 0.01);
+
+        Note e5 = Note.of(0.5, Pitch.E, 5, Accidental.NATURAL, false);
+        assertEquals(e5.getFrequency(), frequency(instrument.render(e5, RATE), RATE), 2.0);
+        float[] rest = instrument.render(Note.rest(0.1, false), RATE);
+        assertEquals(0.0, peak(rest), 0.0);
+    }
+
+    /**
+     * test method for {@link musicPlayer.SampledInstrument.Voice#next}: a
+     * note longer than its sample holds in the loop of the sample, and is
+     * silent after the recording without one; both fade out at the end
+     */
+    @Test
+    public void testSustain() throws IOException {
+        // 44 whole periods of 441 Hz, so the loop joins without a jump
+        writeSine("A4.wav", 441.0, 0.2, RATE, -1, 2000, 2000 + 44 * 100 - 1);
+        File other = Files.createTempDirectory("samples").toFile();
+        try {
+            File plain = new File(other, "A4.wav");
+            writeSine(plain, 441.0, 0.2, RATE, -1, -1, -1);
+            Note note = Note.of(1.0, Pitch.A, 4, Accidental.NATURAL, false);
+            float[] looped = new SampledInstrument(SampleBank.open(dir)).render(note, RATE);
+            float[] cut = new SampledInstrument(SampleBank.open(other)).render(note, RATE);
+
+            int from = RATE / 2;
+            int to = looped.length - RATE / 100;
+            assertTrue(peak(Arrays.copyOfRange(looped, from, to)) > 0.45);
+            assertEquals(0.0, peak(Arrays.copyOfRange(cut, from, to)), 0.0);
+            assertTrue(Math.abs(looped[looped.length - 1]) < 0.01);
+        } finally {
+            new File(other, "A4.wav").delete();
+            other.delete();
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.AudioSession#setInstrument}: a
+     * session plays the notes the instrument renders, a block at a time,
+     * and never from a render cache of sine waves
+     */
+    @Test
+    public void testSession() throws IOException {
+        writeSine("C4.wav", 261.63, 0.3, RATE, -1, 1000, 1000 + 10 * 337 - 1);
+        SampledInstrument instrument = new SampledInstrument(SampleBank.open(dir), 0.8);
+        Song song = new Song("birthday.txt");
+
+        CaptureSink streamed = new CaptureSink();
+        AudioSession session = new AudioSession(streamed);
+        session.setInstrument(instrument);
+        session.setRenderCache(new RenderCache(dir, 1L << 20));
+        assertNull(session.findRender(song.getPlayOrder()));
+        session.play(song);
+
+        CaptureSink rendered = new CaptureSink();
+        AudioSession plain = new AudioSession(rendered);
+        for (Note note : song.getPlayOrder()) {
+            plain.play(instrument.render(note, RATE));
+        }
+        plain.flush();
+        assertArrayEquals(rendered.toByteArray(), streamed.toByteArray());
+    }
+
+    /*
+     * Writes a 16-bit mono .wav of a sine wave at half scale, with a smpl
+     * chunk if unity, loopStart or loopEnd is not -1.
+     */
+    private void writeSine(String name, double hz, double seconds, int rate, int unity, int loopStart, int loopEnd)
+          throws IOException {
+        writeSine(new File(dir, name), hz, seconds, rate, unity, loopStart, loopEnd);
+    }
+
+    private static void writeSine(File file, double hz, double seconds, int rate, int unity, int loopStart,
+                                  int loopEnd) throws IOException {
+        float[] samples = ToneGenerator.sineFloat(hz, seconds, 0.5, rate);
+        boolean smpl = unity != -1 || loopStart != -1;
+        int dataSize = samples.length * 2;
+        int smplSize = smpl ? 60 : 0;
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + (smpl ? 8 + smplSize : 0) + 8 + dataSize)
+              .order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(wav.capacity() - 8).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1).putInt(rate)
+              .putInt(rate * 2).putShort((short) 2).putShort((short) 16);
+        if (smpl) {
+            wav.put("smpl".getBytes()).putInt(smplSize);
+            wav.putInt(0).putInt(0).putInt(1000000000 / rate).putInt(unity == -1 ? 60 : unity).putInt(0)
+                  .putInt(0).putInt(0).putInt(loopStart == -1 ? 0 : 1).putInt(0);
+            wav.putInt(0).putInt(0).putInt(Math.max(0, loopStart)).putInt(Math.max(0, loopEnd)).putInt(0)
+                  .putInt(0);
+        }
+        wav.put("data".getBytes()).putInt(dataSize);
+        for (float sample : samples) {
+            wav.putShort(PcmConverter.toShort(sample));
+        }
+        Files.write(file.toPath(), wav.array());
+    }
+
+    /*
+     * Estimates the frequency of a tone from how often it crosses zero
+     * upwards.
+     */
+    private static double frequency(float[] samples, int rate) {
+        int first = -1;
+        int last = -1;
+        int crossings = 0;
+        for (int i = 1; i < samples.length; i++) {
+            if (samples[i - 1] < 0.0f && samples[i] >= 0.0f) {
+                if (first < 0) {
+                    first = i;
+                } else {
+                    crossings++;
+                }
+                last = i;
+            }
+        }
+        return (double) crossings * rate / (last - first);
+    }
+
+    private static double peak(float[] samples) {
+        double max = 0.0;
+        for (float sample : samples) {
+            max = Math.max(max, Math.abs(sample));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,165 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers what the player was doing when it was closed, so the next start
+ * can pick up where it stopped: the song file, the transforms applied to it
+ * and the position. The session is a properties file, by default
+ * ~/.musicPlayer/session.properties, or the file named by the system
+ * property musicPlayer.session.
+ */
+public class SessionStore {
+
+    /**
+     * The state of the player worth restoring. Transforms are kept as their
+     * total effect, so they can be applied again in any order.
+     */
+    public static final class Session {
+        private final String path;
+        private final double tempo;
+        private final int octaves;
+        private final boolean reversed;
+        private final double position;
+
+        /**
+         * @param path     the song file
+         * @param tempo    product of the tempo ratios applied
+         * @param octaves  octaves up, negative for down
+         * @param reversed whether the song was reversed an odd number of times
+         * @param position seconds played
+         */
+        public Session(String path, double tempo, int octaves, boolean reversed, double position) {
+            if (path == null) {
+                throw new NullPointerException();
+            }
+            if (!(tempo > 0.0) || position < 0.0) {
+                throw new IllegalArgumentException("Illegal session: tempo " + tempo + ", position " + position);
+            }
+            this.path = path;
+            this.tempo = tempo;
+            this.octaves = octaves;
+            this.reversed = reversed;
+            this.position = position;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public double getTempo() {
+            return tempo;
+        }
+
+        public int getOctaves() {
+            return octaves;
+        }
+
+        public boolean isReversed() {
+            return reversed;
+        }
+
+        public double getPosition() {
+            return position;
+        }
+
+        /**
+         * Reads the song, which must exist, and applies the transforms of the
+         * session to it.
+         *
+         * @throws IllegalArgumentException if the octaves go out of range
+         */
+        public Song loadSong() {
+            Song song = new Song(path);
+            if (tempo != 1.0) {
+                song.changeTempo(tempo);
+            }
+            for (int i = 0; i < Math.abs(octaves); i++) {
+                if (!(octaves > 0 ? song.octaveUp() : song.octaveDown())) {
+                    throw new IllegalArgumentException("octave out of range: " + octaves);
+                }
+            }
+            if (reversed) {
+                song.reverse();
+            }
+            return song;
+        }
+    }
+
+    private final File file;
+
+    /**
+     * Creates a store of the file named by musicPlayer.session, or of
+     * ~/.musicPlayer/session.properties.
+     */
+    public SessionStore() {
+        this(new File(System.getProperty("musicPlayer.session",
+              System.getProperty("user.home") + File.separator + ".musicPlayer"
+                    + File.separator + "session.properties")));
+    }
+
+    /**
+     * Creates a store of the given file.
+     */
+    public SessionStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the session saved last, or null if there is none or it can't
+     * be read.
+     */
+    public Session load() {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+            String path = properties.getProperty("song");
+            if (path == null) {
+                return null;
+            }
+            return new Session(path,
+                  Double.parseDouble(properties.getProperty("tempo", "1.0")),
+                  Integer.parseInt(properties.getProperty("octaves", "0")),
+                  Boolean.parseBoolean(properties.getProperty("reversed", "false")),
+                  Double.parseDouble(properties.getProperty("position", "0.0")));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("not able to read the last session from " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the session, replacing the previous one at once so a crash
+     * never leaves half a file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    public void save(Session session) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("song", session.getPath());
+        properties.setProperty("tempo", Double.toString(session.getTempo()));
+        properties.setProperty("octaves", Integer.toString(session.getOctaves()));
+        properties.setProperty("reversed", Boolean.toString(session.isReversed()));
+        properties.setProperty("position", Double.toString(session.getPosition()));
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+            properties.store(out, "last session of the music player");
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
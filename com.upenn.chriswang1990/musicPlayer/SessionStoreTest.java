@@ -0,0 +1,93 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionStoreTest {
+
+    private File dir;
+    private SessionStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("session").toFile();
+        store = new SessionStore(new File(dir, "session.properties"));
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * test method for {@link musicPlayer.SessionStore#save(SessionStore.Session)}
+     * and {@link musicPlayer.SessionStore#load()}: the session reads back, and
+     * its song comes back transformed as it was
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        assertNull(store.load());
+        String path = new File("GameOfThronesTheme.txt").getAbsolutePath();
+        store.save(new SessionStore.Session(path, 0.5, -1, true, 12.25));
+
+        SessionStore.Session session = store.load();
+        assertEquals(path, session.getPath());
+        assertEquals(0.5, session.getTempo(), 0.0);
+        assertEquals(-1, session.getOctaves());
+        assertTrue(session.isReversed());
+        assertEquals(12.25, session.getPosition(), 0.0);
+        assertEquals(1, dir.listFiles().length);
+
+        Song expected = new Song("GameOfThronesTheme.txt");
+        expected.changeTempo(0.5);
+        expected.octaveDown();
+        expected.reverse();
+        Song restored = session.loadSong();
+        assertEquals(expected.getPlayOrder(), restored.getPlayOrder());
+        assertEquals(path, restored.getFileName());
+    }
+
+    /**
+     * test method for {@link musicPlayer.SessionStore#load()}: a damaged file is
+     * no session
+     */
+    @Test
+    public void testDamagedSession() throws IOException {
+        File file = new File(dir, "session.properties");
+        Files.write(file.toPath(), Collections.singletonList("song=a.txt\ntempo=fast"), StandardCharsets.UTF_8);
+        assertNull(store.load());
+        Files.write(file.toPath(), Collections.singletonList("tempo=1.0"), StandardCharsets.UTF_8);
+        assertNull(store.load());
+    }
+
+    /**
+     * test method for {@link musicPlayer.PlaylistPlayer#startOfNote(Song, double)}:
+     * playing resumes at the start of the note that was playing
+     */
+    @Test
+    public void testStartOfNote() {
+        Song song = new Song("testSong.txt");
+        double first = song.getPlayOrder().get(0).getDuration();
+        assertEquals(0.0, PlaylistPlayer.startOfNote(song, 0.0), 0.0);
+        assertEquals(0.0, PlaylistPlayer.startOfNote(song, first / 2), 0.0);
+        assertEquals(first, PlaylistPlayer.startOfNote(song, first), 1e-9);
+        double total = song.getTotalDuration();
+        assertEquals(total, PlaylistPlayer.startOfNote(song, total + 1.0), 1e-9);
+    }
+}
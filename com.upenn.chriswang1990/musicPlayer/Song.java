@@ -5,14 +5,21 @@ package musicPlayer;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
+/**
+ * A musicPlayer.Song is a title, an artist and the notes read from a song file.
+ * The transforms replace the array of notes instead of changing it, so a
+ * thread playing the song keeps the notes it started with.
+ */
 public class Song {
 
     private String title;
     private String artist;
+    private String filename; // null if the song was not read from a file
     private int numberofNotes;
-    private Note[] notes;
+    private volatile Note[] notes; // replaced, never changed, by the transforms
     private double totalDuration;
 
     /**
@@ -21,7 +28,10 @@ public class Song {
      * @param filename file name in directory
      */
     public Song(String filename) {
+        FlightEvents.SongLoaded event = new FlightEvents.SongLoaded();
+        event.begin();
 
+        this.filename = filename;
         File file = new File(filename);
         try {
             Scanner sc = new Scanner(file);
@@ -29,7 +39,7 @@ public class Song {
             this.artist = sc.nextLine();
             String dur = sc.nextLine();
             this.numberofNotes = Integer.parseInt(dur);
-            notes = new Note[numberofNotes];
+            Note[] parsed = new Note[numberofNotes];
 
             int i = 0;
             while (sc.hasNextLine()) {
@@ -39,8 +49,8 @@ public class Song {
                 if (noteStr.length == 3) {
                     double duration = Double.parseDouble(noteStr[0]);
                     boolean repeat = Boolean.parseBoolean(noteStr[2]);
-                    Note note = new Note(duration, repeat);
-                    notes[i] = note;
+                    Note note = Note.rest(duration, repeat);
+                    parsed[i] = note;
                     i++;
                 } else {
                     double duration = Double.parseDouble(noteStr[0]);
@@ -49,16 +59,58 @@ public class Song {
                     Accidental accidental = Accidental.getValueOf(noteStr[3]);
                     boolean repeat = Boolean.parseBoolean(noteStr[4]);
 
-                    Note note = new Note(duration, pitch, octave, accidental, repeat);
-                    notes[i] = note;
+                    Note note = Note.of(duration, pitch, octave, accidental, repeat);
+                    parsed[i] = note;
                     i++;
                 }//end if-else
             }//end while
             sc.close();
+            notes = parsed;
         }//end try
         catch (IOException e) {
             System.out.println(e.getMessage());
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.title = title;
+            event.notes = numberofNotes;
+            event.songDuration = notes == null ? 0.0 : getTotalDuration();
+            event.commit();
+        }
+    }
+
+    /**
+     * make a copy of a song that can be transformed without changing the
+     * original; both share the same immutable notes
+     *
+     * @param other the song to copy
+     */
+    public Song(Song other) {
+        this.title = other.title;
+        this.artist = other.artist;
+        this.filename = other.filename;
+        this.numberofNotes = other.numberofNotes;
+        this.notes = other.notes;
+    }
+
+    /*
+     * Makes a song of the given notes, which must not be changed afterwards.
+     */
+    Song(String title, String artist, Note[] notes) {
+        this.title = title;
+        this.artist = artist;
+        this.numberofNotes = notes.length;
+        this.notes = notes;
+    }
+
+    /*
+     * Returns the notes as stored, without the repeated section expanded.
+     * The array is shared and must not be changed.
+     */
+    Note[] getNotes() {
+        return notes;
     }
 
     /**
@@ -79,24 +131,34 @@ public class Song {
         return artist;
     }
 
+    /**
+     * get the name of the file the song was read from
+     *
+     * @return file name, or null if the song was not read from a file
+     */
+    public String getFileName() {
+        return filename;
+    }
+
     /**
      * calculate and return the total duration of the song
      *
      * @return double totalDuration
      */
     public double getTotalDuration() {
-        this.totalDuration = 0;
+        double totalDuration = 0;
         boolean repeatSection = false;
         for (Note note : notes) {
             if (note.isRepeat()) {
                 repeatSection = !repeatSection;
                 totalDuration += 2 * note.getDuration();
             } else if (repeatSection) {
-                this.totalDuration += 2 * note.getDuration();
+                totalDuration += 2 * note.getDuration();
             } else {
-                this.totalDuration += note.getDuration();
+                totalDuration += note.getDuration();
             }
         }
+        this.totalDuration = totalDuration;
         return totalDuration;
     }
 
@@ -104,28 +166,40 @@ public class Song {
      * play the song with the repeatable section
      */
     public void play() {
+        StdAudio.getInstance().play(this);
+    }
+
+    /**
+     * play the song with the repeatable section on the given session
+     *
+     * @param session the session to play on
+     */
+    public void play(AudioSession session) {
+        session.play(this);
+    }
+
+    /**
+     * get the notes in the order they are played, with the repeatable section
+     * expanded
+     *
+     * @return notes in playing order
+     */
+    public List<Note> getPlayOrder() {
+        Note[] notes = this.notes;
+        List<Note> order = new ArrayList<>(notes.length);
         boolean repeatSection = false;
-        ArrayList<Note> repeatNotes = new ArrayList<>();
+        int repeatStart = 0;
         for (Note note : notes) {
+            order.add(note);
             if (note.isRepeat() && !repeatSection) {
-                note.play();
-                repeatNotes.add(note);
+                repeatStart = order.size() - 1;
                 repeatSection = true;
             } else if (note.isRepeat() && repeatSection) {
-                note.play();
-                repeatNotes.add(note);
-                for (Note repeatNote : repeatNotes) {
-                    repeatNote.play();
-                }
+                order.addAll(new ArrayList<>(order.subList(repeatStart, order.size())));
                 repeatSection = false;
-                repeatNotes.clear();
-            } else if (repeatSection) {
-                note.play();
-                repeatNotes.add(note);
-            } else {
-                note.play();
             }
         }
+        return order;
     }
 
     /**
@@ -134,21 +208,25 @@ public class Song {
      *
      * @return boolean
      */
-    public boolean octaveDown() {
+    public synchronized boolean octaveDown() {
+        FlightEvents.TransformApplied event = new FlightEvents.TransformApplied();
+        event.begin();
+        Note[] notes = this.notes;
         for (Note i : notes) {
             if (!i.isRest()) {
                 int octave = i.getOctave();
                 if (octave == 1) {
+                    commit(event, "octaveDown", -1, false);
                     return false;
                 }
             }
         }
-        for (Note i : notes) {
-            if (!i.isRest()) {
-                int octave = i.getOctave();
-                i.setOctave(octave - 1);
-            }
+        Note[] moved = new Note[notes.length];
+        for (int i = 0; i < notes.length; i++) {
+            moved[i] = notes[i].isRest() ? notes[i] : notes[i].withOctave(notes[i].getOctave() - 1);
         }
+        this.notes = moved;
+        commit(event, "octaveDown", -1, true);
         return true;
     }
 
@@ -158,21 +236,25 @@ public class Song {
      *
      * @return boolean
      */
-    public boolean octaveUp() {
+    public synchronized boolean octaveUp() {
+        FlightEvents.TransformApplied event = new FlightEvents.TransformApplied();
+        event.begin();
+        Note[] notes = this.notes;
         for (Note i : notes) {
             if (!i.isRest()) {
                 int octave = i.getOctave();
                 if (octave == 10) {
+                    commit(event, "octaveUp", 1, false);
                     return false;
                 }
             }
         }
-        for (Note i : notes) {
-            if (!i.isRest()) {
-                int octave = i.getOctave();
-                i.setOctave(octave + 1);
-            }
+        Note[] moved = new Note[notes.length];
+        for (int i = 0; i < notes.length; i++) {
+            moved[i] = notes[i].isRest() ? notes[i] : notes[i].withOctave(notes[i].getOctave() + 1);
         }
+        this.notes = moved;
+        commit(event, "octaveUp", 1, true);
         return true;
     }
 
@@ -181,23 +263,47 @@ public class Song {
      *
      * @param ratio the ratio to multiply on current note duration to change play speed
      */
-    public void changeTempo(double ratio) {
-        for (Note i : notes) {
-            double dur = i.getDuration();
-            i.setDuration(dur * ratio);
+    public synchronized void changeTempo(double ratio) {
+        FlightEvents.TransformApplied event = new FlightEvents.TransformApplied();
+        event.begin();
+        Note[] notes = this.notes;
+        Note[] scaled = new Note[notes.length];
+        for (int i = 0; i < notes.length; i++) {
+            double dur = notes[i].getDuration();
+            scaled[i] = notes[i].withDuration(dur * ratio);
         }
+        this.notes = scaled;
+        commit(event, "changeTempo", ratio, true);
     }
 
     /**
-     * reverse the song by exchanging notes
+     * reverse the song by putting the notes in reverse order
      */
-    public void reverse() {
-        Note note;
+    public synchronized void reverse() {
+        FlightEvents.TransformApplied event = new FlightEvents.TransformApplied();
+        event.begin();
+        Note[] notes = this.notes;
         int len = notes.length;
-        for (int i = 0; i < len / 2; i++) {
-            note = notes[i];
-            notes[i] = notes[len - 1 - i];
-            notes[len - 1 - i] = note;
+        Note[] reversed = new Note[len];
+        for (int i = 0; i < len; i++) {
+            reversed[i] = notes[len - 1 - i];
+        }
+        this.notes = reversed;
+        commit(event, "reverse", 0, true);
+    }
+
+    /*
+     * Records a finished transform in the flight recorder, if it is recording.
+     */
+    private void commit(FlightEvents.TransformApplied event, String transform, double argument,
+                        boolean applied) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.transform = transform;
+            event.argument = argument;
+            event.notes = notes.length;
+            event.applied = applied;
+            event.commit();
         }
     }
 
@@ -206,15 +312,14 @@ public class Song {
      */
     @Override
     public String toString() {
-        String songInfo = "Title: " + this.title;
-        songInfo += "\nArtist: " + this.artist;
-        songInfo += "\nTotal duration: " + this.getTotalDuration();
-        songInfo += "\nScientific pitch notation:";
+        StringBuilder songInfo = new StringBuilder("Title: " + this.title);
+        songInfo.append("\nArtist: ").append(this.artist);
+        songInfo.append("\nTotal duration: ").append(this.getTotalDuration());
+        songInfo.append("\nScientific pitch notation:");
         for (Note note : notes) {
-            songInfo += "\n" + note.toString();
+            songInfo.append("\n").append(note.toString());
         }
-        //songInfo += "\n" + Arrays.toString(notes);
-        return songInfo;
+        return songInfo.toString();
     }
 
 }
@@ -0,0 +1,282 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server streaming rendered songs to other local processes,
+ * so they can play songs without a sound card of their own.
+ * <p>
+ * GET /songs lists the songs of the directory; GET /songs/NAME streams the
+ * song NAME.txt. The query string takes the transforms of the player:
+ * octave=N moves the song N octaves up (down if negative), tempo=RATIO
+ * multiplies every note duration and reverse=true plays it backwards.
+ * format=wav (the default) sends a .wav file, format=pcm the bare samples.
+ * rate=HZ, bits=8|16|24 and channels=N choose the musicPlayer.AudioConfig,
+ * 44,100 Hz 16-bit mono by default.
+ * <p>
+ * On JDK 21 and later every request runs on its own virtual thread; before
+ * that, on a pool of MAX_PLATFORM_THREADS platform threads, the requests
+ * beyond them waiting for one to finish. A request renders note by note
+ * straight into the chunked response, so the first bytes leave as soon as
+ * the song is parsed and a slow client simply slows down the rendering of
+ * its own stream. For the same reason the .wav header doesn't know the
+ * length of the stream and gives the largest one instead, as streamed .wav
+ * files do; the X-Audio-Duration header tells the seconds the song lasts.
+ */
+public class SongServer implements AutoCloseable {
+
+    private static final int BACKLOG = 4096;
+
+    /**
+     * Number of requests served at once on a JDK without virtual threads.
+     */
+    public static final int MAX_PLATFORM_THREADS = 64;
+
+    private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+    private final File songDir;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, CachedSong> songs = new ConcurrentHashMap<>();
+
+    /*
+     * A parsed song and the modification time of its file when it was parsed.
+     */
+    private static class CachedSong {
+        private final Song song;
+        private final long lastModified;
+
+        CachedSong(Song song, long lastModified) {
+            this.song = song;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Starts serving the songs of the given directory on the loopback
+     * interface.
+     *
+     * @param songDir directory of .txt song files
+     * @param port    port to listen on, 0 for any free port
+     * @throws IOException if the port can't be bound
+     */
+    public SongServer(File songDir, int port) throws IOException {
+        this.songDir = songDir;
+        this.executor = AudioEngine.newVirtualThreadExecutor("song-server", MAX_PLATFORM_THREADS);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/songs", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Runs the server until the process is killed.
+     * Usage: java musicPlayer.SongServer songDir [port]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java musicPlayer.SongServer songDir [port]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        SongServer server = new SongServer(new File(args[0]), port);
+        System.out.println("Serving songs from " + args[0] + " on http://127.0.0.1:"
+              + server.getPort() + "/songs/");
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and ends the streams in progress.
+     */
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /*
+     * Serves one request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "only GET is supported");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/songs") || path.equals("/songs/")) {
+                listSongs(exchange);
+                return;
+            }
+            String name = path.substring("/songs/".length());
+            if (!name.matches("[A-Za-z0-9._-]+") || name.startsWith(".")) {
+                sendError(exchange, 404, "no such song");
+                return;
+            }
+            Song song;
+            try {
+                song = load(name);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 422, "bad song file");
+                return;
+            }
+            if (song == null) {
+                sendError(exchange, 404, "no such song");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String format = query.getOrDefault("format", "wav");
+            if (!format.equals("wav") && !format.equals("pcm")) {
+                sendError(exchange, 400, "format must be wav or pcm");
+                return;
+            }
+            AudioConfig config;
+            try {
+                config = new AudioConfig(
+                      Integer.parseInt(query.getOrDefault("rate", String.valueOf(AudioConfig.DEFAULT.getSampleRate()))),
+                      Integer.parseInt(query.getOrDefault("bits", String.valueOf(AudioConfig.DEFAULT.getBitDepth()))),
+                      Integer.parseInt(query.getOrDefault("channels", String.valueOf(AudioConfig.DEFAULT.getChannels()))));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "bad audio format: " + e.getMessage());
+                return;
+            }
+            try {
+                BatchConverter.applyTransforms(song,
+                      Integer.parseInt(query.getOrDefault("octave", "0")),
+                      BatchConverter.checkTempo(Double.parseDouble(query.getOrDefault("tempo", "1.0"))),
+                      Boolean.parseBoolean(query.getOrDefault("reverse", "false")));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "bad transform: " + e.getMessage());
+                return;
+            }
+            stream(exchange, song, config, format.equals("wav"));
+        } catch (UncheckedIOException e) {
+            // the client went away in the middle of the stream
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * Sends the names of the songs, one per line.
+     */
+    private void listSongs(HttpExchange exchange) throws IOException {
+        String[] files = songDir.list((dir, name) -> name.endsWith(".txt"));
+        StringBuilder names = new StringBuilder();
+        if (files != null) {
+            Arrays.sort(files);
+            for (String file : files) {
+                names.append(file, 0, file.length() - ".txt".length()).append('\n');
+            }
+        }
+        byte[] body = names.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /*
+     * Renders the song into a chunked response.
+     */
+    private void stream(HttpExchange exchange, Song song, AudioConfig config, boolean wav) throws IOException {
+        if (wav) {
+            exchange.getResponseHeaders().set("Content-Type", "audio/wav");
+        } else {
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().set("X-Audio-Format",
+                  (config.getBitDepth() == 8 ? "pcm_u8" : "pcm_s" + config.getBitDepth() + "le")
+                        + ";rate=" + config.getSampleRate() + ";channels=" + config.getChannels());
+        }
+        exchange.getResponseHeaders().set("X-Audio-Duration", String.valueOf(song.getTotalDuration()));
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream body = exchange.getResponseBody();
+        if (wav) {
+            body.write(WavWriter.header(UNKNOWN_SIZE, config));
+        }
+        AudioSession session = new AudioSession(new StreamSink(body), config);
+        session.play(song);
+        session.close();
+    }
+
+    /*
+     * Returns a private copy of the named song, parsing the file only if it
+     * changed since it was last parsed, or null if there is no such song.
+     * Throws an IllegalArgumentException if the file is not a song.
+     */
+    private Song load(String name) {
+        File file = new File(songDir, name + ".txt");
+        if (!file.isFile()) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        CachedSong cached = songs.get(name);
+        if (cached == null || cached.lastModified != lastModified) {
+            cached = new CachedSong(parse(file), lastModified);
+            songs.put(name, cached);
+        }
+        return new Song(cached.song);
+    }
+
+    /*
+     * Parses a song file, checking it holds as many notes as it says.
+     */
+    private static Song parse(File file) {
+        Song song;
+        try {
+            song = new Song(file.getPath());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Illegal song file: " + file, e);
+        }
+        Note[] notes = song.getNotes();
+        if (notes == null || Arrays.asList(notes).contains(null)) {
+            throw new IllegalArgumentException("Illegal song file: " + file);
+        }
+        return song;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                      URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
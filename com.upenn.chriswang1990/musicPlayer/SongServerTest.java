@@ -0,0 +1,111 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SongServerTest {
+
+    private File dir;
+    private SongServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("songs").toFile();
+        Files.copy(new File("birthday.txt").toPath(), new File(dir, "birthday.txt").toPath());
+        // says 3 notes, has 1
+        Files.write(new File(dir, "short.txt").toPath(),
+              Arrays.asList("title", "artist", "3", "0.5 C 4 NATURAL false"), StandardCharsets.UTF_8);
+        Files.write(new File(dir, "garbled.txt").toPath(),
+              Arrays.asList("title", "artist", "many"), StandardCharsets.UTF_8);
+        server = new SongServer(dir, 0);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * test method for {@link musicPlayer.SongServer}: /songs lists the songs
+     * of the directory and /songs/NAME streams the PCM a session plays,
+     * after a .wav header or bare
+     */
+    @Test
+    public void testStream() throws IOException {
+        HttpURLConnection list = open("/songs");
+        assertEquals(200, list.getResponseCode());
+        assertEquals("birthday\ngarbled\nshort\n", new String(read(list), StandardCharsets.UTF_8));
+
+        Song song = new Song("birthday.txt");
+        CaptureSink expected = new CaptureSink();
+        new AudioSession(expected).play(song);
+
+        HttpURLConnection pcm = open("/songs/birthday?format=pcm");
+        assertEquals(200, pcm.getResponseCode());
+        assertEquals("pcm_s16le;rate=44100;channels=1", pcm.getHeaderField("X-Audio-Format"));
+        assertEquals(song.getTotalDuration(), Double.parseDouble(pcm.getHeaderField("X-Audio-Duration")), 0.0);
+        assertArrayEquals(expected.toByteArray(), read(pcm));
+
+        HttpURLConnection wav = open("/songs/birthday");
+        assertEquals(200, wav.getResponseCode());
+        assertEquals("audio/wav", wav.getContentType());
+        byte[] body = read(wav);
+        assertEquals("RIFF", new String(body, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(expected.getBytesWritten() + 44, body.length);
+        assertArrayEquals(expected.toByteArray(), Arrays.copyOfRange(body, 44, body.length));
+    }
+
+    /**
+     * test method for {@link musicPlayer.SongServer}: requests the server
+     * can't serve are answered with an error instead of a reset connection
+     */
+    @Test
+    public void testErrors() throws IOException {
+        assertEquals(404, open("/songs/missing").getResponseCode());
+        assertEquals(404, open("/songs/..%2Fbirthday").getResponseCode());
+        assertEquals(400, open("/songs/birthday?format=mp3").getResponseCode());
+        assertEquals(400, open("/songs/birthday?bits=12").getResponseCode());
+        for (String tempo : new String[]{"0", "-1", "NaN", "Infinity", "17", "fast"}) {
+            assertEquals(tempo, 400, open("/songs/birthday?tempo=" + tempo).getResponseCode());
+        }
+        assertEquals(422, open("/songs/short").getResponseCode());
+        assertEquals(422, open("/songs/garbled").getResponseCode());
+        assertEquals(200, open("/songs/birthday?tempo=2").getResponseCode());
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    private static byte[] read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -2,6 +2,8 @@
 
 package musicPlayer;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -201,4 +203,23 @@ public class SongTest {
         assertEquals(songInfo, song.toString());
     }
 
+    /**
+     * test method for {@link musicPlayer.Song#getPlayOrder()}
+     */
+    @Test
+    public void testGetPlayOrder() {
+        List<Note> order = song.getPlayOrder();
+        assertEquals(12, order.size());
+        assertEquals("0.5 C 5 NATURAL true", order.get(4).toString());
+        assertEquals("0.5 C 6 NATURAL true", order.get(7).toString());
+        assertEquals("0.5 C 5 NATURAL true", order.get(8).toString());
+        assertEquals("0.5 C 6 NATURAL true", order.get(11).toString());
+
+        double duration = 0;
+        for (Note note : order) {
+            duration += note.getDuration();
+        }
+        assertEquals(song.getTotalDuration(), duration, 0.0);
+    }
+
 }
@@ -23,20 +23,22 @@ package musicPlayer;
  * - Assumes the audio is monaural, with sampling rate of 44,100.
  *************************************************************************/
 
-import java.util.HashSet;
-import java.util.Set;
-
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.SourceDataLine;
-
 /**
  * <i>Standard audio</i>. This class provides a basic capability for creating,
  * reading, and saving audio.
  * <p>
  * The audio format uses a sampling rate of 44,100 (CD quality audio), 16-bit,
- * monaural.
+ * monaural, unless the system property musicPlayer.audio asks for another
+ * musicPlayer.AudioConfig, for example -DmusicPlayer.audio=22050/16/1.
+ * The sound card is not opened when this class is loaded but by open(), in
+ * the background, or at the latest by the first sample played.
+ * With -DmusicPlayer.sink=none the sound card is not opened and the samples
+ * are discarded until setSink() gives another sink, so songs can be played
+ * on machines without an audio device, such as in tests.
+ * <p>
+ * musicPlayer.StdAudio is the process-wide player of the GUI: it forwards to one
+ * musicPlayer.AudioSession playing to the sound card. Code that needs several
+ * independent players creates its own sessions with a musicPlayer.AudioEngine.
  *
  * <p>
  * For additional documentation, see <a
@@ -50,18 +52,8 @@ public final class StdAudio {
      */
     public static final int SAMPLE_RATE = 44100;
 
-    private static final int BYTES_PER_SAMPLE = 2; // 16-bit audio
-    private static final int BITS_PER_SAMPLE = 16; // 16-bit audio
-    private static final double MAX_16_BIT = Short.MAX_VALUE; // 32,767
-    private static final int SAMPLE_BUFFER_SIZE = 4096;
-
-    private static SourceDataLine line; // to play the sound
-    private static byte[] buffer; // our internal buffer
-    private static int bufferSize = 0; // number of samples currently in
-    // internal buffer
-    private static boolean muted = false;
-    private static boolean paused = false;
-    private static Set<AudioEventListener> listeners;
+    private static AudioSession session; // plays to the sound card
+    private static DeferredLineSink line;  // null if not playing to the sound card
 
     // static initializer
     static {
@@ -100,6 +92,13 @@ public final class StdAudio {
             return duration;
         }
 
+        /**
+         * Returns the note played, or null if the event is not about a note.
+         */
+        public Note getNote() {
+            return note;
+        }
+
         public Type getType() {
             return type;
         }
@@ -116,36 +115,64 @@ public final class StdAudio {
     }
 
     public void addAudioEventListener(AudioEventListener listener) {
-        listeners.add(listener);
+        session.addAudioEventListener(listener);
     }
 
     // open up an audio stream
     private static void init() {
         try {
-            // 44,100 samples per second, 16-bit audio, mono, signed PCM, little
-            // Endian
-            AudioFormat format = new AudioFormat((float) SAMPLE_RATE, BITS_PER_SAMPLE, 1, true,
-                  false);
-            DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-
-            line = (SourceDataLine) AudioSystem.getLine(info);
-            line.open(format, SAMPLE_BUFFER_SIZE * BYTES_PER_SAMPLE);
-
-            // the internal buffer is a fraction of the actual buffer size, this
-            // choice is arbitrary
-            // it gets divided because we can't expect the buffered data to line
-            // up exactly with when
-            // the sound card decides to push out its samples.
-            buffer = new byte[SAMPLE_BUFFER_SIZE * BYTES_PER_SAMPLE / 3];
-            listeners = new HashSet<>();
+            AudioConfig config = AudioConfig.fromSystemProperties();
+            if (!"none".equals(System.getProperty("musicPlayer.sink"))) {
+                line = new DeferredLineSink(config);
+            }
+            session = new AudioSession(line != null ? line : CaptureSink.discarding(), config);
         } catch (Exception e) {
             System.err.println("Error initializing musicPlayer.StdAudio audio system:");
             e.printStackTrace();
             System.exit(1);
         }
+    }
+
+    /**
+     * Starts opening the sound card in the background, so the first note
+     * does not wait for it. Returns at once.
+     */
+    public void open() {
+        if (line != null) {
+            line.open();
+        }
+    }
+
+    /**
+     * Returns the session this class forwards to.
+     */
+    public AudioSession getSession() {
+        return session;
+    }
 
-        // no sound gets made before this call
-        line.start();
+    /**
+     * Plays to the given sink from now on, in the configuration of standard
+     * audio, after sending the samples waiting to the previous sink. Must not
+     * be called while a song is playing.
+     *
+     * @return the previous sink, which is not closed
+     */
+    public AudioSink setSink(AudioSink sink) {
+        return session.setSink(sink);
+    }
+
+    /**
+     * Sends the samples waiting in the internal buffer to the sink.
+     */
+    public void flush() {
+        session.flush();
+    }
+
+    /**
+     * Returns the configuration standard audio plays in.
+     */
+    public AudioConfig getConfig() {
+        return session.getConfig();
     }
 
     /**
@@ -153,41 +180,37 @@ public final class StdAudio {
      * audio events, if any were present.  If none were present, has no effect.
      */
     public void clearAudioEventListeners() {
-        listeners.clear();
+        session.clearAudioEventListeners();
     }
 
     /**
      * Close standard audio.
      */
     public void close() {
-        line.drain();
-        line.stop();
+        session.close();
     }
 
     /**
      * Returns whether the audio system is currently muted.
      */
     public boolean isMuted() {
-        return muted;
+        return session.isMuted();
     }
 
     /**
      * Returns whether the audio system is currently paused.
      */
     public boolean isPaused() {
-        return paused;
+        return session.isPaused();
     }
 
     /**
      * Create a note (sine wave) of the given frequency (Hz), for the given
-     * duration (seconds) scaled to the given volume (amplitude).
+     * duration (seconds) scaled to the given volume (amplitude), at the
+     * sample rate of the session.
      */
     public double[] note(double hz, double duration, double amplitude) {
-        int N = (int) (StdAudio.SAMPLE_RATE * duration);
-        double[] a = new double[N + 1];
-        for (int i = 0; i <= N; i++)
-            a[i] = amplitude * Math.sin(2 * Math.PI * i * hz / StdAudio.SAMPLE_RATE);
-        return a;
+        return ToneGenerator.sine(hz, duration, amplitude, session.getConfig().getSampleRate());
     }
 
     /**
@@ -195,28 +218,7 @@ public final class StdAudio {
      * is outside the range, it will be clipped.
      */
     public void play(double in) {
-        if (muted) {
-            return;
-        }
-
-        // clip if outside [-1, +1]
-        if (in < -1.0) {
-            in = -1.0;
-        }
-        if (in > +1.0) {
-            in = +1.0;
-        }
-
-        // convert to bytes
-        short s = (short) (MAX_16_BIT * in);
-        buffer[bufferSize++] = (byte) s;
-        buffer[bufferSize++] = (byte) (s >> 8); // little Endian
-
-        // send to sound card if buffer is full
-        if (bufferSize >= buffer.length) {
-            line.write(buffer, 0, buffer.length);
-            bufferSize = 0;
-        }
+        session.play(in);
     }
 
     /**
@@ -224,10 +226,15 @@ public final class StdAudio {
      * sample is outside the range, it will be clipped.
      */
     public void play(double[] input) {
-        prePlay();
-        for (double i : input) {
-            play(i);
-        }
+        session.play(input);
+    }
+
+    /**
+     * Write an array of samples (between -1.0 and +1.0) to standard audio. If a
+     * sample is outside the range, it will be clipped.
+     */
+    public void play(float[] input) {
+        session.play(input);
     }
 
     /**
@@ -235,8 +242,29 @@ public final class StdAudio {
      * sample is outside the range, it will be clipped.
      */
     public void play(Note note, double[] input, double duration) {
-        play(input);
-        notifyListeners(new AudioEvent(AudioEvent.Type.PLAY, note, duration));
+        session.play(note, input, duration);
+    }
+
+    /**
+     * Write an array of samples (between -1.0 and +1.0) to standard audio. If a
+     * sample is outside the range, it will be clipped.
+     */
+    public void play(Note note, float[] input, double duration) {
+        session.play(note, input, duration);
+    }
+
+    /**
+     * Synthesizes and plays the given note.
+     */
+    public void play(Note note) {
+        session.play(note);
+    }
+
+    /**
+     * Plays every note of the given song, with the repeatable section.
+     */
+    public void play(Song song) {
+        session.play(song);
     }
 
     /**
@@ -244,7 +272,7 @@ public final class StdAudio {
      * audio events, if it was present.  If not present, has no effect.
      */
     public void removeAudioEventListener(AudioEventListener listener) {
-        listeners.remove(listener);
+        session.removeAudioEventListener(listener);
     }
 
     /**
@@ -252,8 +280,7 @@ public final class StdAudio {
      * If audio is muted, notes do not play and playing methods return immediately.
      */
     public void setMute(boolean mute) {
-        muted = mute;
-        notifyListeners(new AudioEvent(mute ? AudioEvent.Type.MUTE : AudioEvent.Type.UNMUTE));
+        session.setMute(mute);
     }
 
     /**
@@ -261,33 +288,7 @@ public final class StdAudio {
      * If audio is paused, playing methods "block" in an infinite while loop.
      */
     public void setPaused(boolean pause) {
-        paused = pause;
-        notifyListeners(new AudioEvent(pause ? AudioEvent.Type.PAUSE : AudioEvent.Type.UNPAUSE));
-    }
-
-    /*
-     * Informs all added audio event listeners of the given event.
-     */
-    private void notifyListeners(AudioEvent event) {
-        for (AudioEventListener listener : listeners) {
-            listener.onAudioEvent(event);
-        }
-    }
-
-    /*
-     * Maintenance to be done before playing; pause/mute management.
-     */
-    private void prePlay() {
-        if (muted) {
-            return;
-        }
-        while (paused) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException ie) {
-                // empty
-            }
-        }
+        session.setPaused(pause);
     }
 
     /**
@@ -298,8 +299,9 @@ public final class StdAudio {
         StdAudio stdAudio = StdAudio.getInstance();
 
         double freq = 440.0;
-        for (int i = 0; i <= StdAudio.SAMPLE_RATE; i++) {
-            stdAudio.play(0.5 * Math.sin(2 * Math.PI * freq * i / StdAudio.SAMPLE_RATE));
+        int sampleRate = stdAudio.getConfig().getSampleRate();
+        for (int i = 0; i <= sampleRate; i++) {
+            stdAudio.play(0.5 * Math.sin(2 * Math.PI * freq * i / sampleRate));
         }
 
         // scale increments
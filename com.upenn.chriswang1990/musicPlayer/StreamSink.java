@@ -0,0 +1,58 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A musicPlayer.StreamSink writes the PCM of a session to an output stream, such as
+ * a network connection. A slow reader makes the writes block, which slows
+ * down the session rendering to it.
+ */
+public class StreamSink implements AudioSink {
+
+    private final OutputStream out;
+
+    public StreamSink(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the bytes to the stream.
+     *
+     * @throws UncheckedIOException if the stream fails, e.g. the reader went away
+     */
+    public void write(byte[] pcm, int off, int len) {
+        try {
+            out.write(pcm, off, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    public int getBufferSize() {
+        return 0;
+    }
+
+    public void drain() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
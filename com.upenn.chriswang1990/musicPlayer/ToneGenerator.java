@@ -0,0 +1,247 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+
+/**
+ * Synthesizes the samples of tones without touching the sound card, so songs
+ * can be rendered on machines that have no audio device.
+ * <p>
+ * Samples are computed in double precision and stored as floats, half the
+ * memory of doubles, narrowed so that they convert to exactly the same
+ * 16-bit PCM. The double[] methods widen the floats for older callers.
+ * <p>
+ * A musicPlayer.ToneGenerator.Oscillator renders a tone of any length into a
+ * small reusable block at a time, so playing allocates nothing per note.
+ * It can trade accuracy for speed at a lower musicPlayer.ToneGenerator.Quality
+ * when playback can't keep up.
+ */
+public final class ToneGenerator {
+
+    /**
+     * How an oscillator computes its samples, from the most accurate to the
+     * cheapest. Only FULL gives the same samples as sineFloat().
+     */
+    public enum Quality {
+        /**
+         * Math.sin() for every sample.
+         */
+        FULL(0),
+        /**
+         * A sine table with linear interpolation, within 1e-6 of FULL.
+         */
+        TABLE(1),
+        /**
+         * The table at half the sample rate, linearly interpolated in between.
+         */
+        HALF_RATE(2),
+        /**
+         * The table at a quarter of the sample rate, linearly interpolated.
+         */
+        QUARTER_RATE(4);
+
+        private final int step; // samples between computed ones, 0 for Math.sin()
+
+        Quality(int step) {
+            this.step = step;
+        }
+
+        /**
+         * Returns the next cheaper quality, or this one if it is the cheapest.
+         */
+        public Quality lower() {
+            return this == QUARTER_RATE ? this : values()[ordinal() + 1];
+        }
+
+        /**
+         * Returns the next more accurate quality, or this one if it is FULL.
+         */
+        public Quality higher() {
+            return this == FULL ? this : values()[ordinal() - 1];
+        }
+    }
+
+    private static final int TABLE_SIZE = 4096;
+    private static final double[] SINE = new double[TABLE_SIZE + 1]; // one period and the first again
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SINE[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    /**
+     * Renders one tone after another into blocks supplied by the caller.
+     * Each sample is computed from its index in the tone, so the phase runs
+     * on from one block to the next and the samples are the same as those of
+     * sineFloat(). A frequency of 0 (a rest) only writes zeros.
+     */
+    public static final class Oscillator {
+        private final int sampleRate;
+        private double hz;
+        private double amplitude;
+        private int index;
+        private int length;
+        private Quality quality = Quality.FULL;
+
+        /**
+         * Creates an oscillator for the given sample rate (Hz), with no tone.
+         */
+        public Oscillator(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        /**
+         * Starts a tone of the given frequency (Hz), duration (seconds) and
+         * volume (amplitude), dropping what is left of the previous one.
+         */
+        public void start(double hz, double duration, double amplitude) {
+            this.hz = hz;
+            this.amplitude = amplitude;
+            this.index = 0;
+            this.length = (int) (sampleRate * duration) + 1;
+        }
+
+        /**
+         * Returns how the samples are computed.
+         */
+        public Quality getQuality() {
+            return quality;
+        }
+
+        /**
+         * Sets how the following samples are computed, also in the middle of
+         * a tone.
+         */
+        public void setQuality(Quality quality) {
+            if (quality == null) {
+                throw new NullPointerException();
+            }
+            this.quality = quality;
+        }
+
+        /**
+         * Returns the number of samples of the tone not rendered yet.
+         */
+        public int remaining() {
+            return length - index;
+        }
+
+        /**
+         * Skips up to n samples of the tone, as if they had been rendered.
+         *
+         * @return the number of samples skipped
+         */
+        public int skip(int n) {
+            n = Math.max(0, Math.min(n, length - index));
+            index += n;
+            return n;
+        }
+
+        /**
+         * Renders the next samples of the tone into the block.
+         *
+         * @return the number of samples written, 0 once the tone is over
+         */
+        public int next(float[] block) {
+            return next(block, 0, block.length);
+        }
+
+        /**
+         * Renders the next samples of the tone into [from, to) of the block.
+         *
+         * @return the number of samples written, 0 once the tone is over
+         */
+        public int next(float[] block, int from, int to) {
+            int n = Math.min(to - from, length - index);
+            if (hz == 0.0) {
+                // a rest: sin(0) is 0 for every sample
+                Arrays.fill(block, from, from + n, 0.0f);
+            } else if (quality == Quality.FULL) {
+                for (int j = 0; j < n; j++) {
+                    int i = index + j;
+                    block[from + j] = PcmConverter.toFloat(amplitude * Math.sin(2 * Math.PI * i * hz / sampleRate));
+                }
+            } else {
+                nextFromTable(block, from, n, quality.step);
+            }
+            index += n;
+            return n;
+        }
+
+        /*
+         * Computes every step-th sample from the sine table and interpolates
+         * linearly in between. The samples computed are at multiples of step
+         * in the tone, so they do not depend on how it is split into blocks.
+         * The plain float narrowing is good enough at these qualities.
+         */
+        private void nextFromTable(float[] block, int from, int n, int step) {
+            double cycles = hz / sampleRate; // per sample
+            if (step == 1) {
+                for (int j = 0; j < n; j++) {
+                    block[from + j] = (float) (amplitude * tableSine((index + j) * cycles));
+                }
+                return;
+            }
+            int offset = index % step;
+            int anchor = index - offset;
+            double b = tableSine(anchor * cycles);
+            for (int j = 0; j < n; anchor += step, offset = 0) {
+                double a = b;
+                b = tableSine((anchor + step) * cycles);
+                double slope = (b - a) / step;
+                for (int end = Math.min(n, j + step - offset); j < end; j++, offset++) {
+                    block[from + j] = (float) (amplitude * (a + slope * offset));
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns sin(2 pi cycles) from the table, interpolated linearly.
+     */
+    private static double tableSine(double cycles) {
+        double x = (cycles - Math.floor(cycles)) * TABLE_SIZE;
+        int k = (int) x;
+        return SINE[k] + (SINE[k + 1] - SINE[k]) * (x - k);
+    }
+
+    /**
+     * Create a note (sine wave) of the given frequency (Hz), for the given
+     * duration (seconds) scaled to the given volume (amplitude), sampled at
+     * 44,100 Hz.
+     */
+    public static double[] sine(double hz, double duration, double amplitude) {
+        return sine(hz, duration, amplitude, StdAudio.SAMPLE_RATE);
+    }
+
+    /**
+     * Create a note (sine wave) of the given frequency (Hz), for the given
+     * duration (seconds) scaled to the given volume (amplitude), sampled at
+     * the given rate (Hz).
+     */
+    public static double[] sine(double hz, double duration, double amplitude, int sampleRate) {
+        return PcmConverter.toDoubles(sineFloat(hz, duration, amplitude, sampleRate));
+    }
+
+    /**
+     * Create a note (sine wave) of the given frequency (Hz), for the given
+     * duration (seconds) scaled to the given volume (amplitude), sampled at
+     * the given rate (Hz), as floats.
+     */
+    public static float[] sineFloat(double hz, double duration, double amplitude, int sampleRate) {
+        Oscillator oscillator = new Oscillator(sampleRate);
+        oscillator.start(hz, duration, amplitude);
+        float[] a = new float[oscillator.remaining()];
+        oscillator.next(a);
+        return a;
+    }
+
+    /*
+     * This private constructor ensures that musicPlayer.ToneGenerator is non-instantiable.
+     */
+    private ToneGenerator() {
+        // empty
+    }
+}
@@ -0,0 +1,597 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The one owner of what standard audio plays. Every change, from the user
+ * (load, play, pause, resume, stop, seek, transforms, queue) or from the
+ * playback itself (a note played, the next song, the end), is a command put
+ * in a queue and carried out in order by one transport thread, the only
+ * thread touching the state. After each command a musicPlayer.TransportState
+ * is published to the listeners, on the Swing event thread by default;
+ * states published faster than they are drawn are skipped.
+ * <p>
+ * The songs play on one player thread, reused from song to song. A play
+ * while the previous playback is still winding down starts once it has
+ * ended, so pressing buttons quickly never plays two songs at once nor
+ * loses a command.
+ * <p>
+ * Once both ends of an A-B loop are set, playing plays the passage between
+ * them over and over, from a musicPlayer.LoopBuffer, instead of the song
+ * and the playlist. Loading or transforming the song clears the loop.
+ * <p>
+ * The time from a command being sent to it taking effect is recorded in
+ * musicPlayer.PlaybackMetrics.
+ */
+public class Transport implements AutoCloseable {
+
+    /**
+     * Listener of the states published, called on the publishing executor.
+     */
+    public interface Listener {
+        void onStateChanged(TransportState state);
+    }
+
+    /*
+     * A command waiting in the queue, and when it was sent. Only commands
+     * from the user count for the latency.
+     */
+    private static final class Command {
+        private final Runnable action;
+        private final long sent;
+        private final boolean user;
+
+        private Command(Runnable action, boolean user) {
+            this.action = action;
+            this.sent = System.nanoTime();
+            this.user = user;
+        }
+    }
+
+    private static final Command CLOSE = new Command(() -> { }, false);
+
+    private final BlockingQueue<Command> commands = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final ExecutorService player = Executors.newSingleThreadExecutor(AudioEngine.daemonThreads("transport-player"));
+    private final Executor publisher;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<TransportState> latest = new AtomicReference<>(TransportState.EMPTY);
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    private final Playlist playlist;
+    private final PlaylistPlayer playlistPlayer;
+    private final AudioSession session = StdAudio.getInstance().getSession();
+    private final PlaybackMetrics metrics = PlaybackMetrics.getInstance();
+    private final StdAudio.AudioEventListener progressListener;
+
+    // owned by the transport thread
+    private TransportState.Status status = TransportState.Status.STOPPED;
+    private Song song;
+    private long songVersion;
+    private double position;
+    private int octaves;
+    private double tempo = 1.0;
+    private boolean reversed;
+    private TransportState.Change change;
+    private long changes;
+    private boolean busy;          // the player thread is playing
+    private boolean stopRequested; // and was told to stop
+    private double restartAt = -1; // where to play from once it has stopped, if >= 0
+    private double loopStart = -1; // A, if >= 0
+    private double loopEnd = -1;   // B, if >= 0
+
+    /**
+     * Creates a transport playing the songs of the given playlist after the
+     * current one, publishing its states on the Swing event thread.
+     */
+    public Transport(Playlist playlist) {
+        this(playlist, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Creates a transport playing the songs of the given playlist after the
+     * current one, publishing its states on the given executor.
+     */
+    public Transport(Playlist playlist, Executor publisher) {
+        this.playlist = playlist;
+        this.playlistPlayer = new PlaylistPlayer(playlist);
+        this.publisher = publisher;
+        playlistPlayer.setSongChangeListener(next -> post(() -> songChanged(next), false));
+        progressListener = event -> {
+            if (event.getType() == StdAudio.AudioEvent.Type.PLAY) {
+                post(() -> progress(event.getDuration()), false);
+            } else if (event.getType() == StdAudio.AudioEvent.Type.LOOP) {
+                post(this::looped, false);
+            }
+        };
+        session.addAudioEventListener(progressListener);
+        thread = new Thread(this::run, "transport");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the state published last.
+     */
+    public TransportState getState() {
+        return latest.get();
+    }
+
+    /**
+     * Stops what is playing and loads the song of the given file.
+     */
+    public void load(String filename) {
+        post(() -> {
+            if (!new File(filename).isFile()) {
+                System.out.println("not able to load from the file " + filename);
+                return;
+            }
+            stopPlayback();
+            restartAt = -1;
+            setSong(new Song(filename), TransportState.Change.LOADED);
+            status = TransportState.Status.STOPPED;
+        }, true);
+    }
+
+    /**
+     * Loads the song of a saved session with its transforms, at its
+     * position, and synthesizes its start ahead of the first play. Does
+     * nothing if a song was loaded already or the file is gone.
+     */
+    public void restore(SessionStore.Session saved) {
+        post(() -> {
+            if (song != null || !new File(saved.getPath()).isFile()) {
+                return;
+            }
+            try {
+                Song restored = saved.loadSong();
+                setSong(restored, TransportState.Change.RESTORED);
+                octaves = saved.getOctaves();
+                tempo = saved.getTempo();
+                reversed = saved.isReversed();
+                position = PlaylistPlayer.startOfNote(restored,
+                      saved.getPosition() < restored.getTotalDuration() ? saved.getPosition() : 0.0);
+                playlistPlayer.prepare(restored, position);
+            } catch (RuntimeException e) {
+                System.out.println("not able to restore the last session: " + e);
+            }
+        }, true);
+    }
+
+    /**
+     * Adds the songs of the given files to the playlist.
+     */
+    public void queue(List<String> filenames) {
+        post(() -> {
+            for (String filename : filenames) {
+                playlist.add(filename);
+            }
+            changed(TransportState.Change.QUEUED);
+        }, true);
+    }
+
+    /**
+     * Plays the song from the current position, then the playlist. Does
+     * nothing if it is playing already; resumes it if it is paused.
+     */
+    public void play() {
+        post(() -> {
+            if (song == null || status == TransportState.Status.PLAYING) {
+                return;
+            }
+            if (status == TransportState.Status.PAUSED) {
+                resumePlayback();
+            } else {
+                start(position);
+            }
+        }, true);
+    }
+
+    /**
+     * Pauses the song if it is playing.
+     */
+    public void pause() {
+        post(() -> {
+            if (status == TransportState.Status.PLAYING) {
+                session.setPaused(true);
+                status = TransportState.Status.PAUSED;
+            }
+        }, true);
+    }
+
+    /**
+     * Resumes the song if it is paused.
+     */
+    public void resume() {
+        post(() -> {
+            if (status == TransportState.Status.PAUSED) {
+                resumePlayback();
+            }
+        }, true);
+    }
+
+    /**
+     * Stops playing and goes back to the start of the song; queued songs
+     * stay in the playlist.
+     */
+    public void stop() {
+        post(() -> {
+            stopPlayback();
+            restartAt = -1;
+            status = TransportState.Status.STOPPED;
+            position = 0.0;
+        }, true);
+    }
+
+    /**
+     * Moves to the start of the note playing at the given time, and plays
+     * from there if the song is playing or paused.
+     */
+    public void seek(double seconds) {
+        post(() -> {
+            if (song == null) {
+                return;
+            }
+            double target = PlaylistPlayer.startOfNote(song, Math.max(0.0, seconds));
+            if (status == TransportState.Status.STOPPED) {
+                position = target;
+            } else {
+                stopPlayback();
+                restartAt = target;
+                position = target;
+            }
+        }, true);
+    }
+
+    /**
+     * Sets where the A-B loop starts, in seconds into the song; an end at or
+     * before it is unset. Once both ends are set, playing loops between
+     * them, from the current time if it is in the loop, else from A.
+     */
+    public void setLoopStart(double seconds) {
+        post(() -> {
+            if (song == null) {
+                return;
+            }
+            double start = Math.max(0.0, Math.min(song.getTotalDuration(), seconds));
+            setLoop(start, loopEnd > start ? loopEnd : -1);
+        }, true);
+    }
+
+    /**
+     * Sets where the A-B loop ends, in seconds into the song; a start at or
+     * after it is unset.
+     */
+    public void setLoopEnd(double seconds) {
+        post(() -> {
+            if (song == null) {
+                return;
+            }
+            double end = Math.max(0.0, Math.min(song.getTotalDuration(), seconds));
+            setLoop(loopStart >= 0 && loopStart < end ? loopStart : -1, end);
+        }, true);
+    }
+
+    /**
+     * Clears both ends of the A-B loop; a song looping goes on playing from
+     * where it is.
+     */
+    public void clearLoop() {
+        post(() -> {
+            if (loopStart >= 0 || loopEnd >= 0) {
+                boolean looping = hasLoop();
+                loopStart = -1;
+                loopEnd = -1;
+                changed(TransportState.Change.LOOP_CLEARED);
+                if (looping) {
+                    restart();
+                }
+            }
+        }, true);
+    }
+
+    /**
+     * Reverses the song, unless it is playing or paused.
+     */
+    public void reverse() {
+        transform(() -> {
+            song.reverse();
+            reversed = !reversed;
+            return TransportState.Change.REVERSED;
+        });
+    }
+
+    /**
+     * Moves the song an octave up, unless it is playing or paused.
+     */
+    public void octaveUp() {
+        transform(() -> {
+            if (!song.octaveUp()) {
+                return TransportState.Change.UPPER_LIMIT;
+            }
+            octaves++;
+            return TransportState.Change.OCTAVE_UP;
+        });
+    }
+
+    /**
+     * Moves the song an octave down, unless it is playing or paused.
+     */
+    public void octaveDown() {
+        transform(() -> {
+            if (!song.octaveDown()) {
+                return TransportState.Change.LOWER_LIMIT;
+            }
+            octaves--;
+            return TransportState.Change.OCTAVE_DOWN;
+        });
+    }
+
+    /**
+     * Multiplies the durations of the song by the given ratio, unless it is
+     * playing or paused.
+     *
+     * @throws IllegalArgumentException if the ratio is not positive
+     */
+    public void changeTempo(double ratio) {
+        if (!(ratio > 0.0)) {
+            throw new IllegalArgumentException("Illegal tempo ratio: " + ratio);
+        }
+        transform(() -> {
+            song.changeTempo(ratio);
+            tempo *= ratio;
+            return TransportState.Change.TEMPO;
+        });
+    }
+
+    /**
+     * Stops playing and ends the transport thread once the commands sent
+     * before are done.
+     */
+    public void close() {
+        stop();
+        commands.add(CLOSE);
+    }
+
+    /*
+     * Carries out the commands one at a time, publishing the state after
+     * each.
+     */
+    private void run() {
+        while (true) {
+            Command command;
+            try {
+                command = commands.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (command == CLOSE) {
+                break;
+            }
+            try {
+                command.action.run();
+            } catch (RuntimeException e) {
+                System.out.println("transport command failed: " + e);
+            }
+            if (command.user) {
+                metrics.commandApplied(System.nanoTime() - command.sent);
+            }
+            publish();
+        }
+        session.removeAudioEventListener(progressListener);
+        player.shutdown();
+    }
+
+    private void post(Runnable action, boolean user) {
+        commands.add(new Command(action, user));
+    }
+
+    /*
+     * Applies a transform if the song is loaded and stopped.
+     */
+    private void transform(Supplier<TransportState.Change> action) {
+        post(() -> {
+            // a playback still winding down keeps the notes it started with
+            if (song != null && status == TransportState.Status.STOPPED) {
+                TransportState.Change done = action.get();
+                if (done != TransportState.Change.UPPER_LIMIT && done != TransportState.Change.LOWER_LIMIT) {
+                    songVersion++;
+                    position = 0.0;
+                    // the times of the loop are not those of the new notes
+                    loopStart = -1;
+                    loopEnd = -1;
+                }
+                changed(done);
+            }
+        }, true);
+    }
+
+    /*
+     * Sets both ends of the loop, and makes the song play the new loop if
+     * it is playing or paused and either loop is a whole one.
+     */
+    private void setLoop(double start, double end) {
+        boolean looping = hasLoop();
+        loopStart = start;
+        loopEnd = end;
+        changed(TransportState.Change.LOOP);
+        if (looping || hasLoop()) {
+            restart();
+        }
+    }
+
+    private boolean hasLoop() {
+        return loopStart >= 0 && loopEnd > loopStart;
+    }
+
+    /*
+     * Plays again from the current time if the song is playing or paused.
+     */
+    private void restart() {
+        if (status != TransportState.Status.STOPPED) {
+            stopPlayback();
+            restartAt = position;
+        }
+    }
+
+    /*
+     * Starts playing the song from the given time on the player thread, or
+     * once the previous playback has ended. With a loop, the loop plays,
+     * from the exact time if it is in the loop, else from A.
+     */
+    private void start(double from) {
+        status = TransportState.Status.PLAYING;
+        boolean looping = hasLoop();
+        if (looping) {
+            position = from >= loopStart && from < loopEnd ? from : loopStart;
+        } else {
+            position = PlaylistPlayer.startOfNote(song, from);
+        }
+        if (busy) {
+            restartAt = position;
+            return;
+        }
+        busy = true;
+        stopRequested = false;
+        session.setPaused(false);
+        session.setMute(false);
+        metrics.playRequested();
+        Song playing = song;
+        double start = position;
+        double a = loopStart;
+        double b = loopEnd;
+        player.execute(() -> {
+            try {
+                if (looping) {
+                    playlistPlayer.playLoop(playing, a, b, start);
+                } else {
+                    playlistPlayer.play(playing, start);
+                }
+                // the last samples of the playlist, not a full buffer
+                session.flush();
+            } finally {
+                post(this::finished, false);
+            }
+        });
+    }
+
+    private void resumePlayback() {
+        session.setPaused(false);
+        status = TransportState.Status.PLAYING;
+    }
+
+    /*
+     * Tells the player thread to stop after the current block; finished()
+     * runs once it has. The songs queued stay in the playlist, so a seek or
+     * a loop change, which stop and start again, play them in turn.
+     */
+    private void stopPlayback() {
+        if (busy && !stopRequested) {
+            stopRequested = true;
+            playlistPlayer.stop();
+            session.setMute(true);
+            session.setPaused(false);
+        }
+    }
+
+    /*
+     * The player thread has ended, at the end of the playlist or because it
+     * was stopped.
+     */
+    private void finished() {
+        busy = false;
+        if (restartAt >= 0 && song != null) {
+            double from = restartAt;
+            restartAt = -1;
+            start(from);
+        } else if (!stopRequested) {
+            status = TransportState.Status.STOPPED;
+            position = 0.0;
+        }
+        stopRequested = false;
+    }
+
+    /*
+     * A note of the song playing was played.
+     */
+    private void progress(double duration) {
+        if (busy && !stopRequested) {
+            position = Math.min(song.getTotalDuration(), position + duration);
+        }
+    }
+
+    /*
+     * The loop went back to A.
+     */
+    private void looped() {
+        if (busy && !stopRequested && hasLoop()) {
+            position = loopStart;
+        }
+    }
+
+    /*
+     * The playlist moved on to the next song.
+     */
+    private void songChanged(Song next) {
+        if (next != song && busy && !stopRequested) {
+            setSong(next, TransportState.Change.NEXT_SONG);
+        }
+    }
+
+    private void setSong(Song newSong, TransportState.Change why) {
+        song = newSong;
+        songVersion++;
+        position = 0.0;
+        octaves = 0;
+        tempo = 1.0;
+        reversed = false;
+        loopStart = -1;
+        loopEnd = -1;
+        changed(why);
+    }
+
+    private void changed(TransportState.Change why) {
+        change = why;
+        changes++;
+    }
+
+    /*
+     * Makes the state the latest, and hands it to the publisher unless the
+     * previous one is still waiting there, in which case that one will pick
+     * up this state instead.
+     */
+    private void publish() {
+        latest.set(new TransportState(status, busy, song, songVersion, position, loopStart, loopEnd, octaves,
+              tempo, reversed, playlist.size(), change, changes));
+        if (publishing.compareAndSet(false, true)) {
+            publisher.execute(() -> {
+                publishing.set(false);
+                TransportState state = latest.get();
+                for (Listener listener : listeners) {
+                    listener.onStateChanged(state);
+                }
+            });
+        }
+    }
+}
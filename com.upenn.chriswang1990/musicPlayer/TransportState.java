@@ -0,0 +1,179 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * What a musicPlayer.Transport is doing at one moment: the song, how it was
+ * transformed, whether it is playing and where. A state never changes; the
+ * transport publishes a new one after every command, so the GUI can draw
+ * from it without any locking.
+ * <p>
+ * The song itself is shared with the transport and must not be transformed
+ * by anyone else.
+ */
+public final class TransportState {
+
+    /**
+     * Whether the song is playing.
+     */
+    public enum Status {STOPPED, PLAYING, PAUSED}
+
+    /**
+     * The last change worth telling the user about.
+     */
+    public enum Change {
+        LOADED, RESTORED, NEXT_SONG, QUEUED, REVERSED, OCTAVE_UP, OCTAVE_DOWN, UPPER_LIMIT, LOWER_LIMIT, TEMPO,
+        LOOP, LOOP_CLEARED
+    }
+
+    /**
+     * The state before anything was loaded.
+     */
+    public static final TransportState EMPTY =
+          new TransportState(Status.STOPPED, false, null, 0, 0.0, -1, -1, 0, 1.0, false, 0, null, 0);
+
+    private final Status status;
+    private final boolean playerBusy;
+    private final Song song;
+    private final long songVersion;
+    private final double position;
+    private final double loopStart;
+    private final double loopEnd;
+    private final int octaves;
+    private final double tempo;
+    private final boolean reversed;
+    private final int queued;
+    private final Change change;
+    private final long changes;
+
+    TransportState(Status status, boolean playerBusy, Song song, long songVersion, double position,
+                   double loopStart, double loopEnd, int octaves, double tempo, boolean reversed, int queued,
+                   Change change, long changes) {
+        this.status = status;
+        this.playerBusy = playerBusy;
+        this.song = song;
+        this.songVersion = songVersion;
+        this.position = position;
+        this.loopStart = loopStart;
+        this.loopEnd = loopEnd;
+        this.octaves = octaves;
+        this.tempo = tempo;
+        this.reversed = reversed;
+        this.queued = queued;
+        this.change = change;
+        this.changes = changes;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns whether the player thread is still playing, which it is for a
+     * moment after a stop, until its last block is written.
+     */
+    public boolean isPlayerBusy() {
+        return playerBusy;
+    }
+
+    /**
+     * Returns the current song, or null if none was loaded.
+     */
+    public Song getSong() {
+        return song;
+    }
+
+    /**
+     * Returns a number that changes whenever another song is loaded or the
+     * song is transformed, so its waveform is redrawn only then.
+     */
+    public long getSongVersion() {
+        return songVersion;
+    }
+
+    /**
+     * Returns the seconds played of the current song.
+     */
+    public double getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns where the A-B loop starts, in seconds, or -1 if it is not set.
+     */
+    public double getLoopStart() {
+        return loopStart;
+    }
+
+    /**
+     * Returns where the A-B loop ends, in seconds, or -1 if it is not set.
+     */
+    public double getLoopEnd() {
+        return loopEnd;
+    }
+
+    /**
+     * Returns whether both ends of the loop are set, so the song loops.
+     */
+    public boolean hasLoop() {
+        return loopStart >= 0 && loopEnd > loopStart;
+    }
+
+    /**
+     * Returns the octaves the song was moved up since it was loaded,
+     * negative for down.
+     */
+    public int getOctaves() {
+        return octaves;
+    }
+
+    /**
+     * Returns the product of the tempo ratios applied since it was loaded.
+     */
+    public double getTempo() {
+        return tempo;
+    }
+
+    /**
+     * Returns whether the song was reversed an odd number of times.
+     */
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * Returns the number of songs waiting in the playlist.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Returns the last change worth telling the user about, or null.
+     */
+    public Change getChange() {
+        return change;
+    }
+
+    /**
+     * Returns how many such changes there were, so a change is told once
+     * even when a state is skipped.
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns whether the song can be transformed: only while it is not
+     * playing or paused.
+     */
+    public boolean canTransform() {
+        return song != null && status == Status.STOPPED;
+    }
+
+    public String toString() {
+        return "TransportState{" + status + (playerBusy ? " (busy)" : "") + (song == null ? "" : ", song=" + song.getTitle())
+              + ", position=" + position + (hasLoop() ? ", loop=" + loopStart + "-" + loopEnd : "") + ", octaves=" + octaves + ", tempo=" + tempo
+              + ", reversed=" + reversed + ", queued=" + queued + "}";
+    }
+}
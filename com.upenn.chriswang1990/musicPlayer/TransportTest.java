@@ -0,0 +1,223 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TransportTest {
+
+    private Transport transport;
+    private final BlockingQueue<TransportState> states = new LinkedBlockingQueue<>();
+    private SlowSink sink;
+    private AudioSink previous;
+
+    /*
+     * Captures what standard audio plays, a little slower than it can, and
+     * notices two threads writing at once.
+     */
+    private static class SlowSink extends CaptureSink {
+        private final AtomicInteger writing = new AtomicInteger();
+        private final AtomicBoolean overlapped = new AtomicBoolean();
+
+        public void write(byte[] pcm, int off, int len) {
+            if (writing.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(pcm, off, len);
+            writing.decrementAndGet();
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        System.setProperty("musicPlayer.sink", "none");
+    }
+
+    @Before
+    public void setUp() {
+        sink = new SlowSink();
+        previous = StdAudio.getInstance().setSink(sink);
+        transport = new Transport(new Playlist(), Runnable::run);
+        transport.addListener(states::add);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        transport.close();
+        await(state -> state.getStatus() == TransportState.Status.STOPPED);
+        Thread.sleep(100);
+        StdAudio.getInstance().setSink(previous);
+    }
+
+    /**
+     * test method for {@link musicPlayer.Transport#load(String)} and the
+     * transforms: applied in the order sent, published as one state each
+     */
+    @Test
+    public void testTransforms() throws InterruptedException {
+        transport.load("birthday.txt");
+        transport.octaveUp();
+        transport.reverse();
+        transport.changeTempo(0.5);
+        TransportState state = await(s -> s.getChanges() == 4);
+        assertEquals(TransportState.Change.TEMPO, state.getChange());
+        assertEquals(1, state.getOctaves());
+        assertTrue(state.isReversed());
+        assertEquals(0.5, state.getTempo(), 0.0);
+        assertEquals(4, state.getSongVersion());
+        assertTrue(state.canTransform());
+
+        Song expected = new Song("birthday.txt");
+        expected.octaveUp();
+        expected.reverse();
+        expected.changeTempo(0.5);
+        assertEquals(expected.getPlayOrder(), state.getSong().getPlayOrder());
+    }
+
+    /**
+     * test method for {@link musicPlayer.Transport#play()}: pressing Play many
+     * times plays the song once, to the end
+     */
+    @Test
+    public void testPlayOnce() throws InterruptedException {
+        transport.load("birthday.txt");
+        for (int i = 0; i < 20; i++) {
+            transport.play();
+        }
+        await(s -> s.getStatus() == TransportState.Status.PLAYING);
+        TransportState end = await(s -> s.getStatus() == TransportState.Status.STOPPED);
+        assertEquals(0.0, end.getPosition(), 0.0);
+
+        long frames = 0;
+        for (Note note : new Song("birthday.txt").getPlayOrder()) {
+            frames += StdAudio.getInstance().getConfig().sampleCount(note.getDuration());
+        }
+        assertEquals(frames * StdAudio.getInstance().getConfig().getFrameSize(), sink.getBytesWritten());
+        assertFalse(sink.overlapped.get());
+        assertTrue(PlaybackMetrics.getInstance().getCommandLatencyNanos().getCount() > 0);
+    }
+
+    /**
+     * test method for {@link musicPlayer.Transport#stop()} and
+     * {@link musicPlayer.Transport#seek(double)}: mashed buttons never play
+     * two songs at once, and a seek plays the rest of the song
+     */
+    @Test
+    public void testMashing() throws InterruptedException {
+        transport.load("GameOfThronesTheme.txt");
+        for (int i = 0; i < 10; i++) {
+            transport.play();
+            transport.pause();
+            transport.resume();
+            transport.stop();
+        }
+        transport.play();
+        transport.seek(1000.0);
+        await(s -> s.getStatus() == TransportState.Status.PLAYING
+              && s.getPosition() == PlaylistPlayer.startOfNote(s.getSong(), 1000.0));
+        await(s -> s.getStatus() == TransportState.Status.STOPPED);
+        assertFalse(sink.overlapped.get());
+
+        transport.stop();
+        transport.seek(1.0);
+        TransportState state = await(s -> s.getPosition() > 0.0);
+        assertEquals(TransportState.Status.STOPPED, state.getStatus());
+        assertEquals(PlaylistPlayer.startOfNote(state.getSong(), 1.0), state.getPosition(), 0.0);
+    }
+
+    /**
+     * test method for {@link musicPlayer.Transport#seek(double)} and the
+     * loop buttons: playing again from elsewhere in the song, which stops
+     * the player thread and starts it again, keeps the songs queued after it
+     */
+    @Test
+    public void testSeekKeepsQueue() throws InterruptedException {
+        transport.load("GameOfThronesTheme.txt");
+        transport.queue(Arrays.asList("birthday.txt"));
+        transport.play();
+        await(s -> s.getStatus() == TransportState.Status.PLAYING && s.getPosition() > 0.0);
+        transport.seek(5.0);
+        double target = PlaylistPlayer.startOfNote(transport.getState().getSong(), 5.0);
+        await(s -> s.getStatus() == TransportState.Status.PLAYING && s.getPosition() > target);
+        transport.setLoopStart(6.0);
+        transport.setLoopEnd(7.0);
+        await(s -> s.hasLoop() && s.isPlayerBusy() && s.getPosition() > 6.0);
+        transport.clearLoop();
+        await(s -> !s.hasLoop() && s.getPosition() > 7.0);
+        transport.stop();
+        TransportState stopped = await(s -> s.getStatus() == TransportState.Status.STOPPED && !s.isPlayerBusy());
+        assertEquals(1, stopped.getQueued());
+        assertEquals("GameOfThronesTheme.txt", stopped.getSong().getFileName());
+    }
+
+    /**
+     * test method for {@link musicPlayer.Transport#setLoopStart(double)} and
+     * {@link musicPlayer.Transport#setLoopEnd(double)}: once both ends are
+     * set the song plays the loop again and again from A, until the loop is
+     * cleared or the song transformed
+     */
+    @Test
+    public void testLoop() throws InterruptedException {
+        transport.load("birthday.txt");
+        transport.setLoopStart(1.0);
+        transport.setLoopEnd(1.5);
+        TransportState looping = await(TransportState::hasLoop);
+        assertEquals(TransportState.Change.LOOP, looping.getChange());
+        transport.play();
+        await(s -> s.getStatus() == TransportState.Status.PLAYING && s.getPosition() > 1.0);
+        // back to A after B, many times
+        for (int i = 0; i < 3; i++) {
+            await(s -> s.getPosition() > 1.4);
+            await(s -> s.getPosition() < 1.1);
+        }
+        transport.setLoopEnd(0.5);
+        TransportState cut = await(s -> s.getLoopEnd() == 0.5);
+        assertEquals(-1.0, cut.getLoopStart(), 0.0);
+        assertFalse(cut.hasLoop());
+        transport.stop();
+        await(s -> s.getStatus() == TransportState.Status.STOPPED && !s.isPlayerBusy());
+
+        transport.setLoopStart(0.2);
+        transport.changeTempo(2.0);
+        TransportState transformed = await(s -> s.getChange() == TransportState.Change.TEMPO);
+        assertEquals(-1.0, transformed.getLoopStart(), 0.0);
+        assertEquals(-1.0, transformed.getLoopEnd(), 0.0);
+        assertFalse(sink.overlapped.get());
+    }
+
+    /*
+     * Waits for a published state matching the predicate.
+     */
+    private TransportState await(Predicate<TransportState> predicate) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            TransportState state = states.poll(100, TimeUnit.MILLISECONDS);
+            if (state != null && predicate.test(state)) {
+                return state;
+            }
+        }
+        fail("no such state, last " + transport.getState());
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+/**
+ * A musicPlayer.VirtualClockSink behaves like a sound card with a buffer of the
+ * given size, consuming PCM at the rate of its musicPlayer.AudioConfig, but on a
+ * virtual clock: a write that would block moves the clock forward by the
+ * time the card would take to make room instead of waiting. Playing to it
+ * is as fast as synthesis, and what the session sees of the device (free
+ * space, underruns) is the same on every run.
+ * <p>
+ * The clock only moves when a write or drain() waits for the device, or
+ * when advance() says time has passed. The PCM goes on to another sink,
+ * such as a musicPlayer.CaptureSink.
+ */
+public class VirtualClockSink implements AudioSink {
+
+    private final AudioSink delegate;
+    private final int bufferSize;
+    private final long bytesPerSecond;
+    private long nanos = 0;     // the virtual clock
+    private long written = 0;   // bytes written
+    private long consumed = 0;  // bytes the device has played
+
+    /**
+     * Creates a sink passing the PCM on to the delegate, as a device of the
+     * given buffer size in bytes playing in the given configuration.
+     */
+    public VirtualClockSink(AudioSink delegate, AudioConfig config, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+        }
+        this.delegate = delegate;
+        this.bufferSize = bufferSize;
+        this.bytesPerSecond = (long) config.getSampleRate() * config.getFrameSize();
+    }
+
+    public synchronized void write(byte[] pcm, int off, int len) {
+        int free = available();
+        if (len > free) {
+            waitFor(len - free);
+        }
+        written += len;
+        delegate.write(pcm, off, len);
+    }
+
+    public synchronized int available() {
+        return (int) (bufferSize - (written - consumed));
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public synchronized void drain() {
+        waitFor(written - consumed);
+        delegate.drain();
+    }
+
+    public void close() {
+        drain();
+        delegate.close();
+    }
+
+    /**
+     * Moves the clock forward, as if the given time had passed: the device
+     * plays what it has in its buffer, and underruns if that is not enough.
+     */
+    public synchronized void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Illegal time: " + nanos);
+        }
+        long before = this.nanos * bytesPerSecond / 1000000000L;
+        this.nanos += nanos;
+        long after = this.nanos * bytesPerSecond / 1000000000L;
+        consumed = Math.min(written, consumed + (after - before));
+    }
+
+    /**
+     * Returns the time on the virtual clock, in nanoseconds since the sink
+     * was created.
+     */
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public synchronized long getBytesWritten() {
+        return written;
+    }
+
+    /*
+     * Moves the clock until the device has played the given number of bytes.
+     */
+    private void waitFor(long bytes) {
+        long target = consumed + bytes;
+        while (consumed < target) {
+            long missing = target - consumed;
+            advance(Math.max(1, (missing * 1000000000L + bytesPerSecond - 1) / bytesPerSecond));
+        }
+    }
+}
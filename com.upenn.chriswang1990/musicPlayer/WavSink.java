@@ -0,0 +1,64 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A musicPlayer.WavSink writes the PCM of a session to a .wav file.
+ */
+public class WavSink implements AudioSink {
+
+    private final WavWriter writer;
+
+    /**
+     * Creates the .wav file.
+     *
+     * @throws IOException if the file can't be created
+     */
+    public WavSink(File file) throws IOException {
+        writer = new WavWriter(file);
+    }
+
+    /**
+     * Creates the .wav file for PCM of the given configuration.
+     *
+     * @throws IOException if the file can't be created
+     */
+    public WavSink(File file, AudioConfig config) throws IOException {
+        writer = new WavWriter(file, config);
+    }
+
+    public void write(byte[] pcm, int off, int len) {
+        try {
+            writer.writePcm(pcm, off, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    public int getBufferSize() {
+        return 0;
+    }
+
+    public void drain() {
+        // the file is completed on close
+    }
+
+    /**
+     * Completes the header of the .wav file and closes it.
+     */
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
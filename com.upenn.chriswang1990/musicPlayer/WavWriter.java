@@ -0,0 +1,154 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Writes samples to a .wav file as they are produced, so a song never has to
+ * be held in memory as a whole. The format is 44,100 Hz, 16-bit, monaural
+ * unless another musicPlayer.AudioConfig is given. The sizes in the header are
+ * filled in when the writer is closed.
+ */
+public class WavWriter implements Closeable {
+
+    private static final int HEADER_SIZE = 44;
+
+    private final File file;
+    private final AudioConfig config;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[8192];
+    private long dataSize = 0;
+
+    /**
+     * Creates the file and writes a header with empty sizes.
+     *
+     * @param file the .wav file to write
+     * @throws IOException if the file can't be created
+     */
+    public WavWriter(File file) throws IOException {
+        this(file, AudioConfig.DEFAULT);
+    }
+
+    /**
+     * Creates the file for PCM of the given configuration and writes a
+     * header with empty sizes.
+     *
+     * @param file   the .wav file to write
+     * @param config format of the samples
+     * @throws IOException if the file can't be created
+     */
+    public WavWriter(File file, AudioConfig config) throws IOException {
+        this.file = file;
+        this.config = config;
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        out.write(header(0, config));
+    }
+
+    /**
+     * Appends samples (between -1.0 and +1.0) to the file. If a sample is
+     * outside the range, it will be clipped.
+     */
+    public void write(double[] input) throws IOException {
+        int perChunk = buffer.length / config.getFrameSize();
+        for (int from = 0; from < input.length; from += perChunk) {
+            int to = Math.min(input.length, from + perChunk);
+            int bytes = PcmConverter.toPcm(input, from, to, buffer, 0, config);
+            out.write(buffer, 0, bytes);
+            dataSize += bytes;
+        }
+    }
+
+    /**
+     * Appends samples (between -1.0 and +1.0) to the file. If a sample is
+     * outside the range, it will be clipped.
+     */
+    public void write(float[] input) throws IOException {
+        write(input, 0, input.length);
+    }
+
+    /**
+     * Appends samples [from, to) of the array to the file. If a sample is
+     * outside [-1.0, +1.0], it will be clipped.
+     */
+    public void write(float[] input, int from, int to) throws IOException {
+        int perChunk = buffer.length / config.getFrameSize();
+        for (int start = from; start < to; start += perChunk) {
+            int end = Math.min(to, start + perChunk);
+            int bytes = PcmConverter.toPcm(input, start, end, buffer, 0, config);
+            out.write(buffer, 0, bytes);
+            dataSize += bytes;
+        }
+    }
+
+    /**
+     * Appends len bytes of PCM in the writer's format starting at off.
+     */
+    public void writePcm(byte[] pcm, int off, int len) throws IOException {
+        out.write(pcm, off, len);
+        dataSize += len;
+    }
+
+    /**
+     * Returns the number of samples (frames) written so far.
+     */
+    public long getSampleCount() {
+        return dataSize / config.getFrameSize();
+    }
+
+    /**
+     * Flushes the samples and fills in the sizes in the header.
+     */
+    public void close() throws IOException {
+        out.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.write(header(dataSize, config));
+        }
+    }
+
+    /**
+     * Builds the RIFF header for a data chunk of the given size in bytes.
+     */
+    static byte[] header(long dataSize, AudioConfig config) {
+        byte[] h = new byte[HEADER_SIZE];
+        putAscii(h, 0, "RIFF");
+        putInt(h, 4, (int) Math.min(0xFFFFFFFFL, 36 + dataSize));
+        putAscii(h, 8, "WAVE");
+        putAscii(h, 12, "fmt ");
+        putInt(h, 16, 16);                                 // fmt chunk size
+        putShort(h, 20, 1);                                // PCM
+        putShort(h, 22, config.getChannels());
+        putInt(h, 24, config.getSampleRate());
+        putInt(h, 28, config.getSampleRate() * config.getFrameSize()); // byte rate
+        putShort(h, 32, config.getFrameSize());            // block align
+        putShort(h, 34, config.getBitDepth());             // bits per sample
+        putAscii(h, 36, "data");
+        putInt(h, 40, (int) Math.min(0xFFFFFFFFL, dataSize));
+        return h;
+    }
+
+    private static void putAscii(byte[] h, int pos, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h[pos + i] = (byte) s.charAt(i);
+        }
+    }
+
+    private static void putInt(byte[] h, int pos, int v) {
+        h[pos] = (byte) v;
+        h[pos + 1] = (byte) (v >> 8);
+        h[pos + 2] = (byte) (v >> 16);
+        h[pos + 3] = (byte) (v >> 24);
+    }
+
+    private static void putShort(byte[] h, int pos, int v) {
+        h[pos] = (byte) v;
+        h[pos + 1] = (byte) (v >> 8);
+    }
+}
@@ -0,0 +1,312 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JComponent;
+
+/**
+ * A strip showing the waveform of a song, with the playhead.
+ * <p>
+ * The song is synthesized in the background into a musicPlayer.WaveformPyramid,
+ * and the strip is repainted as it fills in, so an hour-long song shows up
+ * while it is being built. When the song changes, only the samples of the
+ * notes that differ from the song shown before are built again: those
+ * between the notes the two songs start and end with in common, or from the
+ * first difference to the end if the length changed.
+ * <p>
+ * Painting reads a few values of the pyramid per pixel, whatever the length
+ * of the song and the zoom. The mouse wheel zooms in and out around the
+ * pointer.
+ */
+public class WaveformPanel extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+    private static final int BLOCK_SIZE = 4096;        // samples synthesized at a time
+    private static final long REPAINT_NANOS = 50000000; // while building
+    private static final double MAX_ZOOM = 1 << 16;
+
+    private final int sampleRate;
+    private final WaveformPyramid pyramid = new WaveformPyramid();
+    private final ExecutorService builder =
+          Executors.newSingleThreadExecutor(AudioEngine.daemonThreads("waveform-builder"));
+
+    // guarded by lock: the song shown, and the regions of it not built yet
+    private final Object lock = new Object();
+    private List<Note> notes = Collections.emptyList();
+    private long[] starts = {0}; // first sample of each note, then the length
+    private final TreeMap<Long, Long> dirty = new TreeMap<>();
+    private int generation = 0;
+
+    private volatile double playhead = 0.0;  // seconds
+    private double viewFrom = 0.0;           // visible part of the song, 0 to 1
+    private double viewTo = 1.0;
+    private float[] columnMin = new float[0];
+    private float[] columnMax = new float[0];
+
+    /**
+     * Creates an empty strip for songs played at the given sample rate (Hz).
+     */
+    public WaveformPanel(int sampleRate) {
+        this.sampleRate = sampleRate;
+        setPreferredSize(new Dimension(540, 60));
+        addMouseWheelListener(this::zoom);
+    }
+
+    /**
+     * Returns the pyramid the waveform is drawn from.
+     */
+    public WaveformPyramid getPyramid() {
+        return pyramid;
+    }
+
+    /**
+     * Shows the song, and builds the samples that changed since the last
+     * song shown in the background. The song is not kept: call this again
+     * after a transform.
+     */
+    public void setSong(Song song) {
+        List<Note> order = song.getPlayOrder();
+        long[] newStarts = new long[order.size() + 1];
+        for (int i = 0; i < order.size(); i++) {
+            Note note = order.get(i);
+            newStarts[i + 1] = newStarts[i] + (int) (sampleRate * note.getDuration()) + 1;
+        }
+        int gen;
+        synchronized (lock) {
+            long oldLength = starts[starts.length - 1];
+            long newLength = newStarts[order.size()];
+            int prefix = 0;
+            int common = Math.min(notes.size(), order.size());
+            while (prefix < common && sameSamples(notes.get(prefix), order.get(prefix))) {
+                prefix++;
+            }
+            long changeTo = newLength;
+            if (newLength == oldLength) {
+                // the notes at the end are at the same samples as before
+                int suffix = 0;
+                while (suffix < common - prefix && sameSamples(notes.get(notes.size() - 1 - suffix),
+                      order.get(order.size() - 1 - suffix))) {
+                    suffix++;
+                }
+                changeTo = newStarts[order.size() - suffix];
+            }
+            // whole buckets are built again, with the samples of the
+            // unchanged notes they share
+            int bucket = WaveformPyramid.BUCKET_SIZE;
+            long changeFrom = newStarts[prefix] / bucket * bucket;
+            changeTo = Math.min(newLength, (changeTo + bucket - 1) / bucket * bucket);
+
+            pyramid.setLength(newLength);
+            while (!dirty.isEmpty() && dirty.lastKey() >= newLength) {
+                dirty.pollLastEntry();
+            }
+            if (!dirty.isEmpty() && dirty.lastEntry().getValue() > newLength) {
+                dirty.put(dirty.lastKey(), newLength);
+            }
+            if (changeFrom < changeTo) {
+                pyramid.invalidate(changeFrom, changeTo);
+                markDirty(changeFrom, changeTo);
+            }
+            notes = order;
+            starts = newStarts;
+            gen = ++generation;
+        }
+        builder.execute(() -> build(gen));
+        repaint();
+    }
+
+    /**
+     * Moves the playhead to the given time in seconds from the start.
+     */
+    public void setPlayhead(double seconds) {
+        playhead = seconds;
+        repaint();
+    }
+
+    /**
+     * Shows the part of the song between the given fractions of its length,
+     * 0 being the start and 1 the end.
+     */
+    public void setView(double from, double to) {
+        double width = Math.max(1 / MAX_ZOOM, Math.min(1.0, to - from));
+        viewFrom = Math.max(0.0, Math.min(1.0 - width, from));
+        viewTo = viewFrom + width;
+        repaint();
+    }
+
+    /**
+     * Stops building in the background.
+     */
+    public void dispose() {
+        builder.shutdownNow();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, width, height);
+        }
+        long length = pyramid.getLength();
+        if (width <= 0 || length == 0) {
+            return;
+        }
+        if (columnMin.length != width) {
+            columnMin = new float[width];
+            columnMax = new float[width];
+        }
+        long from = (long) (viewFrom * length);
+        long to = (long) (viewTo * length);
+        pyramid.envelope(from, to, columnMin, columnMax);
+
+        int middle = height / 2;
+        g.setColor(getForeground());
+        for (int x = 0; x < width; x++) {
+            if (Float.isNaN(columnMin[x])) {
+                continue; // not built yet
+            }
+            // full scale, -1 to 1, is the height of the strip
+            int top = middle - Math.round(Math.min(1.0f, columnMax[x]) * (height / 2 - 1));
+            int bottom = middle - Math.round(Math.max(-1.0f, columnMin[x]) * (height / 2 - 1));
+            g.drawLine(x, top, x, bottom);
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.drawLine(0, middle, width, middle);
+
+        double position = playhead * sampleRate;
+        if (position >= from && position <= to && to > from) {
+            int x = (int) ((position - from) * width / (to - from));
+            g.setColor(Color.RED);
+            g.drawLine(x, 0, x, height);
+        }
+    }
+
+    /*
+     * Synthesizes the regions not built yet into the pyramid, from the
+     * start, until the song changes again.
+     */
+    private void build(int gen) {
+        ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(sampleRate);
+        float[] block = new float[BLOCK_SIZE];
+        long lastRepaint = System.nanoTime();
+        while (true) {
+            List<Note> order;
+            long[] noteStarts;
+            long from;
+            long to;
+            synchronized (lock) {
+                if (gen != generation || dirty.isEmpty()) {
+                    break;
+                }
+                Map.Entry<Long, Long> region = dirty.firstEntry();
+                from = region.getKey();
+                to = region.getValue();
+                order = notes;
+                noteStarts = starts;
+            }
+            int i = Arrays.binarySearch(noteStarts, from);
+            i = i >= 0 ? i : -i - 2;
+            long position = from;
+            for (; position < to && i < order.size(); i++) {
+                Note note = order.get(i);
+                oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+                oscillator.skip((int) (position - noteStarts[i]));
+                int n;
+                while (position < to
+                      && (n = oscillator.next(block, 0, (int) Math.min(BLOCK_SIZE, to - position))) > 0) {
+                    synchronized (lock) {
+                        if (gen != generation) {
+                            return;
+                        }
+                        pyramid.write(position, block, 0, n);
+                        clearDirty(position, position + n);
+                    }
+                    position += n;
+                    if (System.nanoTime() - lastRepaint > REPAINT_NANOS) {
+                        repaint();
+                        lastRepaint = System.nanoTime();
+                    }
+                }
+            }
+            synchronized (lock) {
+                if (gen != generation) {
+                    return;
+                }
+                clearDirty(from, to);
+            }
+        }
+        repaint();
+    }
+
+    /*
+     * Adds [from, to) to the regions not built, merging it with those it
+     * touches. Called with the lock held.
+     */
+    private void markDirty(long from, long to) {
+        Map.Entry<Long, Long> before = dirty.floorEntry(from);
+        if (before != null && before.getValue() >= from) {
+            from = before.getKey();
+            to = Math.max(to, before.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = dirty.ceilingEntry(from)) != null && next.getKey() <= to) {
+            to = Math.max(to, next.getValue());
+            dirty.remove(next.getKey());
+        }
+        dirty.put(from, to);
+    }
+
+    /*
+     * Removes [from, to) from the regions not built. Called with the lock
+     * held.
+     */
+    private void clearDirty(long from, long to) {
+        Map.Entry<Long, Long> before = dirty.lowerEntry(from);
+        if (before != null && before.getValue() > from) {
+            dirty.put(before.getKey(), from);
+            if (before.getValue() > to) {
+                dirty.put(to, before.getValue());
+            }
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = dirty.ceilingEntry(from)) != null && next.getKey() < to) {
+            dirty.remove(next.getKey());
+            if (next.getValue() > to) {
+                dirty.put(to, next.getValue());
+            }
+        }
+    }
+
+    /*
+     * Zooms in or out by a factor of two per notch, keeping the sample
+     * under the pointer where it is.
+     */
+    private void zoom(MouseWheelEvent event) {
+        double width = viewTo - viewFrom;
+        double anchor = viewFrom + width * event.getX() / Math.max(1, getWidth());
+        double newWidth = width * Math.pow(2, event.getPreciseWheelRotation());
+        double from = anchor - (anchor - viewFrom) * newWidth / width;
+        setView(from, from + newWidth);
+    }
+
+    /*
+     * Returns true if the two notes render the same samples.
+     */
+    private static boolean sameSamples(Note a, Note b) {
+        return a.getFrequency() == b.getFrequency() && a.getDuration() == b.getDuration();
+    }
+}
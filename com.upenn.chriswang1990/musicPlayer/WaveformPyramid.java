@@ -0,0 +1,210 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Arrays;
+
+/**
+ * A musicPlayer.WaveformPyramid keeps the minimum and maximum sample of a song at
+ * every resolution, so a waveform can be drawn at any zoom level by reading
+ * a few values per pixel instead of scanning the samples.
+ * <p>
+ * Level 0 holds the minimum and maximum of each bucket of 256 samples, and
+ * every level above holds those of two buckets of the level below, up to a
+ * single bucket for the whole song. An hour at 44,100 Hz takes about 5 MB.
+ * <p>
+ * Samples may be written in any order and a region may be invalidated to be
+ * written again, so the pyramid can be filled in the background while it is
+ * drawn. Buckets nothing has been written to yet are empty, and read as NaN.
+ * All methods are synchronized.
+ */
+public class WaveformPyramid {
+
+    /**
+     * Number of samples in a bucket of level 0.
+     */
+    public static final int BUCKET_SIZE = 256;
+
+    private long length = 0;
+    private float[][] min = {};
+    private float[][] max = {};
+
+    /**
+     * Creates an empty pyramid of no samples.
+     */
+    public WaveformPyramid() {
+        setLength(0);
+    }
+
+    /**
+     * Returns the number of samples of the song.
+     */
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of levels, at least 1.
+     */
+    public synchronized int getLevels() {
+        return min.length;
+    }
+
+    /**
+     * Sets the number of samples of the song. The buckets before the new
+     * length are kept, except a last bucket that is cut short, which is
+     * emptied; the buckets after it are dropped, and new ones are empty.
+     */
+    public synchronized void setLength(long samples) {
+        if (samples < 0) {
+            throw new IllegalArgumentException("Illegal length: " + samples);
+        }
+        long buckets = (samples + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        if (buckets > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many samples: " + samples);
+        }
+        int kept = (int) (samples >= length ? (length + BUCKET_SIZE - 1) / BUCKET_SIZE : samples / BUCKET_SIZE);
+        int levels = 1;
+        while ((buckets - 1) >> (levels - 1) > 0) {
+            levels++;
+        }
+        float[][] newMin = new float[levels][];
+        float[][] newMax = new float[levels][];
+        for (int level = 0; level < levels; level++) {
+            int size = (int) Math.max(1, (buckets + (1L << level) - 1) >> level);
+            newMin[level] = new float[size];
+            newMax[level] = new float[size];
+        }
+        Arrays.fill(newMin[0], Float.POSITIVE_INFINITY);
+        Arrays.fill(newMax[0], Float.NEGATIVE_INFINITY);
+        if (kept > 0) {
+            System.arraycopy(min[0], 0, newMin[0], 0, kept);
+            System.arraycopy(max[0], 0, newMax[0], 0, kept);
+        }
+        min = newMin;
+        max = newMax;
+        length = samples;
+        rebuild(0, newMin[0].length);
+    }
+
+    /**
+     * Records the samples [from, to) of the block as the samples of the song
+     * starting at the given position. Samples past the length are ignored.
+     * A bucket only partly written holds the extremes of the part written,
+     * so the region should be invalidated before it is written again.
+     */
+    public synchronized void write(long position, float[] block, int from, int to) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Illegal position: " + position);
+        }
+        to = (int) Math.min(to, from + Math.max(0, length - position));
+        while (from < to) {
+            int bucket = (int) (position / BUCKET_SIZE);
+            int end = (int) Math.min(to, from + BUCKET_SIZE - position % BUCKET_SIZE);
+            float lo = block[from];
+            float hi = lo;
+            for (int i = from + 1; i < end; i++) {
+                float sample = block[i];
+                if (sample < lo) {
+                    lo = sample;
+                } else if (sample > hi) {
+                    hi = sample;
+                }
+            }
+            // extremes only ever widen while writing, so the levels above
+            // can be updated in place until one already covers them
+            for (int level = 0; level < min.length; level++, bucket >>= 1) {
+                if (lo >= min[level][bucket] && hi <= max[level][bucket]) {
+                    break;
+                }
+                min[level][bucket] = Math.min(min[level][bucket], lo);
+                max[level][bucket] = Math.max(max[level][bucket], hi);
+            }
+            position += end - from;
+            from = end;
+        }
+    }
+
+    /**
+     * Empties the buckets holding any sample of [from, to), so they can be
+     * written again. Whole buckets are emptied: the region is widened to
+     * multiples of BUCKET_SIZE.
+     */
+    public synchronized void invalidate(long from, long to) {
+        from = Math.max(0, from);
+        to = Math.min(length, to);
+        if (from >= to) {
+            return;
+        }
+        int first = (int) (from / BUCKET_SIZE);
+        int last = (int) ((to - 1) / BUCKET_SIZE) + 1;
+        Arrays.fill(min[0], first, last, Float.POSITIVE_INFINITY);
+        Arrays.fill(max[0], first, last, Float.NEGATIVE_INFINITY);
+        rebuild(first, last);
+    }
+
+    /**
+     * Fills one column per element of the arrays with the extremes of the
+     * samples [from, to), split evenly between the columns. A column holds
+     * NaN if none of its samples has been written or it is past the end.
+     * <p>
+     * Each column reads at most three buckets of the level whose buckets
+     * are just narrower than a column, so the cost does not depend on the
+     * number of samples. Columns narrower than a bucket show the whole
+     * bucket.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public synchronized void envelope(long from, long to, float[] columnMin, float[] columnMax) {
+        if (columnMin.length != columnMax.length) {
+            throw new IllegalArgumentException("Arrays of different lengths");
+        }
+        int columns = columnMin.length;
+        double perColumn = (double) (to - from) / columns;
+        int level = 0;
+        while (level + 1 < min.length && (double) BUCKET_SIZE * (2L << level) <= perColumn) {
+            level++;
+        }
+        long bucketSize = (long) BUCKET_SIZE << level;
+        float[] levelMin = min[level];
+        float[] levelMax = max[level];
+        for (int c = 0; c < columns; c++) {
+            long start = Math.max(0, from + (long) Math.floor(c * perColumn));
+            long end = Math.min(length, Math.max(start + 1, from + (long) Math.floor((c + 1) * perColumn)));
+            float lo = Float.POSITIVE_INFINITY;
+            float hi = Float.NEGATIVE_INFINITY;
+            if (start < end) {
+                int last = (int) ((end - 1) / bucketSize);
+                for (int b = (int) (start / bucketSize); b <= last; b++) {
+                    lo = Math.min(lo, levelMin[b]);
+                    hi = Math.max(hi, levelMax[b]);
+                }
+            }
+            columnMin[c] = lo <= hi ? lo : Float.NaN;
+            columnMax[c] = lo <= hi ? hi : Float.NaN;
+        }
+    }
+
+    /*
+     * Recomputes the levels above 0 over the buckets [first, last) of level 0.
+     */
+    private void rebuild(int first, int last) {
+        for (int level = 1; level < min.length; level++) {
+            first >>= 1;
+            last = (last + 1) >> 1;
+            float[] lowerMin = min[level - 1];
+            float[] lowerMax = max[level - 1];
+            for (int b = first; b < last; b++) {
+                int child = 2 * b;
+                float lo = lowerMin[child];
+                float hi = lowerMax[child];
+                if (child + 1 < lowerMin.length) {
+                    lo = Math.min(lo, lowerMin[child + 1]);
+                    hi = Math.max(hi, lowerMax[child + 1]);
+                }
+                min[level][b] = lo;
+                max[level][b] = hi;
+            }
+        }
+    }
+}
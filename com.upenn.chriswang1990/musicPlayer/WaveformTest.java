@@ -0,0 +1,195 @@
+//Project authors: Minquan Wang & Guanqing Hao
+
+package musicPlayer;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WaveformTest {
+
+    private static final int BUCKETS = 64;
+
+    /**
+     * test method for {@link musicPlayer.WaveformPyramid#envelope(long, long, float[], float[])}:
+     * samples written out of order give the extremes of a scan at every level
+     */
+    @Test
+    public void testEnvelope() {
+        float[] samples = randomSamples(BUCKETS * WaveformPyramid.BUCKET_SIZE);
+        WaveformPyramid pyramid = new WaveformPyramid();
+        pyramid.setLength(samples.length);
+        assertEquals(7, pyramid.getLevels());
+        assertTrue(Float.isNaN(envelope(pyramid, 1)[0]));
+
+        // the second half first, in uneven chunks
+        int half = samples.length / 2;
+        for (int from = half; from < samples.length; from += 1000) {
+            pyramid.write(from, samples, from, Math.min(samples.length, from + 1000));
+        }
+        float[] min = envelope(pyramid, BUCKETS);
+        assertTrue(Float.isNaN(min[0]));
+        assertFalse(Float.isNaN(min[BUCKETS / 2]));
+        pyramid.write(0, samples, 0, half);
+        for (int columns = BUCKETS; columns >= 1; columns /= 4) {
+            assertScan(samples, pyramid, columns);
+        }
+    }
+
+    /**
+     * test method for {@link musicPlayer.WaveformPyramid#invalidate(long, long)}
+     * and {@link musicPlayer.WaveformPyramid#setLength(long)}: a region written
+     * again replaces the old samples, and shortening keeps the whole buckets
+     */
+    @Test
+    public void testInvalidate() {
+        float[] samples = randomSamples(BUCKETS * WaveformPyramid.BUCKET_SIZE);
+        WaveformPyramid pyramid = new WaveformPyramid();
+        pyramid.setLength(samples.length);
+        pyramid.write(0, samples, 0, samples.length);
+
+        float[] quiet = randomSamples(samples.length);
+        for (int i = 0; i < quiet.length; i++) {
+            quiet[i] *= 0.1f;
+        }
+        pyramid.invalidate(1000, 5000);
+        float[] min = envelope(pyramid, BUCKETS);
+        assertTrue(Float.isNaN(min[3]) && Float.isNaN(min[19]));
+        assertFalse(Float.isNaN(min[2]) || Float.isNaN(min[20]));
+        System.arraycopy(quiet, 768, samples, 768, 5120 - 768);
+        pyramid.write(768, samples, 768, 5120);
+        assertScan(samples, pyramid, BUCKETS);
+        assertScan(samples, pyramid, 1);
+
+        pyramid.setLength(samples.length / 2 + 10);
+        min = envelope(pyramid, BUCKETS);
+        assertFalse(Float.isNaN(min[BUCKETS / 2 - 1]));
+        pyramid.write(samples.length / 2, samples, samples.length / 2, samples.length / 2 + 10);
+        float[] half = new float[samples.length / 2 + 10];
+        System.arraycopy(samples, 0, half, 0, half.length);
+        float[] column = new float[1];
+        float[] columnMax = new float[1];
+        pyramid.envelope(0, half.length, column, columnMax);
+        assertEquals(scanMin(half, 0, half.length), column[0], 0.0f);
+        assertEquals(scanMax(half, 0, half.length), columnMax[0], 0.0f);
+    }
+
+    /**
+     * test method for {@link musicPlayer.WaveformPanel#setSong(Song)}: the
+     * pyramid is built in the background, and after an edit the notes before
+     * it are not built again
+     */
+    @Test
+    public void testPanelRebuildsChangedNotes() throws Exception {
+        WaveformPanel panel = new WaveformPanel(AudioConfig.DEFAULT.getSampleRate());
+        try {
+            EditableSong editable = new EditableSong(new Song("testSong.txt"));
+            Song song = editable.toSong();
+            panel.setSong(song);
+            awaitBuilt(panel.getPyramid());
+            assertScan(render(song), panel.getPyramid(), 100);
+
+            editable.replace(2, Note.ofMidiKey(0.5, 72, false));
+            Song edited = editable.toSong();
+            panel.setSong(edited);
+            float[] min = envelope(panel.getPyramid(), 100);
+            assertFalse(Float.isNaN(min[0]));
+            assertFalse(Float.isNaN(min[99]));
+            awaitBuilt(panel.getPyramid());
+            assertScan(render(edited), panel.getPyramid(), 100);
+        } finally {
+            panel.dispose();
+        }
+    }
+
+    private static void assertScan(float[] samples, WaveformPyramid pyramid, int columns) {
+        float[] min = new float[columns];
+        float[] max = new float[columns];
+        pyramid.envelope(0, samples.length, min, max);
+        double perColumn = (double) samples.length / columns;
+        for (int c = 0; c < columns; c++) {
+            int from = (int) Math.floor(c * perColumn);
+            int to = (int) Math.floor((c + 1) * perColumn);
+            if (perColumn % WaveformPyramid.BUCKET_SIZE == 0) {
+                assertEquals(scanMin(samples, from, to), min[c], 0.0f);
+                assertEquals(scanMax(samples, from, to), max[c], 0.0f);
+            } else {
+                // whole buckets: at least the extremes of the column itself
+                assertTrue(min[c] <= scanMin(samples, from, to));
+                assertTrue(max[c] >= scanMax(samples, from, to));
+            }
+        }
+    }
+
+    private static float[] envelope(WaveformPyramid pyramid, int columns) {
+        float[] min = new float[columns];
+        pyramid.envelope(0, pyramid.getLength(), min, new float[columns]);
+        return min;
+    }
+
+    private static void awaitBuilt(WaveformPyramid pyramid) throws InterruptedException {
+        long deadline = System.nanoTime() + 10000000000L;
+        float[] min = new float[1];
+        float[] max = new float[1];
+        float[] columns = new float[(int) (pyramid.getLength() / WaveformPyramid.BUCKET_SIZE)];
+        while (System.nanoTime() < deadline) {
+            pyramid.envelope(0, pyramid.getLength(), columns, new float[columns.length]);
+            boolean built = true;
+            for (float column : columns) {
+                built &= !Float.isNaN(column);
+            }
+            pyramid.envelope(pyramid.getLength() - 1, pyramid.getLength(), min, max);
+            if (built && !Float.isNaN(min[0])) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("waveform not built");
+    }
+
+    private static float[] render(Song song) {
+        int rate = AudioConfig.DEFAULT.getSampleRate();
+        ToneGenerator.Oscillator oscillator = new ToneGenerator.Oscillator(rate);
+        int length = 0;
+        for (Note note : song.getPlayOrder()) {
+            oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+            length += oscillator.remaining();
+        }
+        float[] samples = new float[length];
+        int position = 0;
+        for (Note note : song.getPlayOrder()) {
+            oscillator.start(note.getFrequency(), note.getDuration(), Note.AMPLITUDE);
+            position += oscillator.next(samples, position, samples.length);
+        }
+        return samples;
+    }
+
+    private static float[] randomSamples(int length) {
+        Random random = new Random(42);
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (random.nextGaussian() * 0.2);
+        }
+        return samples;
+    }
+
+    private static float scanMin(float[] samples, int from, int to) {
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, samples[i]);
+        }
+        return min;
+    }
+
+    private static float scanMax(float[] samples, int from, int to) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max;
+    }
+}